@@ -2,6 +2,8 @@ package mikera.arrayz;
 
 import java.nio.DoubleBuffer;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.arrayz.impl.AbstractArray;
 import mikera.arrayz.impl.IStridedArray;
@@ -16,6 +18,7 @@ import mikera.vectorz.impl.ArrayIndexScalar;
 import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
 import mikera.vectorz.util.IntArrays;
+import mikera.vectorz.util.Parallel;
 import mikera.vectorz.util.VectorzException;
 
 /**
@@ -223,13 +226,17 @@ public final class Array extends AbstractArray<INDArray> implements IStridedArra
 
 	@Override
 	public void applyOp(Op op) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.applyOp(op, data, 0, data.length);
+			return;
+		}
 		op.applyTo(data);
 	}
 
 	@Override
 	public void applyOp(IOp op) {
 		if (op instanceof Op) {
-			((Op) op).applyTo(data);
+			applyOp((Op) op);
 		} else {
 			for (int i = 0; i < data.length; i++) {
 				data[i] = op.apply(data[i]);
@@ -261,6 +268,10 @@ public final class Array extends AbstractArray<INDArray> implements IStridedArra
 
 	@Override
 	public void multiply(double factor) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.multiply(data, 0, data.length, factor);
+			return;
+		}
 		DoubleArrays.multiply(data, 0, data.length, factor);
 	}
 
@@ -274,6 +285,16 @@ public final class Array extends AbstractArray<INDArray> implements IStridedArra
 		dest.put(data);
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		DoubleArrays.forEach(data, 0, data.length, action);
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return DoubleArrays.spliterator(data, 0, data.length);
+	}
+	
 	@Override
 	public double[] asDoubleArray() {
 		return data;
@@ -1,16 +1,13 @@
 package mikera.arrayz;
 
 import java.io.Reader;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import us.bpsm.edn.parser.Parseable;
-import us.bpsm.edn.parser.Parser;
-import us.bpsm.edn.parser.Parsers;
 
 import mikera.matrixx.Matrix;
 import mikera.matrixx.Matrixx;
+import mikera.matrixx.impl.BufferMatrix;
 import mikera.vectorz.AScalar;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Scalar;
@@ -18,7 +15,9 @@ import mikera.vectorz.Vector;
 import mikera.vectorz.Vectorz;
 import mikera.vectorz.impl.ArrayIndexScalar;
 import mikera.vectorz.impl.ArraySubVector;
+import mikera.vectorz.impl.BufferVector;
 import mikera.vectorz.impl.Vector0;
+import mikera.vectorz.util.EdnReader;
 import mikera.vectorz.util.IntArrays;
 import mikera.vectorz.util.VectorzException;
 
@@ -73,6 +72,21 @@ public class Arrayz {
 		}
 	}
 	
+	/**
+	 * Creates a zero-filled array stored off-heap in a direct buffer, selecting the
+	 * buffer-backed type appropriate for the number of dimensions
+	 */
+	public static INDArray createDirect(int... shape) {
+		int dims=shape.length;
+		
+		switch (dims) {
+			case 0: return Scalar.create(0.0);
+			case 1: return BufferVector.create(shape[0]);
+			case 2: return BufferMatrix.create(shape[0], shape[1]);
+			default: return BufferArray.create(shape);
+		}
+	}
+	
 	public static INDArray create(INDArray a) {
 		int dims=a.dimensionality();
 		switch (dims) {
@@ -143,14 +157,18 @@ public class Arrayz {
 		}
 	}
 	
+	/**
+	 * Reads an array in edn format from a Reader
+	 */
 	public static INDArray load(Reader reader) {
-		Parseable pbr=Parsers.newParseable(reader);
-		Parser p = Parsers.newParser(Parsers.defaultConfiguration());
-		return Arrayz.create(p.nextValue(pbr));
+		return new EdnReader(reader).readArray();
 	}
 	
+	/**
+	 * Parses an array in edn format
+	 */
 	public static INDArray parse(String ednString) {
-		return load(new StringReader(ednString));	
+		return new EdnReader(ednString).readArray();	
 	}
 
 	public static long elementCount(int[] shape) {
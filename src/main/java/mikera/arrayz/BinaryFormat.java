@@ -0,0 +1,535 @@
+package mikera.arrayz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import mikera.indexz.AIndex;
+import mikera.indexz.Index;
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.impl.BandedMatrix;
+import mikera.matrixx.impl.DiagonalMatrix;
+import mikera.matrixx.impl.PermutationMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Scalar;
+import mikera.vectorz.Vector;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Compact, versioned binary format for arrays and indexes.
+ *
+ * Layout (all values little-endian):
+ * <pre>
+ *   magic      4 bytes  'V' 'Z' 'B' version
+ *   type       1 byte   one of the TYPE_ constants
+ *   reserved   3 bytes
+ *   dims       int
+ *   shape      dims x int
+ *   (padding to a multiple of 8 bytes)
+ *   payload
+ * </pre>
+ * The payload for each type is:
+ * <ul>
+ *   <li>TYPE_DENSE: all elements as doubles in row-major order</li>
+ *   <li>TYPE_SPARSE_VECTOR: count int, padding, count index ints, padding, count doubles</li>
+ *   <li>TYPE_DIAGONAL: the leading diagonal as doubles</li>
+ *   <li>TYPE_BANDED: minBand int, maxBand int, then each band from minBand to maxBand as doubles</li>
+ *   <li>TYPE_PERMUTATION: the row permutation as ints, padding</li>
+ *   <li>TYPE_INDEX: the index values as ints, padding</li>
+ * </ul>
+ *
+ * Sparse and structured types are written in their compact form and read back as the same type.
+ * All other arrays are written densely and read back as Scalar, Vector, Matrix or Array.
+ *
+ * @author Mike
+ *
+ */
+public final class BinaryFormat {
+	public static final int VERSION=1;
+
+	public static final byte TYPE_DENSE=0;
+	public static final byte TYPE_SPARSE_VECTOR=1;
+	public static final byte TYPE_DIAGONAL=2;
+	public static final byte TYPE_BANDED=3;
+	public static final byte TYPE_PERMUTATION=4;
+	public static final byte TYPE_INDEX=5;
+
+	static final int CHUNK_BYTES=1<<16;
+
+	// ========================================================================
+	// Public API
+
+	/**
+	 * Returns the number of bytes needed to write the given array
+	 */
+	public static long byteSize(INDArray a) {
+		int dims=a.dimensionality();
+		long header=pad(12+4L*dims);
+		switch (typeOf(a)) {
+			case TYPE_SPARSE_VECTOR: {
+				int n=((SparseIndexedVector)a).nonSparseElementCount();
+				return header+8+pad(4L*n)+8L*n;
+			}
+			case TYPE_DIAGONAL: return header+8L*((DiagonalMatrix)a).rowCount();
+			case TYPE_BANDED: {
+				BandedMatrix m=(BandedMatrix)a;
+				long n=0;
+				for (int i=-m.lowerBandwidthLimit(); i<=m.upperBandwidthLimit(); i++) {
+					n+=m.bandLength(i);
+				}
+				return header+8+8L*n;
+			}
+			case TYPE_PERMUTATION: return header+pad(4L*((PermutationMatrix)a).rowCount());
+			default: return header+8L*a.elementCount();
+		}
+	}
+
+	public static long byteSize(AIndex index) {
+		return 16+pad(4L*index.length());
+	}
+
+	/**
+	 * Writes an array to a ByteBuffer, starting at the buffer's position. The buffer's byte order is not changed.
+	 */
+	public static void write(INDArray a, ByteBuffer dest) {
+		ByteBuffer b=littleEndian(dest);
+		try {
+			writeArray(a,new Output(b,null));
+			dest.position(b.position());
+		} catch (IOException e) {
+			throw new VectorzException("Unexpected IO error",e);
+		}
+	}
+
+	public static void write(INDArray a, WritableByteChannel channel) throws IOException {
+		Output out=new Output(littleEndian(ByteBuffer.allocate(CHUNK_BYTES)),channel);
+		writeArray(a,out);
+		out.flush();
+	}
+
+	public static void write(INDArray a, OutputStream stream) throws IOException {
+		write(a,Channels.newChannel(stream));
+	}
+
+	/**
+	 * Returns a new heap ByteBuffer containing the given array, with position zero
+	 */
+	public static ByteBuffer toByteBuffer(INDArray a) {
+		long n=byteSize(a);
+		if (n>Integer.MAX_VALUE) throw new IllegalArgumentException("Array too large for a single buffer: "+n+" bytes");
+		ByteBuffer b=ByteBuffer.allocate((int)n);
+		write(a,b);
+		b.flip();
+		return b;
+	}
+
+	/**
+	 * Reads an array from a ByteBuffer, starting at the buffer's position. The buffer's byte order is not changed.
+	 */
+	public static INDArray read(ByteBuffer src) {
+		ByteBuffer b=littleEndian(src);
+		try {
+			INDArray result=readArray(new Input(b,null));
+			src.position(b.position());
+			return result;
+		} catch (IOException e) {
+			throw new VectorzException("Unexpected IO error",e);
+		}
+	}
+
+	public static INDArray read(ReadableByteChannel channel) throws IOException {
+		return readArray(new Input(emptyBuffer(),channel));
+	}
+
+	public static INDArray read(InputStream stream) throws IOException {
+		return read(Channels.newChannel(stream));
+	}
+
+	public static void write(AIndex index, ByteBuffer dest) {
+		ByteBuffer b=littleEndian(dest);
+		try {
+			writeIndex(index,new Output(b,null));
+			dest.position(b.position());
+		} catch (IOException e) {
+			throw new VectorzException("Unexpected IO error",e);
+		}
+	}
+
+	public static void write(AIndex index, OutputStream stream) throws IOException {
+		Output out=new Output(littleEndian(ByteBuffer.allocate(CHUNK_BYTES)),Channels.newChannel(stream));
+		writeIndex(index,out);
+		out.flush();
+	}
+
+	public static Index readIndex(ByteBuffer src) {
+		ByteBuffer b=littleEndian(src);
+		try {
+			Index result=readIndex(new Input(b,null));
+			src.position(b.position());
+			return result;
+		} catch (IOException e) {
+			throw new VectorzException("Unexpected IO error",e);
+		}
+	}
+
+	public static Index readIndex(InputStream stream) throws IOException {
+		return readIndex(new Input(emptyBuffer(),Channels.newChannel(stream)));
+	}
+
+	// ========================================================================
+	// Writing
+
+	private static byte typeOf(INDArray a) {
+		if (a instanceof SparseIndexedVector) return TYPE_SPARSE_VECTOR;
+		if (a instanceof DiagonalMatrix) return TYPE_DIAGONAL;
+		if (a instanceof BandedMatrix) return TYPE_BANDED;
+		if (a instanceof PermutationMatrix) return TYPE_PERMUTATION;
+		return TYPE_DENSE;
+	}
+
+	private static long pad(long n) {
+		return (n+7)&~7L;
+	}
+
+	private static void writeHeader(Output out, byte type, int[] shape) throws IOException {
+		out.ensure(12+4*shape.length);
+		ByteBuffer b=out.buf;
+		b.put((byte)'V'); b.put((byte)'Z'); b.put((byte)'B'); b.put((byte)VERSION);
+		b.put(type); b.put((byte)0); b.put((byte)0); b.put((byte)0);
+		b.putInt(shape.length);
+		for (int s: shape) {
+			b.putInt(s);
+		}
+		out.pad(12+4*shape.length);
+	}
+
+	private static void writeArray(INDArray a, Output out) throws IOException {
+		byte type=typeOf(a);
+		writeHeader(out,type,a.getShape());
+		switch (type) {
+			case TYPE_SPARSE_VECTOR: {
+				SparseIndexedVector v=(SparseIndexedVector)a;
+				int n=v.nonSparseElementCount();
+				out.putInt(n);
+				out.putInt(0);
+				out.putInts(v.nonSparseIndexes().getData(),0,n);
+				writeVector(v.nonSparseValues(),out);
+				break;
+			}
+			case TYPE_DIAGONAL:
+				writeVector(((DiagonalMatrix)a).getLeadingDiagonal(),out);
+				break;
+			case TYPE_BANDED: {
+				BandedMatrix m=(BandedMatrix)a;
+				int minBand=-m.lowerBandwidthLimit();
+				int maxBand=m.upperBandwidthLimit();
+				out.putInt(minBand);
+				out.putInt(maxBand);
+				for (int i=minBand; i<=maxBand; i++) {
+					writeVector(m.getBand(i),out);
+				}
+				break;
+			}
+			case TYPE_PERMUTATION: {
+				Index perm=((PermutationMatrix)a).getPermutation();
+				out.putInts(perm.getData(),0,perm.length());
+				break;
+			}
+			default:
+				writeDense(a,out);
+		}
+	}
+
+	private static void writeIndex(AIndex index, Output out) throws IOException {
+		int n=index.length();
+		writeHeader(out,TYPE_INDEX,new int[] {n});
+		int[] data=(index instanceof Index)?((Index)index).getData():index.toArray();
+		out.putInts(data,0,n);
+	}
+
+	static void writeDense(INDArray a, Output out) throws IOException {
+		int dims=a.dimensionality();
+		if (dims==0) {
+			out.putDoubles(new double[] {a.get()},0,1);
+		} else if (a instanceof AVector) {
+			writeVector((AVector)a,out);
+		} else if (dims==1) {
+			writeVector(a.asVector(),out);
+		} else if (a instanceof Matrix) {
+			Matrix m=(Matrix)a;
+			out.putDoubles(m.data,0,m.data.length);
+		} else if (a instanceof AMatrix) {
+			AMatrix m=(AMatrix)a;
+			int rc=m.rowCount();
+			for (int i=0; i<rc; i++) {
+				writeVector(m.getRow(i),out);
+			}
+		} else {
+			int sc=a.sliceCount();
+			for (int i=0; i<sc; i++) {
+				writeDense(a.slice(i),out);
+			}
+		}
+	}
+
+	private static void writeVector(AVector v, Output out) throws IOException {
+		int n=v.length();
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			out.putDoubles(av.getArray(),av.getArrayOffset(),n);
+			return;
+		}
+		double[] tmp=new double[Math.min(n, CHUNK_BYTES/8)];
+		for (int i=0; i<n; i+=tmp.length) {
+			int len=Math.min(tmp.length, n-i);
+			v.copyTo(i, tmp, 0, len);
+			out.putDoubles(tmp,0,len);
+		}
+	}
+
+	// ========================================================================
+	// Reading
+
+	private static int[] readHeader(Input in, byte expectedType) throws IOException {
+		in.ensure(12);
+		ByteBuffer b=in.buf;
+		if ((b.get()!='V')||(b.get()!='Z')||(b.get()!='B')) throw new VectorzException("Invalid binary format: bad magic number");
+		int version=b.get();
+		if (version!=VERSION) throw new VectorzException("Unsupported binary format version: "+version);
+		byte type=b.get();
+		b.get(); b.get(); b.get();
+		if ((expectedType>=0)&&(type!=expectedType)) throw new VectorzException("Unexpected binary format type: "+type);
+		int dims=b.getInt();
+		if (dims<0) throw new VectorzException("Invalid binary format: negative dimensionality");
+		int[] shape=new int[dims];
+		in.getInts(shape,0,dims);
+		for (int s: shape) {
+			if (s<0) throw new VectorzException("Invalid binary format: negative shape");
+		}
+		in.skip((int)(pad(12+4L*dims)-(12+4L*dims)));
+		in.type=type;
+		return shape;
+	}
+
+	private static INDArray readArray(Input in) throws IOException {
+		int[] shape=readHeader(in,(byte)-1);
+		switch (in.type) {
+			case TYPE_DENSE: {
+				long n=Arrayz.elementCount(shape);
+				if (n>Integer.MAX_VALUE) throw new VectorzException("Array too large to read: "+n+" elements");
+				double[] data=new double[(int)n];
+				in.getDoubles(data,0,(int)n);
+				switch (shape.length) {
+					case 0: return Scalar.create(data[0]);
+					case 1: return Vector.wrap(data);
+					case 2: return Matrix.wrap(shape[0], shape[1], data);
+					default: return Array.wrap(data, shape);
+				}
+			}
+			case TYPE_SPARSE_VECTOR: {
+				checkDims(shape,1);
+				in.ensure(8);
+				int n=in.buf.getInt();
+				in.buf.getInt();
+				int[] indexes=new int[n];
+				in.getInts(indexes,0,n);
+				in.skip((int)(pad(4L*n)-4L*n));
+				double[] values=new double[n];
+				in.getDoubles(values,0,n);
+				return SparseIndexedVector.create(shape[0], Index.wrap(indexes), values);
+			}
+			case TYPE_DIAGONAL: {
+				checkDims(shape,2);
+				double[] data=new double[shape[0]];
+				in.getDoubles(data,0,data.length);
+				return DiagonalMatrix.wrap(data);
+			}
+			case TYPE_BANDED: {
+				checkDims(shape,2);
+				in.ensure(8);
+				int minBand=in.buf.getInt();
+				int maxBand=in.buf.getInt();
+				if (minBand>maxBand+1) throw new VectorzException("Invalid binary format: bad band range");
+				AVector[] bands=new AVector[maxBand-minBand+1];
+				for (int i=minBand; i<=maxBand; i++) {
+					double[] data=new double[bandLength(shape[0], shape[1], i)];
+					in.getDoubles(data,0,data.length);
+					bands[i-minBand]=Vector.wrap(data);
+				}
+				return BandedMatrix.wrap(shape[0], shape[1], minBand, maxBand, bands);
+			}
+			case TYPE_PERMUTATION: {
+				checkDims(shape,2);
+				int[] perm=new int[shape[0]];
+				in.getInts(perm,0,perm.length);
+				in.skip((int)(pad(4L*perm.length)-4L*perm.length));
+				return PermutationMatrix.wrap(Index.wrap(perm));
+			}
+			default:
+				throw new VectorzException("Unknown binary format type: "+in.type);
+		}
+	}
+
+	private static Index readIndex(Input in) throws IOException {
+		int[] shape=readHeader(in,TYPE_INDEX);
+		checkDims(shape,1);
+		int[] data=new int[shape[0]];
+		in.getInts(data,0,data.length);
+		in.skip((int)(pad(4L*data.length)-4L*data.length));
+		return Index.wrap(data);
+	}
+
+	private static int bandLength(int rc, int cc, int band) {
+		if (band>0) return (band<cc)?Math.min(rc, cc-band):0;
+		return (-band<rc)?Math.min(cc, rc+band):0;
+	}
+
+	private static void checkDims(int[] shape, int dims) {
+		if (shape.length!=dims) throw new VectorzException("Invalid binary format: expected "+dims+" dimensions but got "+shape.length);
+	}
+
+	static ByteBuffer emptyBuffer() {
+		ByteBuffer b=littleEndian(ByteBuffer.allocate(CHUNK_BYTES));
+		b.limit(0);
+		return b;
+	}
+
+	/**
+	 * Returns a little-endian view of a buffer, sharing its content and position
+	 */
+	static ByteBuffer littleEndian(ByteBuffer b) {
+		return b.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	// ========================================================================
+	// Buffered output and input, over either a single ByteBuffer or a channel
+
+	static final class Output {
+		final ByteBuffer buf;
+		final WritableByteChannel channel; // null if writing directly to buf
+
+		Output(ByteBuffer buf, WritableByteChannel channel) {
+			this.buf=buf;
+			this.channel=channel;
+		}
+
+		/**
+		 * Ensures at least n bytes (n <= CHUNK_BYTES) can be written to the buffer
+		 */
+		void ensure(int n) throws IOException {
+			if (buf.remaining()>=n) return;
+			if (channel==null) throw new BufferOverflowException();
+			flush();
+		}
+
+		void flush() throws IOException {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			buf.clear();
+		}
+
+		void putInt(int v) throws IOException {
+			ensure(4);
+			buf.putInt(v);
+		}
+
+		void pad(long written) throws IOException {
+			int n=(int)(BinaryFormat.pad(written)-written);
+			ensure(n);
+			for (int i=0; i<n; i++) {
+				buf.put((byte)0);
+			}
+		}
+
+		/**
+		 * Writes ints, followed by padding to a multiple of 8 bytes
+		 */
+		void putInts(int[] src, int offset, int length) throws IOException {
+			int total=length;
+			while (length>0) {
+				ensure(4);
+				int n=Math.min(length, buf.remaining()/4);
+				buf.asIntBuffer().put(src, offset, n);
+				buf.position(buf.position()+n*4);
+				offset+=n;
+				length-=n;
+			}
+			pad(4L*total);
+		}
+
+		void putDoubles(double[] src, int offset, int length) throws IOException {
+			while (length>0) {
+				ensure(8);
+				int n=Math.min(length, buf.remaining()/8);
+				buf.asDoubleBuffer().put(src, offset, n);
+				buf.position(buf.position()+n*8);
+				offset+=n;
+				length-=n;
+			}
+		}
+	}
+
+	static final class Input {
+		final ByteBuffer buf;
+		final ReadableByteChannel channel; // null if reading directly from buf
+		byte type;
+
+		Input(ByteBuffer buf, ReadableByteChannel channel) {
+			this.buf=buf;
+			this.channel=channel;
+		}
+
+		/**
+		 * Ensures at least n bytes (n <= CHUNK_BYTES) are available to read. Reads from the channel
+		 * stop at exactly n bytes, so that data following the current record is never consumed.
+		 */
+		void ensure(int n) throws IOException {
+			if (buf.remaining()>=n) return;
+			if (channel==null) throw new VectorzException("Invalid binary format: unexpected end of data");
+			buf.compact();
+			buf.limit(n);
+			while (buf.position()<n) {
+				if (channel.read(buf)<0) throw new VectorzException("Invalid binary format: unexpected end of data");
+			}
+			buf.flip();
+		}
+
+		void skip(int n) throws IOException {
+			ensure(n);
+			buf.position(buf.position()+n);
+		}
+
+		void getInts(int[] dest, int offset, int length) throws IOException {
+			while (length>0) {
+				ensure(Math.min(length*4, CHUNK_BYTES));
+				int n=Math.min(length, buf.remaining()/4);
+				buf.asIntBuffer().get(dest, offset, n);
+				buf.position(buf.position()+n*4);
+				offset+=n;
+				length-=n;
+			}
+		}
+
+		void getDoubles(double[] dest, int offset, int length) throws IOException {
+			while (length>0) {
+				ensure((int)Math.min(length*8L, CHUNK_BYTES));
+				int n=Math.min(length, buf.remaining()/8);
+				buf.asDoubleBuffer().get(dest, offset, n);
+				buf.position(buf.position()+n*8);
+				offset+=n;
+				length-=n;
+			}
+		}
+	}
+}
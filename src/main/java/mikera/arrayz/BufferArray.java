@@ -0,0 +1,301 @@
+package mikera.arrayz;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+import mikera.arrayz.impl.AbstractArray;
+import mikera.arrayz.impl.IBufferArray;
+import mikera.matrixx.impl.BufferMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.IOp;
+import mikera.vectorz.Op;
+import mikera.vectorz.impl.BufferVector;
+import mikera.vectorz.util.DoubleBuffers;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.IntArrays;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * N-dimensional array backed by a range of a DoubleBuffer, in packed row-major order.
+ *
+ * This is the off-heap equivalent of Array, intended for 3D+ arrays. Major slices are
+ * BufferArray or BufferMatrix views onto the same buffer.
+ *
+ * @author Mike
+ *
+ */
+public final class BufferArray extends AbstractArray<INDArray> implements IBufferArray {
+	private DoubleBuffer buffer; // null once closed
+	private final int offset;
+	private final int dimensions;
+	private final int[] shape;
+	private final int[] strides;
+	private final int length;
+
+	private BufferArray(DoubleBuffer buffer, int offset, int[] shape) {
+		this.dimensions=shape.length;
+		if (dimensions<3) throw new IllegalArgumentException("BufferArray requires at least 3 dimensions, use BufferVector or BufferMatrix instead");
+		long n=IntArrays.arrayProduct(shape);
+		if ((offset<0)||(offset+n>buffer.capacity())) throw new IndexOutOfBoundsException("Array data out of buffer bounds");
+		this.buffer=buffer;
+		this.offset=offset;
+		this.shape=shape;
+		this.strides=IntArrays.calcStrides(shape);
+		this.length=(int)n;
+	}
+
+	/**
+	 * Creates a new zero-filled BufferArray backed by a direct buffer
+	 */
+	public static BufferArray create(int... shape) {
+		long n=IntArrays.arrayProduct(shape);
+		if (n>Integer.MAX_VALUE) throw new IllegalArgumentException(ErrorMessages.illegalSize(shape));
+		return new BufferArray(DoubleBuffers.allocateDirect((int)n),0,shape.clone());
+	}
+
+	/**
+	 * Creates a new BufferArray backed by a direct buffer, containing a copy of the given array
+	 */
+	public static BufferArray create(INDArray a) {
+		BufferArray b=create(a.getShape());
+		b.set(a);
+		return b;
+	}
+
+	/**
+	 * Wraps a DoubleBuffer containing array elements in row-major order, starting at the buffer's position
+	 */
+	public static BufferArray wrap(DoubleBuffer buffer, int... shape) {
+		return new BufferArray(buffer,buffer.position(),shape.clone());
+	}
+
+	public static BufferArray wrap(DoubleBuffer buffer, int offset, int[] shape) {
+		return new BufferArray(buffer,offset,shape.clone());
+	}
+
+	/**
+	 * Returns the backing buffer, throwing a VectorzException if this array has been closed
+	 */
+	private DoubleBuffer buffer() {
+		DoubleBuffer b=buffer;
+		if (b==null) throw new VectorzException("BufferArray has been closed");
+		return b;
+	}
+
+	@Override
+	public int dimensionality() {
+		return dimensions;
+	}
+
+	@Override
+	public int[] getShape() {
+		return shape;
+	}
+
+	@Override
+	public int getShape(int dim) {
+		return shape[dim];
+	}
+
+	@Override
+	public long[] getLongShape() {
+		long[] lshape=new long[dimensions];
+		IntArrays.copyIntsToLongs(shape, lshape);
+		return lshape;
+	}
+
+	@Override
+	public long elementCount() {
+		return length;
+	}
+
+	private int getIndex(int[] indexes) {
+		if (indexes.length!=dimensions) throw new IllegalArgumentException(ErrorMessages.invalidIndex(this, indexes));
+		int ix=offset;
+		for (int i=0; i<dimensions; i++) {
+			int x=indexes[i];
+			if ((x<0)||(x>=shape[i])) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, indexes));
+			ix+=x*strides[i];
+		}
+		return ix;
+	}
+
+	@Override
+	public double get(int... indexes) {
+		return buffer().get(getIndex(indexes));
+	}
+
+	@Override
+	public void set(int[] indexes, double value) {
+		buffer().put(getIndex(indexes),value);
+	}
+
+	@Override
+	public INDArray slice(int majorSlice) {
+		if ((majorSlice<0)||(majorSlice>=shape[0])) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, majorSlice));
+		int sliceOffset=offset+majorSlice*strides[0];
+		if (dimensions==3) return BufferMatrix.wrap(buffer(), sliceOffset, shape[1], shape[2]);
+		return new BufferArray(buffer(),sliceOffset,IntArrays.removeIndex(shape, 0));
+	}
+
+	@Override
+	public INDArray slice(int dimension, int index) {
+		if ((dimension<0)||(dimension>=dimensions)) throw new IndexOutOfBoundsException(ErrorMessages.invalidDimension(this, dimension));
+		if (dimension==0) return slice(index);
+		int n=shape[0];
+		ArrayList<INDArray> slices=new ArrayList<INDArray>(n);
+		for (int i=0; i<n; i++) {
+			slices.add(slice(i).slice(dimension-1, index));
+		}
+		return SliceArray.create(slices);
+	}
+
+	@Override
+	public int sliceCount() {
+		return shape[0];
+	}
+
+	@Override
+	public List<INDArray> getSlices() {
+		return super.getSliceViews();
+	}
+
+	@Override
+	public AVector asVector() {
+		return BufferVector.wrap(buffer(), offset, length);
+	}
+
+	@Override
+	public boolean isMutable() {
+		return !buffer().isReadOnly();
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return !buffer().isReadOnly();
+	}
+
+	@Override
+	public boolean isElementConstrained() {
+		return false;
+	}
+
+	@Override
+	public boolean isView() {
+		return true;
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		DoubleBuffers.get(buffer(), this.offset, dest, offset, length);
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=this.length) throw new IllegalArgumentException("Incorrect length: "+length);
+		DoubleBuffers.put(buffer(), this.offset, values, offset, length);
+	}
+
+	@Override
+	public void set(INDArray a) {
+		if (a instanceof BufferArray) {
+			BufferArray b=(BufferArray)a;
+			if (!IntArrays.equals(shape, b.shape)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, a));
+			DoubleBuffers.copy(b.buffer(), b.offset, buffer(), offset, length);
+		} else if (IntArrays.equals(shape, a.getShape())) {
+			double[] values=new double[length];
+			a.getElements(values, 0);
+			DoubleBuffers.put(buffer(), offset, values, 0, length);
+		} else {
+			super.set(a);
+		}
+	}
+
+	@Override
+	public void add(double a) {
+		DoubleBuffers.add(buffer(), offset, length, a);
+	}
+
+	@Override
+	public void multiply(double factor) {
+		DoubleBuffers.multiply(buffer(), offset, length, factor);
+	}
+
+	@Override
+	public void fill(double value) {
+		DoubleBuffers.fill(buffer(), offset, length, value);
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		DoubleBuffers.applyOp(buffer(), offset, length, op);
+	}
+
+	@Override
+	public void applyOp(IOp op) {
+		if (op instanceof Op) {
+			applyOp((Op)op);
+		} else {
+			DoubleBuffer b=buffer();
+			for (int i=0; i<length; i++) {
+				b.put(offset+i, op.apply(b.get(offset+i)));
+			}
+		}
+	}
+
+	@Override
+	public double elementSum() {
+		return DoubleBuffers.elementSum(buffer(), offset, length);
+	}
+
+	@Override
+	public double elementSquaredSum() {
+		return DoubleBuffers.elementSquaredSum(buffer(), offset, length);
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return DoubleBuffers.nonZeroCount(buffer(), offset, length);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		DoubleBuffers.forEach(buffer(), offset, length, action);
+	}
+
+	@Override
+	public DoubleBuffer asDoubleBuffer() {
+		return DoubleBuffers.slice(buffer(), offset, length);
+	}
+
+	@Override
+	public void toDoubleBuffer(DoubleBuffer dest) {
+		dest.put(asDoubleBuffer());
+	}
+
+	@Override
+	public void close() {
+		buffer=null;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return buffer==null;
+	}
+
+	@Override
+	public BufferArray exactClone() {
+		BufferArray b=create(shape);
+		DoubleBuffers.copy(buffer(), offset, b.buffer(), 0, length);
+		return b;
+	}
+
+	@Override
+	public void validate() {
+		if (dimensions!=shape.length) throw new VectorzException("Inconsistent dimensionality");
+		if ((offset<0)||(offset+length>buffer().capacity())) throw new VectorzException("Array data out of buffer bounds");
+		super.validate();
+	}
+}
@@ -0,0 +1,18 @@
+package mikera.arrayz;
+
+/**
+ * Interface for visiting the elements of an array together with their position.
+ * 
+ * Positions are given as the index of the element in row-major order, so for a
+ * vector this is simply the element index.
+ * 
+ * @author Mike
+ */
+public interface IElementVisitor {
+	/**
+	 * Called once for each element of the array, in row-major order
+	 * @param index Position of the element in row-major order
+	 * @param value Value of the element
+	 */
+	public void visit(long index, double value);
+}
@@ -1,13 +1,21 @@
 package mikera.arrayz;
 
 import java.nio.DoubleBuffer;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
 
 import mikera.vectorz.AVector;
 import mikera.vectorz.IOp;
 import mikera.vectorz.Op;
 import mikera.vectorz.Vector;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.IntArrays;
 
 /**
  * Interface for general multi-dimensional arrays of doubles
@@ -201,6 +209,33 @@ public interface INDArray extends Cloneable {
 	 * @return
 	 */
 	public INDArray slice(int dimension, int index);
+
+	/**
+	 * Reduces this array along the specified dimension (e.g. summing, or taking the maximum),
+	 * returning a new array with that dimension removed.
+	 * 
+	 * The default implementation accumulates each slice along the dimension in turn. Vectorz
+	 * arrays override this with strided kernels, see Reduction.
+	 * @param dimension
+	 * @param r
+	 * @return
+	 */
+	public default INDArray reduce(int dimension, Reduction r) {
+		int dims=dimensionality();
+		if ((dimension<0)||(dimension>=dims)) throw new IllegalArgumentException(ErrorMessages.invalidDimension(this, dimension));
+		int n=getShape(dimension);
+		int[] resultShape=IntArrays.removeIndex(getShape(), dimension);
+		int len=(int)IntArrays.arrayProduct(resultShape);
+		double[] acc=new double[len];
+		Arrays.fill(acc, r.identity());
+		for (int k=0; k<n; k++) {
+			r.accumulate(acc, 0, slice(dimension, k).toDoubleArray(), 0, 1, len);
+		}
+		for (int i=0; i<len; i++) {
+			acc[i]=r.finish(acc[i], n);
+		}
+		return Arrayz.wrap(acc, resultShape);
+	}
 	
 	/**
 	 * Returns the transpose of this array. A transpose of an array is equivalent to 
@@ -247,10 +282,60 @@ public interface INDArray extends Cloneable {
 	public double elementSquaredSum();
 	
 	/**
-	 * Returns an iterator over all elements in this array.
+	 * Returns an iterator over all elements in this array, in row-major order.
+	 * 
+	 * Use nextDouble() on the returned iterator to avoid boxing. The default implementation
+	 * iterates over a copy of the elements.
+	 * @return
+	 */
+	public default PrimitiveIterator.OfDouble elementIterator() {
+		return Spliterators.iterator(Arrays.spliterator(toDoubleArray()));
+	}
+	
+	/**
+	 * Calls the given action for each element in this array, in row-major order.
+	 * @param action
+	 */
+	public default void forEachElement(DoubleConsumer action) {
+		PrimitiveIterator.OfDouble it=elementIterator();
+		while (it.hasNext()) {
+			action.accept(it.nextDouble());
+		}
+	}
+	
+	/**
+	 * Calls the given visitor for each element in this array, in row-major order, 
+	 * passing the row-major index of each element along with its value.
+	 * @param visitor
+	 */
+	public default void visitElements(IElementVisitor visitor) {
+		PrimitiveIterator.OfDouble it=elementIterator();
+		long i=0;
+		while (it.hasNext()) {
+			visitor.visit(i++, it.nextDouble());
+		}
+	}
+	
+	/**
+	 * Returns a spliterator over all elements in this array, in row-major order.
+	 * 
+	 * Vectorz arrays return spliterators that split efficiently, so are suitable for use with
+	 * parallel streams. The default implementation wraps elementIterator().
+	 * @return
+	 */
+	public default Spliterator.OfDouble elementSpliterator() {
+		return Spliterators.spliterator(elementIterator(), elementCount(), Spliterator.SIZED|Spliterator.ORDERED);
+	}
+	
+	/**
+	 * Returns a sequential DoubleStream over all elements in this array, in row-major order.
+	 * 
+	 * Call parallel() on the result to obtain a parallel stream.
 	 * @return
 	 */
-	public Iterator<Double> elementIterator();
+	public default DoubleStream elementStream() {
+		return StreamSupport.doubleStream(elementSpliterator(), false);
+	}
 	
 	/**
 	 * Multiplies all elements by the equivalent elements in a second array
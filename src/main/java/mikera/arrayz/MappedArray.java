@@ -0,0 +1,318 @@
+package mikera.arrayz;
+
+import java.io.File;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import mikera.arrayz.impl.AbstractArray;
+import mikera.arrayz.impl.MappedStorage;
+import mikera.matrixx.impl.BufferMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.IOp;
+import mikera.vectorz.Op;
+import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.BufferVector;
+import mikera.vectorz.util.DoubleBuffers;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.IntArrays;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * N-dimensional array stored in a memory-mapped file, in packed row-major order.
+ *
+ * This is the 3D+ equivalent of MappedMatrix. Major slices are zero-copy BufferMatrix or
+ * BufferArray views of the mapped data. Files larger than 2GB are mapped as multiple chunks,
+ * each holding whole major slices.
+ *
+ * @author Mike
+ *
+ */
+public final class MappedArray extends AbstractArray<INDArray> implements AutoCloseable {
+	private final MappedStorage storage;
+	private final int dimensions;
+	private final int[] shape;
+	private final int[] strides;
+
+	private MappedArray(MappedStorage storage, int[] shape) {
+		this.storage=storage;
+		this.dimensions=shape.length;
+		this.shape=shape;
+		this.strides=IntArrays.calcStrides(shape);
+	}
+
+	/**
+	 * Maps an existing file containing an array in row-major order, starting at the given byte position
+	 */
+	public static MappedArray map(File file, long position, boolean readOnly, int... shape) {
+		if (shape.length<3) throw new IllegalArgumentException("MappedArray requires at least 3 dimensions, use MappedMatrix instead");
+		long sliceLength=IntArrays.arrayProduct(shape, 1, shape.length);
+		if (sliceLength>Integer.MAX_VALUE) throw new IllegalArgumentException(ErrorMessages.illegalSize(shape));
+		MappedStorage storage=MappedStorage.map(file, position, (int)sliceLength, shape[0], readOnly);
+		return new MappedArray(storage,shape.clone());
+	}
+
+	/**
+	 * Creates a writable mapped array in the given file, extending the file as needed
+	 */
+	public static MappedArray create(File file, int... shape) {
+		return map(file,0,false,shape);
+	}
+
+	@Override
+	public int dimensionality() {
+		return dimensions;
+	}
+
+	@Override
+	public int[] getShape() {
+		return shape;
+	}
+
+	@Override
+	public int getShape(int dim) {
+		return shape[dim];
+	}
+
+	@Override
+	public long[] getLongShape() {
+		long[] lshape=new long[dimensions];
+		IntArrays.copyIntsToLongs(shape, lshape);
+		return lshape;
+	}
+
+	@Override
+	public long elementCount() {
+		return ((long)shape[0])*storage.sliceLength();
+	}
+
+	private int getSliceIndex(int[] indexes) {
+		if (indexes.length!=dimensions) throw new IllegalArgumentException(ErrorMessages.invalidIndex(this, indexes));
+		int ix=0;
+		for (int i=0; i<dimensions; i++) {
+			int x=indexes[i];
+			if ((x<0)||(x>=shape[i])) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, indexes));
+			if (i>0) ix+=x*strides[i];
+		}
+		return ix;
+	}
+
+	/**
+	 * Returns the storage, checking that this array has not been closed
+	 */
+	private MappedStorage storage() {
+		if (storage.isClosed()) throw new VectorzException("MappedArray has been closed");
+		return storage;
+	}
+
+	@Override
+	public double get(int... indexes) {
+		int ix=getSliceIndex(indexes);
+		return storage().get(indexes[0], ix);
+	}
+
+	@Override
+	public void set(int[] indexes, double value) {
+		int ix=getSliceIndex(indexes);
+		if (storage.isReadOnly()) throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+		storage().set(indexes[0], ix, value);
+	}
+
+	@Override
+	public INDArray slice(int majorSlice) {
+		if ((majorSlice<0)||(majorSlice>=shape[0])) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, majorSlice));
+		DoubleBuffer buf=storage().sliceBuffer(majorSlice);
+		int offset=storage.sliceOffset(majorSlice);
+		if (dimensions==3) return BufferMatrix.wrap(buf, offset, shape[1], shape[2]);
+		return BufferArray.wrap(buf, offset, IntArrays.removeIndex(shape, 0));
+	}
+
+	@Override
+	public INDArray slice(int dimension, int index) {
+		if ((dimension<0)||(dimension>=dimensions)) throw new IndexOutOfBoundsException(ErrorMessages.invalidDimension(this, dimension));
+		if (dimension==0) return slice(index);
+		int n=shape[0];
+		ArrayList<INDArray> slices=new ArrayList<INDArray>(n);
+		for (int i=0; i<n; i++) {
+			slices.add(slice(i).slice(dimension-1, index));
+		}
+		return SliceArray.create(slices);
+	}
+
+	@Override
+	public int sliceCount() {
+		return shape[0];
+	}
+
+	@Override
+	public List<INDArray> getSlices() {
+		return super.getSliceViews();
+	}
+
+	@Override
+	public AVector asVector() {
+		// one view per mapped chunk, joined where the array spans several chunks
+		int n=shape[0];
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		ArrayList<AVector> parts=new ArrayList<AVector>();
+		int i=0;
+		while (i<n) {
+			DoubleBuffer buf=s.sliceBuffer(i);
+			int j=i+1;
+			while ((j<n)&&(s.sliceBuffer(j)==buf)) j++;
+			parts.add(BufferVector.wrap(buf, s.sliceOffset(i), (j-i)*sl));
+			i=j;
+		}
+		return Vectorz.join(parts);
+	}
+
+	@Override
+	public void set(INDArray a) {
+		if (!IntArrays.equals(shape, a.getShape())) {
+			super.set(a);
+			return;
+		}
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		double[] values=new double[sl];
+		for (int i=0; i<shape[0]; i++) {
+			a.slice(i).getElements(values, 0);
+			DoubleBuffers.put(s.sliceBuffer(i), s.sliceOffset(i), values, 0, sl);
+		}
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		for (int i=0; i<shape[0]; i++) {
+			DoubleBuffers.get(s.sliceBuffer(i), s.sliceOffset(i), dest, offset+i*sl, sl);
+		}
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=elementCount()) throw new IllegalArgumentException("Incorrect length: "+length);
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		for (int i=0; i<shape[0]; i++) {
+			DoubleBuffers.put(s.sliceBuffer(i), s.sliceOffset(i), values, offset+i*sl, sl);
+		}
+	}
+
+	@Override
+	public double elementSum() {
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		double result=0.0;
+		for (int i=0; i<shape[0]; i++) {
+			result+=DoubleBuffers.elementSum(s.sliceBuffer(i), s.sliceOffset(i), sl);
+		}
+		return result;
+	}
+
+	@Override
+	public void multiply(double factor) {
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		for (int i=0; i<shape[0]; i++) {
+			DoubleBuffers.multiply(s.sliceBuffer(i), s.sliceOffset(i), sl, factor);
+		}
+	}
+
+	@Override
+	public void add(double a) {
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		for (int i=0; i<shape[0]; i++) {
+			DoubleBuffers.add(s.sliceBuffer(i), s.sliceOffset(i), sl, a);
+		}
+	}
+
+	@Override
+	public void fill(double value) {
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		for (int i=0; i<shape[0]; i++) {
+			DoubleBuffers.fill(s.sliceBuffer(i), s.sliceOffset(i), sl, value);
+		}
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		MappedStorage s=storage();
+		int sl=s.sliceLength();
+		for (int i=0; i<shape[0]; i++) {
+			DoubleBuffers.applyOp(s.sliceBuffer(i), s.sliceOffset(i), sl, op);
+		}
+	}
+
+	@Override
+	public void applyOp(IOp op) {
+		if (op instanceof Op) {
+			applyOp((Op)op);
+		} else {
+			for (INDArray s: getSlices()) {
+				s.applyOp(op);
+			}
+		}
+	}
+
+	@Override
+	public boolean isMutable() {
+		return !storage.isReadOnly();
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return !storage.isReadOnly();
+	}
+
+	@Override
+	public boolean isElementConstrained() {
+		return false;
+	}
+
+	@Override
+	public boolean isView() {
+		return true;
+	}
+
+	public boolean isReadOnly() {
+		return storage.isReadOnly();
+	}
+
+	/**
+	 * Writes any changes to the underlying file immediately
+	 */
+	public void force() {
+		storage().force();
+	}
+
+	@Override
+	public void close() {
+		storage.close();
+	}
+
+	public boolean isClosed() {
+		return storage.isClosed();
+	}
+
+	/**
+	 * Returns a writable copy of this array, mapped to a new temporary file
+	 */
+	@Override
+	public MappedArray exactClone() {
+		MappedArray m=create(MappedStorage.createTempFile(),shape);
+		m.set(this);
+		return m;
+	}
+
+	@Override
+	public void validate() {
+		if (storage.isClosed()) throw new VectorzException("MappedArray has been closed");
+		if (storage.sliceCount()!=shape[0]) throw new VectorzException("Inconsistent storage shape");
+		super.validate();
+	}
+}
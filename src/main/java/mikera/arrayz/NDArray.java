@@ -3,8 +3,8 @@ package mikera.arrayz;
 import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 import mikera.arrayz.impl.AbstractArray;
 import mikera.arrayz.impl.IStridedArray;
@@ -301,9 +301,9 @@ public final class NDArray extends AbstractArray<INDArray> implements IStridedAr
 			return StridedVector.wrap(data, offset+index*getStride(1), getShape(0), getStride(0));
 		}
 		return new NDArray(data,
-				offset,
-				IntArrays.removeIndex(shape,index),
-				IntArrays.removeIndex(stride,index));	
+				offset+index*getStride(dimension),
+				IntArrays.removeIndex(shape,dimension),
+				IntArrays.removeIndex(stride,dimension));	
 	}	
 
 	@Override
@@ -479,7 +479,7 @@ public final class NDArray extends AbstractArray<INDArray> implements IStridedAr
 	}
 	
 	@Override
-	public Iterator<Double> elementIterator() {
+	public PrimitiveIterator.OfDouble elementIterator() {
 		if (dimensionality()==0) {
 			return new SingleDoubleIterator(data[offset]);
 		} else {
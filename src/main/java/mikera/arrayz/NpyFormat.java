@@ -0,0 +1,425 @@
+package mikera.arrayz;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import mikera.matrixx.Matrix;
+import mikera.matrixx.impl.MappedMatrix;
+import mikera.vectorz.Scalar;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Reader and writer for the NumPy .npy and .npz formats.
+ *
+ * An .npy file is a short header describing the dtype, memory order and shape as a Python
+ * dict literal, followed by the raw element data. Dense double data ('f8') is bulk copied
+ * straight into the backing array of a Vector, Matrix or Array; other numeric dtypes are
+ * widened to double. Little-endian 'f8' files in C order can also be memory-mapped, giving
+ * zero-copy MappedMatrix or MappedArray views.
+ *
+ * Arrays are always written as little-endian 'f8' in C order. An .npz file is a zip archive
+ * of .npy entries, read and written as a map from names to arrays.
+ *
+ * @author Mike
+ *
+ */
+public final class NpyFormat {
+	private static final byte[] MAGIC={(byte)0x93,'N','U','M','P','Y'};
+
+	/**
+	 * Header alignment used by current NumPy versions, so that data can be mapped efficiently
+	 */
+	private static final int HEADER_ALIGNMENT=64;
+
+	// ========================================================================
+	// Public API
+
+	public static INDArray read(ByteBuffer src) {
+		BinaryFormat.Input in=new BinaryFormat.Input(BinaryFormat.littleEndian(src),null);
+		try {
+			INDArray result=readArray(in);
+			src.position(in.buf.position());
+			return result;
+		} catch (IOException e) {
+			throw new VectorzException("Unexpected IO error",e);
+		}
+	}
+
+	public static INDArray read(ReadableByteChannel channel) throws IOException {
+		return readArray(new BinaryFormat.Input(BinaryFormat.emptyBuffer(),channel));
+	}
+
+	public static INDArray read(InputStream stream) throws IOException {
+		return read(Channels.newChannel(stream));
+	}
+
+	public static INDArray read(File file) throws IOException {
+		FileInputStream fs=new FileInputStream(file);
+		try {
+			return read(fs.getChannel());
+		} finally {
+			fs.close();
+		}
+	}
+
+	/**
+	 * Memory-maps an .npy file without copying the data. The file must contain 'f8' data in
+	 * C order and native byte order, with at least 2 dimensions. Returns a MappedMatrix for
+	 * 2D data and a MappedArray otherwise.
+	 */
+	public static INDArray map(File file, boolean readOnly) {
+		Header h;
+		try {
+			RandomAccessFile raf=new RandomAccessFile(file, "r");
+			try {
+				BinaryFormat.Input in=new BinaryFormat.Input(BinaryFormat.emptyBuffer(),raf.getChannel());
+				h=readHeader(in);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			throw new VectorzException("Unable to read .npy header: "+file,e);
+		}
+		if ((h.type!='f')||(h.itemSize!=8)) throw new VectorzException("Only 'f8' data can be mapped, but dtype was "+h.descr);
+		if (h.fortranOrder) throw new VectorzException("Fortran order data cannot be mapped");
+		if (h.order!=ByteOrder.nativeOrder()) throw new VectorzException("Data must be in native byte order to be mapped");
+		int[] shape=h.shape;
+		switch (shape.length) {
+			case 0:
+			case 1:
+				throw new VectorzException("Mapping requires at least 2 dimensions, but shape had "+shape.length);
+			case 2: return MappedMatrix.map(file, h.dataOffset, shape[0], shape[1], readOnly);
+			default: return MappedArray.map(file, h.dataOffset, readOnly, shape);
+		}
+	}
+
+	/**
+	 * Writes an array as little-endian 'f8' data in C order
+	 */
+	public static void write(INDArray a, WritableByteChannel channel) throws IOException {
+		BinaryFormat.Output out=new BinaryFormat.Output(BinaryFormat.littleEndian(ByteBuffer.allocate(BinaryFormat.CHUNK_BYTES)),channel);
+		writeHeader(a.getShape(),out);
+		BinaryFormat.writeDense(a,out);
+		out.flush();
+	}
+
+	public static void write(INDArray a, OutputStream stream) throws IOException {
+		write(a,Channels.newChannel(stream));
+	}
+
+	public static void write(INDArray a, File file) throws IOException {
+		FileOutputStream fs=new FileOutputStream(file);
+		try {
+			write(a,fs.getChannel());
+		} finally {
+			fs.close();
+		}
+	}
+
+	/**
+	 * Reads all .npy entries from an .npz archive, keyed by name without the .npy extension
+	 */
+	public static Map<String,INDArray> readNpz(InputStream stream) throws IOException {
+		Map<String,INDArray> result=new LinkedHashMap<String,INDArray>();
+		ZipInputStream zip=new ZipInputStream(stream);
+		ReadableByteChannel channel=Channels.newChannel(zip);
+		ZipEntry e;
+		while ((e=zip.getNextEntry())!=null) {
+			String name=e.getName();
+			if (!name.endsWith(".npy")) continue;
+			result.put(name.substring(0, name.length()-4), read(channel));
+			zip.closeEntry();
+		}
+		return result;
+	}
+
+	/**
+	 * Writes arrays to an uncompressed .npz archive. The stream is finished but not closed.
+	 */
+	public static void writeNpz(Map<String,? extends INDArray> arrays, OutputStream stream) throws IOException {
+		ZipOutputStream zip=new ZipOutputStream(stream);
+		WritableByteChannel channel=Channels.newChannel(zip);
+		for (Map.Entry<String,? extends INDArray> me: arrays.entrySet()) {
+			zip.putNextEntry(new ZipEntry(me.getKey()+".npy"));
+			write(me.getValue(),channel);
+			zip.closeEntry();
+		}
+		zip.finish();
+	}
+
+	// ========================================================================
+	// Header
+
+	private static final class Header {
+		String descr;
+		ByteOrder order;
+		char type;
+		int itemSize;
+		boolean fortranOrder;
+		int[] shape;
+		long dataOffset;
+	}
+
+	private static Header readHeader(BinaryFormat.Input in) throws IOException {
+		in.ensure(10);
+		ByteBuffer b=in.buf;
+		for (int i=0; i<MAGIC.length; i++) {
+			if (b.get()!=MAGIC[i]) throw new VectorzException("Invalid .npy format: bad magic number");
+		}
+		int major=b.get();
+		b.get();
+		long headerLength;
+		long preamble;
+		if (major==1) {
+			headerLength=b.getShort()&0xFFFF;
+			preamble=10;
+		} else if ((major==2)||(major==3)) {
+			in.ensure(4);
+			headerLength=b.getInt()&0xFFFFFFFFL;
+			preamble=12;
+		} else {
+			throw new VectorzException("Unsupported .npy format version: "+major);
+		}
+		if (headerLength>BinaryFormat.CHUNK_BYTES) throw new VectorzException("Invalid .npy format: header too long");
+		in.ensure((int)headerLength);
+		byte[] hb=new byte[(int)headerLength];
+		b.get(hb);
+		Header h=parseHeader(new String(hb,(major==3)?StandardCharsets.UTF_8:StandardCharsets.ISO_8859_1));
+		h.dataOffset=preamble+headerLength;
+		return h;
+	}
+
+	private static Header parseHeader(String s) {
+		Header h=new Header();
+		String descr=dictValue(s,"descr");
+		if ((descr.length()<3)||(descr.charAt(0)!='\'')||(descr.charAt(descr.length()-1)!='\'')) {
+			throw new VectorzException("Unsupported .npy dtype: "+descr);
+		}
+		descr=descr.substring(1, descr.length()-1);
+		h.descr=descr;
+		switch (descr.charAt(0)) {
+			case '<': h.order=ByteOrder.LITTLE_ENDIAN; break;
+			case '>': h.order=ByteOrder.BIG_ENDIAN; break;
+			case '|': case '=': h.order=ByteOrder.nativeOrder(); break;
+			default: throw new VectorzException("Unsupported .npy dtype: "+descr);
+		}
+		h.type=descr.charAt(1);
+		try {
+			h.itemSize=Integer.parseInt(descr.substring(2));
+		} catch (NumberFormatException e) {
+			throw new VectorzException("Unsupported .npy dtype: "+descr);
+		}
+		checkDtype(h);
+
+		String fortran=dictValue(s,"fortran_order");
+		if (fortran.equals("True")) {
+			h.fortranOrder=true;
+		} else if (!fortran.equals("False")) {
+			throw new VectorzException("Invalid .npy header: fortran_order="+fortran);
+		}
+
+		String shape=dictValue(s,"shape");
+		if ((shape.charAt(0)!='(')||(shape.charAt(shape.length()-1)!=')')) throw new VectorzException("Invalid .npy shape: "+shape);
+		String[] parts=shape.substring(1, shape.length()-1).split(",");
+		int dims=0;
+		int[] dimSizes=new int[parts.length];
+		for (String p: parts) {
+			p=p.trim();
+			if (p.isEmpty()) continue;
+			if (p.endsWith("L")) p=p.substring(0, p.length()-1);
+			try {
+				dimSizes[dims++]=Integer.parseInt(p);
+			} catch (NumberFormatException e) {
+				throw new VectorzException("Invalid .npy shape: "+shape);
+			}
+		}
+		h.shape=new int[dims];
+		System.arraycopy(dimSizes, 0, h.shape, 0, dims);
+		for (int d: h.shape) {
+			if (d<0) throw new VectorzException("Invalid .npy shape: "+shape);
+		}
+		return h;
+	}
+
+	private static void checkDtype(Header h) {
+		switch (h.type) {
+			case 'f':
+				if ((h.itemSize==4)||(h.itemSize==8)) return;
+				break;
+			case 'i':
+			case 'u':
+				if ((h.itemSize==1)||(h.itemSize==2)||(h.itemSize==4)||(h.itemSize==8)) return;
+				break;
+			case 'b':
+				if (h.itemSize==1) return;
+				break;
+		}
+		throw new VectorzException("Unsupported .npy dtype: "+h.descr);
+	}
+
+	/**
+	 * Extracts the literal value for a key from a Python dict literal
+	 */
+	private static String dictValue(String s, String key) {
+		int k=s.indexOf("'"+key+"'");
+		if (k<0) throw new VectorzException("Invalid .npy header: missing "+key);
+		int i=s.indexOf(':', k)+1;
+		if (i==0) throw new VectorzException("Invalid .npy header: "+s);
+		while ((i<s.length())&&(s.charAt(i)==' ')) i++;
+		int end;
+		if (s.charAt(i)=='(') {
+			end=s.indexOf(')', i)+1;
+		} else if (s.charAt(i)=='\'') {
+			end=s.indexOf('\'', i+1)+1;
+		} else {
+			end=i;
+			while ((end<s.length())&&(s.charAt(end)!=',')&&(s.charAt(end)!='}')) end++;
+		}
+		if (end<=i) throw new VectorzException("Invalid .npy header: "+s);
+		return s.substring(i, end).trim();
+	}
+
+	private static void writeHeader(int[] shape, BinaryFormat.Output out) throws IOException {
+		StringBuilder sb=new StringBuilder();
+		sb.append("{'descr': '<f8', 'fortran_order': False, 'shape': (");
+		for (int i=0; i<shape.length; i++) {
+			sb.append(shape[i]);
+			if (i<shape.length-1) {
+				sb.append(", ");
+			} else if (shape.length==1) {
+				sb.append(',');
+			}
+		}
+		sb.append("), }");
+		int preamble=(sb.length()+11>0xFFFF)?12:10;
+		while (((preamble+sb.length()+1)%HEADER_ALIGNMENT)!=0) {
+			sb.append(' ');
+		}
+		sb.append('\n');
+		byte[] hb=sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+		out.ensure(preamble+hb.length);
+		ByteBuffer b=out.buf;
+		b.put(MAGIC);
+		b.put((byte)((preamble==10)?1:2));
+		b.put((byte)0);
+		if (preamble==10) {
+			b.putShort((short)hb.length);
+		} else {
+			b.putInt(hb.length);
+		}
+		b.put(hb);
+	}
+
+	// ========================================================================
+	// Data
+
+	private static INDArray readArray(BinaryFormat.Input in) throws IOException {
+		Header h=readHeader(in);
+		int[] shape=h.shape;
+		long n=Arrayz.elementCount(shape);
+		if (n>Integer.MAX_VALUE) throw new VectorzException("Array too large to read: "+n+" elements");
+		double[] data=new double[(int)n];
+		ByteOrder saved=in.buf.order();
+		in.buf.order(h.order);
+		try {
+			readData(in,h,data);
+		} finally {
+			in.buf.order(saved);
+		}
+		if (h.fortranOrder&&(shape.length>1)) data=fortranToC(data,shape);
+		switch (shape.length) {
+			case 0: return Scalar.create(data[0]);
+			case 1: return Vector.wrap(data);
+			case 2: return Matrix.wrap(shape[0], shape[1], data);
+			default: return Array.wrap(data, shape);
+		}
+	}
+
+	private static void readData(BinaryFormat.Input in, Header h, double[] dest) throws IOException {
+		if ((h.type=='f')&&(h.itemSize==8)) {
+			in.getDoubles(dest,0,dest.length);
+			return;
+		}
+		int size=h.itemSize;
+		int length=dest.length;
+		int offset=0;
+		ByteBuffer b=in.buf;
+		while (length>0) {
+			in.ensure((int)Math.min((long)length*size, BinaryFormat.CHUNK_BYTES));
+			int n=Math.min(length, b.remaining()/size);
+			int end=offset+n;
+			switch (h.type) {
+				case 'f':
+					for (int i=offset; i<end; i++) dest[i]=b.getFloat();
+					break;
+				case 'i':
+					switch (size) {
+						case 1: for (int i=offset; i<end; i++) dest[i]=b.get(); break;
+						case 2: for (int i=offset; i<end; i++) dest[i]=b.getShort(); break;
+						case 4: for (int i=offset; i<end; i++) dest[i]=b.getInt(); break;
+						default: for (int i=offset; i<end; i++) dest[i]=b.getLong(); break;
+					}
+					break;
+				default:
+					// unsigned integers and booleans
+					switch (size) {
+						case 1: for (int i=offset; i<end; i++) dest[i]=b.get()&0xFF; break;
+						case 2: for (int i=offset; i<end; i++) dest[i]=b.getShort()&0xFFFF; break;
+						case 4: for (int i=offset; i<end; i++) dest[i]=b.getInt()&0xFFFFFFFFL; break;
+						default: for (int i=offset; i<end; i++) dest[i]=unsignedToDouble(b.getLong()); break;
+					}
+			}
+			offset=end;
+			length-=n;
+		}
+	}
+
+	private static double unsignedToDouble(long v) {
+		double d=v&Long.MAX_VALUE;
+		return (v<0)?d+0x1.0p63:d;
+	}
+
+	/**
+	 * Converts column-major data to row-major order
+	 */
+	private static double[] fortranToC(double[] data, int[] shape) {
+		int dims=shape.length;
+		int[] strides=new int[dims];
+		int stride=1;
+		for (int k=0; k<dims; k++) {
+			strides[k]=stride;
+			stride*=shape[k];
+		}
+		double[] result=new double[data.length];
+		int[] ix=new int[dims];
+		int f=0;
+		for (int c=0; c<result.length; c++) {
+			result[c]=data[f];
+			for (int k=dims-1; k>=0; k--) {
+				ix[k]++;
+				f+=strides[k];
+				if (ix[k]<shape[k]) break;
+				f-=strides[k]*shape[k];
+				ix[k]=0;
+			}
+		}
+		return result;
+	}
+}
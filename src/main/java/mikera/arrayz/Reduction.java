@@ -0,0 +1,212 @@
+package mikera.arrayz;
+
+import mikera.arrayz.impl.IStridedArray;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.IntArrays;
+import mikera.vectorz.util.Parallel;
+
+/**
+ * Reductions that can be applied along a dimension of an array, e.g. with INDArray.reduce(int, Reduction).
+ *
+ * Reductions work directly on strided double[] data (copying to a packed array first if the source
+ * is not strided), without creating a view per slice. Reducing along the last dimension runs a
+ * single strided loop per output element. Reducing along any other dimension streams through the
+ * source one slice at a time, accumulating whole contiguous rows into the result: for a row-major
+ * Matrix, column sums are therefore computed by adding each row in turn.
+ *
+ * Large reductions are partitioned over disjoint ranges of the result and run in parallel, either
+ * explicitly with reduceParallel or automatically when the Parallel global policy is enabled.
+ *
+ * @author Mike
+ *
+ */
+public enum Reduction {
+	SUM, MEAN, MIN, MAX,
+
+	/**
+	 * Euclidean (L2) norm
+	 */
+	NORM;
+
+	/**
+	 * Returns the initial accumulator value for this reduction
+	 */
+	public double identity() {
+		switch (this) {
+			case MIN: return Double.POSITIVE_INFINITY;
+			case MAX: return Double.NEGATIVE_INFINITY;
+			default: return 0.0;
+		}
+	}
+
+	/**
+	 * Accumulates a strided run of elements into an accumulator value
+	 */
+	public double accumulate(double acc, double[] data, int offset, int stride, int length) {
+		int di=offset;
+		switch (this) {
+			case MIN:
+				for (int i=0; i<length; i++, di+=stride) acc=Math.min(acc, data[di]);
+				return acc;
+			case MAX:
+				for (int i=0; i<length; i++, di+=stride) acc=Math.max(acc, data[di]);
+				return acc;
+			case NORM:
+				for (int i=0; i<length; i++, di+=stride) {
+					double d=data[di];
+					acc+=d*d;
+				}
+				return acc;
+			default:
+				for (int i=0; i<length; i++, di+=stride) acc+=data[di];
+				return acc;
+		}
+	}
+
+	/**
+	 * Accumulates a strided run of elements element-wise into a packed range of accumulators
+	 */
+	public void accumulate(double[] acc, int accOffset, double[] data, int offset, int stride, int length) {
+		int di=offset;
+		switch (this) {
+			case MIN:
+				for (int i=0; i<length; i++, di+=stride) acc[accOffset+i]=Math.min(acc[accOffset+i], data[di]);
+				return;
+			case MAX:
+				for (int i=0; i<length; i++, di+=stride) acc[accOffset+i]=Math.max(acc[accOffset+i], data[di]);
+				return;
+			case NORM:
+				for (int i=0; i<length; i++, di+=stride) {
+					double d=data[di];
+					acc[accOffset+i]+=d*d;
+				}
+				return;
+			default:
+				if (stride==1) {
+					for (int i=0; i<length; i++) acc[accOffset+i]+=data[offset+i];
+				} else {
+					for (int i=0; i<length; i++, di+=stride) acc[accOffset+i]+=data[di];
+				}
+				return;
+		}
+	}
+
+	/**
+	 * Converts an accumulator value into the final result, given the number of elements accumulated
+	 */
+	public double finish(double acc, int count) {
+		switch (this) {
+			case MEAN: return acc/count;
+			case NORM: return Math.sqrt(acc);
+			default: return acc;
+		}
+	}
+
+	/**
+	 * Reduces an array along the given dimension, returning a new array with that dimension removed
+	 */
+	public INDArray reduce(INDArray a, int dimension) {
+		return reduce(a,dimension,Parallel.shouldParallelize(a.elementCount()));
+	}
+
+	/**
+	 * Reduces an array along the given dimension, running in parallel on the Parallel pool if
+	 * the array has at least Parallel.getThreshold() elements
+	 */
+	public INDArray reduceParallel(INDArray a, int dimension) {
+		return reduce(a,dimension,a.elementCount()>=Parallel.getThreshold());
+	}
+
+	private INDArray reduce(INDArray a, int dimension, boolean parallel) {
+		int dims=a.dimensionality();
+		if ((dimension<0)||(dimension>=dims)) throw new IllegalArgumentException(ErrorMessages.invalidDimension(a, dimension));
+
+		double[] data;
+		int offset;
+		int[] shape;
+		int[] strides;
+		if (a instanceof IStridedArray) {
+			IStridedArray sa=(IStridedArray)a;
+			data=sa.getArray();
+			offset=sa.getArrayOffset();
+			shape=sa.getShape();
+			strides=sa.getStrides();
+		} else {
+			data=a.toDoubleArray();
+			offset=0;
+			shape=a.getShape();
+			strides=IntArrays.calcStrides(shape);
+		}
+
+		int[] resultShape=IntArrays.removeIndex(shape, dimension);
+		double[] dest=new double[(int)IntArrays.arrayProduct(resultShape)];
+		if (parallel) {
+			Parallel.reduce(this, data, offset, shape, strides, dimension, dest);
+		} else {
+			reduceRange(data, offset, shape, strides, dimension, dest, 0, dest.length);
+		}
+		return Arrayz.wrap(dest, resultShape);
+	}
+
+	/**
+	 * Computes the elements [start,end) of the reduction of a strided array along a dimension,
+	 * writing them to dest. The result is packed in row-major order of the shape with the
+	 * reduced dimension removed.
+	 */
+	public void reduceRange(double[] data, int offset, int[] shape, int[] strides, int dimension, double[] dest, int start, int end) {
+		if (end<=start) return;
+		int dims=shape.length;
+		int n=shape[dimension];
+		int sd=strides[dimension];
+		int last=dims-1;
+
+		if (dimension==last) {
+			for (int o=start; o<end; o++) {
+				int base=offset;
+				int rem=o;
+				for (int j=last-1; j>=0; j--) {
+					base+=(rem%shape[j])*strides[j];
+					rem/=shape[j];
+				}
+				dest[o]=finish(accumulate(identity(), data, base, sd, n), n);
+			}
+			return;
+		}
+
+		// row-streaming: accumulate each slice along the reduced dimension into the result
+		int len=shape[last];
+		int sl=strides[last];
+		int rs=start/len;
+		int re=(end-1)/len;
+		int[] bases=new int[re-rs+1];
+		for (int r=rs; r<=re; r++) {
+			int base=offset;
+			int rem=r;
+			for (int j=last-1; j>=0; j--) {
+				if (j==dimension) continue;
+				base+=(rem%shape[j])*strides[j];
+				rem/=shape[j];
+			}
+			bases[r-rs]=base;
+		}
+
+		double init=identity();
+		for (int o=start; o<end; o++) {
+			dest[o]=init;
+		}
+		for (int k=0; k<n; k++) {
+			int ko=k*sd;
+			for (int r=rs; r<=re; r++) {
+				int rowStart=r*len;
+				int c0=Math.max(start-rowStart, 0);
+				int c1=Math.min(end-rowStart, len);
+				accumulate(dest, rowStart+c0, data, bases[r-rs]+ko+c0*sl, sl, c1-c0);
+			}
+		}
+		if ((this==MEAN)||(this==NORM)) {
+			for (int o=start; o<end; o++) {
+				dest[o]=finish(dest[o],n);
+			}
+		}
+	}
+}
@@ -5,11 +5,16 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleConsumer;
 
 import mikera.arrayz.Array;
 import mikera.arrayz.Arrayz;
 import mikera.arrayz.INDArray;
 import mikera.arrayz.NDArray;
+import mikera.arrayz.Reduction;
 import mikera.arrayz.SliceArray;
 import mikera.matrixx.Matrix;
 import mikera.util.Maths;
@@ -20,6 +25,7 @@ import mikera.vectorz.Vectorz;
 import mikera.vectorz.impl.SingleDoubleIterator;
 import mikera.vectorz.util.ErrorMessages;
 import mikera.vectorz.util.IntArrays;
+import mikera.vectorz.util.TextWriter;
 /**
  * Abstract base class for INDArray implementations
  * @author Mike
@@ -153,6 +159,11 @@ public abstract class AbstractArray<T> implements INDArray, Iterable<T> {
 		throw new UnsupportedOperationException();
 	}
 	
+	@Override
+	public INDArray reduce(int dimension, Reduction r) {
+		return r.reduce(this, dimension);
+	}
+	
 	@Override
 	public INDArray getTransposeCopy() {
 		return getTranspose().clone();
@@ -247,7 +258,7 @@ public abstract class AbstractArray<T> implements INDArray, Iterable<T> {
 	}
 	
 	@Override
-	public Iterator<Double> elementIterator() {
+	public PrimitiveIterator.OfDouble elementIterator() {
 		if (dimensionality()==0) {
 			return new SingleDoubleIterator(get());
 		} else {
@@ -255,6 +266,27 @@ public abstract class AbstractArray<T> implements INDArray, Iterable<T> {
 		}
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		if (dimensionality()==0) {
+			action.accept(get());
+		} else {
+			int sc=sliceCount();
+			for (int i=0; i<sc; i++) {
+				slice(i).forEachElement(action);
+			}
+		}
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		if (dimensionality()==0) {
+			return Spliterators.spliterator(new double[] {get()}, Spliterator.ORDERED | Spliterator.NONNULL);
+		} else {
+			return new SliceElementSpliterator(this);
+		}
+	}
+	
 	public boolean equals(Object o) {
 		if (!(o instanceof INDArray)) return false;
 		return equals((INDArray)o);
@@ -267,19 +299,15 @@ public abstract class AbstractArray<T> implements INDArray, Iterable<T> {
 	
 	@Override
 	public String toString() {
-		if (dimensionality()==0) {
-			return Double.toString(get());
-		}
+		if (dimensionality()<=1) return TextWriter.toEdnString(this);
 		
+		// slices format themselves, so that specialised slice types keep their own layout
 		StringBuilder sb=new StringBuilder();
 		int length=sliceCount();
 		sb.append('[');
-		if (length>0) {
-			sb.append(slice(0).toString());
-			for (int i = 1; i < length; i++) {
-				sb.append(',');
-				sb.append(slice(i).toString());
-			}
+		for (int i = 0; i < length; i++) {
+			if (i>0) sb.append(',');
+			sb.append(slice(i).toString());
 		}
 		sb.append(']');
 		return sb.toString();
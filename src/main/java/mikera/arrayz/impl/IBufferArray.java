@@ -0,0 +1,30 @@
+package mikera.arrayz.impl;
+
+import java.nio.DoubleBuffer;
+
+import mikera.arrayz.INDArray;
+
+/**
+ * Interface for arrays backed by a DoubleBuffer (typically direct, off-heap storage)
+ * with elements stored contiguously in row-major order.
+ * 
+ * @author Mike
+ *
+ */
+public interface IBufferArray extends INDArray, AutoCloseable {
+	
+	/**
+	 * Returns a zero-copy view of the elements of this array as a DoubleBuffer, in row-major order.
+	 * The returned buffer has position zero and a limit equal to the element count.
+	 */
+	public DoubleBuffer asDoubleBuffer();
+	
+	/**
+	 * Releases this array's reference to its backing buffer. The array may not be used after
+	 * it is closed. Off-heap memory is reclaimed once no array or buffer refers to it.
+	 */
+	@Override
+	public void close();
+	
+	public boolean isClosed();
+}
@@ -0,0 +1,172 @@
+package mikera.arrayz.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Memory-mapped storage for a sequence of equally sized slices of doubles in a file.
+ *
+ * A single mapping is limited to 2GB, so larger files are mapped as multiple chunks. Chunks
+ * always contain a whole number of slices, so any slice can be viewed as a contiguous range
+ * of a single DoubleBuffer without copying.
+ *
+ * Elements are stored in native byte order. Mappings are shared with the OS page cache, so
+ * several processes mapping the same file share the same physical memory.
+ *
+ * @author Mike
+ *
+ */
+public final class MappedStorage implements AutoCloseable {
+	private static final long MAX_CHUNK_BYTES=1L<<30;
+
+	private MappedByteBuffer[] mapped;
+	private DoubleBuffer[] chunks; // null once closed
+	private final int sliceLength;
+	private final int sliceCount;
+	private final int slicesPerChunk;
+	private final boolean readOnly;
+
+	private MappedStorage(FileChannel channel, long position, int sliceLength, int sliceCount, boolean readOnly, long maxChunkBytes) throws IOException {
+		this.sliceLength=sliceLength;
+		this.sliceCount=sliceCount;
+		this.readOnly=readOnly;
+		long sliceBytes=sliceLength*8L;
+		this.slicesPerChunk=(int)Math.max(1, Math.min(sliceCount, maxChunkBytes/Math.max(1,sliceBytes)));
+		int n=(sliceCount+slicesPerChunk-1)/slicesPerChunk;
+		mapped=new MappedByteBuffer[n];
+		chunks=new DoubleBuffer[n];
+		FileChannel.MapMode mode=readOnly?FileChannel.MapMode.READ_ONLY:FileChannel.MapMode.READ_WRITE;
+		for (int i=0; i<n; i++) {
+			int slices=Math.min(slicesPerChunk, sliceCount-i*slicesPerChunk);
+			MappedByteBuffer mb=channel.map(mode, position+i*slicesPerChunk*sliceBytes, slices*sliceBytes);
+			mb.order(ByteOrder.nativeOrder());
+			mapped[i]=mb;
+			chunks[i]=mb.asDoubleBuffer();
+		}
+	}
+
+	/**
+	 * Maps a region of a file as a sequence of slices, starting at the given byte position.
+	 *
+	 * In read-write mode the file is extended if necessary. In read-only mode the file must
+	 * already contain the full region.
+	 */
+	public static MappedStorage map(File file, long position, int sliceLength, int sliceCount, boolean readOnly) {
+		return map(file,position,sliceLength,sliceCount,readOnly,MAX_CHUNK_BYTES);
+	}
+
+	/**
+	 * Maps a region of a file as a sequence of slices, using chunks of at most the given number of
+	 * bytes (or a single slice per chunk, if the slice is larger).
+	 */
+	public static MappedStorage map(File file, long position, int sliceLength, int sliceCount, boolean readOnly, long maxChunkBytes) {
+		if ((maxChunkBytes<=0)||(maxChunkBytes>Integer.MAX_VALUE)) throw new IllegalArgumentException("Invalid chunk size: "+maxChunkBytes);
+		if ((sliceLength<0)||(sliceCount<0)) throw new IllegalArgumentException("Negative size");
+		if (sliceLength*8L>Integer.MAX_VALUE) throw new IllegalArgumentException("Slice too large to map: "+sliceLength);
+		long required=position+sliceLength*8L*sliceCount;
+		try {
+			RandomAccessFile raf=new RandomAccessFile(file, readOnly?"r":"rw");
+			try {
+				if (raf.length()<required) {
+					if (readOnly) throw new IllegalArgumentException("File too short: expected at least "+required+" bytes but was "+raf.length());
+					raf.setLength(required);
+				}
+				// mappings remain valid after the channel is closed
+				return new MappedStorage(raf.getChannel(),position,sliceLength,sliceCount,readOnly,maxChunkBytes);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			throw new VectorzException("Unable to map file: "+file,e);
+		}
+	}
+
+	/**
+	 * Creates a temporary file for mapped data, deleted when the JVM exits
+	 */
+	public static File createTempFile() {
+		try {
+			File f=File.createTempFile("vectorz", ".dat");
+			f.deleteOnExit();
+			return f;
+		} catch (IOException e) {
+			throw new VectorzException("Unable to create temporary file",e);
+		}
+	}
+
+	private void checkOpen() {
+		if (chunks==null) throw new VectorzException("Mapped storage has been closed");
+	}
+
+	public int sliceLength() {
+		return sliceLength;
+	}
+
+	public int chunkCount() {
+		checkOpen();
+		return chunks.length;
+	}
+
+	public int sliceCount() {
+		return sliceCount;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Returns the buffer containing the given slice
+	 */
+	public DoubleBuffer sliceBuffer(int slice) {
+		checkOpen();
+		return chunks[slice/slicesPerChunk];
+	}
+
+	/**
+	 * Returns the offset of the given slice within its buffer
+	 */
+	public int sliceOffset(int slice) {
+		return (slice%slicesPerChunk)*sliceLength;
+	}
+
+	public double get(int slice, int i) {
+		return chunks[slice/slicesPerChunk].get((slice%slicesPerChunk)*sliceLength+i);
+	}
+
+	public void set(int slice, int i, double value) {
+		chunks[slice/slicesPerChunk].put((slice%slicesPerChunk)*sliceLength+i,value);
+	}
+
+	/**
+	 * Writes any changes to the underlying file
+	 */
+	public void force() {
+		checkOpen();
+		if (readOnly) return;
+		for (MappedByteBuffer mb: mapped) {
+			mb.force();
+		}
+	}
+
+	/**
+	 * Releases the references to the mapped buffers. The mapping itself is released by the
+	 * garbage collector once no views remain.
+	 */
+	@Override
+	public void close() {
+		mapped=null;
+		chunks=null;
+	}
+
+	public boolean isClosed() {
+		return chunks==null;
+	}
+}
@@ -0,0 +1,336 @@
+package mikera.arrayz.impl;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.Op;
+import mikera.vectorz.impl.VectorSpliterator;
+import mikera.vectorz.util.DoubleArrays;
+
+/**
+ * Storage for a long-indexed sequence of doubles, held in fixed-size double[] pages.
+ *
+ * Allows dense storage of more than 2^31 elements, and avoids the need for a single huge
+ * contiguous allocation. Page sizes are a power of two, so element lookup is a shift and
+ * a mask. Bulk operations work on ranges that may cross page boundaries, processing each
+ * page segment with the ordinary double[] kernels.
+ *
+ * Pages are independent, so work can be partitioned by page for parallel processing,
+ * either directly via getPage(int) or through spliterator(long,long).
+ *
+ * @author Mike
+ *
+ */
+public final class PagedStorage implements Serializable {
+	private static final long serialVersionUID = 6208193410873561137L;
+
+	/**
+	 * Default page size of 2^20 doubles (8MB)
+	 */
+	public static final int DEFAULT_PAGE_SHIFT=20;
+
+	private final double[][] pages;
+	private final long length;
+	private final int pageShift;
+	private final int pageSize;
+	private final int pageMask;
+
+	private PagedStorage(long length, int pageShift) {
+		if (length<0) throw new IllegalArgumentException("Negative length: "+length);
+		if ((pageShift<0)||(pageShift>30)) throw new IllegalArgumentException("Invalid page shift: "+pageShift);
+		this.length=length;
+		this.pageShift=pageShift;
+		this.pageSize=1<<pageShift;
+		this.pageMask=pageSize-1;
+		long n=(length+pageMask)>>>pageShift;
+		if (n>Integer.MAX_VALUE) throw new IllegalArgumentException("Too many pages required for length: "+length);
+		pages=new double[(int)n][];
+		for (int i=0; i<n; i++) {
+			pages[i]=new double[(int)Math.min(pageSize, length-(((long)i)<<pageShift))];
+		}
+	}
+
+	/**
+	 * Creates zero-filled storage with the default page size
+	 */
+	public static PagedStorage create(long length) {
+		return new PagedStorage(length,DEFAULT_PAGE_SHIFT);
+	}
+
+	/**
+	 * Creates zero-filled storage with pages of 2^pageShift doubles
+	 */
+	public static PagedStorage create(long length, int pageShift) {
+		return new PagedStorage(length,pageShift);
+	}
+
+	public long length() {
+		return length;
+	}
+
+	public int pageCount() {
+		return pages.length;
+	}
+
+	public int pageSize() {
+		return pageSize;
+	}
+
+	public int pageShift() {
+		return pageShift;
+	}
+
+	/**
+	 * Returns the backing array for a page. Only the last page may be shorter than pageSize().
+	 */
+	public double[] getPage(int page) {
+		return pages[page];
+	}
+
+	public double get(long i) {
+		return pages[(int)(i>>>pageShift)][(int)i&pageMask];
+	}
+
+	public void set(long i, double value) {
+		pages[(int)(i>>>pageShift)][(int)i&pageMask]=value;
+	}
+
+	public void addAt(long i, double value) {
+		pages[(int)(i>>>pageShift)][(int)i&pageMask]+=value;
+	}
+
+	/**
+	 * Number of elements from position i to the end of its page, limited to the end of the range
+	 */
+	private int segmentLength(long i, long end) {
+		return (int)Math.min(end-i, pageSize-((int)i&pageMask));
+	}
+
+	public void copyTo(long start, double[] dest, int destOffset, int n) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			System.arraycopy(pages[(int)(start>>>pageShift)], (int)start&pageMask, dest, destOffset, k);
+			destOffset+=k;
+			start+=k;
+		}
+	}
+
+	public void copyFrom(double[] src, int srcOffset, long start, int n) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			System.arraycopy(src, srcOffset, pages[(int)(start>>>pageShift)], (int)start&pageMask, k);
+			srcOffset+=k;
+			start+=k;
+		}
+	}
+
+	/**
+	 * Copies a range of elements from another PagedStorage, which may have a different page size.
+	 * The source may be this storage, with the ranges overlapping as for System.arraycopy.
+	 */
+	public void copyFrom(PagedStorage src, long srcStart, long start, long n) {
+		if ((src==this)&&(srcStart<start)&&(start<srcStart+n)) {
+			copyBackwards(srcStart,start,n);
+			return;
+		}
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			src.copyTo(srcStart, pages[(int)(start>>>pageShift)], (int)start&pageMask, k);
+			srcStart+=k;
+			start+=k;
+		}
+	}
+
+	/**
+	 * Copies a range of elements to a later, overlapping position in this storage, working from
+	 * the end so that each element is read before it is overwritten
+	 */
+	private void copyBackwards(long srcStart, long start, long n) {
+		long srcEnd=srcStart+n;
+		long end=start+n;
+		while (end>start) {
+			int s=(int)(srcEnd-1)&pageMask;
+			int d=(int)(end-1)&pageMask;
+			int k=(int)Math.min(end-start, Math.min(s, d)+1);
+			System.arraycopy(pages[(int)((srcEnd-1)>>>pageShift)], s-k+1, pages[(int)((end-1)>>>pageShift)], d-k+1, k);
+			srcEnd-=k;
+			end-=k;
+		}
+	}
+
+	public double dotProduct(long start, double[] b, int bOffset, int n) {
+		long end=start+n;
+		double result=0.0;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			result+=DoubleArrays.dotProduct(pages[(int)(start>>>pageShift)], (int)start&pageMask, b, bOffset, k);
+			bOffset+=k;
+			start+=k;
+		}
+		return result;
+	}
+
+	/**
+	 * Computes this[start..] += factor * src[srcOffset..]
+	 */
+	public void addMultiple(long start, double[] src, int srcOffset, int n, double factor) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			DoubleArrays.addMultiple(pages[(int)(start>>>pageShift)], (int)start&pageMask, src, srcOffset, k, factor);
+			srcOffset+=k;
+			start+=k;
+		}
+	}
+
+	/**
+	 * Computes dest[destOffset..] += factor * this[start..]
+	 */
+	public void addMultipleTo(long start, double[] dest, int destOffset, int n, double factor) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			DoubleArrays.addMultiple(dest, destOffset, pages[(int)(start>>>pageShift)], (int)start&pageMask, k, factor);
+			destOffset+=k;
+			start+=k;
+		}
+	}
+
+	public void fill(long start, long n, double value) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			int o=(int)start&pageMask;
+			Arrays.fill(pages[(int)(start>>>pageShift)], o, o+k, value);
+			start+=k;
+		}
+	}
+
+	public void add(long start, long n, double value) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			DoubleArrays.add(pages[(int)(start>>>pageShift)], (int)start&pageMask, k, value);
+			start+=k;
+		}
+	}
+
+	public void multiply(long start, long n, double factor) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			DoubleArrays.multiply(pages[(int)(start>>>pageShift)], (int)start&pageMask, k, factor);
+			start+=k;
+		}
+	}
+
+	public void applyOp(long start, long n, Op op) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			op.applyTo(pages[(int)(start>>>pageShift)], (int)start&pageMask, k);
+			start+=k;
+		}
+	}
+
+	public double elementSum(long start, long n) {
+		long end=start+n;
+		double result=0.0;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			result+=DoubleArrays.elementSum(pages[(int)(start>>>pageShift)], (int)start&pageMask, k);
+			start+=k;
+		}
+		return result;
+	}
+
+	public double elementSquaredSum(long start, long n) {
+		long end=start+n;
+		double result=0.0;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			result+=DoubleArrays.elementSquaredSum(pages[(int)(start>>>pageShift)], (int)start&pageMask, k);
+			start+=k;
+		}
+		return result;
+	}
+
+	public long nonZeroCount(long start, long n) {
+		long end=start+n;
+		long result=0;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			result+=DoubleArrays.nonZeroCount(pages[(int)(start>>>pageShift)], (int)start&pageMask, k);
+			start+=k;
+		}
+		return result;
+	}
+
+	public void forEach(long start, long n, DoubleConsumer action) {
+		long end=start+n;
+		while (start<end) {
+			int k=segmentLength(start,end);
+			DoubleArrays.forEach(pages[(int)(start>>>pageShift)], (int)start&pageMask, k, action);
+			start+=k;
+		}
+	}
+
+	/**
+	 * Returns a spliterator over a range of elements, which splits on page boundaries where possible
+	 */
+	public Spliterator.OfDouble spliterator(long start, long n) {
+		return new PagedSpliterator(start,start+n);
+	}
+
+	private final class PagedSpliterator implements Spliterator.OfDouble {
+		private final long end;
+		private long p;
+
+		private PagedSpliterator(long start, long end) {
+			this.p=start;
+			this.end=end;
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			if (p>=end) return false;
+			action.accept(get(p++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			long start=p;
+			p=end;
+			forEach(start,end-start,action);
+		}
+
+		@Override
+		public Spliterator.OfDouble trySplit() {
+			long n=end-p;
+			if (n<2) return null;
+			long mid=p+(n>>>1);
+			// round to the nearest page boundary, unless the range lies within a single page
+			long boundary=((mid+(pageSize>>>1))>>>pageShift)<<pageShift;
+			if ((boundary>p)&&(boundary<end)) mid=boundary;
+			PagedSpliterator prefix=new PagedSpliterator(p,mid);
+			p=mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end-p;
+		}
+
+		@Override
+		public int characteristics() {
+			return VectorSpliterator.CHARACTERISTICS;
+		}
+	}
+}
@@ -1,6 +1,6 @@
 package mikera.arrayz.impl;
 
-import java.util.Iterator;
+import java.util.PrimitiveIterator;
 
 import mikera.arrayz.INDArray;
 
@@ -9,11 +9,11 @@ import mikera.arrayz.INDArray;
  * 
  * @author Mike
  */
-public class SliceElementIterator implements Iterator<Double> {
+public class SliceElementIterator implements PrimitiveIterator.OfDouble {
 	private final INDArray source;
 	private final int maxPos;
 	private int pos;
-	private Iterator<Double> inner;
+	private PrimitiveIterator.OfDouble inner;
 	
 	public SliceElementIterator(INDArray source) {
 		this.pos=0;
@@ -37,14 +37,19 @@ public class SliceElementIterator implements Iterator<Double> {
 	}
 
 	@Override
-	public Double next() {
-		Double d=inner.next();
+	public double nextDouble() {
+		double d=inner.nextDouble();
 		if (!inner.hasNext()) {
 			pos++;
 			if (pos<maxPos) inner=source.slice(pos).elementIterator();
 		}
 		return d;
 	}
+	
+	@Override
+	public Double next() {
+		return nextDouble();
+	}
 
 	@Override
 	public void remove() {
@@ -0,0 +1,90 @@
+package mikera.arrayz.impl;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+import mikera.arrayz.INDArray;
+
+/**
+ * General purpose spliterator for elements of arbitrary arrays.
+ * 
+ * Splits on slice boundaries where possible, then delegates to the spliterator of
+ * a single slice so that specialised slice implementations are used for the leaves.
+ * 
+ * @author Mike
+ */
+public final class SliceElementSpliterator implements Spliterator.OfDouble {
+	private static final int CHARACTERISTICS=Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+	
+	private final INDArray source;
+	private final long sliceSize;
+	private final int end;
+	private int pos;
+	private Spliterator.OfDouble inner=null;
+	
+	public SliceElementSpliterator(INDArray source) {
+		this(source,0,source.sliceCount());
+	}
+	
+	public SliceElementSpliterator(INDArray source, int start, int length) {
+		this.source=source;
+		int sc=source.sliceCount();
+		this.sliceSize=(sc==0)?0:source.elementCount()/sc;
+		this.pos=start;
+		this.end=start+length;
+	}
+
+	@Override
+	public boolean tryAdvance(DoubleConsumer action) {
+		while (true) {
+			if ((inner!=null)&&inner.tryAdvance(action)) return true;
+			if (pos>=end) return false;
+			inner=source.slice(pos++).elementSpliterator();
+		}
+	}
+	
+	@Override
+	public void forEachRemaining(DoubleConsumer action) {
+		if (inner!=null) {
+			inner.forEachRemaining(action);
+			inner=null;
+		}
+		for (; pos<end; pos++) {
+			source.slice(pos).forEachElement(action);
+		}
+	}
+
+	@Override
+	public Spliterator.OfDouble trySplit() {
+		if (inner!=null) {
+			if (pos>=end) return inner.trySplit();
+			// hand off the partially consumed slice as the prefix
+			Spliterator.OfDouble prefix=inner;
+			inner=null;
+			return prefix;
+		}
+		int n=end-pos;
+		if (n>=2) {
+			int mid=pos+(n>>>1);
+			SliceElementSpliterator prefix=new SliceElementSpliterator(source,pos,mid-pos);
+			pos=mid;
+			return prefix;
+		} else if (n==1) {
+			inner=source.slice(pos++).elementSpliterator();
+			return inner.trySplit();
+		}
+		return null;
+	}
+
+	@Override
+	public long estimateSize() {
+		long result=(end-pos)*sliceSize;
+		if (inner!=null) result+=inner.estimateSize();
+		return result;
+	}
+
+	@Override
+	public int characteristics() {
+		return CHARACTERISTICS;
+	}
+}
@@ -5,11 +5,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.arrayz.Array;
 import mikera.arrayz.Arrayz;
+import mikera.arrayz.IElementVisitor;
 import mikera.arrayz.INDArray;
+import mikera.arrayz.Reduction;
 import mikera.arrayz.SliceArray;
+import mikera.arrayz.impl.SliceElementSpliterator;
 import mikera.matrixx.algo.Multiplications;
 import mikera.matrixx.impl.IdentityMatrix;
 import mikera.matrixx.impl.MatrixColumnView;
@@ -173,6 +179,11 @@ public abstract class AMatrix extends ALinearTransform implements IMatrix, Itera
 		return (dimension==0)?getRow(index):getColumn(index);	
 	}	
 	
+	@Override
+	public INDArray reduce(int dimension, Reduction r) {
+		return r.reduce(this, dimension);
+	}
+	
 	@Override
 	public int sliceCount() {
 		return rowCount();
@@ -711,10 +722,38 @@ public abstract class AMatrix extends ALinearTransform implements IMatrix, Itera
 	}
 	
 	@Override
-	public Iterator<Double> elementIterator() {
+	public PrimitiveIterator.OfDouble elementIterator() {
 		return new MatrixElementIterator(this);
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		int rc=rowCount();
+		int cc=columnCount();
+		for (int i=0; i<rc; i++) {
+			for (int j=0; j<cc; j++) {
+				action.accept(unsafeGet(i,j));
+			}
+		}
+	}
+	
+	@Override
+	public void visitElements(IElementVisitor visitor) {
+		int rc=rowCount();
+		int cc=columnCount();
+		long index=0;
+		for (int i=0; i<rc; i++) {
+			for (int j=0; j<cc; j++) {
+				visitor.visit(index++,unsafeGet(i,j));
+			}
+		}
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return new SliceElementSpliterator(this);
+	}
+	
 	@Override
 	public boolean isBoolean() {
 		double[] data=Tools.getElements(this);
@@ -1033,6 +1072,7 @@ public abstract class AMatrix extends ALinearTransform implements IMatrix, Itera
 
 	@Override
 	public String toString() {
+		// rows format themselves, so that specialised row types (e.g. BitVector) keep their own layout
 		StringBuilder sb = new StringBuilder();
 		int rc = rowCount();
 		sb.append("[");
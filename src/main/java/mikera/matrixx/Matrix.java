@@ -2,6 +2,8 @@ package mikera.matrixx;
 
 import java.nio.DoubleBuffer;
 import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.arrayz.INDArray;
 import mikera.matrixx.impl.ADenseArrayMatrix;
@@ -17,7 +19,9 @@ import mikera.vectorz.impl.MatrixBandVector;
 import mikera.vectorz.impl.StridedVector;
 import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.Parallel;
 import mikera.vectorz.util.VectorzException;
+import mikera.vectorz.util.Workspace;
 
 /** 
  * Standard MxN matrix class backed by a fully packed double[] array
@@ -106,52 +110,52 @@ public final class Matrix extends ADenseArrayMatrix {
 	
 	@Override
 	public Matrix innerProduct(Matrix a) {
-		// TODO: detect large matrices and farm off to cache-efficient function
-		
-		int ic=this.columnCount();
-		if ((ic!=a.rowCount())) {
-			throw new IllegalArgumentException(ErrorMessages.mismatch(this, a));
-		}
-		int rc=this.rowCount();
-		int cc=a.columnCount();
-		Matrix result=Matrix.create(rc,cc);
-		for (int i=0; i<rc; i++) {
-			int toffset=ic*i;
-			for (int j=0; j<cc; j++) {
-				double acc=0.0;
-				for (int k=0; k<ic; k++) {
-					acc+=data[toffset+k]*a.unsafeGet(k, j);
-				}
-				result.unsafeSet(i,j,acc);
-			}
-		}
-		return result;
+		return innerProduct((AMatrix)a);
 	}
 
 	@Override
 	public Matrix innerProduct(AMatrix a) {
-		// TODO: consider transposing a into packed arrays?
-		if (a instanceof Matrix) {
-			return innerProduct((Matrix)a);
-		}
 		if ((this.columnCount()!=a.rowCount())) {
 			throw new IllegalArgumentException(ErrorMessages.mismatch(this, a));
 		}
+		Matrix result=Matrix.create(this.rowCount(),a.columnCount());
+		innerProduct(a,result);
+		return result;
+	}
+	
+	/**
+	 * Computes the inner product with another matrix, storing the result in a destination
+	 * matrix. The destination must not be the same as either of the inputs, otherwise an
+	 * IllegalArgumentException is thrown.
+	 * 
+	 * Uses only workspace storage, so does not allocate in steady state.
+	 */
+	public void innerProduct(AMatrix a, Matrix dest) {
+		int ic=this.columnCount();
+		if ((ic!=a.rowCount())) {
+			throw new IllegalArgumentException(ErrorMessages.mismatch(this, a));
+		}
 		int rc=this.rowCount();
 		int cc=a.columnCount();
-		int ic=this.columnCount();
-		Matrix result=Matrix.create(rc,cc);
-		for (int i=0; i<rc; i++) {
-			int toffset=ic*i;
+		if ((dest.rows!=rc)||(dest.cols!=cc)) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShape(dest));
+		}
+		if ((dest==this)||(dest==a)) {
+			throw new IllegalArgumentException(ErrorMessages.aliasedDestination(dest));
+		}
+		Workspace ws=Workspace.acquire();
+		try {
+			// copy each column of a into contiguous scratch storage
+			double[] col=ws.getArray(ic);
 			for (int j=0; j<cc; j++) {
-				double acc=0.0;
-				for (int k=0; k<ic; k++) {
-					acc+=data[toffset+k]*a.unsafeGet(k, j);
+				a.copyColumnTo(j, col, 0);
+				for (int i=0; i<rc; i++) {
+					dest.data[i*cc+j]=DoubleArrays.dotProduct(data, i*ic, col, 0, ic);
 				}
-				result.unsafeSet(i,j,acc);
 			}
+		} finally {
+			ws.release();
 		}
-		return result;
 	}
 	
 	@Override
@@ -210,15 +214,16 @@ public final class Matrix extends ADenseArrayMatrix {
 	
 	@Override
 	public final void copyColumnTo(int col, double[] dest, int destOffset) {
-		int colOffset=col;
-		for (int i=0;i<rows; i++) {
-			dest[destOffset+i]=data[colOffset+i*cols];
-		}
+		DoubleArrays.copy(data, col, cols, dest, destOffset, 1, rows);
 	}
 
 	@Override
 	public Vector transform (AVector a) {
 		Vector v=Vector.createLength(rows);
+		if (Parallel.shouldParallelize((long)rows*cols)) {
+			Parallel.transform(this, a, v);
+			return v;
+		}
 		for (int i=0; i<rows; i++) {
 			v.data[i]=a.dotProduct(data, i*cols);
 		}
@@ -234,19 +239,18 @@ public final class Matrix extends ADenseArrayMatrix {
 	
 	@Override
 	public void transform(AVector source, AVector dest) {
+		if (Parallel.shouldParallelize((long)rows*cols)) {
+			Parallel.transform(this, source, dest);
+			return;
+		}
 		if ((source instanceof Vector )&&(dest instanceof Vector)) {
 			transform ((Vector)source, (Vector)dest);
 			return;
 		}
 		if(rows!=dest.length()) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
 		if(cols!=source.length()) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
-		int index=0;
 		for (int i=0; i<rows; i++) {
-			double acc=0.0;
-			for (int j=0; j<cols; j++) {
-				acc+=data[index++]*source.unsafeGet(j);
-			}
-			dest.unsafeSet(i,acc);
+			dest.unsafeSet(i,source.dotProduct(data, i*cols));
 		}
 	}
 	
@@ -256,6 +260,10 @@ public final class Matrix extends ADenseArrayMatrix {
 		int cc = columnCount();
 		if (source.length()!=cc) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
 		if (dest.length()!=rc) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		if (Parallel.shouldParallelize((long)rc*cc)) {
+			Parallel.transform(this, source, dest);
+			return;
+		}
 		int di=0;
 		for (int row = 0; row < rc; row++) {
 			double total = 0.0;
@@ -340,6 +348,16 @@ public final class Matrix extends ADenseArrayMatrix {
 		dest.put(data);
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		DoubleArrays.forEach(data, 0, data.length, action);
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return DoubleArrays.spliterator(data, 0, data.length);
+	}
+	
 	@Override
 	public double[] asDoubleArray() {
 		return data;
@@ -369,12 +387,20 @@ public final class Matrix extends ADenseArrayMatrix {
 	
 	@Override
 	public void applyOp(Op op) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.applyOp(op, data, 0, data.length);
+			return;
+		}
 		op.applyTo(data);
 	}
 	
 	public void addMultiple(Matrix m,double factor) {
 		assert(rowCount()==m.rowCount());
 		assert(columnCount()==m.columnCount());
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.addMultiple(data, 0, m.data, 0, data.length, factor);
+			return;
+		}
 		for (int i=0; i<data.length; i++) {
 			data[i]+=m.data[i]*factor;
 		}
@@ -383,6 +409,10 @@ public final class Matrix extends ADenseArrayMatrix {
 	public void add(Matrix m) {
 		assert(rowCount()==m.rowCount());
 		assert(columnCount()==m.columnCount());
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.add(m.data, 0, data, 0, data.length);
+			return;
+		}
 		for (int i=0; i<data.length; i++) {
 			data[i]+=m.data[i];
 		}
@@ -391,6 +421,7 @@ public final class Matrix extends ADenseArrayMatrix {
 	@Override
 	public void addMultiple(AMatrix m,double factor) {
 		if (m instanceof Matrix) {addMultiple((Matrix)m,factor); return;}
+		if (m instanceof AStridedMatrix) {addMultiple((AStridedMatrix)m,factor); return;}
 		int rc=rowCount();
 		int cc=columnCount();
 		if (!((rc==m.rowCount())&&(cc==m.columnCount()))) throw new IllegalArgumentException(ErrorMessages.mismatch(this, m));
@@ -405,12 +436,17 @@ public final class Matrix extends ADenseArrayMatrix {
 	
 	@Override
 	public void add(double d) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.add(data, 0, data.length, d);
+			return;
+		}
 		DoubleArrays.add(data, d);
 	}
 	
 	@Override
 	public void add(AMatrix m) {
 		if (m instanceof Matrix) {add((Matrix)m); return;}
+		if (m instanceof AStridedMatrix) {add((AStridedMatrix)m); return;}
 		int rc=rowCount();
 		int cc=columnCount();
 		if (!((rc==m.rowCount())&&(cc==m.columnCount()))) throw new IllegalArgumentException(ErrorMessages.mismatch(this, m));
@@ -425,6 +461,10 @@ public final class Matrix extends ADenseArrayMatrix {
 	
 	@Override
 	public void multiply(double factor) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.multiply(data, 0, data.length, factor);
+			return;
+		}
 		for (int i=0; i<data.length; i++) {
 			data[i]*=factor;
 		}
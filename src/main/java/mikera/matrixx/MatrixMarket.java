@@ -0,0 +1,352 @@
+package mikera.matrixx;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import mikera.arrayz.ISparse;
+import mikera.indexz.Index;
+import mikera.matrixx.impl.VectorMatrixMN;
+import mikera.vectorz.AVector;
+import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.util.EdnReader;
+import mikera.vectorz.util.TextWriter;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Reader and writer for the Matrix Market exchange format, as used by the SuiteSparse and
+ * NIST Matrix Market collections.
+ *
+ * Both the dense "array" format and the sparse "coordinate" format are supported, with
+ * real, integer and pattern fields and general, symmetric and skew-symmetric storage.
+ * Array files are read into a Matrix. Coordinate files are streamed straight into
+ * primitive arrays sized from the header, and then bucketed by column and by row to give a
+ * VectorMatrixMN of SparseIndexedVector rows with sorted indexes. Duplicate entries are summed.
+ *
+ * @author Mike
+ *
+ */
+public final class MatrixMarket {
+	private static final String BANNER="%%MatrixMarket";
+
+	private static final int GENERAL=0;
+	private static final int SYMMETRIC=1;
+	private static final int SKEW_SYMMETRIC=2;
+
+	// ========================================================================
+	// Reading
+
+	public static AMatrix read(Reader reader) {
+		Scanner in=new Scanner(reader);
+		String[] banner=in.readLine().trim().toLowerCase().split("\\s+");
+		if ((banner.length<5)||!banner[0].equals(BANNER.toLowerCase())||!banner[1].equals("matrix")) {
+			throw new VectorzException("Invalid Matrix Market header");
+		}
+		boolean coordinate;
+		if (banner[2].equals("coordinate")) {
+			coordinate=true;
+		} else if (banner[2].equals("array")) {
+			coordinate=false;
+		} else {
+			throw new VectorzException("Unsupported Matrix Market format: "+banner[2]);
+		}
+		String field=banner[3];
+		boolean pattern=field.equals("pattern");
+		if (!(pattern||field.equals("real")||field.equals("double")||field.equals("integer"))) {
+			throw new VectorzException("Unsupported Matrix Market field: "+field);
+		}
+		if (pattern&&!coordinate) throw new VectorzException("Pattern field requires coordinate format");
+		int symmetry;
+		String sym=banner[4];
+		if (sym.equals("general")) {
+			symmetry=GENERAL;
+		} else if (sym.equals("symmetric")||sym.equals("hermitian")) {
+			symmetry=SYMMETRIC;
+		} else if (sym.equals("skew-symmetric")) {
+			symmetry=SKEW_SYMMETRIC;
+		} else {
+			throw new VectorzException("Unsupported Matrix Market symmetry: "+sym);
+		}
+
+		in.skipComments();
+		int rows=in.readInt();
+		int cols=in.readInt();
+		if ((rows<0)||(cols<0)) throw new VectorzException("Invalid Matrix Market size: "+rows+"x"+cols);
+		if ((symmetry!=GENERAL)&&(rows!=cols)) throw new VectorzException("Symmetric Matrix Market matrix must be square");
+		if (coordinate) {
+			int entries=in.readInt();
+			if (entries<0) throw new VectorzException("Invalid Matrix Market entry count: "+entries);
+			return readCoordinate(in,rows,cols,entries,pattern,symmetry);
+		} else {
+			return readArray(in,rows,cols,symmetry);
+		}
+	}
+
+	public static AMatrix read(File file) throws IOException {
+		Reader reader=new InputStreamReader(new FileInputStream(file),StandardCharsets.US_ASCII);
+		try {
+			return read(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static Matrix readArray(Scanner in, int rows, int cols, int symmetry) {
+		Matrix m=Matrix.create(rows,cols);
+		double[] data=m.data;
+		// values are in column-major order, and only the lower triangle is stored for symmetric matrices
+		for (int j=0; j<cols; j++) {
+			int start=(symmetry==GENERAL)?0:((symmetry==SYMMETRIC)?j:j+1);
+			for (int i=start; i<rows; i++) {
+				double v=in.readDouble();
+				data[i*cols+j]=v;
+				if (i!=j) {
+					if (symmetry==SYMMETRIC) data[j*cols+i]=v;
+					if (symmetry==SKEW_SYMMETRIC) data[j*cols+i]=-v;
+				}
+			}
+		}
+		return m;
+	}
+
+	private static AMatrix readCoordinate(Scanner in, int rows, int cols, int entries, boolean pattern, int symmetry) {
+		int capacity=(symmetry==GENERAL)?entries:entries*2;
+		int[] ri=new int[capacity];
+		int[] ci=new int[capacity];
+		double[] vs=new double[capacity];
+		int n=0;
+		for (int k=0; k<entries; k++) {
+			int i=in.readInt()-1;
+			int j=in.readInt()-1;
+			if ((i<0)||(i>=rows)||(j<0)||(j>=cols)) throw new VectorzException("Matrix Market entry out of range: ("+(i+1)+","+(j+1)+")");
+			double v=pattern?1.0:in.readDouble();
+			ri[n]=i; ci[n]=j; vs[n]=v; n++;
+			if ((symmetry!=GENERAL)&&(i!=j)) {
+				ri[n]=j; ci[n]=i; vs[n]=(symmetry==SKEW_SYMMETRIC)?-v:v; n++;
+			}
+		}
+
+		// bucket by column, then stably by row, so that each row ends up sorted by column
+		int[] colStart=new int[cols+1];
+		for (int k=0; k<n; k++) colStart[ci[k]+1]++;
+		for (int j=0; j<cols; j++) colStart[j+1]+=colStart[j];
+		int[] byColRow=new int[n];
+		double[] byColValue=new double[n];
+		int[] pos=Arrays.copyOf(colStart, cols);
+		for (int k=0; k<n; k++) {
+			int p=pos[ci[k]]++;
+			byColRow[p]=ri[k];
+			byColValue[p]=vs[k];
+		}
+		int[] rowStart=new int[rows+1];
+		for (int k=0; k<n; k++) rowStart[ri[k]+1]++;
+		for (int i=0; i<rows; i++) rowStart[i+1]+=rowStart[i];
+		int[] rowCols=ci;
+		double[] rowValues=vs;
+		pos=Arrays.copyOf(rowStart, rows);
+		for (int j=0; j<cols; j++) {
+			for (int p=colStart[j]; p<colStart[j+1]; p++) {
+				int q=pos[byColRow[p]]++;
+				rowCols[q]=j;
+				rowValues[q]=byColValue[p];
+			}
+		}
+
+		AVector[] result=new AVector[rows];
+		for (int i=0; i<rows; i++) {
+			int start=rowStart[i];
+			int end=rowStart[i+1];
+			// sum duplicate entries in place
+			int m=start;
+			for (int p=start; p<end; p++) {
+				if ((m>start)&&(rowCols[m-1]==rowCols[p])) {
+					rowValues[m-1]+=rowValues[p];
+				} else {
+					rowCols[m]=rowCols[p];
+					rowValues[m]=rowValues[p];
+					m++;
+				}
+			}
+			result[i]=SparseIndexedVector.wrap(cols, Index.wrap(Arrays.copyOfRange(rowCols, start, m)), Arrays.copyOfRange(rowValues, start, m));
+		}
+		if (rows==0) return Matrix.create(0, cols);
+		return VectorMatrixMN.wrap(result);
+	}
+
+	// ========================================================================
+	// Writing
+
+	/**
+	 * Writes a matrix in coordinate format if it is sparse or at least half zeros, and in
+	 * array format otherwise
+	 */
+	public static void write(AMatrix m, Writer writer) {
+		if ((m instanceof ISparse)||(m.nonZeroCount()*2<=m.elementCount())) {
+			writeCoordinate(m,writer);
+		} else {
+			writeArray(m,writer);
+		}
+	}
+
+	public static void write(AMatrix m, File file) throws IOException {
+		Writer writer=new OutputStreamWriter(new FileOutputStream(file),StandardCharsets.US_ASCII);
+		try {
+			write(m,writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes a matrix in dense array format, with values in column-major order
+	 */
+	public static void writeArray(AMatrix m, Writer writer) {
+		int rows=m.rowCount();
+		int cols=m.columnCount();
+		TextWriter out=new TextWriter(writer);
+		out.write(BANNER).write(" matrix array real general\n");
+		out.write(Integer.toString(rows)).write(' ').write(Integer.toString(cols)).write('\n');
+		double[] column=new double[rows];
+		for (int j=0; j<cols; j++) {
+			m.copyColumnTo(j, column, 0);
+			for (int i=0; i<rows; i++) {
+				out.writeDouble(column[i]).write('\n');
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes the non-zero elements of a matrix in coordinate format
+	 */
+	public static void writeCoordinate(AMatrix m, Writer writer) {
+		int rows=m.rowCount();
+		int cols=m.columnCount();
+		TextWriter out=new TextWriter(writer);
+		out.write(BANNER).write(" matrix coordinate real general\n");
+		out.write(Integer.toString(rows)).write(' ').write(Integer.toString(cols)).write(' ').write(Long.toString(m.nonZeroCount())).write('\n');
+		double[] row=new double[cols];
+		for (int i=0; i<rows; i++) {
+			AVector r=m.getRow(i);
+			if (r instanceof SparseIndexedVector) {
+				SparseIndexedVector sv=(SparseIndexedVector)r;
+				int[] ix=sv.nonSparseIndexes().getData();
+				double[] vs=sv.nonSparseValues().getArray();
+				for (int k=0; k<ix.length; k++) {
+					if (vs[k]!=0.0) writeEntry(out,i,ix[k],vs[k]);
+				}
+			} else {
+				r.copyTo(row, 0);
+				for (int j=0; j<cols; j++) {
+					if (row[j]!=0.0) writeEntry(out,i,j,row[j]);
+				}
+			}
+		}
+		out.flush();
+	}
+
+	private static void writeEntry(TextWriter out, int i, int j, double v) {
+		out.write(Integer.toString(i+1)).write(' ').write(Integer.toString(j+1)).write(' ').writeDouble(v).write('\n');
+	}
+
+	// ========================================================================
+	// Tokenising input
+
+	private static final class Scanner {
+		private final Reader reader;
+		private final char[] buf=new char[8192];
+		private int pos=0;
+		private int limit=0;
+		private char[] token=new char[64];
+
+		private Scanner(Reader reader) {
+			this.reader=reader;
+		}
+
+		private int peek() {
+			if ((pos>=limit)&&!fill()) return -1;
+			return buf[pos];
+		}
+
+		private boolean fill() {
+			pos=0;
+			try {
+				int n=reader.read(buf, 0, buf.length);
+				limit=Math.max(0, n);
+			} catch (IOException e) {
+				throw new VectorzException("Error reading Matrix Market input",e);
+			}
+			return limit>0;
+		}
+
+		private String readLine() {
+			StringBuilder sb=new StringBuilder();
+			int c;
+			while (((c=peek())>=0)&&(c!='\n')) {
+				sb.append((char)c);
+				pos++;
+			}
+			if (c>=0) pos++;
+			return sb.toString();
+		}
+
+		/**
+		 * Skips comment lines starting with '%' and blank lines
+		 */
+		private void skipComments() {
+			while (true) {
+				int c=peek();
+				if (c=='%') {
+					readLine();
+				} else if ((c>=0)&&(c<=' ')) {
+					pos++;
+				} else {
+					return;
+				}
+			}
+		}
+
+		private int readToken() {
+			int c;
+			while (((c=peek())>=0)&&(c<=' ')) {
+				pos++;
+			}
+			int n=0;
+			while (((c=peek())>' ')) {
+				if (n==token.length) token=Arrays.copyOf(token, n*2);
+				token[n++]=(char)c;
+				pos++;
+			}
+			if (n==0) throw new VectorzException("Unexpected end of Matrix Market input");
+			return n;
+		}
+
+		private int readInt() {
+			int n=readToken();
+			int i=0;
+			boolean negative=(token[0]=='-');
+			if (negative||(token[0]=='+')) i++;
+			if (i==n) throw new VectorzException("Invalid integer: "+new String(token,0,n));
+			long result=0;
+			for (; i<n; i++) {
+				char c=token[i];
+				if ((c<'0')||(c>'9')||(result>Integer.MAX_VALUE)) throw new VectorzException("Invalid integer: "+new String(token,0,n));
+				result=result*10+(c-'0');
+			}
+			if (result>Integer.MAX_VALUE) throw new VectorzException("Invalid integer: "+new String(token,0,n));
+			return (int)(negative?-result:result);
+		}
+
+		private double readDouble() {
+			int n=readToken();
+			return EdnReader.parseNumber(token,n);
+		}
+	}
+}
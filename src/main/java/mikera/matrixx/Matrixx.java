@@ -4,11 +4,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import us.bpsm.edn.parser.Parseable;
-import us.bpsm.edn.parser.Parser;
-import us.bpsm.edn.parser.Parsers;
 import mikera.indexz.Index;
 import mikera.matrixx.impl.ADiagonalMatrix;
+import mikera.matrixx.impl.BufferMatrix;
+import mikera.matrixx.impl.ChunkedMatrix;
+import mikera.matrixx.impl.CompressedMatrix;
+import mikera.matrixx.impl.FloatMatrix;
 import mikera.matrixx.impl.ColumnMatrix;
 import mikera.matrixx.impl.DiagonalMatrix;
 import mikera.matrixx.impl.IdentityMatrix;
@@ -16,12 +17,13 @@ import mikera.matrixx.impl.ScalarMatrix;
 import mikera.matrixx.impl.StridedMatrix;
 import mikera.matrixx.impl.VectorMatrixMN;
 import mikera.matrixx.impl.ZeroMatrix;
-import mikera.util.Rand;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Tools;
 import mikera.vectorz.Vector3;
 import mikera.vectorz.Vectorz;
 import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.util.EdnReader;
+import mikera.vectorz.util.RandomStream;
 import mikera.vectorz.util.VectorzException;
 
 /**
@@ -165,6 +167,15 @@ public class Matrixx {
 		return m;
 	}
 
+	/**
+	 * Creates a dense matrix of uniformly distributed random values in [0,1), determined only by the given seed
+	 */
+	public static Matrix createRandomMatrix(int rows, int columns, long seed) {
+		Matrix m = Matrix.create(rows, columns);
+		Vectorz.fillRandom(m.asVector(), seed);
+		return m;
+	}
+
 	static Matrix createInverse(AMatrix m) {
 		if (!m.isSquare()) { throw new IllegalArgumentException(
 				"Matrix must be square for inverse!"); }
@@ -333,6 +344,47 @@ public class Matrixx {
 		return m;
 	}
 
+	/**
+	 * Creates a zero-filled matrix stored off-heap in a direct buffer
+	 * @param rows
+	 * @param columns
+	 * @return
+	 */
+	public static BufferMatrix createDirect(int rows, int columns) {
+		return BufferMatrix.create(rows, columns);
+	}
+
+	/**
+	 * Creates a zero-filled matrix stored with single precision
+	 * @param rows
+	 * @param columns
+	 * @return
+	 */
+	public static FloatMatrix createFloat(int rows, int columns) {
+		return FloatMatrix.create(rows, columns);
+	}
+
+	/**
+	 * Creates a zero-filled matrix stored in fixed-size pages. The number of elements may
+	 * exceed 2^31.
+	 * @param rows
+	 * @param columns
+	 * @return
+	 */
+	public static ChunkedMatrix createChunked(int rows, int columns) {
+		return ChunkedMatrix.create(rows, columns);
+	}
+
+	/**
+	 * Creates an immutable compressed copy of a matrix, with each row stored in whichever
+	 * compressed encoding is smallest
+	 * @param m
+	 * @return
+	 */
+	public static CompressedMatrix createCompressed(AMatrix m) {
+		return CompressedMatrix.create(m);
+	}
+
 	/**
 	 * Creates a zero-filled matrix with the specified number of dimensions for both rows and columns
 	 * @param dimensions
@@ -387,9 +439,14 @@ public class Matrixx {
 	public static void fillRandomValues(AMatrix m) {
 		int rows = m.rowCount();
 		int columns = m.columnCount();
+		if (m instanceof Matrix) {
+			RandomStream.current().fillUniform(((Matrix)m).data, 0, rows*columns);
+			return;
+		}
+		RandomStream r = RandomStream.current();
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < columns; j++) {
-				m.unsafeSet(i, j, Rand.nextDouble());
+				m.unsafeSet(i, j, r.nextDouble());
 			}
 		}
 	}
@@ -417,28 +474,20 @@ public class Matrixx {
 	// ====================================
 	// Edn formatting and parsing functions
 
-	private static Parser.Config getMatrixParserConfig() {
-		return Parsers.defaultConfiguration();
-	}
-
 	/**
 	 * Parse a matrix in edn format
 	 * 
 	 * @param ednString
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public static AMatrix parse(String ednString) {
-		Parser p = Parsers.newParser(getMatrixParserConfig());
-		Parseable ps = Parsers.newParseable(ednString);
-		List<List<Object>> data = (List<List<Object>>) p.nextValue(ps);
-		int rc = data.size();
-		int cc = (rc == 0) ? 0 : data.get(0).size();
-		AMatrix m = newMatrix(rc, cc);
-		for (int i = 0; i < rc; i++) {
-			for (int j = 0; j < cc; j++) {
-				m.set(i, j, Tools.toDouble(data.get(i).get(j)));
-			}
+		AMatrix m = new EdnReader(ednString).readMatrix();
+		int rc = m.rowCount();
+		int cc = m.columnCount();
+		if (((rc == 2) && (cc == 2)) || ((rc == 3) && (cc == 3))) {
+			AMatrix r = newMatrix(rc, cc);
+			r.set(m);
+			return r;
 		}
 		return m;
 	}
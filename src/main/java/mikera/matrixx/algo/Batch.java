@@ -0,0 +1,312 @@
+package mikera.matrixx.algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.Parallel;
+import mikera.vectorz.util.VectorzException;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Batch execution of many independent linear algebra jobs, e.g. one small solve per model.
+ *
+ * execute(jobs) schedules a whole batch as a single fork/join computation on the Parallel pool,
+ * so the per-job cost is a few object allocations rather than a pool submission. Jobs are binned
+ * by estimated cost: large jobs each become a task, started largest first, while small jobs are
+ * coalesced into chunks of roughly MIN_TASK_COST that run back to back on one worker. Idle
+ * workers steal chunks and large jobs from busy ones.
+ *
+ * Jobs run on pool worker threads, so scratch space taken from Workspace is reused by every job
+ * a worker runs. Results are returned in the order the jobs were given. If any job throws an
+ * exception, it is rethrown from execute.
+ *
+ * @author Mike
+ *
+ */
+public final class Batch {
+	/**
+	 * Approximate number of floating point operations below which a job is coalesced with others
+	 */
+	public static final long MIN_TASK_COST=1L<<16;
+
+	private Batch() {
+	}
+
+	/**
+	 * A single job in a batch, producing a result of type T
+	 */
+	public static abstract class Job<T> {
+		/**
+		 * Computes the result of this job
+		 */
+		public abstract T compute();
+
+		/**
+		 * Returns the approximate number of floating point operations needed to compute this job
+		 */
+		public abstract long cost();
+	}
+
+	/**
+	 * Creates a job computing the matrix product a*b
+	 */
+	public static Job<Matrix> multiply(final AMatrix a, final AMatrix b) {
+		if (a.columnCount()!=b.rowCount()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
+		return new Job<Matrix>() {
+			@Override
+			public Matrix compute() {
+				return Multiplications.multiply(a, b);
+			}
+
+			@Override
+			public long cost() {
+				return 2L*a.rowCount()*a.columnCount()*b.columnCount();
+			}
+		};
+	}
+
+	/**
+	 * Creates a job solving the linear system a*x=b for x, where a is a square non-singular matrix
+	 */
+	public static Job<Vector> solve(final AMatrix a, final AVector b) {
+		if (!a.isSquare()) throw new IllegalArgumentException(ErrorMessages.squareMatrixRequired(a));
+		if (a.rowCount()!=b.length()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
+		return new Job<Vector>() {
+			@Override
+			public Vector compute() {
+				return solveLU(a, b);
+			}
+
+			@Override
+			public long cost() {
+				long n=a.rowCount();
+				return (2L*n*n*n)/3+2L*n*n;
+			}
+		};
+	}
+
+	/**
+	 * Creates a job computing the LUP decomposition of a square matrix, as LU.decomposeLUP
+	 */
+	public static Job<AMatrix[]> decomposeLUP(final AMatrix a) {
+		if (!a.isSquare()) throw new IllegalArgumentException(ErrorMessages.squareMatrixRequired(a));
+		return new Job<AMatrix[]>() {
+			@Override
+			public AMatrix[] compute() {
+				return LU.decomposeLUP(a);
+			}
+
+			@Override
+			public long cost() {
+				long n=a.rowCount();
+				return (2L*n*n*n)/3;
+			}
+		};
+	}
+
+	/**
+	 * Creates a job computing the QR decomposition of a matrix, as QR.decompose
+	 */
+	public static Job<Matrix[]> decomposeQR(final AMatrix a) {
+		return new Job<Matrix[]>() {
+			@Override
+			public Matrix[] compute() {
+				return QR.decompose(a);
+			}
+
+			@Override
+			public long cost() {
+				long m=a.rowCount();
+				long n=a.columnCount();
+				return 2L*m*n*n;
+			}
+		};
+	}
+
+	/**
+	 * Creates a job computing the Cholesky decomposition of a matrix, as Cholesky.decompose
+	 */
+	public static Job<Matrix> decomposeCholesky(final AMatrix a) {
+		return new Job<Matrix>() {
+			@Override
+			public Matrix compute() {
+				return Cholesky.decompose(a);
+			}
+
+			@Override
+			public long cost() {
+				long n=a.rowCount();
+				return (n*n*n)/3;
+			}
+		};
+	}
+
+	/**
+	 * Runs a batch of jobs on the Parallel pool, returning their results in order
+	 */
+	public static <T> List<T> execute(List<? extends Job<? extends T>> jobs) {
+		return execute(jobs,Parallel.getPool());
+	}
+
+	/**
+	 * Runs a batch of jobs on the given pool, returning their results in order
+	 */
+	public static <T> List<T> execute(List<? extends Job<? extends T>> jobs, ForkJoinPool pool) {
+		int n=jobs.size();
+		final Job<?>[] js=jobs.toArray(new Job<?>[n]);
+		final Object[] results=new Object[n];
+		final long[] costs=new long[n];
+		long total=0;
+		for (int i=0; i<n; i++) {
+			costs[i]=Math.max(js[i].cost(),1);
+			total+=costs[i];
+		}
+
+		if ((total<2*MIN_TASK_COST)||(pool.getParallelism()<=1)) {
+			for (int i=0; i<n; i++) {
+				results[i]=js[i].compute();
+			}
+		} else {
+			pool.invoke(new BatchTask(js,results,schedule(costs)));
+		}
+
+		ArrayList<T> list=new ArrayList<T>(n);
+		for (int i=0; i<n; i++) {
+			@SuppressWarnings("unchecked")
+			T r=(T)results[i];
+			list.add(r);
+		}
+		return list;
+	}
+
+	/**
+	 * Bins jobs into tasks, returned as arrays of job indices. Large jobs get a task each, in
+	 * decreasing order of cost, followed by chunks of small jobs in their original order.
+	 */
+	private static int[][] schedule(final long[] costs) {
+		int n=costs.length;
+		ArrayList<Integer> large=new ArrayList<Integer>();
+		ArrayList<int[]> tasks=new ArrayList<int[]>();
+		int[] chunk=new int[n];
+		int chunkSize=0;
+		long chunkCost=0;
+		for (int i=0; i<n; i++) {
+			if (costs[i]>=MIN_TASK_COST) {
+				large.add(i);
+				continue;
+			}
+			chunk[chunkSize++]=i;
+			chunkCost+=costs[i];
+			if (chunkCost>=MIN_TASK_COST) {
+				tasks.add(Arrays.copyOf(chunk, chunkSize));
+				chunkSize=0;
+				chunkCost=0;
+			}
+		}
+		if (chunkSize>0) tasks.add(Arrays.copyOf(chunk, chunkSize));
+
+		Integer[] order=large.toArray(new Integer[large.size()]);
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(costs[b], costs[a]);
+			}
+		});
+		int[][] result=new int[order.length+tasks.size()][];
+		for (int i=0; i<order.length; i++) {
+			result[i]=new int[] {order[i]};
+		}
+		for (int i=0; i<tasks.size(); i++) {
+			result[order.length+i]=tasks.get(i);
+		}
+		return result;
+	}
+
+	private static Vector solveLU(AMatrix a, AVector b) {
+		int n=a.rowCount();
+		Vector x=Vector.createLength(n);
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] lu=ws.getArray(n*n);
+			a.getElements(lu, 0);
+			int[] pivots=new BlockedLU(lu, n, BlockedLU.DEFAULT_BLOCK_SIZE, null, false).decompose();
+
+			double[] xs=x.data;
+			b.getElements(xs, 0);
+			for (int i=0; i<n; i++) {
+				int p=pivots[i];
+				if (p!=i) {
+					double t=xs[i];
+					xs[i]=xs[p];
+					xs[p]=t;
+				}
+			}
+			// forward substitution with unit lower triangle
+			for (int i=1; i<n; i++) {
+				double acc=xs[i];
+				int ri=i*n;
+				for (int k=0; k<i; k++) {
+					acc-=lu[ri+k]*xs[k];
+				}
+				xs[i]=acc;
+			}
+			// back substitution with upper triangle
+			for (int i=n-1; i>=0; i--) {
+				int ri=i*n;
+				double d=lu[ri+i];
+				if (d==0.0) throw new VectorzException("Matrix is singular!");
+				double acc=xs[i];
+				for (int k=i+1; k<n; k++) {
+					acc-=lu[ri+k]*xs[k];
+				}
+				xs[i]=acc/d;
+			}
+		} finally {
+			ws.release();
+		}
+		return x;
+	}
+
+	private static final class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = -3178626495010728551L;
+
+		private final Job<?>[] jobs;
+		private final Object[] results;
+		private final int[][] tasks;
+		private final int start;
+		private final int end;
+
+		private BatchTask(Job<?>[] jobs, Object[] results, int[][] tasks) {
+			this(jobs,results,tasks,0,tasks.length);
+		}
+
+		private BatchTask(Job<?>[] jobs, Object[] results, int[][] tasks, int start, int end) {
+			this.jobs=jobs;
+			this.results=results;
+			this.tasks=tasks;
+			this.start=start;
+			this.end=end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end-start==1) {
+				for (int i : tasks[start]) {
+					results[i]=jobs[i].compute();
+				}
+				return;
+			}
+			int mid=(start+end)>>>1;
+			invokeAll(new BatchTask(jobs,results,tasks,start,mid),new BatchTask(jobs,results,tasks,mid,end));
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package mikera.matrixx.algo;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Right-looking blocked LU decomposition with partial pivoting, working in place on a dense
+ * row-major n x n array.
+ *
+ * Each step factorises a panel of blockSize columns on the calling thread, then applies the
+ * panel to the trailing submatrix: a triangular solve for the block row of U, followed by a
+ * rank-blockSize update of the remaining rows. The update dominates the cost for large matrices
+ * and is split into row ranges on a ForkJoinPool. Within a range it works through the columns in
+ * strips, so each strip of the block row of U is read from cache for every row of the range.
+ *
+ * With lookahead, only the columns of the next panel are updated before moving on. The rest of
+ * the trailing update is forked, and runs while the next panel is factorised. Row interchanges
+ * found in a panel are applied to the other columns only after the forked update has completed,
+ * so the two never touch the same elements.
+ *
+ * Pivot rows are chosen exactly as in LU.decomposeLUP (the first element of largest magnitude).
+ *
+ * @author Mike
+ *
+ */
+final class BlockedLU {
+	static final int DEFAULT_BLOCK_SIZE=64;
+
+	/**
+	 * Minimum number of multiply-adds in a forked row range of the trailing update
+	 */
+	private static final int MIN_WORK=1<<15;
+
+	/**
+	 * Number of columns of U updated together, so that a strip of the block row of U stays in
+	 * cache while it is applied to each row of a range
+	 */
+	private static final int COLUMN_STRIP=256;
+
+	private final double[] a;
+	private final int n;
+	private final int nb;
+	private final ForkJoinPool pool;
+	private final boolean lookahead;
+	private final int[] pivots;
+
+	/**
+	 * Creates a decomposition of the given data. If pool is null, all work runs on the calling thread.
+	 */
+	BlockedLU(double[] data, int n, int blockSize, ForkJoinPool pool, boolean lookahead) {
+		this.a=data;
+		this.n=n;
+		this.nb=blockSize;
+		this.pool=pool;
+		this.lookahead=lookahead;
+		this.pivots=new int[n];
+	}
+
+	/**
+	 * Decomposes the data in place into unit lower triangular L (below the diagonal) and U,
+	 * returning the row swapped with each row j at step j
+	 */
+	int[] decompose() {
+		ForkJoinTask<?> pending=null;
+		for (int k0=0; k0<n; k0+=nb) {
+			int k1=Math.min(k0+nb, n);
+			factorPanel(k0, k1);
+			if (pending!=null) {
+				pending.join();
+				pending=null;
+			}
+			swapRows(k0, k1, 0, k0);
+			swapRows(k0, k1, k1, n);
+			if (k1==n) break;
+
+			if (lookahead&&(pool!=null)) {
+				int k2=Math.min(k1+nb, n);
+				new TrailingUpdate(k0, k1, k1, k2).compute();
+				if (k2<n) pending=pool.submit(new TrailingUpdate(k0, k1, k2, n));
+			} else if (pool!=null) {
+				pool.invoke(new TrailingUpdate(k0, k1, k1, n));
+			} else {
+				new TrailingUpdate(k0, k1, k1, n).compute();
+			}
+		}
+		return pivots;
+	}
+
+	/**
+	 * Factorises columns [k0,k1) for rows [k0,n), swapping rows within the panel columns only
+	 */
+	private void factorPanel(int k0, int k1) {
+		for (int j=k0; j<k1; j++) {
+			int p=j;
+			double max=Math.abs(a[j*n+j]);
+			for (int i=j+1; i<n; i++) {
+				double v=Math.abs(a[i*n+j]);
+				if (v>max) {
+					max=v;
+					p=i;
+				}
+			}
+			pivots[j]=p;
+			if (p!=j) swap(j, p, k0, k1);
+
+			int rj=j*n;
+			double d=a[rj+j];
+			if (d==0.0) continue;
+			for (int i=j+1; i<n; i++) {
+				int ri=i*n;
+				double l=a[ri+j]/d;
+				a[ri+j]=l;
+				if (l==0.0) continue;
+				for (int c=j+1; c<k1; c++) {
+					a[ri+c]-=l*a[rj+c];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies the row interchanges of panel [k0,k1) to columns [c0,c1)
+	 */
+	private void swapRows(int k0, int k1, int c0, int c1) {
+		if (c1<=c0) return;
+		for (int j=k0; j<k1; j++) {
+			if (pivots[j]!=j) swap(j, pivots[j], c0, c1);
+		}
+	}
+
+	private void swap(int r1, int r2, int c0, int c1) {
+		int o1=r1*n;
+		int o2=r2*n;
+		for (int c=c0; c<c1; c++) {
+			double t=a[o1+c];
+			a[o1+c]=a[o2+c];
+			a[o2+c]=t;
+		}
+	}
+
+	/**
+	 * Subtracts the product of L[rows,k0:k1] and U[k0:k1,c0:c1] from the given rows, one strip of
+	 * columns at a time
+	 */
+	private void updateRows(int k0, int k1, int c0, int c1, int rowStart, int rowEnd) {
+		for (int s0=c0; s0<c1; s0+=COLUMN_STRIP) {
+			int s1=Math.min(s0+COLUMN_STRIP, c1);
+			for (int i=rowStart; i<rowEnd; i++) {
+				int ri=i*n;
+				for (int k=k0; k<k1; k++) {
+					double l=a[ri+k];
+					if (l==0.0) continue;
+					int rk=k*n;
+					for (int c=s0; c<s1; c++) {
+						a[ri+c]-=l*a[rk+c];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies panel [k0,k1) to columns [c0,c1) of the trailing matrix
+	 */
+	private final class TrailingUpdate extends RecursiveAction {
+		private static final long serialVersionUID = -6392718502983714013L;
+
+		private final int k0;
+		private final int k1;
+		private final int c0;
+		private final int c1;
+
+		private TrailingUpdate(int k0, int k1, int c0, int c1) {
+			this.k0=k0;
+			this.k1=k1;
+			this.c0=c0;
+			this.c1=c1;
+		}
+
+		@Override
+		protected void compute() {
+			// block row of U: forward substitution with the unit lower triangle of the panel
+			for (int i=k0+1; i<k1; i++) {
+				updateRows(k0, i, c0, c1, i, i+1);
+			}
+
+			int rows=n-k1;
+			if ((pool==null)||!inForkJoinPool()) {
+				updateRows(k0, k1, c0, c1, k1, n);
+				return;
+			}
+			long rowWork=((long)(k1-k0))*(c1-c0);
+			int grain=(int)Math.min(rows, MIN_WORK/rowWork);
+			grain=Math.max(Math.max(grain, rows/(pool.getParallelism()*4)), 1);
+			new RowUpdate(this, k1, n, grain).compute();
+		}
+	}
+
+	private final class RowUpdate extends RecursiveAction {
+		private static final long serialVersionUID = 2170385520763492236L;
+
+		private final TrailingUpdate u;
+		private final int start;
+		private final int end;
+		private final int grain;
+
+		private RowUpdate(TrailingUpdate u, int start, int end, int grain) {
+			this.u=u;
+			this.start=start;
+			this.end=end;
+			this.grain=grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end-start<=grain) {
+				updateRows(u.k0, u.k1, u.c0, u.c1, start, end);
+				return;
+			}
+			int mid=(start+end)>>>1;
+			invokeAll(new RowUpdate(u, start, mid, grain), new RowUpdate(u, mid, end, grain));
+		}
+	}
+}
@@ -21,11 +21,11 @@
 
 package mikera.matrixx.algo;
 
-import mikera.vectorz.Vector;
-
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
 import mikera.matrixx.impl.PermutationMatrix;
+import mikera.vectorz.util.Parallel;
+import mikera.vectorz.util.Workspace;
 
 public class LU {
 
@@ -37,6 +37,39 @@ public class LU {
 		return decomposeLUPInternal(matrix.clone());
 	}
 
+	/**
+	 * Computes the LUP decomposition of a square matrix with a right-looking blocked algorithm.
+	 * 
+	 * Pivoting and results are the same as decomposeLUP, i.e. an array [L, U, P] where PA = LU.
+	 * For matrices with at least Parallel.getThreshold() elements, trailing matrix updates are
+	 * split across the Parallel pool and overlapped with factorisation of the next panel.
+	 */
+	public static AMatrix[] decomposeLUPParallel(AMatrix matrix) {
+		return decomposeLUPParallel(matrix, BlockedLU.DEFAULT_BLOCK_SIZE, true);
+	}
+
+	/**
+	 * Computes the LUP decomposition of a square matrix with a right-looking blocked algorithm,
+	 * using the given panel width. With lookahead, the update of the remaining trailing matrix
+	 * runs concurrently with factorisation of the next panel.
+	 */
+	public static AMatrix[] decomposeLUPParallel(AMatrix matrix, int blockSize, boolean lookahead) {
+		if (!matrix.isSquare()) { throw new IllegalArgumentException(
+				"Wrong matrix size: " + "not square"); }
+		if (blockSize < 1) { throw new IllegalArgumentException(
+				"Block size must be positive: " + blockSize); }
+		Matrix lu = Matrix.create(matrix);
+		int n = lu.rowCount();
+		boolean parallel = ((long) n) * n >= Parallel.getThreshold();
+		int[] pivots = new BlockedLU(lu.data, n, blockSize, parallel ? Parallel.getPool() : null, lookahead).decompose();
+
+		PermutationMatrix p = PermutationMatrix.createIdentity(n);
+		for (int j = 0; j < n; j++) {
+			p.swapRows(pivots[j], j);
+		}
+		return extractLUP(lu, p);
+	}
+
 	private static AMatrix[] decomposeLUPInternal(Matrix lu) {
 		if (!lu.isSquare()) { throw new IllegalArgumentException(
 				"Wrong matrix size: " + "not square"); }
@@ -45,42 +78,54 @@ public class LU {
 
 		PermutationMatrix p = PermutationMatrix.createIdentity(n);
 
-		for (int j = 0; j < n; j++) {
+		Workspace ws = Workspace.acquire();
+		try {
+			double[] jcolumn = ws.getArray(n);
 
-			Vector jcolumn = lu.getColumn(j).toVector();
+			for (int j = 0; j < n; j++) {
 
-			for (int i = 0; i < n; i++) {
+				lu.copyColumnTo(j, jcolumn, 0);
 
-				int kmax = Math.min(i, j);
+				for (int i = 0; i < n; i++) {
 
-				double s = 0.0;
-				for (int k = 0; k < kmax; k++) {
-					s += lu.get(i, k) * jcolumn.get(k);
-				}
+					int kmax = Math.min(i, j);
 
-				jcolumn.set(i, jcolumn.get(i) - s);
-				lu.set(i, j, jcolumn.get(i));
-			}
-
-			int biggest = j;
+					double s = 0.0;
+					for (int k = 0; k < kmax; k++) {
+						s += lu.get(i, k) * jcolumn[k];
+					}
 
-			for (int i = j + 1; i < n; i++) {
-				if (Math.abs(jcolumn.get(i)) > Math.abs(jcolumn.get(biggest)))
-					biggest = i;
-			}
+					jcolumn[i] -= s;
+					lu.set(i, j, jcolumn[i]);
+				}
 
-			if (biggest != j) {
-				lu.swapRows(biggest, j);
-				p.swapRows(biggest, j);
-			}
+				int biggest = j;
 
-			if ((j < n) & lu.get(j, j) != 0.0) {
 				for (int i = j + 1; i < n; i++) {
-					lu.set(i, j, lu.get(i, j) / lu.get(j, j));
+					if (Math.abs(jcolumn[i]) > Math.abs(jcolumn[biggest]))
+						biggest = i;
+				}
+
+				if (biggest != j) {
+					lu.swapRows(biggest, j);
+					p.swapRows(biggest, j);
+				}
+
+				if ((j < n) & lu.get(j, j) != 0.0) {
+					for (int i = j + 1; i < n; i++) {
+						lu.set(i, j, lu.get(i, j) / lu.get(j, j));
+					}
 				}
 			}
+		} finally {
+			ws.release();
 		}
 
+		return extractLUP(lu, p);
+	}
+
+	private static AMatrix[] extractLUP(Matrix lu, PermutationMatrix p) {
+		int n = lu.rowCount();
 		Matrix l = Matrix.create(n, n);
 
 		for (int i = 0; i < n; i++) {
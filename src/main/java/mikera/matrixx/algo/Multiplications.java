@@ -4,6 +4,7 @@ import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrix;
 import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.Workspace;
 
 public class Multiplications {
 	// target number of elements in working set group
@@ -37,6 +38,25 @@ public class Multiplications {
 		return blockedMultiply(a,b);
 	}
 	
+	/**
+	 * Multiplies two matrices, storing the result in a destination matrix. The destination
+	 * must not be the same as either of the inputs, otherwise an IllegalArgumentException
+	 * is thrown.
+	 * 
+	 * Uses only workspace storage, so does not allocate in steady state.
+	 * 
+	 * @param a
+	 * @param b
+	 * @param dest
+	 */
+	public static void multiply(AMatrix a, AMatrix b, Matrix dest) {
+		if (a instanceof Matrix) {
+			blockedMultiply((Matrix)a,b,dest);
+		} else {
+			doubleBlockedMultiply(a,b,dest);
+		}
+	}
+	
 	/**
 	 * Performs fast matrix multiplication using temporary working storage for the second matrix
 	 * @param a
@@ -44,6 +64,12 @@ public class Multiplications {
 	 * @return
 	 */
 	public static Matrix blockedMultiply(Matrix a, AMatrix b) {
+		Matrix result=Matrix.create(a.rowCount(), b.columnCount());
+		blockedMultiply(a,b,result);
+		return result;
+	}
+	
+	public static void blockedMultiply(Matrix a, AMatrix b, Matrix dest) {
 		int rc=a.rowCount();
 		int cc=b.columnCount();
 		int ic=a.columnCount();
@@ -51,36 +77,48 @@ public class Multiplications {
 		if ((ic!=b.rowCount())) {
 			throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
 		}		
+		if ((dest.rowCount()!=rc)||(dest.columnCount()!=cc)) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShape(dest));
+		}
+		if ((dest==a)||(dest==b)) {
+			throw new IllegalArgumentException(ErrorMessages.aliasedDestination(dest));
+		}
 
-		Matrix result=Matrix.create(rc, cc);
-		if (ic==0) return result;
+		if (ic==0) {
+			dest.fill(0.0);
+			return;
+		}
 		
 		int block=(WORKING_SET_TARGET/ic)+1;
-		// working set stores up to <block> number of columns from second matrix
-		Matrix wsb=Matrix.create(Math.min(block,cc), ic);
-		
-		for (int bj=0; bj<cc; bj+=block) {
-			int bjsize=Math.min(block, cc-bj);
+		Workspace ws=Workspace.acquire();
+		try {
+			// working set stores up to <block> number of columns from second matrix
+			double[] wsb=ws.getArray(Math.min(block,cc)*ic);
 			
-			// copy columns into working set
-			for (int t=0; t<bjsize; t++) {
-				b.copyColumnTo(bj+t,wsb.data,t*ic);
-			}
-			
-			for (int bi=0; bi<rc; bi+=block) {
-				int bisize=Math.min(block, rc-bi);
+			for (int bj=0; bj<cc; bj+=block) {
+				int bjsize=Math.min(block, cc-bj);
+				
+				// copy columns into working set
+				for (int t=0; t<bjsize; t++) {
+					b.copyColumnTo(bj+t,wsb,t*ic);
+				}
 				
-				// compute inner block
-				for (int i=bi; i<(bi+bisize); i++) {
-					int aDataOffset=i*ic;
-					for (int j=bj; j<(bj+bjsize); j++) {
-						double val=DoubleArrays.dotProduct(a.data, aDataOffset, wsb.data, ic*(j-bj), ic);
-						result.unsafeSet(i, j, val);
+				for (int bi=0; bi<rc; bi+=block) {
+					int bisize=Math.min(block, rc-bi);
+					
+					// compute inner block
+					for (int i=bi; i<(bi+bisize); i++) {
+						int aDataOffset=i*ic;
+						for (int j=bj; j<(bj+bjsize); j++) {
+							double val=DoubleArrays.dotProduct(a.data, aDataOffset, wsb, ic*(j-bj), ic);
+							dest.unsafeSet(i, j, val);
+						}
 					}
 				}
 			}
+		} finally {
+			ws.release();
 		}
-		return result;
 	}
 	
 	/**
@@ -90,6 +128,12 @@ public class Multiplications {
 	 * @return
 	 */
 	public static Matrix doubleBlockedMultiply(AMatrix a, AMatrix b) {
+		Matrix result=Matrix.create(a.rowCount(), b.columnCount());
+		doubleBlockedMultiply(a,b,result);
+		return result;
+	}
+	
+	public static void doubleBlockedMultiply(AMatrix a, AMatrix b, Matrix dest) {
 		int rc=a.rowCount();
 		int cc=b.columnCount();
 		int ic=a.columnCount();
@@ -97,41 +141,53 @@ public class Multiplications {
 		if ((ic!=b.rowCount())) {
 			throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(a,b));
 		}		
+		if ((dest.rowCount()!=rc)||(dest.columnCount()!=cc)) {
+			throw new IllegalArgumentException(ErrorMessages.incompatibleShape(dest));
+		}
+		if ((dest==a)||(dest==b)) {
+			throw new IllegalArgumentException(ErrorMessages.aliasedDestination(dest));
+		}
 
-		Matrix result=Matrix.create(rc, cc);
-		if (ic==0) return result;
+		if (ic==0) {
+			dest.fill(0.0);
+			return;
+		}
 		
 		int block=(WORKING_SET_TARGET/ic)+1;
-		// working sets stores up to <block> number of columns from each matrix
-		Matrix wsa=Matrix.create(Math.min(block,rc), ic);
-		Matrix wsb=Matrix.create(Math.min(block,cc), ic);
-		
-		for (int bj=0; bj<cc; bj+=block) {
-			int bjsize=Math.min(block, cc-bj);
+		Workspace ws=Workspace.acquire();
+		try {
+			// working sets stores up to <block> number of rows / columns from each matrix
+			double[] wsa=ws.getArray(Math.min(block,rc)*ic);
+			double[] wsb=ws.getArray(Math.min(block,cc)*ic);
 			
-			// copy columns into working set
-			for (int t=0; t<bjsize; t++) {
-				b.copyColumnTo(bj+t,wsb.data,t*ic);
-			}
-			
-			for (int bi=0; bi<rc; bi+=block) {
-				int bisize=Math.min(block, rc-bi);
+			for (int bj=0; bj<cc; bj+=block) {
+				int bjsize=Math.min(block, cc-bj);
 				
 				// copy columns into working set
-				for (int t=0; t<bisize; t++) {
-					b.copyRowTo(bi+t,wsa.data,t*ic);
+				for (int t=0; t<bjsize; t++) {
+					b.copyColumnTo(bj+t,wsb,t*ic);
 				}
 				
-				// compute inner block
-				for (int i=bi; i<(bi+bisize); i++) {
-					for (int j=bj; j<(bj+bjsize); j++) {
-						double val=DoubleArrays.dotProduct(wsa.data, ic*(i-bi), wsb.data, ic*(j-bj), ic);
-						result.unsafeSet(i, j, val);
+				for (int bi=0; bi<rc; bi+=block) {
+					int bisize=Math.min(block, rc-bi);
+					
+					// copy rows into working set
+					for (int t=0; t<bisize; t++) {
+						a.copyRowTo(bi+t,wsa,t*ic);
+					}
+					
+					// compute inner block
+					for (int i=bi; i<(bi+bisize); i++) {
+						for (int j=bj; j<(bj+bjsize); j++) {
+							double val=DoubleArrays.dotProduct(wsa, ic*(i-bi), wsb, ic*(j-bj), ic);
+							dest.unsafeSet(i, j, val);
+						}
 					}
 				}
 			}
+		} finally {
+			ws.release();
 		}
-		return result;
 	}
 	
 	public static AMatrix naiveMultiply(AMatrix a, AMatrix b) {
@@ -3,8 +3,11 @@ package mikera.matrixx.impl;
 import mikera.arrayz.impl.IStridedArray;
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrixx;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
 import mikera.vectorz.Vectorz;
 import mikera.vectorz.impl.AStridedVector;
+import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
 
 public abstract class AStridedMatrix extends AArrayMatrix implements IStridedArray {
@@ -38,6 +41,120 @@ public abstract class AStridedMatrix extends AArrayMatrix implements IStridedArr
 		return Vectorz.wrapStrided(data, getArrayOffset()+i*columnStride(), rows, rowStride());
 	}
 	
+	@Override
+	public void add(AMatrix m) {
+		if (m instanceof AStridedMatrix) {
+			add((AStridedMatrix)m);
+			return;
+		}
+		super.add(m);
+	}
+	
+	public void add(AStridedMatrix m) {
+		if ((rows!=m.rowCount())||(cols!=m.columnCount())) throw new IllegalArgumentException(ErrorMessages.mismatch(this, m));
+		double[] mdata=m.getArray();
+		int mOffset=m.getArrayOffset();
+		int mRowStride=m.rowStride();
+		int mColStride=m.columnStride();
+		int offset=getArrayOffset();
+		int rowStride=rowStride();
+		int colStride=columnStride();
+		for (int i=0; i<rows; i++) {
+			DoubleArrays.add(mdata, mOffset+i*mRowStride, mColStride, data, offset+i*rowStride, colStride, cols);
+		}
+	}
+	
+	@Override
+	public void addMultiple(AMatrix m, double factor) {
+		if (m instanceof AStridedMatrix) {
+			addMultiple((AStridedMatrix)m,factor);
+			return;
+		}
+		super.addMultiple(m,factor);
+	}
+	
+	public void addMultiple(AStridedMatrix m, double factor) {
+		if ((rows!=m.rowCount())||(cols!=m.columnCount())) throw new IllegalArgumentException(ErrorMessages.mismatch(this, m));
+		double[] mdata=m.getArray();
+		int mOffset=m.getArrayOffset();
+		int mRowStride=m.rowStride();
+		int mColStride=m.columnStride();
+		int offset=getArrayOffset();
+		int rowStride=rowStride();
+		int colStride=columnStride();
+		for (int i=0; i<rows; i++) {
+			DoubleArrays.addMultiple(data, offset+i*rowStride, colStride, mdata, mOffset+i*mRowStride, mColStride, cols, factor);
+		}
+	}
+	
+	@Override
+	public void set(AMatrix m) {
+		if (m instanceof AStridedMatrix) {
+			set((AStridedMatrix)m);
+			return;
+		}
+		super.set(m);
+	}
+	
+	public void set(AStridedMatrix m) {
+		if ((rows!=m.rowCount())||(cols!=m.columnCount())) throw new IllegalArgumentException(ErrorMessages.mismatch(this, m));
+		double[] mdata=m.getArray();
+		int mOffset=m.getArrayOffset();
+		int mRowStride=m.rowStride();
+		int mColStride=m.columnStride();
+		int offset=getArrayOffset();
+		int rowStride=rowStride();
+		int colStride=columnStride();
+		for (int i=0; i<rows; i++) {
+			DoubleArrays.copy(mdata, mOffset+i*mRowStride, mColStride, data, offset+i*rowStride, colStride, cols);
+		}
+	}
+	
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		DoubleArrays.copy(data, getArrayOffset()+row*rowStride(), columnStride(), dest, destOffset, 1, cols);
+	}
+	
+	@Override
+	public void copyColumnTo(int col, double[] dest, int destOffset) {
+		DoubleArrays.copy(data, getArrayOffset()+col*columnStride(), rowStride(), dest, destOffset, 1, rows);
+	}
+	
+	@Override
+	public void getElements(double[] dest, int destOffset) {
+		int offset=getArrayOffset();
+		int rowStride=rowStride();
+		int colStride=columnStride();
+		for (int i=0; i<rows; i++) {
+			DoubleArrays.copy(data, offset+i*rowStride, colStride, dest, destOffset+i*cols, 1, cols);
+		}
+	}
+	
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (!(source instanceof AStridedVector)) {
+			super.transform(source,dest);
+			return;
+		}
+		if (source.length()!=cols) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rows) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		AStridedVector sv=(AStridedVector)source;
+		double[] sdata=sv.getArray();
+		int sOffset=sv.getArrayOffset();
+		int sStride=sv.getStride();
+		int offset=getArrayOffset();
+		int rowStride=rowStride();
+		int colStride=columnStride();
+		for (int i=0; i<rows; i++) {
+			dest.unsafeSet(i, DoubleArrays.dotProduct(data, offset+i*rowStride, colStride, sdata, sOffset, sStride, cols));
+		}
+	}
+	
+	@Override
+	public void transform(Vector source, Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+	
 	@Override
 	public int[] getStrides() {
 		return new int[] {rowStride(), columnStride()};
@@ -5,6 +5,7 @@ import mikera.vectorz.AVector;
 import mikera.vectorz.Op;
 import mikera.vectorz.Vector;
 import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.Parallel;
 
 /**
  * Abstract base class for matrices that use a collection of Vectors 
@@ -69,6 +70,10 @@ public abstract class AVectorMatrix<T extends AVector> extends AMatrix {
 	
 	@Override
 	public void transform(AVector source, AVector dest) {
+		if (Parallel.shouldParallelize((long)rowCount()*columnCount())) {
+			Parallel.transform(this, source, dest);
+			return;
+		}
 		if ((source instanceof Vector )&&(dest instanceof Vector)) {
 			transform ((Vector)source, (Vector)dest);
 			return;
@@ -84,6 +89,10 @@ public abstract class AVectorMatrix<T extends AVector> extends AMatrix {
 	public void transform(Vector source, Vector dest) {
 		int rc=rowCount();
 		if (rc!=dest.length()) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		if (Parallel.shouldParallelize((long)rc*columnCount())) {
+			Parallel.transform(this, source, dest);
+			return;
+		}
 		for (int i=0; i<rc; i++) {
 			dest.unsafeSet(i,getRow(i).dotProduct(source));
 		}
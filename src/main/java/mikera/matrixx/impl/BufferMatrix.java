@@ -0,0 +1,311 @@
+package mikera.matrixx.impl;
+
+import java.nio.DoubleBuffer;
+import java.util.function.DoubleConsumer;
+
+import mikera.arrayz.impl.IBufferArray;
+import mikera.matrixx.AMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Op;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.BufferVector;
+import mikera.vectorz.impl.Vector0;
+import mikera.vectorz.util.DoubleBuffers;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Dense row-major matrix backed by a range of a DoubleBuffer.
+ *
+ * Typically used with direct buffers, so that large matrices can be held off the Java heap
+ * and shared with native code without copying.
+ *
+ * @author Mike
+ *
+ */
+public final class BufferMatrix extends AMatrix implements IBufferArray {
+	private static final long serialVersionUID = 4419270312749466185L;
+
+	private transient DoubleBuffer buffer; // null once closed
+	private final int offset;
+	private final int rows;
+	private final int cols;
+
+	private BufferMatrix(DoubleBuffer buffer, int offset, int rows, int cols) {
+		if ((rows<0)||(cols<0)) throw new IllegalArgumentException(ErrorMessages.illegalSize(rows,cols));
+		if ((offset<0)||(offset+((long)rows)*cols>buffer.capacity())) throw new IndexOutOfBoundsException("Matrix data out of buffer bounds");
+		this.buffer=buffer;
+		this.offset=offset;
+		this.rows=rows;
+		this.cols=cols;
+	}
+
+	/**
+	 * Creates a new zero-filled BufferMatrix backed by a direct buffer
+	 */
+	public static BufferMatrix create(int rows, int cols) {
+		return new BufferMatrix(DoubleBuffers.allocateDirect(rows*cols),0,rows,cols);
+	}
+
+	/**
+	 * Creates a new BufferMatrix backed by a direct buffer, containing a copy of the given matrix
+	 */
+	public static BufferMatrix create(AMatrix m) {
+		BufferMatrix b=create(m.rowCount(),m.columnCount());
+		b.set(m);
+		return b;
+	}
+
+	/**
+	 * Wraps a DoubleBuffer containing matrix elements in row-major order, starting at the buffer's position
+	 */
+	public static BufferMatrix wrap(DoubleBuffer buffer, int rows, int cols) {
+		return new BufferMatrix(buffer,buffer.position(),rows,cols);
+	}
+
+	public static BufferMatrix wrap(DoubleBuffer buffer, int offset, int rows, int cols) {
+		return new BufferMatrix(buffer,offset,rows,cols);
+	}
+
+	/**
+	 * Returns the backing buffer, throwing a VectorzException if this matrix has been closed
+	 */
+	private DoubleBuffer buffer() {
+		DoubleBuffer b=buffer;
+		if (b==null) throw new VectorzException("BufferMatrix has been closed");
+		return b;
+	}
+
+	@Override
+	public int rowCount() {
+		return rows;
+	}
+
+	@Override
+	public int columnCount() {
+		return cols;
+	}
+
+	@Override
+	public double get(int row, int column) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		return buffer().get(offset+row*cols+column);
+	}
+
+	@Override
+	public void set(int row, int column, double value) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		buffer().put(offset+row*cols+column,value);
+	}
+
+	@Override
+	public double unsafeGet(int row, int column) {
+		return buffer().get(offset+row*cols+column);
+	}
+
+	@Override
+	public void unsafeSet(int row, int column, double value) {
+		buffer().put(offset+row*cols+column,value);
+	}
+
+	@Override
+	public void addAt(int i, int j, double d) {
+		int ix=offset+i*cols+j;
+		DoubleBuffer b=buffer();
+		b.put(ix,b.get(ix)+d);
+	}
+
+	@Override
+	public AVector getRow(int row) {
+		if ((row<0)||(row>=rows)) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, row));
+		if (cols==0) return Vector0.INSTANCE;
+		return BufferVector.wrap(buffer(), offset+row*cols, cols);
+	}
+
+	@Override
+	public AVector asVector() {
+		if (rows*cols==0) return Vector0.INSTANCE;
+		return BufferVector.wrap(buffer(), offset, rows*cols);
+	}
+
+	@Override
+	public boolean isView() {
+		return true;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return !buffer().isReadOnly();
+	}
+
+	@Override
+	public boolean isMutable() {
+		return !buffer().isReadOnly();
+	}
+
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		DoubleBuffers.get(buffer(), offset+row*cols, dest, destOffset, cols);
+	}
+
+	@Override
+	public void copyColumnTo(int col, double[] dest, int destOffset) {
+		for (int i=0; i<rows; i++) {
+			dest[destOffset+i]=buffer().get(offset+i*cols+col);
+		}
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		DoubleBuffers.get(buffer(), this.offset, dest, offset, rows*cols);
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=rows*cols) throw new IllegalArgumentException("Incorrect length: "+length);
+		DoubleBuffers.put(buffer(), this.offset, values, offset, length);
+	}
+
+	@Override
+	public void set(AMatrix a) {
+		if ((a.rowCount()!=rows)||(a.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, a));
+		if (a instanceof BufferMatrix) {
+			BufferMatrix b=(BufferMatrix)a;
+			DoubleBuffers.copy(b.buffer(), b.offset, buffer(), offset, rows*cols);
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).set(a.getRow(i));
+			}
+		}
+	}
+
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (source.length()!=cols) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rows) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] src;
+			int srcOffset;
+			if (source instanceof AArrayVector) {
+				AArrayVector av=(AArrayVector)source;
+				src=av.getArray();
+				srcOffset=av.getArrayOffset();
+			} else {
+				src=ws.getArray(cols);
+				source.copyTo(src, 0);
+				srcOffset=0;
+			}
+			for (int i=0; i<rows; i++) {
+				dest.unsafeSet(i, DoubleBuffers.dotProduct(buffer(), offset+i*cols, src, srcOffset, cols));
+			}
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void transform(mikera.vectorz.Vector source, mikera.vectorz.Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+
+	@Override
+	public void add(AMatrix m) {
+		if ((m.rowCount()!=rows)||(m.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, m));
+		if (m instanceof BufferMatrix) {
+			BufferMatrix b=(BufferMatrix)m;
+			DoubleBuffers.add(b.buffer(), b.offset, buffer(), offset, rows*cols);
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).add(m.getRow(i));
+			}
+		}
+	}
+
+	@Override
+	public void addMultiple(AMatrix m, double factor) {
+		if ((m.rowCount()!=rows)||(m.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, m));
+		if (m instanceof BufferMatrix) {
+			BufferMatrix b=(BufferMatrix)m;
+			DoubleBuffers.addMultiple(buffer(), offset, b.buffer(), b.offset, rows*cols, factor);
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).addMultiple(m.getRow(i),factor);
+			}
+		}
+	}
+
+	@Override
+	public void add(double d) {
+		DoubleBuffers.add(buffer(), offset, rows*cols, d);
+	}
+
+	@Override
+	public void multiply(double factor) {
+		DoubleBuffers.multiply(buffer(), offset, rows*cols, factor);
+	}
+
+	@Override
+	public void fill(double value) {
+		DoubleBuffers.fill(buffer(), offset, rows*cols, value);
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		DoubleBuffers.applyOp(buffer(), offset, rows*cols, op);
+	}
+
+	@Override
+	public double elementSum() {
+		return DoubleBuffers.elementSum(buffer(), offset, rows*cols);
+	}
+
+	@Override
+	public double elementSquaredSum() {
+		return DoubleBuffers.elementSquaredSum(buffer(), offset, rows*cols);
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return DoubleBuffers.nonZeroCount(buffer(), offset, rows*cols);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		DoubleBuffers.forEach(buffer(), offset, rows*cols, action);
+	}
+
+	@Override
+	public DoubleBuffer asDoubleBuffer() {
+		return DoubleBuffers.slice(buffer(), offset, rows*cols);
+	}
+
+	@Override
+	public void toDoubleBuffer(DoubleBuffer dest) {
+		dest.put(asDoubleBuffer());
+	}
+
+	@Override
+	public void close() {
+		buffer=null;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return buffer==null;
+	}
+
+	@Override
+	public BufferMatrix exactClone() {
+		BufferMatrix b=create(rows,cols);
+		DoubleBuffers.copy(buffer(), offset, b.buffer(), 0, rows*cols);
+		return b;
+	}
+
+	@Override
+	public void validate() {
+		if ((offset<0)||(offset+rows*cols>buffer().capacity())) throw new VectorzException("Matrix data out of buffer bounds");
+		super.validate();
+	}
+}
@@ -0,0 +1,288 @@
+package mikera.matrixx.impl;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+import mikera.arrayz.impl.PagedStorage;
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Op;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.ChunkedVector;
+import mikera.vectorz.impl.Vector0;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Dense row-major matrix held in paged storage, i.e. a sequence of fixed-size double[] pages.
+ *
+ * Unlike Matrix, the total number of elements is not limited to 2^31, so very large dense
+ * matrices (e.g. 50000x50000) can be represented. Rows are ChunkedVector views, which may
+ * cross page boundaries. Bulk operations run page by page, and elementSpliterator() splits
+ * on page boundaries so that parallel streams partition the work by page.
+ *
+ * @author Mike
+ *
+ */
+public final class ChunkedMatrix extends AMatrix {
+	private static final long serialVersionUID = 5306713402318810427L;
+
+	private final PagedStorage storage;
+	private final int rows;
+	private final int cols;
+
+	private ChunkedMatrix(PagedStorage storage, int rows, int cols) {
+		this.storage=storage;
+		this.rows=rows;
+		this.cols=cols;
+	}
+
+	/**
+	 * Creates a new zero-filled ChunkedMatrix with the default page size
+	 */
+	public static ChunkedMatrix create(int rows, int cols) {
+		return create(rows,cols,PagedStorage.DEFAULT_PAGE_SHIFT);
+	}
+
+	/**
+	 * Creates a new zero-filled ChunkedMatrix with pages of 2^pageShift elements
+	 */
+	public static ChunkedMatrix create(int rows, int cols, int pageShift) {
+		if ((rows<0)||(cols<0)) throw new IllegalArgumentException(ErrorMessages.illegalSize(rows,cols));
+		return new ChunkedMatrix(PagedStorage.create(((long)rows)*cols, pageShift),rows,cols);
+	}
+
+	/**
+	 * Creates a new ChunkedMatrix containing a copy of the given matrix
+	 */
+	public static ChunkedMatrix create(AMatrix m) {
+		ChunkedMatrix c=create(m.rowCount(),m.columnCount());
+		c.set(m);
+		return c;
+	}
+
+	public PagedStorage getStorage() {
+		return storage;
+	}
+
+	private long index(int row, int column) {
+		return ((long)row)*cols+column;
+	}
+
+	@Override
+	public int rowCount() {
+		return rows;
+	}
+
+	@Override
+	public int columnCount() {
+		return cols;
+	}
+
+	@Override
+	public double get(int row, int column) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		return storage.get(index(row,column));
+	}
+
+	@Override
+	public void set(int row, int column, double value) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		storage.set(index(row,column),value);
+	}
+
+	@Override
+	public double unsafeGet(int row, int column) {
+		return storage.get(index(row,column));
+	}
+
+	@Override
+	public void unsafeSet(int row, int column, double value) {
+		storage.set(index(row,column),value);
+	}
+
+	@Override
+	public void addAt(int i, int j, double d) {
+		storage.addAt(index(i,j),d);
+	}
+
+	@Override
+	public AVector getRow(int row) {
+		if ((row<0)||(row>=rows)) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, row));
+		if (cols==0) return Vector0.INSTANCE;
+		return ChunkedVector.wrap(storage, index(row,0), cols);
+	}
+
+	/**
+	 * Returns a view of all elements as a single vector. Only possible if there are fewer
+	 * than 2^31 elements.
+	 */
+	@Override
+	public AVector asVector() {
+		long n=storage.length();
+		if (n>Integer.MAX_VALUE) throw new UnsupportedOperationException("Too many elements to view as a vector: "+n);
+		if (n==0) return Vector0.INSTANCE;
+		return ChunkedVector.wrap(storage, 0, (int)n);
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		storage.copyTo(index(row,0), dest, destOffset, cols);
+	}
+
+	@Override
+	public void copyColumnTo(int col, double[] dest, int destOffset) {
+		for (int i=0; i<rows; i++) {
+			dest[destOffset+i]=storage.get(index(i,col));
+		}
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		for (int i=0; i<rows; i++) {
+			storage.copyTo(index(i,0), dest, offset+i*cols, cols);
+		}
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=storage.length()) throw new IllegalArgumentException("Incorrect length: "+length);
+		storage.copyFrom(values, offset, 0, length);
+	}
+
+	@Override
+	public void set(AMatrix a) {
+		if ((a.rowCount()!=rows)||(a.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, a));
+		if (a instanceof ChunkedMatrix) {
+			storage.copyFrom(((ChunkedMatrix)a).storage, 0, 0, storage.length());
+		} else if (a instanceof Matrix) {
+			storage.copyFrom(((Matrix)a).data, 0, 0, (int)storage.length());
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).set(a.getRow(i));
+			}
+		}
+	}
+
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (source.length()!=cols) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rows) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] src;
+			int srcOffset;
+			if (source instanceof AArrayVector) {
+				AArrayVector av=(AArrayVector)source;
+				src=av.getArray();
+				srcOffset=av.getArrayOffset();
+			} else {
+				src=ws.getArray(cols);
+				source.copyTo(src, 0);
+				srcOffset=0;
+			}
+			for (int i=0; i<rows; i++) {
+				dest.unsafeSet(i, storage.dotProduct(index(i,0), src, srcOffset, cols));
+			}
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void transform(mikera.vectorz.Vector source, mikera.vectorz.Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+
+	@Override
+	public void add(AMatrix m) {
+		addMultiple(m,1.0);
+	}
+
+	@Override
+	public void addMultiple(AMatrix m, double factor) {
+		if ((m.rowCount()!=rows)||(m.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, m));
+		if (m instanceof Matrix) {
+			storage.addMultiple(0, ((Matrix)m).data, 0, (int)storage.length(), factor);
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).addMultiple(m.getRow(i),factor);
+			}
+		}
+	}
+
+	@Override
+	public void add(double d) {
+		storage.add(0, storage.length(), d);
+	}
+
+	@Override
+	public void multiply(double factor) {
+		storage.multiply(0, storage.length(), factor);
+	}
+
+	@Override
+	public void fill(double value) {
+		storage.fill(0, storage.length(), value);
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		storage.applyOp(0, storage.length(), op);
+	}
+
+	@Override
+	public double elementSum() {
+		return storage.elementSum(0, storage.length());
+	}
+
+	@Override
+	public double elementSquaredSum() {
+		return storage.elementSquaredSum(0, storage.length());
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return storage.nonZeroCount(0, storage.length());
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		storage.forEach(0, storage.length(), action);
+	}
+
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return storage.spliterator(0, storage.length());
+	}
+
+	@Override
+	public ChunkedMatrix exactClone() {
+		ChunkedMatrix m=create(rows,cols,storage.pageShift());
+		m.storage.copyFrom(storage, 0, 0, storage.length());
+		return m;
+	}
+
+	@Override
+	public void validate() {
+		if (storage.length()!=((long)rows)*cols) throw new VectorzException("Storage has wrong length");
+		super.validate();
+	}
+}
@@ -0,0 +1,191 @@
+package mikera.matrixx.impl;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.ACompressedVector;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Immutable matrix whose rows are stored as compressed vectors.
+ *
+ * Each row independently uses whichever of run-length, dictionary or XOR encoding is
+ * smallest, which suits feature matrices where each row is a slowly varying or mostly
+ * constant series. transform decodes each row block-wise against a dense copy of the source.
+ *
+ * @author Mike
+ *
+ */
+public final class CompressedMatrix extends AVectorMatrix<ACompressedVector> {
+	private static final long serialVersionUID = -4611409832659087613L;
+
+	private final ACompressedVector[] rows;
+	private final int rowCount;
+	private final int columnCount;
+
+	private CompressedMatrix(ACompressedVector[] rows, int rowCount, int columnCount) {
+		this.rows=rows;
+		this.rowCount=rowCount;
+		this.columnCount=columnCount;
+	}
+
+	/**
+	 * Creates a compressed copy of the given matrix
+	 */
+	public static CompressedMatrix create(AMatrix m) {
+		int rc=m.rowCount();
+		int cc=m.columnCount();
+		ACompressedVector[] rows=new ACompressedVector[rc];
+		for (int i=0; i<rc; i++) {
+			rows[i]=ACompressedVector.compress(m.getRow(i));
+		}
+		return new CompressedMatrix(rows,rc,cc);
+	}
+
+	/**
+	 * Creates a matrix from an array of compressed rows, which must all have the same length
+	 */
+	public static CompressedMatrix wrap(ACompressedVector[] rows) {
+		int rc=rows.length;
+		int cc=(rc==0)?0:rows[0].length();
+		for (int i=1; i<rc; i++) {
+			if (rows[i].length()!=cc) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(rows[0], rows[i]));
+		}
+		return new CompressedMatrix(rows,rc,cc);
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the compressed rows
+	 */
+	public long compressedSize() {
+		long result=0;
+		for (int i=0; i<rowCount; i++) {
+			result+=rows[i].compressedSize();
+		}
+		return result;
+	}
+
+	@Override
+	public void appendRow(AVector row) {
+		throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+	}
+
+	@Override
+	public int rowCount() {
+		return rowCount;
+	}
+
+	@Override
+	public int columnCount() {
+		return columnCount;
+	}
+
+	@Override
+	public ACompressedVector getRow(int row) {
+		if ((row<0)||(row>=rowCount)) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, row));
+		return rows[row];
+	}
+
+	@Override
+	public double get(int row, int column) {
+		if ((row<0)||(row>=rowCount)||(column<0)||(column>=columnCount)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		return rows[row].unsafeGet(column);
+	}
+
+	@Override
+	public double unsafeGet(int row, int column) {
+		return rows[row].unsafeGet(column);
+	}
+
+	@Override
+	public void set(int row, int column, double value) {
+		throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+	}
+
+	@Override
+	public void unsafeSet(int row, int column, double value) {
+		throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return false;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return false;
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		rows[row].copyTo(0, dest, destOffset, columnCount);
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		for (int i=0; i<rowCount; i++) {
+			rows[i].copyTo(0, dest, offset+i*columnCount, columnCount);
+		}
+	}
+
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (source.length()!=columnCount) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rowCount) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] src;
+			int srcOffset;
+			if (source instanceof AArrayVector) {
+				AArrayVector av=(AArrayVector)source;
+				src=av.getArray();
+				srcOffset=av.getArrayOffset();
+			} else {
+				src=ws.getArray(columnCount);
+				source.copyTo(src, 0);
+				srcOffset=0;
+			}
+			for (int i=0; i<rowCount; i++) {
+				dest.unsafeSet(i, rows[i].dotProduct(src, srcOffset));
+			}
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void transform(Vector source, Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+
+	@Override
+	public Matrix toMatrix() {
+		Matrix m=Matrix.create(rowCount,columnCount);
+		getElements(m.data,0);
+		return m;
+	}
+
+	@Override
+	public CompressedMatrix exactClone() {
+		return new CompressedMatrix(rows.clone(),rowCount,columnCount);
+	}
+
+	@Override
+	public void validate() {
+		if (rows.length!=rowCount) throw new VectorzException("Wrong number of rows");
+		for (int i=0; i<rowCount; i++) {
+			if (rows[i].length()!=columnCount) throw new VectorzException("Row "+i+" has wrong length");
+		}
+		super.validate();
+	}
+}
@@ -0,0 +1,173 @@
+package mikera.matrixx.impl;
+
+import mikera.matrixx.AMatrix;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Mutable matrix for a single writer thread, which publishes consistent immutable snapshots
+ * to any number of reader threads.
+ *
+ * The writer mutates a back buffer of rows. publish() makes the current contents visible as a
+ * SnapshotMatrix that shares the row arrays, after which the writer copies each row on its first
+ * modification. Only rows changed since the last publish are ever copied, so a simulation that
+ * touches a few rows per tick pays for those rows rather than for a clone of the whole matrix.
+ *
+ * Readers call getSnapshot(), which is a single volatile read: it is lock-free and wait-free,
+ * and the returned matrix never changes, so readers can never observe a torn update. Row arrays
+ * retired by the writer are left to the garbage collector rather than recycled, since a reader
+ * may still hold an old snapshot.
+ *
+ * All methods other than getSnapshot() must only be called from the writer thread.
+ *
+ * @author Mike
+ *
+ */
+public final class DoubleBufferedMatrix extends AMatrix {
+	private static final long serialVersionUID = 2831942018554839733L;
+
+	private final int rowCount;
+	private final int columnCount;
+	private final double[][] rows;
+	private final boolean[] shared;
+	private volatile SnapshotMatrix snapshot;
+
+	private DoubleBufferedMatrix(int rowCount, int columnCount) {
+		this.rowCount=rowCount;
+		this.columnCount=columnCount;
+		rows=new double[rowCount][];
+		shared=new boolean[rowCount];
+		for (int i=0; i<rowCount; i++) {
+			rows[i]=new double[columnCount];
+		}
+		publish();
+	}
+
+	/**
+	 * Creates a new zero-filled matrix, with an initial zero snapshot published
+	 */
+	public static DoubleBufferedMatrix create(int rowCount, int columnCount) {
+		if ((rowCount<0)||(columnCount<0)) throw new IllegalArgumentException(ErrorMessages.illegalSize(rowCount,columnCount));
+		return new DoubleBufferedMatrix(rowCount,columnCount);
+	}
+
+	/**
+	 * Creates a new matrix containing a copy of the given matrix, with an initial snapshot published
+	 */
+	public static DoubleBufferedMatrix create(AMatrix m) {
+		DoubleBufferedMatrix b=create(m.rowCount(),m.columnCount());
+		for (int i=0; i<b.rowCount; i++) {
+			m.copyRowTo(i, b.writableRow(i), 0);
+		}
+		b.publish();
+		return b;
+	}
+
+	/**
+	 * Publishes the current contents of this matrix as an immutable snapshot, returning the snapshot
+	 */
+	public SnapshotMatrix publish() {
+		SnapshotMatrix m=new SnapshotMatrix(rows.clone(),rowCount,columnCount);
+		for (int i=0; i<rowCount; i++) {
+			shared[i]=true;
+		}
+		snapshot=m;
+		return m;
+	}
+
+	/**
+	 * Returns the most recently published snapshot. May be called safely from any thread.
+	 */
+	public SnapshotMatrix getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the number of rows modified since the last publish
+	 */
+	public int dirtyRowCount() {
+		int result=0;
+		for (int i=0; i<rowCount; i++) {
+			if (!shared[i]) result++;
+		}
+		return result;
+	}
+
+	private double[] writableRow(int i) {
+		double[] r=rows[i];
+		if (shared[i]) {
+			r=r.clone();
+			rows[i]=r;
+			shared[i]=false;
+		}
+		return r;
+	}
+
+	@Override
+	public int rowCount() {
+		return rowCount;
+	}
+
+	@Override
+	public int columnCount() {
+		return columnCount;
+	}
+
+	@Override
+	public double get(int row, int column) {
+		if ((row<0)||(row>=rowCount)||(column<0)||(column>=columnCount)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		return rows[row][column];
+	}
+
+	@Override
+	public double unsafeGet(int row, int column) {
+		return rows[row][column];
+	}
+
+	@Override
+	public void set(int row, int column, double value) {
+		if ((row<0)||(row>=rowCount)||(column<0)||(column>=columnCount)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		writableRow(row)[column]=value;
+	}
+
+	@Override
+	public void unsafeSet(int row, int column, double value) {
+		writableRow(row)[column]=value;
+	}
+
+	@Override
+	public void addAt(int row, int column, double value) {
+		writableRow(row)[column]+=value;
+	}
+
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		System.arraycopy(rows[row], 0, dest, destOffset, columnCount);
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		for (int i=0; i<rowCount; i++) {
+			System.arraycopy(rows[i], 0, dest, offset+i*columnCount, columnCount);
+		}
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public DoubleBufferedMatrix exactClone() {
+		return create(this);
+	}
+}
@@ -0,0 +1,319 @@
+package mikera.matrixx.impl;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Op;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.FloatVector;
+import mikera.vectorz.impl.Vector0;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.FloatArrays;
+import mikera.vectorz.util.VectorzException;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Dense row-major matrix stored in a float[] array.
+ *
+ * The single precision equivalent of Matrix, useful for large weight matrices where memory
+ * bandwidth dominates. Rows are FloatVector views. Matrix-vector and matrix-matrix products
+ * accumulate in double precision and round only the final results.
+ *
+ * @author Mike
+ *
+ */
+public final class FloatMatrix extends AMatrix {
+	private static final long serialVersionUID = -3529804721655318872L;
+
+	private final float[] data;
+	private final int rows;
+	private final int cols;
+
+	private FloatMatrix(float[] data, int rows, int cols) {
+		this.data=data;
+		this.rows=rows;
+		this.cols=cols;
+	}
+
+	/**
+	 * Creates a new zero-filled FloatMatrix
+	 */
+	public static FloatMatrix create(int rows, int cols) {
+		if ((rows<0)||(cols<0)) throw new IllegalArgumentException(ErrorMessages.illegalSize(rows,cols));
+		return new FloatMatrix(new float[rows*cols],rows,cols);
+	}
+
+	/**
+	 * Creates a new FloatMatrix containing a copy of the given matrix, rounded to float precision
+	 */
+	public static FloatMatrix create(AMatrix m) {
+		FloatMatrix f=create(m.rowCount(),m.columnCount());
+		f.set(m);
+		return f;
+	}
+
+	/**
+	 * Wraps a float array containing matrix elements in row-major order
+	 */
+	public static FloatMatrix wrap(float[] data, int rows, int cols) {
+		if ((rows<0)||(cols<0)) throw new IllegalArgumentException(ErrorMessages.illegalSize(rows,cols));
+		if (data.length!=rows*cols) throw new IllegalArgumentException("Data array has wrong length: "+data.length);
+		return new FloatMatrix(data,rows,cols);
+	}
+
+	@Override
+	public int rowCount() {
+		return rows;
+	}
+
+	@Override
+	public int columnCount() {
+		return cols;
+	}
+
+	public float[] getFloatArray() {
+		return data;
+	}
+
+	@Override
+	public double get(int row, int column) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		return data[row*cols+column];
+	}
+
+	@Override
+	public void set(int row, int column, double value) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		data[row*cols+column]=(float)value;
+	}
+
+	@Override
+	public double unsafeGet(int row, int column) {
+		return data[row*cols+column];
+	}
+
+	@Override
+	public void unsafeSet(int row, int column, double value) {
+		data[row*cols+column]=(float)value;
+	}
+
+	@Override
+	public void addAt(int i, int j, double d) {
+		int ix=i*cols+j;
+		data[ix]=(float)(data[ix]+d);
+	}
+
+	@Override
+	public AVector getRow(int row) {
+		if ((row<0)||(row>=rows)) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, row));
+		if (cols==0) return Vector0.INSTANCE;
+		return FloatVector.wrap(data, row*cols, cols);
+	}
+
+	@Override
+	public AVector asVector() {
+		if (data.length==0) return Vector0.INSTANCE;
+		return FloatVector.wrap(data);
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		FloatArrays.copy(data, row*cols, dest, destOffset, cols);
+	}
+
+	@Override
+	public void copyColumnTo(int col, double[] dest, int destOffset) {
+		for (int i=0; i<rows; i++) {
+			dest[destOffset+i]=data[i*cols+col];
+		}
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		FloatArrays.copy(data, 0, dest, offset, data.length);
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=data.length) throw new IllegalArgumentException("Incorrect length: "+length);
+		FloatArrays.copy(values, offset, data, 0, length);
+	}
+
+	@Override
+	public void set(AMatrix a) {
+		if ((a.rowCount()!=rows)||(a.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, a));
+		if (a instanceof FloatMatrix) {
+			System.arraycopy(((FloatMatrix)a).data, 0, data, 0, data.length);
+		} else if (a instanceof Matrix) {
+			FloatArrays.copy(((Matrix)a).data, 0, data, 0, data.length);
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).set(a.getRow(i));
+			}
+		}
+	}
+
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (source.length()!=cols) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rows) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		if (source instanceof FloatVector) {
+			FloatVector fv=(FloatVector)source;
+			float[] src=fv.getFloatArray();
+			int srcOffset=fv.getFloatArrayOffset();
+			for (int i=0; i<rows; i++) {
+				dest.unsafeSet(i, FloatArrays.dotProduct(data, i*cols, src, srcOffset, cols));
+			}
+			return;
+		}
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] src;
+			int srcOffset;
+			if (source instanceof AArrayVector) {
+				AArrayVector av=(AArrayVector)source;
+				src=av.getArray();
+				srcOffset=av.getArrayOffset();
+			} else {
+				src=ws.getArray(cols);
+				source.copyTo(src, 0);
+				srcOffset=0;
+			}
+			for (int i=0; i<rows; i++) {
+				dest.unsafeSet(i, FloatArrays.dotProduct(data, i*cols, src, srcOffset, cols));
+			}
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void transform(mikera.vectorz.Vector source, mikera.vectorz.Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+
+	@Override
+	public AMatrix innerProduct(AMatrix a) {
+		if (a instanceof FloatMatrix) {
+			return innerProduct((FloatMatrix)a);
+		}
+		return super.innerProduct(a);
+	}
+
+	/**
+	 * Multiplies two float matrices, accumulating in double precision
+	 */
+	public FloatMatrix innerProduct(FloatMatrix a) {
+		if (cols!=a.rows) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this,a));
+		FloatMatrix result=create(rows,a.cols);
+		FloatArrays.gemm(data, 0, a.data, 0, result.data, 0, rows, cols, a.cols);
+		return result;
+	}
+
+	@Override
+	public void add(AMatrix m) {
+		if ((m.rowCount()!=rows)||(m.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, m));
+		if (m instanceof FloatMatrix) {
+			FloatArrays.add(((FloatMatrix)m).data, 0, data, 0, data.length);
+		} else if (m instanceof Matrix) {
+			FloatArrays.add(((Matrix)m).data, 0, data, 0, data.length);
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).add(m.getRow(i));
+			}
+		}
+	}
+
+	@Override
+	public void addMultiple(AMatrix m, double factor) {
+		if ((m.rowCount()!=rows)||(m.columnCount()!=cols)) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, m));
+		if (m instanceof FloatMatrix) {
+			FloatArrays.addMultiple(data, 0, ((FloatMatrix)m).data, 0, data.length, factor);
+		} else if (m instanceof Matrix) {
+			FloatArrays.addMultiple(data, 0, ((Matrix)m).data, 0, data.length, factor);
+		} else {
+			for (int i=0; i<rows; i++) {
+				getRow(i).addMultiple(m.getRow(i),factor);
+			}
+		}
+	}
+
+	@Override
+	public void add(double d) {
+		FloatArrays.add(data, 0, data.length, d);
+	}
+
+	@Override
+	public void multiply(double factor) {
+		FloatArrays.multiply(data, 0, data.length, factor);
+	}
+
+	@Override
+	public void fill(double value) {
+		Arrays.fill(data, (float)value);
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		FloatArrays.applyOp(data, 0, data.length, op);
+	}
+
+	@Override
+	public double elementSum() {
+		return FloatArrays.elementSum(data, 0, data.length);
+	}
+
+	@Override
+	public double elementSquaredSum() {
+		return FloatArrays.elementSquaredSum(data, 0, data.length);
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return FloatArrays.nonZeroCount(data, 0, data.length);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		FloatArrays.forEach(data, 0, data.length, action);
+	}
+
+	/**
+	 * Converts this matrix to a double precision Matrix
+	 */
+	@Override
+	public Matrix toMatrix() {
+		Matrix m=Matrix.create(rows,cols);
+		FloatArrays.copy(data, 0, m.data, 0, data.length);
+		return m;
+	}
+
+	@Override
+	public FloatMatrix exactClone() {
+		return new FloatMatrix(data.clone(),rows,cols);
+	}
+
+	@Override
+	public void validate() {
+		if (data.length!=rows*cols) throw new VectorzException("Data array has wrong length");
+		super.validate();
+	}
+}
@@ -0,0 +1,216 @@
+package mikera.matrixx.impl;
+
+import java.io.File;
+
+import mikera.arrayz.impl.MappedStorage;
+import mikera.matrixx.AMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.BufferVector;
+import mikera.vectorz.impl.Vector0;
+import mikera.vectorz.util.DoubleBuffers;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Dense row-major matrix stored in a memory-mapped file.
+ *
+ * Opening a MappedMatrix only maps the file, so startup cost is independent of the matrix
+ * size and the data may be much larger than the Java heap. Rows are zero-copy views of the
+ * mapped data. Files larger than 2GB are mapped as multiple chunks, each holding whole rows.
+ *
+ * Changes made in read-write mode are written back to the file by the OS; use force() to
+ * write them immediately.
+ *
+ * @author Mike
+ *
+ */
+public final class MappedMatrix extends AMatrix implements AutoCloseable {
+	private static final long serialVersionUID = -8129634075329402176L;
+
+	private final transient MappedStorage storage;
+	private final int rows;
+	private final int cols;
+
+	private MappedMatrix(MappedStorage storage, int rows, int cols) {
+		this.storage=storage;
+		this.rows=rows;
+		this.cols=cols;
+	}
+
+	/**
+	 * Maps an existing file containing a matrix in row-major order, starting at the given byte position
+	 */
+	public static MappedMatrix map(File file, long position, int rows, int cols, boolean readOnly) {
+		if ((rows<0)||(cols<0)) throw new IllegalArgumentException(ErrorMessages.illegalSize(rows,cols));
+		return new MappedMatrix(MappedStorage.map(file, position, cols, rows, readOnly),rows,cols);
+	}
+
+	public static MappedMatrix map(File file, int rows, int cols, boolean readOnly) {
+		return map(file,0,rows,cols,readOnly);
+	}
+
+	/**
+	 * Creates a writable mapped matrix in the given file, extending the file as needed
+	 */
+	public static MappedMatrix create(File file, int rows, int cols) {
+		return map(file,0,rows,cols,false);
+	}
+
+	/**
+	 * Returns the storage, checking that this matrix has not been closed
+	 */
+	private MappedStorage storage() {
+		if (storage.isClosed()) throw new VectorzException("MappedMatrix has been closed");
+		return storage;
+	}
+
+	@Override
+	public int rowCount() {
+		return rows;
+	}
+
+	@Override
+	public int columnCount() {
+		return cols;
+	}
+
+	@Override
+	public double get(int row, int column) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		return storage().get(row, column);
+	}
+
+	@Override
+	public void set(int row, int column, double value) {
+		if ((row<0)||(row>=rows)||(column<0)||(column>=cols)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		if (storage.isReadOnly()) throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+		storage().set(row, column, value);
+	}
+
+	@Override
+	public double unsafeGet(int row, int column) {
+		return storage().get(row, column);
+	}
+
+	@Override
+	public void unsafeSet(int row, int column, double value) {
+		storage().set(row, column, value);
+	}
+
+	@Override
+	public AVector getRow(int row) {
+		if ((row<0)||(row>=rows)) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, row));
+		MappedStorage s=storage();
+		if (cols==0) return Vector0.INSTANCE;
+		return BufferVector.wrap(s.sliceBuffer(row), s.sliceOffset(row), cols);
+	}
+
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		DoubleBuffers.get(storage().sliceBuffer(row), storage.sliceOffset(row), dest, destOffset, cols);
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		for (int i=0; i<rows; i++) {
+			copyRowTo(i,dest,offset+i*cols);
+		}
+	}
+
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (source.length()!=cols) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rows) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] src;
+			int srcOffset;
+			if (source instanceof AArrayVector) {
+				AArrayVector av=(AArrayVector)source;
+				src=av.getArray();
+				srcOffset=av.getArrayOffset();
+			} else {
+				src=ws.getArray(cols);
+				source.copyTo(src, 0);
+				srcOffset=0;
+			}
+			MappedStorage s=storage();
+			for (int i=0; i<rows; i++) {
+				dest.unsafeSet(i, DoubleBuffers.dotProduct(s.sliceBuffer(i), s.sliceOffset(i), src, srcOffset, cols));
+			}
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void transform(mikera.vectorz.Vector source, mikera.vectorz.Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+
+	@Override
+	public double elementSum() {
+		MappedStorage s=storage();
+		double result=0.0;
+		for (int i=0; i<rows; i++) {
+			result+=DoubleBuffers.elementSum(s.sliceBuffer(i), s.sliceOffset(i), cols);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean isView() {
+		return true;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return !storage.isReadOnly();
+	}
+
+	@Override
+	public boolean isMutable() {
+		return !storage.isReadOnly();
+	}
+
+	public boolean isReadOnly() {
+		return storage.isReadOnly();
+	}
+
+	/**
+	 * Writes any changes to the underlying file immediately
+	 */
+	public void force() {
+		storage().force();
+	}
+
+	@Override
+	public void close() {
+		storage.close();
+	}
+
+	public boolean isClosed() {
+		return storage.isClosed();
+	}
+
+	/**
+	 * Returns a writable copy of this matrix, mapped to a new temporary file
+	 */
+	@Override
+	public MappedMatrix exactClone() {
+		MappedMatrix m=create(MappedStorage.createTempFile(),rows,cols);
+		for (int i=0; i<rows; i++) {
+			m.getRow(i).set(getRow(i));
+		}
+		return m;
+	}
+
+	@Override
+	public void validate() {
+		if (storage.isClosed()) throw new VectorzException("MappedMatrix has been closed");
+		if ((storage.sliceLength()!=cols)||(storage.sliceCount()!=rows)) throw new VectorzException("Inconsistent storage shape");
+		super.validate();
+	}
+}
@@ -1,6 +1,8 @@
 package mikera.matrixx.impl;
 
 import mikera.matrixx.AMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.impl.AStridedVector;
 
 /**
  * A class representing a view of a matrix column as a vector
@@ -54,4 +56,87 @@ public class MatrixColumnView extends AMatrixSubVector {
 	@Override public void getElements(double[] data, int offset) {
 		source.copyColumnTo(column,data,offset);
 	}
+	
+	/**
+	 * Returns a strided view of the column if the source matrix supports strided access, 
+	 * or null otherwise.
+	 */
+	private AStridedVector stridedColumn() {
+		if (source instanceof AStridedMatrix) return ((AStridedMatrix)source).getColumn(column);
+		return null;
+	}
+	
+	@Override
+	public void add(AVector v) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) {
+			sv.add(v);
+			return;
+		}
+		super.add(v);
+	}
+	
+	@Override
+	public void addMultiple(AVector v, double factor) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) {
+			sv.addMultiple(v,factor);
+			return;
+		}
+		super.addMultiple(v,factor);
+	}
+	
+	@Override
+	public void set(AVector v) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) {
+			sv.set(v);
+			return;
+		}
+		super.set(v);
+	}
+	
+	@Override
+	public double dotProduct(AVector v) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) return sv.dotProduct(v);
+		return super.dotProduct(v);
+	}
+	
+	@Override
+	public double dotProduct(double[] data, int offset) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) return sv.dotProduct(data,offset);
+		return super.dotProduct(data,offset);
+	}
+	
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) {
+			sv.copyTo(offset,dest,destOffset,length);
+			return;
+		}
+		super.copyTo(offset,dest,destOffset,length);
+	}
+	
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) {
+			sv.addToArray(offset,array,arrayOffset,length);
+			return;
+		}
+		super.addToArray(offset,array,arrayOffset,length);
+	}
+	
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		AStridedVector sv=stridedColumn();
+		if (sv!=null) {
+			sv.addMultipleToArray(factor,offset,array,arrayOffset,length);
+			return;
+		}
+		super.addMultipleToArray(factor,offset,array,arrayOffset,length);
+	}
 }
\ No newline at end of file
@@ -1,16 +1,16 @@
 package mikera.matrixx.impl;
 
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 import mikera.matrixx.AMatrix;
 
 /**
- * Iterator over matrix rows
+ * Iterator over matrix elements, in row-major order
  * 
  * @author Mike
  */
-public class MatrixElementIterator implements Iterator<Double> {
+public class MatrixElementIterator implements PrimitiveIterator.OfDouble {
 	private final AMatrix source;
 	private int col=0;
 	private int row=0;
@@ -30,7 +30,7 @@ public class MatrixElementIterator implements Iterator<Double> {
 	}
 
 	@Override
-	public Double next() {
+	public double nextDouble() {
 		if (row>=source.rowCount()) throw new NoSuchElementException();
 		int ox=col++;
 		int oy=row;
@@ -40,6 +40,11 @@ public class MatrixElementIterator implements Iterator<Double> {
 		}
 		return source.unsafeGet(oy,ox);
 	}
+	
+	@Override
+	public Double next() {
+		return nextDouble();
+	}
 
 	@Override
 	public void remove() {
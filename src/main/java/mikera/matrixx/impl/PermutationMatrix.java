@@ -51,6 +51,13 @@ public final class PermutationMatrix extends ABooleanMatrix implements ISparse {
 		return new PermutationMatrix(index);
 	}
 	
+	/**
+	 * Returns the row permutation index. Row i of this matrix has a 1.0 in column getPermutation().get(i)
+	 */
+	public Index getPermutation() {
+		return perm;
+	}
+	
 	@Override
 	public boolean isMutable() {
 		// PermutationMatrix is mutable (rows can be swapped, etc.)
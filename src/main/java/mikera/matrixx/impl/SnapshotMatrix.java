@@ -0,0 +1,161 @@
+package mikera.matrixx.impl;
+
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.UnmodifiableVector;
+import mikera.vectorz.util.DoubleArrays;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Immutable matrix published by a DoubleBufferedMatrix.
+ *
+ * Rows are held as separate double[] arrays, which may be shared with other snapshots of the
+ * same DoubleBufferedMatrix but are never modified once published. A SnapshotMatrix can therefore
+ * be read from any number of threads without synchronisation.
+ *
+ * @author Mike
+ *
+ */
+public final class SnapshotMatrix extends AMatrix {
+	private static final long serialVersionUID = 4476329870183416604L;
+
+	private final double[][] rows;
+	private final int rowCount;
+	private final int columnCount;
+
+	SnapshotMatrix(double[][] rows, int rowCount, int columnCount) {
+		this.rows=rows;
+		this.rowCount=rowCount;
+		this.columnCount=columnCount;
+	}
+
+	@Override
+	public int rowCount() {
+		return rowCount;
+	}
+
+	@Override
+	public int columnCount() {
+		return columnCount;
+	}
+
+	@Override
+	public double get(int row, int column) {
+		if ((row<0)||(row>=rowCount)||(column<0)||(column>=columnCount)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, row, column));
+		return rows[row][column];
+	}
+
+	@Override
+	public double unsafeGet(int row, int column) {
+		return rows[row][column];
+	}
+
+	@Override
+	public void set(int row, int column, double value) {
+		throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+	}
+
+	@Override
+	public void unsafeSet(int row, int column, double value) {
+		throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+	}
+
+	@Override
+	public AVector getRow(int row) {
+		if ((row<0)||(row>=rowCount)) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, row));
+		return new UnmodifiableVector(Vector.wrap(rows[row]));
+	}
+
+	/**
+	 * Returns true if this snapshot shares the storage for the given row with another snapshot
+	 */
+	public boolean sharesRow(SnapshotMatrix m, int row) {
+		if ((row<0)||(row>=rowCount)||(row>=m.rowCount)) throw new IndexOutOfBoundsException(ErrorMessages.invalidSlice(this, row));
+		return rows[row]==m.rows[row];
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return false;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return false;
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public void copyRowTo(int row, double[] dest, int destOffset) {
+		System.arraycopy(rows[row], 0, dest, destOffset, columnCount);
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		for (int i=0; i<rowCount; i++) {
+			System.arraycopy(rows[i], 0, dest, offset+i*columnCount, columnCount);
+		}
+	}
+
+	@Override
+	public double elementSum() {
+		double result=0.0;
+		for (int i=0; i<rowCount; i++) {
+			result+=DoubleArrays.elementSum(rows[i], 0, columnCount);
+		}
+		return result;
+	}
+
+	@Override
+	public void transform(AVector source, AVector dest) {
+		if (source.length()!=columnCount) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rowCount) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+		double[] src;
+		int srcOffset;
+		if (source instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)source;
+			src=av.getArray();
+			srcOffset=av.getArrayOffset();
+		} else {
+			src=source.toDoubleArray();
+			srcOffset=0;
+		}
+		for (int i=0; i<rowCount; i++) {
+			dest.unsafeSet(i, DoubleArrays.dotProduct(rows[i], 0, src, srcOffset, columnCount));
+		}
+	}
+
+	@Override
+	public void transform(Vector source, Vector dest) {
+		transform((AVector)source,(AVector)dest);
+	}
+
+	@Override
+	public Matrix toMatrix() {
+		Matrix m=Matrix.create(rowCount,columnCount);
+		getElements(m.data,0);
+		return m;
+	}
+
+	@Override
+	public SnapshotMatrix exactClone() {
+		return this;
+	}
+
+	@Override
+	public void validate() {
+		if (rows.length!=rowCount) throw new VectorzException("Wrong number of rows");
+		for (int i=0; i<rowCount; i++) {
+			if (rows[i].length!=columnCount) throw new VectorzException("Row "+i+" has wrong length");
+		}
+		super.validate();
+	}
+}
@@ -40,22 +40,6 @@ public final class StridedMatrix extends AStridedMatrix {
 		return StridedVector.wrap(data, offset+i*colStride, rows, rowStride);
 	}
 	
-	@Override
-	public void copyRowTo(int row, double[] dest, int destOffset) {
-		int rowOffset=offset+row*rowStride;
-		for (int i=0;i<cols; i++) {
-			dest[destOffset+i]=data[rowOffset+i*colStride];
-		}
-	}
-	
-	@Override
-	public void copyColumnTo(int col, double[] dest, int destOffset) {
-		int colOffset=offset+col*colStride;
-		for (int i=0;i<rows; i++) {
-			dest[destOffset+i]=data[colOffset+i*rowStride];
-		}
-	}
-	
 	@Override
 	public int rowStride() {
 		return rowStride;
@@ -100,20 +84,6 @@ public final class StridedMatrix extends AStridedMatrix {
 		}
 	}
 	
-	@Override
-	public void getElements(double[] dest, int destOffset) {
-		int rc = rowCount();
-		int cc = columnCount();
-		int di=destOffset;
-		for (int row = 0; row < rc; row++) {
-			for (int col = 0; col < cc; col++) {
-				int index = index(row,col);
-				double v = data[index];
-				dest[di++] = v;
-			}
-		}
-	}
-
 	@Override
 	public AMatrix getTranspose() {
 		return Matrixx.wrapStrided(data, cols, rows, offset,
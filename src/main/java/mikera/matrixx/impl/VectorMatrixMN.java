@@ -9,6 +9,7 @@ import mikera.matrixx.Matrixx;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Op;
 import mikera.vectorz.Vectorz;
+import mikera.vectorz.util.Parallel;
 
 /**
  * A matrix implemented as a composition of M length N vectors
@@ -149,6 +150,10 @@ public final class VectorMatrixMN extends AVectorMatrix<AVector> {
 	
 	@Override
 	public void transform(AVector source, AVector dest) {
+		if (Parallel.shouldParallelize((long)rowCount*columnCount)) {
+			Parallel.transform(this, source, dest);
+			return;
+		}
 		for (int i=0; i<rowCount; i++) {
 			dest.unsafeSet(i,getRow(i).dotProduct(source));
 		}
@@ -3,6 +3,7 @@ package mikera.vectorz;
 import java.nio.DoubleBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 import mikera.arrayz.INDArray;
 import mikera.arrayz.impl.AbstractArray;
@@ -337,7 +338,7 @@ public abstract class AScalar extends AbstractArray<Object> implements IScalar {
 	}
 	
 	@Override
-	public Iterator<Double> elementIterator() {
+	public PrimitiveIterator.OfDouble elementIterator() {
 		return new SingleDoubleIterator(get());
 	}
 	
@@ -4,10 +4,13 @@ import java.io.Serializable;
 import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.arrayz.Arrayz;
+import mikera.arrayz.IElementVisitor;
 import mikera.arrayz.INDArray;
 import mikera.arrayz.SliceArray;
 import mikera.arrayz.impl.AbstractArray;
@@ -22,9 +25,11 @@ import mikera.vectorz.impl.JoinedVector;
 import mikera.vectorz.impl.ListWrapper;
 import mikera.vectorz.impl.VectorIndexScalar;
 import mikera.vectorz.impl.VectorIterator;
+import mikera.vectorz.impl.VectorSpliterator;
 import mikera.vectorz.impl.WrappedSubVector;
 import mikera.vectorz.ops.Logistic;
 import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.TextWriter;
 import mikera.vectorz.util.VectorzException;
 
 /**
@@ -103,8 +108,8 @@ public abstract class AVector extends AbstractArray<Double> implements IVector,
 	
 	@Override
 	public List<Double> getSlices() {
-		ArrayList<Double> al=new ArrayList<Double>();
 		int l=length();
+		ArrayList<Double> al=new ArrayList<Double>(l);
 		for (int i=0; i<l; i++) {
 			al.add(get(i));
 		}
@@ -216,8 +221,8 @@ public abstract class AVector extends AbstractArray<Double> implements IVector,
 	}
 	
 	public List<Double> toList() {
-		ArrayList<Double> al=new ArrayList<Double>();
 		int len=length();
+		ArrayList<Double> al=new ArrayList<Double>(len);
 		for (int i=0; i<len; i++) {
 			al.add(unsafeGet(i));
 		}
@@ -1132,18 +1137,7 @@ public abstract class AVector extends AbstractArray<Double> implements IVector,
 	
 	@Override
 	public String toString() {
-		StringBuilder sb=new StringBuilder();
-		int length=length();
-		sb.append('[');
-		if (length>0) {
-			sb.append(unsafeGet(0));
-			for (int i = 1; i < length; i++) {
-				sb.append(',');
-				sb.append(unsafeGet(i));
-			}
-		}
-		sb.append(']');
-		return sb.toString();
+		return TextWriter.toEdnString(this);
 	}
 	
 	@Override
@@ -1156,14 +1150,39 @@ public abstract class AVector extends AbstractArray<Double> implements IVector,
 	}
 	
 	@Override
-	public Iterator<Double> iterator() {
+	public PrimitiveIterator.OfDouble iterator() {
 		return new VectorIterator(this);
 	}
 	
 	@Override
-	public Iterator<Double> elementIterator() {
+	public PrimitiveIterator.OfDouble elementIterator() {
 		return iterator();
 	}
+	
+	/**
+	 * Calls the given action for each element of this vector in order, without boxing
+	 * @param action
+	 */
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		int len=length();
+		for (int i=0; i<len; i++) {
+			action.accept(unsafeGet(i));
+		}
+	}
+	
+	@Override
+	public void visitElements(IElementVisitor visitor) {
+		int len=length();
+		for (int i=0; i<len; i++) {
+			visitor.visit(i,unsafeGet(i));
+		}
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return new VectorSpliterator(this);
+	}
 
 	public void set(IVector vector) {
 		int len=length();
@@ -1,6 +1,7 @@
 package mikera.vectorz;
 
 import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
 import mikera.vectorz.util.VectorzException;
 
@@ -72,7 +73,7 @@ public final class GrowableVector extends AArrayVector {
 		int cc=currentCapacity();
 		if (capacity<=cc) return;
 		
-		double[] newData=new double[Math.max(capacity+5, cc*2)];
+		double[] newData=new double[DoubleArrays.growCapacity(cc, capacity)];
 		System.arraycopy(data, 0, newData, 0, length);
 		data=newData;
 	}
@@ -117,6 +118,12 @@ public final class GrowableVector extends AArrayVector {
 		length+=vl;
 	}
 	
+	public void append(double[] values, int offset, int length) {
+		ensureCapacity(this.length+length);
+		System.arraycopy(values, offset, data, this.length, length);
+		this.length+=length;
+	}
+	
 	/**
 	 * Function to build a fixed-size vector containing a copy of data
 	 * once the GrowableVector is constructed
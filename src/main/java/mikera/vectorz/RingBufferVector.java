@@ -0,0 +1,418 @@
+package mikera.vectorz;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.util.DoubleArrays;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Implements a fixed-capacity circular vector, intended for sliding windows over streaming data.
+ *
+ * Appending to the end and dropping from the start are O(1). Internally the elements occupy
+ * at most two contiguous segments of the underlying array, and bulk operations work
+ * segment-wise.
+ *
+ * The window sum, mean and variance are maintained incrementally and are available in O(1).
+ * To stop rounding errors accumulating, they are recomputed from the elements after every
+ * capacity() incremental updates, or sooner if the variance would become negative.
+ *
+ * @author Mike
+ *
+ */
+public final class RingBufferVector extends AVector {
+	private static final long serialVersionUID = 3962513372213574632L;
+
+	private final double[] data;
+	private int start; // array index of the first element
+	private int length;
+
+	// incrementally maintained window statistics
+	private double sum;
+	private double m2; // sum of squared deviations from the mean
+	private int updates; // incremental updates since the statistics were last recomputed
+
+	public RingBufferVector(int capacity) {
+		if (capacity<1) throw new IllegalArgumentException(ErrorMessages.illegalSize(capacity));
+		this.data=new double[capacity];
+	}
+
+	/**
+	 * Returns a new, empty RingBufferVector with the specified capacity
+	 */
+	public static RingBufferVector create(int capacity) {
+		return new RingBufferVector(capacity);
+	}
+
+	/**
+	 * Returns a new RingBufferVector containing a copy of the given vector, with the
+	 * specified capacity
+	 */
+	public static RingBufferVector create(AVector v, int capacity) {
+		RingBufferVector r=new RingBufferVector(capacity);
+		int len=v.length();
+		if (len>capacity) throw new IllegalArgumentException("Vector of length "+len+" exceeds capacity: "+capacity);
+		v.copyTo(r.data, 0);
+		r.length=len;
+		r.recomputeStatistics();
+		return r;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	public int capacity() {
+		return data.length;
+	}
+
+	public boolean isFull() {
+		return length==data.length;
+	}
+
+	// array index of the element at position i
+	private int index(int i) {
+		int ix=start+i;
+		int cap=data.length;
+		return (ix>=cap)?ix-cap:ix;
+	}
+
+	// length of the first contiguous segment, starting at start
+	private int firstLength() {
+		return Math.min(length, data.length-start);
+	}
+
+	/**
+	 * Appends a value to the end of the vector. If the vector is already at capacity,
+	 * the first element is dropped.
+	 */
+	public void append(double v) {
+		if (length==data.length) dropFirst();
+		data[index(length)]=v;
+		addStatistic(v);
+		length++;
+		updatedStatistics();
+	}
+
+	public void append(AVector v) {
+		int vl=v.length();
+		for (int i=0; i<vl; i++) {
+			append(v.unsafeGet(i));
+		}
+	}
+
+	/**
+	 * Removes the first element of the vector, returning its value
+	 */
+	public double dropFirst() {
+		if (length==0) throw new IndexOutOfBoundsException("Cannot drop from an empty vector");
+		double v=data[start];
+		removeStatistic(v);
+		length--;
+		start=index(1);
+		if (length==0) start=0;
+		updatedStatistics();
+		return v;
+	}
+
+	/**
+	 * Removes the first n elements of the vector
+	 */
+	public void dropFirst(int n) {
+		if ((n<0)||(n>length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, n));
+		for (int i=0; i<n; i++) {
+			dropFirst();
+		}
+	}
+
+	public void clear() {
+		start=0;
+		length=0;
+		sum=0.0;
+		m2=0.0;
+		updates=0;
+	}
+
+	/**
+	 * Returns the sum of elements in the current window in O(1) time
+	 */
+	public double windowSum() {
+		return sum;
+	}
+
+	/**
+	 * Returns the mean of elements in the current window in O(1) time
+	 */
+	public double windowMean() {
+		if (length==0) return 0.0;
+		return sum/length;
+	}
+
+	/**
+	 * Returns the population variance of elements in the current window in O(1) time
+	 */
+	public double windowVariance() {
+		if (length==0) return 0.0;
+		return m2/length;
+	}
+
+	private void addStatistic(double x) {
+		int n=length;
+		double oldMean=(n==0)?0.0:sum/n;
+		sum+=x;
+		double newMean=sum/(n+1);
+		m2+=(x-oldMean)*(x-newMean);
+	}
+
+	private void removeStatistic(double x) {
+		int n=length;
+		if (n<=1) {
+			sum=0.0;
+			m2=0.0;
+			return;
+		}
+		double oldMean=sum/n;
+		sum-=x;
+		double newMean=sum/(n-1);
+		m2-=(x-oldMean)*(x-newMean);
+	}
+
+	private void replaceStatistic(double oldValue, double newValue) {
+		int n=length;
+		double oldMean=sum/n;
+		sum+=newValue-oldValue;
+		double newMean=sum/n;
+		m2+=(newValue-oldValue)*(newValue-newMean+oldValue-oldMean);
+	}
+
+	/**
+	 * Called after each incremental update of the window statistics, recomputing them
+	 * periodically so that rounding errors stay bounded
+	 */
+	private void updatedStatistics() {
+		if ((++updates>=data.length)||(m2<0.0)) recomputeStatistics();
+	}
+
+	/**
+	 * Recomputes the window statistics from the current elements. Called after
+	 * bulk updates.
+	 */
+	private void recomputeStatistics() {
+		updates=0;
+		int n1=firstLength();
+		int n2=length-n1;
+		sum=DoubleArrays.elementSum(data, start, n1)+DoubleArrays.elementSum(data, 0, n2);
+		m2=0.0;
+		if (length==0) return;
+		double mean=sum/length;
+		for (int i=0; i<n1; i++) {
+			double d=data[start+i]-mean;
+			m2+=d*d;
+		}
+		for (int i=0; i<n2; i++) {
+			double d=data[i]-mean;
+			m2+=d*d;
+		}
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return data[index(i)];
+	}
+
+	@Override
+	public void set(int i, double value) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		unsafeSet(i,value);
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return data[index(i)];
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		int ix=index(i);
+		double old=data[ix];
+		data[ix]=value;
+		replaceStatistic(old,value);
+		updatedStatistics();
+	}
+
+	@Override
+	public void addAt(int i, double value) {
+		int ix=index(i);
+		double old=data[ix];
+		data[ix]=old+value;
+		replaceStatistic(old,old+value);
+		updatedStatistics();
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		int n1=firstLength();
+		if (offset<n1) {
+			int c1=Math.min(length, n1-offset);
+			System.arraycopy(data, start+offset, dest, destOffset, c1);
+			System.arraycopy(data, 0, dest, destOffset+c1, length-c1);
+		} else {
+			System.arraycopy(data, offset-n1, dest, destOffset, length);
+		}
+	}
+
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		int n1=firstLength();
+		if (offset<n1) {
+			int c1=Math.min(length, n1-offset);
+			DoubleArrays.add(data, start+offset, array, arrayOffset, c1);
+			DoubleArrays.add(data, 0, array, arrayOffset+c1, length-c1);
+		} else {
+			DoubleArrays.add(data, offset-n1, array, arrayOffset, length);
+		}
+	}
+
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		int n1=firstLength();
+		if (offset<n1) {
+			int c1=Math.min(length, n1-offset);
+			DoubleArrays.addMultiple(array, arrayOffset, data, start+offset, c1, factor);
+			DoubleArrays.addMultiple(array, arrayOffset+c1, data, 0, length-c1, factor);
+		} else {
+			DoubleArrays.addMultiple(array, arrayOffset, data, offset-n1, length, factor);
+		}
+	}
+
+	@Override
+	public double dotProduct(double[] arr, int offset) {
+		int n1=firstLength();
+		return DoubleArrays.dotProduct(data, start, arr, offset, n1)
+				+DoubleArrays.dotProduct(data, 0, arr, offset+n1, length-n1);
+	}
+
+	@Override
+	public double dotProduct(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			return dotProduct(av.getArray(),av.getArrayOffset());
+		}
+		int n1=firstLength();
+		if (n1==length) return v.dotProduct(data, start);
+		return v.subVector(0, n1).dotProduct(data, start)+v.subVector(n1, length-n1).dotProduct(data, 0);
+	}
+
+	@Override
+	public void add(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		int n1=firstLength();
+		v.addToArray(0, data, start, n1);
+		v.addToArray(n1, data, 0, length-n1);
+		recomputeStatistics();
+	}
+
+	@Override
+	public void addMultiple(AVector v, double factor) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		int n1=firstLength();
+		v.addMultipleToArray(factor, 0, data, start, n1);
+		v.addMultipleToArray(factor, n1, data, 0, length-n1);
+		recomputeStatistics();
+	}
+
+	@Override
+	public void set(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		int n1=firstLength();
+		v.copyTo(0, data, start, n1);
+		v.copyTo(n1, data, 0, length-n1);
+		recomputeStatistics();
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		int n1=firstLength();
+		op.applyTo(data, start, n1);
+		op.applyTo(data, 0, length-n1);
+		recomputeStatistics();
+	}
+
+	@Override
+	public void multiply(double factor) {
+		int n1=firstLength();
+		DoubleArrays.multiply(data, start, n1, factor);
+		DoubleArrays.multiply(data, 0, length-n1, factor);
+		sum*=factor;
+		m2*=factor*factor;
+		updatedStatistics();
+	}
+
+	@Override
+	public void add(double constant) {
+		int n1=firstLength();
+		DoubleArrays.add(data, start, n1, constant);
+		DoubleArrays.add(data, 0, length-n1, constant);
+		sum+=constant*length;
+		updatedStatistics();
+	}
+
+	@Override
+	public void fill(double value) {
+		int n1=firstLength();
+		Arrays.fill(data, start, start+n1, value);
+		Arrays.fill(data, 0, length-n1, value);
+		sum=value*length;
+		m2=0.0;
+		updates=0;
+	}
+
+	@Override
+	public double elementSum() {
+		int n1=firstLength();
+		return DoubleArrays.elementSum(data, start, n1)+DoubleArrays.elementSum(data, 0, length-n1);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		int n1=firstLength();
+		DoubleArrays.forEach(data, start, n1, action);
+		DoubleArrays.forEach(data, 0, length-n1, action);
+	}
+
+	@Override
+	public RingBufferVector exactClone() {
+		RingBufferVector r=new RingBufferVector(data.length);
+		copyTo(r.data, 0);
+		r.length=length;
+		r.sum=sum;
+		r.m2=m2;
+		r.updates=updates;
+		return r;
+	}
+
+	@Override
+	public void validate() {
+		if ((length<0)||(length>data.length)) throw new VectorzException("Invalid length: "+length);
+		if ((start<0)||(start>=data.length)) throw new VectorzException("Invalid start position: "+start);
+		super.validate();
+	}
+}
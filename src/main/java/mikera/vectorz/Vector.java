@@ -9,6 +9,7 @@ import mikera.randomz.Hash;
 import mikera.vectorz.impl.AArrayVector;
 import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.Parallel;
 import mikera.vectorz.util.VectorzException;
 
 
@@ -161,11 +162,19 @@ public final class Vector extends AArrayVector {
 	
 	@Override
 	public void applyOp(Op op) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.applyOp(op, data, 0, data.length);
+			return;
+		}
 		op.applyTo(data, 0, data.length);
 	}
 	
 	@Override
 	public void fill(double value) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.fill(data, 0, data.length, value);
+			return;
+		}
 		Arrays.fill(data, value);
 	}
 	
@@ -216,6 +225,10 @@ public final class Vector extends AArrayVector {
 		assert(srcOffset+length<=src.length());
 		double[] vdata=src.getArray();
 		int voffset=src.getArrayOffset()+srcOffset;
+		if (Parallel.shouldParallelize(length)) {
+			Parallel.add(vdata, voffset, data, 0, length);
+			return;
+		}
 		for (int i = 0; i < length; i++) {
 			data[i] += vdata[voffset + i];
 		}
@@ -227,6 +240,10 @@ public final class Vector extends AArrayVector {
 		assert(length==v.length());
 		double[] vdata=v.getArray();
 		int voffset=v.getArrayOffset();
+		if (Parallel.shouldParallelize(length)) {
+			Parallel.addMultiple(data, 0, vdata, voffset, length, factor);
+			return;
+		}
 		for (int i = 0; i < length; i++) {
 			data[i] += vdata[voffset + i]*factor;
 		}
@@ -248,6 +265,10 @@ public final class Vector extends AArrayVector {
 	public void add(Vector v) {
 		int length=length();
 		if(length!=v.length()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (Parallel.shouldParallelize(length)) {
+			Parallel.add(v.data, 0, data, 0, length);
+			return;
+		}
 		for (int i = 0; i < length; i++) {
 			data[i] += v.data[i];
 		}
@@ -263,6 +284,10 @@ public final class Vector extends AArrayVector {
 
 	@Override
 	public void add(double constant) {
+		if (Parallel.shouldParallelize(data.length)) {
+			Parallel.add(data, 0, data.length, constant);
+			return;
+		}
 		DoubleArrays.add(data, 0, data.length, constant);
 	}
 	
@@ -454,6 +479,10 @@ public final class Vector extends AArrayVector {
 	@Override
 	public void multiply(double factor) {
 		int len=length();
+		if (Parallel.shouldParallelize(len)) {
+			Parallel.multiply(data, 0, len, factor);
+			return;
+		}
 		for (int i = 0; i < len; i++) {
 			data[i]*=factor;
 		}	
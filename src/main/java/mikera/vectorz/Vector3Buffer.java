@@ -0,0 +1,375 @@
+package mikera.vectorz;
+
+import java.io.Serializable;
+
+import mikera.matrixx.Matrix33;
+import mikera.transformz.Affine34;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Structure-of-arrays buffer holding a fixed number of 3D points or directions.
+ *
+ * The x, y and z coordinates are held in three separate packed double[] arrays rather than
+ * as individual Vector3 objects. This avoids an object header per point, and allows the batch
+ * operations below to run as simple loops over the arrays, which the JIT can vectorise. None
+ * of the batch operations allocate per point.
+ *
+ * @author Mike
+ *
+ */
+public final class Vector3Buffer implements Serializable {
+	private static final long serialVersionUID = -2306405186522781406L;
+
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] zs;
+	private final int count;
+
+	private Vector3Buffer(double[] xs, double[] ys, double[] zs, int count) {
+		this.xs=xs;
+		this.ys=ys;
+		this.zs=zs;
+		this.count=count;
+	}
+
+	/**
+	 * Creates a new buffer of the given number of points, all initially zero
+	 */
+	public static Vector3Buffer create(int count) {
+		if (count<0) throw new IllegalArgumentException(ErrorMessages.illegalSize(count));
+		return new Vector3Buffer(new double[count],new double[count],new double[count],count);
+	}
+
+	/**
+	 * Creates a new buffer containing copies of the given points
+	 */
+	public static Vector3Buffer create(Vector3... points) {
+		int n=points.length;
+		Vector3Buffer b=create(n);
+		for (int i=0; i<n; i++) {
+			b.set(i,points[i]);
+		}
+		return b;
+	}
+
+	/**
+	 * Wraps existing coordinate arrays, which must all have the same length
+	 */
+	public static Vector3Buffer wrap(double[] xs, double[] ys, double[] zs) {
+		int n=xs.length;
+		if ((ys.length!=n)||(zs.length!=n)) throw new IllegalArgumentException("Coordinate arrays must have equal length");
+		return new Vector3Buffer(xs,ys,zs,n);
+	}
+
+	/**
+	 * Returns the number of points in this buffer
+	 */
+	public int count() {
+		return count;
+	}
+
+	public double[] getXArray() {
+		return xs;
+	}
+
+	public double[] getYArray() {
+		return ys;
+	}
+
+	public double[] getZArray() {
+		return zs;
+	}
+
+	private void checkIndex(int i) {
+		if ((i<0)||(i>=count)) throw new IndexOutOfBoundsException("Point index "+i+" not possible for buffer of size "+count);
+	}
+
+	private void checkCount(Vector3Buffer b) {
+		if (b.count!=count) throw new IllegalArgumentException("Buffer sizes do not match: "+count+" and "+b.count);
+	}
+
+	private void checkDest(double[] dest) {
+		if (dest.length<count) throw new IllegalArgumentException("Destination array too short: "+dest.length);
+	}
+
+	public double getX(int i) {
+		checkIndex(i);
+		return xs[i];
+	}
+
+	public double getY(int i) {
+		checkIndex(i);
+		return ys[i];
+	}
+
+	public double getZ(int i) {
+		checkIndex(i);
+		return zs[i];
+	}
+
+	/**
+	 * Returns a new Vector3 containing the point at index i
+	 */
+	public Vector3 get(int i) {
+		checkIndex(i);
+		return new Vector3(xs[i],ys[i],zs[i]);
+	}
+
+	/**
+	 * Copies the point at index i into an existing Vector3
+	 */
+	public void copyTo(int i, Vector3 dest) {
+		checkIndex(i);
+		dest.x=xs[i];
+		dest.y=ys[i];
+		dest.z=zs[i];
+	}
+
+	public void set(int i, double x, double y, double z) {
+		checkIndex(i);
+		xs[i]=x;
+		ys[i]=y;
+		zs[i]=z;
+	}
+
+	public void set(int i, Vector3 v) {
+		set(i,v.x,v.y,v.z);
+	}
+
+	/**
+	 * Sets all points in this buffer to the points in another buffer of the same size
+	 */
+	public void set(Vector3Buffer b) {
+		checkCount(b);
+		System.arraycopy(b.xs, 0, xs, 0, count);
+		System.arraycopy(b.ys, 0, ys, 0, count);
+		System.arraycopy(b.zs, 0, zs, 0, count);
+	}
+
+	// ========================================================================
+	// Batch transforms
+
+	/**
+	 * Transforms all points in place by an affine transformation
+	 */
+	public void transform(Affine34 t) {
+		transform(t,this);
+	}
+
+	/**
+	 * Transforms all points by an affine transformation, storing the results in dest.
+	 * dest may be this buffer.
+	 */
+	public void transform(Affine34 t, Vector3Buffer dest) {
+		checkCount(dest);
+		final double m00=t.m00, m01=t.m01, m02=t.m02, tr0=t.tr0;
+		final double m10=t.m10, m11=t.m11, m12=t.m12, tr1=t.tr1;
+		final double m20=t.m20, m21=t.m21, m22=t.m22, tr2=t.tr2;
+		final double[] xs=this.xs, ys=this.ys, zs=this.zs;
+		final double[] dx=dest.xs, dy=dest.ys, dz=dest.zs;
+		for (int i=0; i<count; i++) {
+			double x=xs[i], y=ys[i], z=zs[i];
+			dx[i]=(m00*x)+(m01*y)+(m02*z)+tr0;
+			dy[i]=(m10*x)+(m11*y)+(m12*z)+tr1;
+			dz[i]=(m20*x)+(m21*y)+(m22*z)+tr2;
+		}
+	}
+
+	/**
+	 * Transforms all points in place by a 3x3 matrix
+	 */
+	public void transform(Matrix33 m) {
+		transform(m,this);
+	}
+
+	/**
+	 * Transforms all points by a 3x3 matrix, storing the results in dest. dest may be this buffer.
+	 */
+	public void transform(Matrix33 m, Vector3Buffer dest) {
+		checkCount(dest);
+		final double m00=m.m00, m01=m.m01, m02=m.m02;
+		final double m10=m.m10, m11=m.m11, m12=m.m12;
+		final double m20=m.m20, m21=m.m21, m22=m.m22;
+		final double[] xs=this.xs, ys=this.ys, zs=this.zs;
+		final double[] dx=dest.xs, dy=dest.ys, dz=dest.zs;
+		for (int i=0; i<count; i++) {
+			double x=xs[i], y=ys[i], z=zs[i];
+			dx[i]=(m00*x)+(m01*y)+(m02*z);
+			dy[i]=(m10*x)+(m11*y)+(m12*z);
+			dz[i]=(m20*x)+(m21*y)+(m22*z);
+		}
+	}
+
+	// ========================================================================
+	// Batch vector operations
+
+	/**
+	 * Adds a vector to every point in this buffer
+	 */
+	public void add(Vector3 v) {
+		final double vx=v.x, vy=v.y, vz=v.z;
+		for (int i=0; i<count; i++) {
+			xs[i]+=vx;
+			ys[i]+=vy;
+			zs[i]+=vz;
+		}
+	}
+
+	/**
+	 * Adds the corresponding points of another buffer to this buffer
+	 */
+	public void add(Vector3Buffer b) {
+		checkCount(b);
+		final double[] bx=b.xs, by=b.ys, bz=b.zs;
+		for (int i=0; i<count; i++) {
+			xs[i]+=bx[i];
+			ys[i]+=by[i];
+			zs[i]+=bz[i];
+		}
+	}
+
+	/**
+	 * Multiplies every point in this buffer by a scalar factor
+	 */
+	public void multiply(double factor) {
+		for (int i=0; i<count; i++) {
+			xs[i]*=factor;
+			ys[i]*=factor;
+			zs[i]*=factor;
+		}
+	}
+
+	/**
+	 * Normalises every point in this buffer to unit length. Zero points are left unchanged.
+	 */
+	public void normalise() {
+		for (int i=0; i<count; i++) {
+			double x=xs[i], y=ys[i], z=zs[i];
+			double d=Math.sqrt((x*x)+(y*y)+(z*z));
+			double s=(d>0)?(1.0/d):1.0;
+			xs[i]=x*s;
+			ys[i]=y*s;
+			zs[i]=z*s;
+		}
+	}
+
+	/**
+	 * Computes the magnitude of every point, storing the results in dest
+	 */
+	public void magnitudes(double[] dest) {
+		checkDest(dest);
+		for (int i=0; i<count; i++) {
+			double x=xs[i], y=ys[i], z=zs[i];
+			dest[i]=Math.sqrt((x*x)+(y*y)+(z*z));
+		}
+	}
+
+	/**
+	 * Computes the dot product of every point with a vector, storing the results in dest
+	 */
+	public void dotProduct(Vector3 v, double[] dest) {
+		checkDest(dest);
+		final double vx=v.x, vy=v.y, vz=v.z;
+		for (int i=0; i<count; i++) {
+			dest[i]=(xs[i]*vx)+(ys[i]*vy)+(zs[i]*vz);
+		}
+	}
+
+	/**
+	 * Computes the dot product of every point with the corresponding point in another buffer,
+	 * storing the results in dest
+	 */
+	public void dotProduct(Vector3Buffer b, double[] dest) {
+		checkCount(b);
+		checkDest(dest);
+		final double[] bx=b.xs, by=b.ys, bz=b.zs;
+		for (int i=0; i<count; i++) {
+			dest[i]=(xs[i]*bx[i])+(ys[i]*by[i])+(zs[i]*bz[i]);
+		}
+	}
+
+	/**
+	 * Replaces every point p in this buffer with the cross product p x v
+	 */
+	public void crossProduct(Vector3 v) {
+		final double vx=v.x, vy=v.y, vz=v.z;
+		for (int i=0; i<count; i++) {
+			double x=xs[i], y=ys[i], z=zs[i];
+			xs[i]=(y*vz)-(z*vy);
+			ys[i]=(z*vx)-(x*vz);
+			zs[i]=(x*vy)-(y*vx);
+		}
+	}
+
+	/**
+	 * Replaces every point p in this buffer with the cross product p x q, where q is the
+	 * corresponding point in another buffer
+	 */
+	public void crossProduct(Vector3Buffer b) {
+		checkCount(b);
+		final double[] bx=b.xs, by=b.ys, bz=b.zs;
+		for (int i=0; i<count; i++) {
+			double x=xs[i], y=ys[i], z=zs[i];
+			double vx=bx[i], vy=by[i], vz=bz[i];
+			xs[i]=(y*vz)-(z*vy);
+			ys[i]=(z*vx)-(x*vz);
+			zs[i]=(x*vy)-(y*vx);
+		}
+	}
+
+	/**
+	 * Computes the squared distance from every point to p, storing the results in dest
+	 */
+	public void distanceSquared(Vector3 p, double[] dest) {
+		checkDest(dest);
+		final double px=p.x, py=p.y, pz=p.z;
+		for (int i=0; i<count; i++) {
+			double dx=xs[i]-px, dy=ys[i]-py, dz=zs[i]-pz;
+			dest[i]=(dx*dx)+(dy*dy)+(dz*dz);
+		}
+	}
+
+	/**
+	 * Computes the distance from every point to p, storing the results in dest
+	 */
+	public void distance(Vector3 p, double[] dest) {
+		checkDest(dest);
+		final double px=p.x, py=p.y, pz=p.z;
+		for (int i=0; i<count; i++) {
+			double dx=xs[i]-px, dy=ys[i]-py, dz=zs[i]-pz;
+			dest[i]=Math.sqrt((dx*dx)+(dy*dy)+(dz*dz));
+		}
+	}
+
+	/**
+	 * Returns a new buffer containing a copy of all points in this buffer
+	 */
+	public Vector3Buffer copy() {
+		return new Vector3Buffer(xs.clone(),ys.clone(),zs.clone(),count);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Vector3Buffer)) return false;
+		Vector3Buffer b=(Vector3Buffer)o;
+		if (b.count!=count) return false;
+		for (int i=0; i<count; i++) {
+			// compare bit patterns, consistent with hashCode (so NaN equals NaN, and 0.0 differs from -0.0)
+			if (Double.doubleToLongBits(xs[i])!=Double.doubleToLongBits(b.xs[i])) return false;
+			if (Double.doubleToLongBits(ys[i])!=Double.doubleToLongBits(b.ys[i])) return false;
+			if (Double.doubleToLongBits(zs[i])!=Double.doubleToLongBits(b.zs[i])) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int h=count;
+		for (int i=0; i<count; i++) {
+			h=31*h+Double.hashCode(xs[i]);
+			h=31*h+Double.hashCode(ys[i]);
+			h=31*h+Double.hashCode(zs[i]);
+		}
+		return h;
+	}
+}
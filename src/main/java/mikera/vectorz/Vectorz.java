@@ -4,18 +4,22 @@ import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
-import mikera.util.Rand;
+import mikera.vectorz.impl.AArrayVector;
+import mikera.vectorz.impl.ACompressedVector;
 import mikera.vectorz.impl.AStridedVector;
 import mikera.vectorz.impl.ArraySubVector;
 import mikera.vectorz.impl.AxisVector;
+import mikera.vectorz.impl.BufferVector;
+import mikera.vectorz.impl.ChunkedVector;
+import mikera.vectorz.impl.FloatVector;
+import mikera.vectorz.impl.PersistentVector;
 import mikera.vectorz.impl.StridedVector;
 import mikera.vectorz.impl.Vector0;
 import mikera.vectorz.impl.ZeroVector;
-import mikera.vectorz.util.VectorBuilder;
+import mikera.vectorz.util.EdnReader;
+import mikera.vectorz.util.Parallel;
+import mikera.vectorz.util.RandomStream;
 import mikera.vectorz.util.VectorzException;
-import us.bpsm.edn.parser.CollectionBuilder;
-import us.bpsm.edn.parser.Parser;
-import us.bpsm.edn.parser.Parsers;
 
 public class Vectorz {
 	/**
@@ -119,6 +123,53 @@ public class Vectorz {
 		}
 	}
 
+	/**
+	 * Returns a zero-filled vector of the specified length, stored off-heap in a direct buffer
+	 * @param length
+	 * @return
+	 */
+	public static BufferVector createDirect(int length) {
+		return BufferVector.create(length);
+	}
+
+	/**
+	 * Returns a zero-filled vector of the specified length, stored with single precision
+	 * @param length
+	 * @return
+	 */
+	public static FloatVector createFloat(int length) {
+		return FloatVector.create(length);
+	}
+
+	/**
+	 * Returns a zero-filled vector of the specified length, stored in fixed-size pages
+	 * @param length
+	 * @return
+	 */
+	public static ChunkedVector createChunked(int length) {
+		return ChunkedVector.create(length);
+	}
+
+	/**
+	 * Returns an immutable compressed copy of a vector, using whichever of run-length,
+	 * dictionary or XOR encoding is smallest
+	 * @param v
+	 * @return
+	 */
+	public static ACompressedVector createCompressed(AVector v) {
+		return ACompressedVector.compress(v);
+	}
+
+	/**
+	 * Returns a persistent immutable copy of a vector, which supports cheap updated copies
+	 * with structural sharing
+	 * @param v
+	 * @return
+	 */
+	public static PersistentVector createPersistent(AVector v) {
+		return PersistentVector.create(v);
+	}
+
 	public static AVector createSameSize(AVector v) {
 		return newVector(v.length());
 	}
@@ -143,9 +194,19 @@ public class Vectorz {
 
 	public static AVector createUniformRandomVector(int dimensions) {
 		AVector v=Vectorz.newVector(dimensions);
-		for (int i=0; i<dimensions; i++) {
-			v.set(i,Rand.nextDouble());
-		}
+		fillRandom(v);
+		return v;
+	}
+
+	/**
+	 * Creates a vector of uniformly distributed random values in [0,1), determined only by the given seed
+	 * @param dimensions
+	 * @param seed
+	 * @return
+	 */
+	public static AVector createUniformRandomVector(int dimensions, long seed) {
+		AVector v=Vectorz.newVector(dimensions);
+		fillRandom(v,seed);
 		return v;
 	}
 
@@ -177,51 +238,21 @@ public class Vectorz {
 	// ====================================
 	// Edn formatting and parsing functions
 	
-	private static class ParserConfigHolder {
-		static final Parser.Config parserConfig;
-		static {
-			us.bpsm.edn.parser.Parser.Config.Builder b= us.bpsm.edn.parser.Parsers.newParserConfigBuilder();
-			b.setVectorFactory(new us.bpsm.edn.parser.CollectionBuilder.Factory() {
-				@Override
-				public us.bpsm.edn.parser.CollectionBuilder builder() {
-					return new CollectionBuilder() {
-						VectorBuilder b=new VectorBuilder();
-						@Override
-						public void add(Object o) {
-							double d;
-							if (o instanceof Double) {
-								d=(Double)o;
-							} else if (o instanceof Number) {
-								d=((Number)o).doubleValue();
-							} else {
-								throw new VectorzException("Cannot parse double value from class: "+o.getClass());
-							}
-							b.add(d);
-						}
-
-						@Override
-						public Object build() {
-							return b.toVector();
-						}					
-					};
-				}}
-			);
-			parserConfig=b.build();
-		}
-	}
-	
-	private static Parser.Config getVectorParserConfig() {
-		return ParserConfigHolder.parserConfig;
-	}
-	
 	/**
 	 * Parse a vector in edn format
 	 * @param ednString
 	 * @return
 	 */
 	public static AVector parse(String ednString) {
-		Parser p=Parsers.newParser(getVectorParserConfig());
-		return (AVector)p.nextValue(Parsers.newParseable(ednString));
+		AVector v=new EdnReader(ednString).readVector();
+		int len=v.length();
+		if (len<=4) {
+			// small vectors use the specialised fixed-size types, as for Matrixx.parse
+			AVector r=newVector(len);
+			r.set(v);
+			return r;
+		}
+		return v;
 	}
 
 	/**
@@ -369,12 +400,41 @@ public class Vectorz {
 		return Math.sqrt(averageSquaredDifference(a,b));
 	}
 
+	/**
+	 * Fills a vector with uniformly distributed random values in [0,1), using the current thread's RandomStream
+	 * @param v
+	 */
 	public static void fillRandom(AVector v) {
 		int len=v.length();
+		RandomStream r=RandomStream.current();
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			r.fillUniform(av.getArray(), av.getArrayOffset(), len);
+			return;
+		}
 		for (int i=0; i<len; i++) {
-			v.unsafeSet(i,Rand.nextDouble());
+			v.unsafeSet(i,r.nextDouble());
 		}
 	}
+
+	/**
+	 * Fills a vector with uniformly distributed random values in [0,1). The values depend only on
+	 * the seed. Large vectors are filled in parallel if enabled, see Parallel.
+	 * @param v
+	 * @param seed
+	 */
+	public static void fillRandom(AVector v, long seed) {
+		int len=v.length();
+		boolean direct=(v instanceof AArrayVector);
+		double[] data=direct?((AArrayVector)v).getArray():new double[len];
+		int offset=direct?((AArrayVector)v).getArrayOffset():0;
+		if (Parallel.shouldParallelize(len)) {
+			Parallel.fillUniform(seed, data, offset, len);
+		} else {
+			RandomStream.fillUniform(seed, data, offset, len);
+		}
+		if (!direct) v.setElements(data);
+	}
 	
 	public static void fillGaussian(AVector v) {
 		fillGaussian(v,0.0,1.0);
@@ -391,11 +451,37 @@ public class Vectorz {
 		}
 	}
 	
+	/**
+	 * Fills a vector with normally distributed random values, using the current thread's RandomStream
+	 */
 	public static void fillGaussian(AVector v, double mean, double sd) {
 		int len=v.length();
+		RandomStream r=RandomStream.current();
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			r.fillGaussian(av.getArray(), av.getArrayOffset(), len, mean, sd);
+			return;
+		}
 		for (int i=0; i<len; i++) {
-			v.unsafeSet(i,mean+Rand.nextGaussian()*sd);
+			v.unsafeSet(i,mean+r.nextGaussian()*sd);
+		}
+	}
+
+	/**
+	 * Fills a vector with normally distributed random values. The values depend only on the seed.
+	 * Large vectors are filled in parallel if enabled, see Parallel.
+	 */
+	public static void fillGaussian(AVector v, double mean, double sd, long seed) {
+		int len=v.length();
+		boolean direct=(v instanceof AArrayVector);
+		double[] data=direct?((AArrayVector)v).getArray():new double[len];
+		int offset=direct?((AArrayVector)v).getArrayOffset():0;
+		if (Parallel.shouldParallelize(len)) {
+			Parallel.fillGaussian(seed, data, offset, len, mean, sd);
+		} else {
+			RandomStream.fillGaussian(seed, data, offset, len, mean, sd);
 		}
+		if (!direct) v.setElements(data);
 	}
 	
 	public static void fillBinaryRandom(AVector v) {
@@ -408,9 +494,32 @@ public class Vectorz {
 
 	public static void fillBinaryRandom(AVector v, double prob) {
 		int len=v.length();
+		RandomStream r=RandomStream.current();
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			r.fillBinary(av.getArray(), av.getArrayOffset(), len, prob);
+			return;
+		}
 		for (int i=0; i<len; i++) {
-			v.unsafeSet(i,Rand.binary(prob));
+			v.unsafeSet(i,r.binary(prob));
+		}
+	}
+
+	/**
+	 * Fills a vector with 1.0 with the given probability, 0.0 otherwise. The values depend only on
+	 * the seed. Large vectors are filled in parallel if enabled, see Parallel.
+	 */
+	public static void fillBinaryRandom(AVector v, double prob, long seed) {
+		int len=v.length();
+		boolean direct=(v instanceof AArrayVector);
+		double[] data=direct?((AArrayVector)v).getArray():new double[len];
+		int offset=direct?((AArrayVector)v).getArrayOffset():0;
+		if (Parallel.shouldParallelize(len)) {
+			Parallel.fillBinary(seed, data, offset, len, prob);
+		} else {
+			RandomStream.fillBinary(seed, data, offset, len, prob);
 		}
+		if (!direct) v.setElements(data);
 	}
 
 	/**
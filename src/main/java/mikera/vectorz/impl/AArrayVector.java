@@ -2,6 +2,8 @@ package mikera.vectorz.impl;
 
 import java.nio.DoubleBuffer;
 import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.vectorz.AScalar;
 import mikera.vectorz.AVector;
@@ -311,6 +313,16 @@ public abstract class AArrayVector extends AStridedVector {
 		return DoubleArrays.elementSum(getArray(), getArrayOffset(), length());
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		DoubleArrays.forEach(getArray(), getArrayOffset(), length(), action);
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return DoubleArrays.spliterator(getArray(), getArrayOffset(), length());
+	}
+	
 	@Override
 	public long nonZeroCount() {
 		return DoubleArrays.nonZeroCount(getArray(), getArrayOffset(), length());
@@ -0,0 +1,195 @@
+package mikera.vectorz.impl;
+
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.DoubleArrays;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Abstract base class for immutable vectors held in a compressed in-memory encoding.
+ *
+ * Subclasses implement copyTo(int, double[], int, int) to decode any range of elements.
+ * Scans such as elementSum and dotProduct decode BLOCK_SIZE elements at a time into a
+ * Workspace scratch array and then run the ordinary double[] kernels, so they approach
+ * dense speed while the vector itself occupies far less memory.
+ *
+ * @author Mike
+ *
+ */
+@SuppressWarnings("serial")
+public abstract class ACompressedVector extends ComputedVector {
+	/**
+	 * Number of elements decoded at a time during scans
+	 */
+	public static final int BLOCK_SIZE=256;
+
+	/**
+	 * Returns the approximate number of bytes used by the compressed representation
+	 */
+	public abstract long compressedSize();
+
+	/**
+	 * Compresses a vector, choosing whichever of run-length, dictionary or XOR encoding
+	 * gives the smallest representation
+	 */
+	public static ACompressedVector compress(AVector v) {
+		if (v instanceof ACompressedVector) return (ACompressedVector)v;
+		double[] data=v.toDoubleArray();
+		ACompressedVector best=RunLengthVector.create(data);
+		DictionaryVector dv=DictionaryVector.tryCreate(data);
+		if ((dv!=null)&&(dv.compressedSize()<best.compressedSize())) best=dv;
+		XorCompressedVector xv=XorCompressedVector.create(data);
+		if (xv.compressedSize()<best.compressedSize()) best=xv;
+		return best;
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+	}
+
+	@Override
+	public abstract void copyTo(int offset, double[] dest, int destOffset, int length);
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		copyTo(0,dest,offset,length());
+	}
+
+	@Override
+	public double elementSum() {
+		int len=length();
+		double result=0.0;
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(BLOCK_SIZE);
+			for (int i=0; i<len; i+=BLOCK_SIZE) {
+				int n=Math.min(BLOCK_SIZE, len-i);
+				copyTo(i,buf,0,n);
+				result+=DoubleArrays.elementSum(buf, 0, n);
+			}
+		} finally {
+			ws.release();
+		}
+		return result;
+	}
+
+	@Override
+	public double magnitudeSquared() {
+		int len=length();
+		double result=0.0;
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(BLOCK_SIZE);
+			for (int i=0; i<len; i+=BLOCK_SIZE) {
+				int n=Math.min(BLOCK_SIZE, len-i);
+				copyTo(i,buf,0,n);
+				result+=DoubleArrays.elementSquaredSum(buf, 0, n);
+			}
+		} finally {
+			ws.release();
+		}
+		return result;
+	}
+
+	@Override
+	public long nonZeroCount() {
+		int len=length();
+		long result=0;
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(BLOCK_SIZE);
+			for (int i=0; i<len; i+=BLOCK_SIZE) {
+				int n=Math.min(BLOCK_SIZE, len-i);
+				copyTo(i,buf,0,n);
+				result+=DoubleArrays.nonZeroCount(buf, 0, n);
+			}
+		} finally {
+			ws.release();
+		}
+		return result;
+	}
+
+	@Override
+	public double dotProduct(double[] data, int offset) {
+		int len=length();
+		double result=0.0;
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(BLOCK_SIZE);
+			for (int i=0; i<len; i+=BLOCK_SIZE) {
+				int n=Math.min(BLOCK_SIZE, len-i);
+				copyTo(i,buf,0,n);
+				result+=DoubleArrays.dotProduct(buf, 0, data, offset+i, n);
+			}
+		} finally {
+			ws.release();
+		}
+		return result;
+	}
+
+	@Override
+	public double dotProduct(AVector v) {
+		int len=length();
+		if (v.length()!=len) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			return dotProduct(av.getArray(),av.getArrayOffset());
+		}
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(len);
+			v.copyTo(buf, 0);
+			return dotProduct(buf,0);
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>length())) throw new IndexOutOfBoundsException();
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(BLOCK_SIZE);
+			for (int i=0; i<length; i+=BLOCK_SIZE) {
+				int n=Math.min(BLOCK_SIZE, length-i);
+				copyTo(offset+i,buf,0,n);
+				DoubleArrays.addMultiple(array, arrayOffset+i, buf, 0, n, factor);
+			}
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		addMultipleToArray(1.0,offset,array,arrayOffset,length);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		int len=length();
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(BLOCK_SIZE);
+			for (int i=0; i<len; i+=BLOCK_SIZE) {
+				int n=Math.min(BLOCK_SIZE, len-i);
+				copyTo(i,buf,0,n);
+				DoubleArrays.forEach(buf, 0, n, action);
+			}
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public Vector toVector() {
+		Vector v=Vector.createLength(length());
+		copyTo(0,v.getArray(),0,length());
+		return v;
+	}
+}
@@ -1,5 +1,8 @@
 package mikera.vectorz.impl;
 
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
 import mikera.arrayz.Arrayz;
 import mikera.arrayz.INDArray;
 import mikera.arrayz.impl.IStridedArray;
@@ -8,6 +11,7 @@ import mikera.matrixx.Matrixx;
 import mikera.matrixx.impl.StridedMatrix;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Vector;
+import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.ErrorMessages;
 
 /**
@@ -30,15 +34,117 @@ public abstract class AStridedVector extends AVector implements IStridedArray {
 	}
 	
 	@Override public double dotProduct(double[] data, int offset) {
+		return DoubleArrays.dotProduct(getArray(), getArrayOffset(), getStride(), data, offset, 1, length());
+	}
+	
+	@Override
+	public double dotProduct(AVector v) {
+		if (v instanceof AStridedVector) return dotProduct((AStridedVector)v);
+		return super.dotProduct(v);
+	}
+	
+	public double dotProduct(AStridedVector v) {
+		int length=length();
+		if (length!=v.length()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		return DoubleArrays.dotProduct(getArray(), getArrayOffset(), getStride(), v.getArray(), v.getArrayOffset(), v.getStride(), length);
+	}
+	
+	@Override
+	public void add(AVector v) {
+		if (v instanceof AStridedVector) {
+			add((AStridedVector)v);
+			return;
+		}
+		super.add(v);
+	}
+	
+	public void add(AStridedVector v) {
+		int length=length();
+		if (length!=v.length()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		DoubleArrays.add(v.getArray(), v.getArrayOffset(), v.getStride(), getArray(), getArrayOffset(), getStride(), length);
+	}
+	
+	@Override
+	public void addMultiple(AVector v, double factor) {
+		if (v instanceof AStridedVector) {
+			addMultiple((AStridedVector)v,factor);
+			return;
+		}
+		super.addMultiple(v,factor);
+	}
+	
+	public void addMultiple(AStridedVector v, double factor) {
+		int length=length();
+		if (length!=v.length()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		DoubleArrays.addMultiple(getArray(), getArrayOffset(), getStride(), v.getArray(), v.getArrayOffset(), v.getStride(), length, factor);
+	}
+	
+	@Override
+	public void set(AVector v) {
+		if (v instanceof AStridedVector) {
+			set((AStridedVector)v);
+			return;
+		}
+		super.set(v);
+	}
+	
+	public void set(AStridedVector v) {
+		int length=length();
+		if (length!=v.length()) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		DoubleArrays.copy(v.getArray(), v.getArrayOffset(), v.getStride(), getArray(), getArrayOffset(), getStride(), length);
+	}
+	
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		if((offset<0)||(offset+length>length())) throw new IndexOutOfBoundsException();
+		int stride=getStride();
+		DoubleArrays.add(getArray(), getArrayOffset()+offset*stride, stride, array, arrayOffset, 1, length);
+	}
+	
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if((offset<0)||(offset+length>length())) throw new IndexOutOfBoundsException();
+		int stride=getStride();
+		DoubleArrays.addMultiple(array, arrayOffset, 1, getArray(), getArrayOffset()+offset*stride, stride, length, factor);
+	}
+	
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		int stride=getStride();
+		DoubleArrays.copy(getArray(), getArrayOffset()+offset*stride, stride, dest, destOffset, 1, length);
+	}
+	
+	@Override
+	public void copyTo(AVector dest, int destOffset) {
+		if (dest instanceof AArrayVector) {
+			copyTo((AArrayVector)dest,destOffset);
+			return;
+		} 
+		if (dest instanceof AStridedVector) {
+			int length=length();
+			if ((destOffset<0)||(destOffset+length>dest.length())) throw new IndexOutOfBoundsException();
+			AStridedVector sv=(AStridedVector)dest;
+			int destStride=sv.getStride();
+			DoubleArrays.copy(getArray(), getArrayOffset(), getStride(), sv.getArray(), sv.getArrayOffset()+destOffset*destStride, destStride, length);
+			return;
+		}
+		super.copyTo(dest,destOffset);
+	}
+	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
 		double[] array=getArray();
-		int thisOffset=getArrayOffset();
+		int offset=getArrayOffset();
 		int stride=getStride();
 		int length=length();
-		double result=0.0;
 		for (int i=0; i<length; i++) {
-			result+=array[i*stride+thisOffset]*data[i+offset];
+			action.accept(array[offset+i*stride]);
 		}
-		return result;
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return new StridedSpliterator(getArray(),getArrayOffset(),length(),getStride());
 	}
 	
 	@Override
@@ -86,9 +192,7 @@ public abstract class AStridedVector extends AVector implements IStridedArray {
 	public void add(Vector v) {
 		int length=length();
 		if(length!=v.length()) throw new IllegalArgumentException("Mismatched vector sizes");
-		for (int i = 0; i < length; i++) {
-			addAt(i,v.data[i]);
-		}
+		DoubleArrays.add(v.data, 0, 1, getArray(), getArrayOffset(), getStride(), length);
 	}
 	
 	@Override
@@ -0,0 +1,163 @@
+package mikera.vectorz.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Vector that supports concurrent updates from multiple threads.
+ *
+ * Elements are held as raw double bits in an AtomicLongArray. addAt is a lock-free
+ * compare-and-swap loop, so concurrent adds to the same element are never lost. Since the
+ * AVector add, addMultiple and addProduct operations are implemented in terms of addAt,
+ * they are also safe to call concurrently, although each element is updated independently
+ * rather than the whole vector at once.
+ *
+ * Other mutating operations (e.g. multiply or applyOp) are not atomic. For heavily contended
+ * elements, consider StripedAccumulatorVector instead.
+ *
+ * @author Mike
+ *
+ */
+public final class AtomicVector extends AVector {
+	private static final long serialVersionUID = 3712830927402157361L;
+
+	private final AtomicLongArray data;
+
+	private AtomicVector(AtomicLongArray data) {
+		this.data=data;
+	}
+
+	/**
+	 * Creates a new zero-filled AtomicVector
+	 */
+	public static AtomicVector create(int length) {
+		if (length<0) throw new IllegalArgumentException(ErrorMessages.illegalSize(length));
+		return new AtomicVector(new AtomicLongArray(length));
+	}
+
+	/**
+	 * Creates a new AtomicVector containing a copy of the given vector
+	 */
+	public static AtomicVector create(AVector v) {
+		AtomicVector a=create(v.length());
+		a.set(v);
+		return a;
+	}
+
+	@Override
+	public int length() {
+		return data.length();
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=data.length())) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return Double.longBitsToDouble(data.get(i));
+	}
+
+	@Override
+	public void set(int i, double value) {
+		if ((i<0)||(i>=data.length())) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		data.set(i, Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return Double.longBitsToDouble(data.get(i));
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		data.set(i, Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public void addAt(int i, double v) {
+		while (true) {
+			long prev=data.get(i);
+			long next=Double.doubleToRawLongBits(Double.longBitsToDouble(prev)+v);
+			if (data.compareAndSet(i, prev, next)) return;
+		}
+	}
+
+	/**
+	 * Atomically adds a value to an element, returning the previous value
+	 */
+	public double getAndAdd(int i, double v) {
+		while (true) {
+			long prev=data.get(i);
+			long next=Double.doubleToRawLongBits(Double.longBitsToDouble(prev)+v);
+			if (data.compareAndSet(i, prev, next)) return Double.longBitsToDouble(prev);
+		}
+	}
+
+	/**
+	 * Atomically sets an element to the given value if it currently has exactly the expected
+	 * value (compared bitwise)
+	 */
+	public boolean compareAndSet(int i, double expected, double value) {
+		return data.compareAndSet(i, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public void addMultiple(AVector src, double factor) {
+		int len=length();
+		if (src.length()!=len) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, src));
+		if (src instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)src;
+			double[] a=av.getArray();
+			int offset=av.getArrayOffset();
+			for (int i=0; i<len; i++) {
+				double d=a[offset+i];
+				if (d!=0.0) addAt(i,d*factor);
+			}
+		} else {
+			super.addMultiple(src,factor);
+		}
+	}
+
+	@Override
+	public void add(AVector src) {
+		addMultiple(src,1.0);
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=Double.longBitsToDouble(data.get(offset+i));
+		}
+	}
+
+	/**
+	 * Returns a copy of the current element values. Each element is read atomically, but
+	 * concurrent updates to different elements may or may not be included.
+	 */
+	public Vector snapshot() {
+		Vector v=Vector.createLength(length());
+		copyTo(0,v.getArray(),0,length());
+		return v;
+	}
+
+	@Override
+	public AtomicVector exactClone() {
+		return create(this);
+	}
+}
@@ -0,0 +1,309 @@
+package mikera.vectorz.impl;
+
+import java.io.ObjectStreamException;
+import java.nio.DoubleBuffer;
+import java.util.function.DoubleConsumer;
+
+import mikera.arrayz.impl.IBufferArray;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Op;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.DoubleBuffers;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Vector backed by a range of a DoubleBuffer.
+ *
+ * Typically used with direct buffers, so that large vectors can be held off the Java heap
+ * and shared with native code without copying.
+ *
+ * @author Mike
+ *
+ */
+public final class BufferVector extends AVector implements IBufferArray {
+	private static final long serialVersionUID = -2364786183585546453L;
+
+	private transient DoubleBuffer buffer; // null once closed
+	private final int offset;
+	private final int length;
+
+	private BufferVector(DoubleBuffer buffer, int offset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>buffer.capacity())) throw new IndexOutOfBoundsException("Vector range out of buffer bounds: offset="+offset+", length="+length);
+		this.buffer=buffer;
+		this.offset=offset;
+		this.length=length;
+	}
+
+	/**
+	 * Creates a new zero-filled BufferVector backed by a direct buffer
+	 */
+	public static BufferVector create(int length) {
+		return new BufferVector(DoubleBuffers.allocateDirect(length),0,length);
+	}
+
+	/**
+	 * Creates a new BufferVector backed by a direct buffer, containing a copy of the given vector
+	 */
+	public static BufferVector create(AVector v) {
+		BufferVector b=create(v.length());
+		b.set(v);
+		return b;
+	}
+
+	/**
+	 * Wraps the remaining elements of a DoubleBuffer (from its position to its limit) without copying
+	 */
+	public static BufferVector wrap(DoubleBuffer buffer) {
+		return new BufferVector(buffer,buffer.position(),buffer.remaining());
+	}
+
+	public static BufferVector wrap(DoubleBuffer buffer, int offset, int length) {
+		return new BufferVector(buffer,offset,length);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the backing buffer, throwing a VectorzException if this vector has been closed
+	 */
+	private DoubleBuffer buffer() {
+		DoubleBuffer b=buffer;
+		if (b==null) throw new VectorzException("BufferVector has been closed");
+		return b;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return buffer().get(offset+i);
+	}
+
+	@Override
+	public void set(int i, double value) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		buffer().put(offset+i,value);
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return buffer().get(offset+i);
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		buffer().put(offset+i,value);
+	}
+
+	@Override
+	public void addAt(int i, double value) {
+		int ix=offset+i;
+		DoubleBuffer b=buffer();
+		b.put(ix,b.get(ix)+value);
+	}
+
+	@Override
+	public boolean isView() {
+		return true;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return !buffer().isReadOnly();
+	}
+
+	@Override
+	public boolean isMutable() {
+		return !buffer().isReadOnly();
+	}
+
+	@Override
+	public AVector subVector(int start, int length) {
+		if ((start<0)||(length<0)||(start+length>this.length)) throw new IndexOutOfBoundsException("Invalid subvector: start="+start+", length="+length);
+		if (length==0) return Vector0.INSTANCE;
+		if ((start==0)&&(length==this.length)) return this;
+		return new BufferVector(buffer(),offset+start,length);
+	}
+
+	@Override
+	public DoubleBuffer asDoubleBuffer() {
+		return DoubleBuffers.slice(buffer(), offset, length);
+	}
+
+	@Override
+	public void toDoubleBuffer(DoubleBuffer dest) {
+		dest.put(asDoubleBuffer());
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		DoubleBuffers.get(buffer(), this.offset+offset, dest, destOffset, length);
+	}
+
+	@Override
+	public void copyTo(double[] dest, int destOffset) {
+		DoubleBuffers.get(buffer(), offset, dest, destOffset, length);
+	}
+
+	@Override
+	public void setRange(int offset, double[] data, int dataOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException("Invalid range: offset="+offset+", length="+length);
+		DoubleBuffers.put(buffer(), this.offset+offset, data, dataOffset, length);
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=this.length) throw new IllegalArgumentException("Incorrect length: "+length);
+		DoubleBuffers.put(buffer(), this.offset, values, offset, length);
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		copyTo(dest,offset);
+	}
+
+	@Override
+	public void set(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof BufferVector) {
+			BufferVector bv=(BufferVector)v;
+			DoubleBuffers.copy(bv.buffer(), bv.offset, buffer(), offset, length);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			DoubleBuffers.put(buffer(), offset, av.getArray(), av.getArrayOffset(), length);
+		} else {
+			super.set(v);
+		}
+	}
+
+	@Override
+	public double dotProduct(double[] data, int offset) {
+		return DoubleBuffers.dotProduct(buffer(), this.offset, data, offset, length);
+	}
+
+	@Override
+	public double dotProduct(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof BufferVector) {
+			BufferVector bv=(BufferVector)v;
+			return DoubleBuffers.dotProduct(buffer(), offset, bv.buffer(), bv.offset, length);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			return DoubleBuffers.dotProduct(buffer(), offset, av.getArray(), av.getArrayOffset(), length);
+		}
+		return super.dotProduct(v);
+	}
+
+	@Override
+	public void add(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof BufferVector) {
+			BufferVector bv=(BufferVector)v;
+			DoubleBuffers.add(bv.buffer(), bv.offset, buffer(), offset, length);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			DoubleBuffers.add(av.getArray(), av.getArrayOffset(), buffer(), offset, length);
+		} else {
+			super.add(v);
+		}
+	}
+
+	@Override
+	public void addMultiple(AVector v, double factor) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof BufferVector) {
+			BufferVector bv=(BufferVector)v;
+			DoubleBuffers.addMultiple(buffer(), offset, bv.buffer(), bv.offset, length, factor);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			DoubleBuffers.addMultiple(buffer(), offset, av.getArray(), av.getArrayOffset(), length, factor);
+		} else {
+			super.addMultiple(v,factor);
+		}
+	}
+
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		DoubleBuffers.add(buffer(), this.offset+offset, array, arrayOffset, length);
+	}
+
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		DoubleBuffers.addMultiple(array, arrayOffset, buffer(), this.offset+offset, length, factor);
+	}
+
+	@Override
+	public void add(double constant) {
+		DoubleBuffers.add(buffer(), offset, length, constant);
+	}
+
+	@Override
+	public void multiply(double factor) {
+		DoubleBuffers.multiply(buffer(), offset, length, factor);
+	}
+
+	@Override
+	public void fill(double value) {
+		DoubleBuffers.fill(buffer(), offset, length, value);
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		DoubleBuffers.applyOp(buffer(), offset, length, op);
+	}
+
+	@Override
+	public double elementSum() {
+		return DoubleBuffers.elementSum(buffer(), offset, length);
+	}
+
+	@Override
+	public double magnitudeSquared() {
+		return DoubleBuffers.elementSquaredSum(buffer(), offset, length);
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return DoubleBuffers.nonZeroCount(buffer(), offset, length);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		DoubleBuffers.forEach(buffer(), offset, length, action);
+	}
+
+	@Override
+	public void close() {
+		buffer=null;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return buffer==null;
+	}
+
+	/**
+	 * Serialises as a heap copy, since the backing buffer cannot be serialised
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return Vector.create(this);
+	}
+
+	@Override
+	public BufferVector exactClone() {
+		BufferVector b=create(length);
+		DoubleBuffers.copy(buffer(), offset, b.buffer(), 0, length);
+		return b;
+	}
+
+	@Override
+	public void validate() {
+		if ((offset<0)||(offset+length>buffer().capacity())) throw new VectorzException("Range out of buffer bounds");
+		super.validate();
+	}
+}
@@ -0,0 +1,260 @@
+package mikera.vectorz.impl;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+import mikera.arrayz.impl.PagedStorage;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Op;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Vector stored as a range of paged storage, i.e. in a sequence of fixed-size double[] pages.
+ *
+ * Avoids a single large contiguous allocation, and may view any range of a PagedStorage
+ * including ranges beyond index 2^31, such as the rows of a large ChunkedMatrix. Views
+ * can cross page boundaries.
+ *
+ * @author Mike
+ *
+ */
+public final class ChunkedVector extends AVector {
+	private static final long serialVersionUID = 2817385460134418765L;
+
+	private final PagedStorage storage;
+	private final long offset;
+	private final int length;
+
+	private ChunkedVector(PagedStorage storage, long offset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>storage.length())) throw new IndexOutOfBoundsException("Vector range out of storage bounds: offset="+offset+", length="+length);
+		this.storage=storage;
+		this.offset=offset;
+		this.length=length;
+	}
+
+	/**
+	 * Creates a new zero-filled ChunkedVector with the default page size
+	 */
+	public static ChunkedVector create(int length) {
+		return new ChunkedVector(PagedStorage.create(length),0,length);
+	}
+
+	/**
+	 * Creates a new ChunkedVector containing a copy of the given vector
+	 */
+	public static ChunkedVector create(AVector v) {
+		ChunkedVector c=create(v.length());
+		c.set(v);
+		return c;
+	}
+
+	public static ChunkedVector wrap(PagedStorage storage, long offset, int length) {
+		return new ChunkedVector(storage,offset,length);
+	}
+
+	public PagedStorage getStorage() {
+		return storage;
+	}
+
+	public long getStorageOffset() {
+		return offset;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return storage.get(offset+i);
+	}
+
+	@Override
+	public void set(int i, double value) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		storage.set(offset+i,value);
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return storage.get(offset+i);
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		storage.set(offset+i,value);
+	}
+
+	@Override
+	public void addAt(int i, double value) {
+		storage.addAt(offset+i,value);
+	}
+
+	@Override
+	public boolean isView() {
+		return (offset!=0)||(length!=storage.length());
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public AVector subVector(int start, int length) {
+		if ((start<0)||(length<0)||(start+length>this.length)) throw new IndexOutOfBoundsException("Invalid subvector: start="+start+", length="+length);
+		if (length==0) return Vector0.INSTANCE;
+		if ((start==0)&&(length==this.length)) return this;
+		return new ChunkedVector(storage,offset+start,length);
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		storage.copyTo(this.offset+offset, dest, destOffset, length);
+	}
+
+	@Override
+	public void copyTo(double[] dest, int destOffset) {
+		storage.copyTo(offset, dest, destOffset, length);
+	}
+
+	@Override
+	public void setRange(int offset, double[] data, int dataOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException("Invalid range: offset="+offset+", length="+length);
+		storage.copyFrom(data, dataOffset, this.offset+offset, length);
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=this.length) throw new IllegalArgumentException("Incorrect length: "+length);
+		storage.copyFrom(values, offset, this.offset, length);
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		copyTo(dest,offset);
+	}
+
+	@Override
+	public void set(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof ChunkedVector) {
+			ChunkedVector cv=(ChunkedVector)v;
+			storage.copyFrom(cv.storage, cv.offset, offset, length);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			storage.copyFrom(av.getArray(), av.getArrayOffset(), offset, length);
+		} else {
+			super.set(v);
+		}
+	}
+
+	@Override
+	public double dotProduct(double[] data, int offset) {
+		return storage.dotProduct(this.offset, data, offset, length);
+	}
+
+	@Override
+	public double dotProduct(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			return storage.dotProduct(offset, av.getArray(), av.getArrayOffset(), length);
+		}
+		return super.dotProduct(v);
+	}
+
+	@Override
+	public void add(AVector v) {
+		addMultiple(v,1.0);
+	}
+
+	@Override
+	public void addMultiple(AVector v, double factor) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			storage.addMultiple(offset, av.getArray(), av.getArrayOffset(), length, factor);
+		} else {
+			super.addMultiple(v,factor);
+		}
+	}
+
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		storage.addMultipleTo(this.offset+offset, array, arrayOffset, length, 1.0);
+	}
+
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		storage.addMultipleTo(this.offset+offset, array, arrayOffset, length, factor);
+	}
+
+	@Override
+	public void add(double constant) {
+		storage.add(offset, length, constant);
+	}
+
+	@Override
+	public void multiply(double factor) {
+		storage.multiply(offset, length, factor);
+	}
+
+	@Override
+	public void fill(double value) {
+		storage.fill(offset, length, value);
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		storage.applyOp(offset, length, op);
+	}
+
+	@Override
+	public double elementSum() {
+		return storage.elementSum(offset, length);
+	}
+
+	@Override
+	public double magnitudeSquared() {
+		return storage.elementSquaredSum(offset, length);
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return storage.nonZeroCount(offset, length);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		storage.forEach(offset, length, action);
+	}
+
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return storage.spliterator(offset, length);
+	}
+
+	@Override
+	public ChunkedVector exactClone() {
+		PagedStorage s=PagedStorage.create(length, storage.pageShift());
+		s.copyFrom(storage, offset, 0, length);
+		return new ChunkedVector(s,0,length);
+	}
+
+	@Override
+	public void validate() {
+		if ((offset<0)||(offset+length>storage.length())) throw new VectorzException("Range out of storage bounds");
+		super.validate();
+	}
+}
@@ -0,0 +1,115 @@
+package mikera.vectorz.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Immutable vector stored as one byte code per element into a dictionary of at most
+ * MAX_DICTIONARY_SIZE distinct values.
+ *
+ * Suited to vectors drawn from a small set of levels that change too often for run-length
+ * encoding, e.g. quantised sensor readings or categorical features.
+ *
+ * @author Mike
+ *
+ */
+public final class DictionaryVector extends ACompressedVector {
+	private static final long serialVersionUID = -1743850328457460279L;
+
+	public static final int MAX_DICTIONARY_SIZE=256;
+
+	private final double[] dictionary;
+	private final byte[] codes;
+
+	private DictionaryVector(double[] dictionary, byte[] codes) {
+		this.dictionary=dictionary;
+		this.codes=codes;
+	}
+
+	/**
+	 * Creates a dictionary encoded copy of the given vector
+	 * @throws IllegalArgumentException if the vector has more than MAX_DICTIONARY_SIZE distinct values
+	 */
+	public static DictionaryVector create(AVector v) {
+		DictionaryVector dv=tryCreate(v.toDoubleArray());
+		if (dv==null) throw new IllegalArgumentException("Too many distinct values for dictionary encoding");
+		return dv;
+	}
+
+	/**
+	 * Encodes the given values, returning null if there are more than MAX_DICTIONARY_SIZE
+	 * distinct values
+	 */
+	static DictionaryVector tryCreate(double[] data) {
+		int n=data.length;
+		HashMap<Long,Integer> index=new HashMap<Long,Integer>();
+		double[] dictionary=new double[MAX_DICTIONARY_SIZE];
+		byte[] codes=new byte[n];
+		for (int i=0; i<n; i++) {
+			Long key=Double.doubleToRawLongBits(data[i]);
+			Integer code=index.get(key);
+			if (code==null) {
+				if (index.size()==MAX_DICTIONARY_SIZE) return null;
+				code=index.size();
+				dictionary[code]=data[i];
+				index.put(key, code);
+			}
+			codes[i]=(byte)(int)code;
+		}
+		return new DictionaryVector(Arrays.copyOf(dictionary, index.size()),codes);
+	}
+
+	/**
+	 * Returns the number of distinct values in the dictionary
+	 */
+	public int dictionarySize() {
+		return dictionary.length;
+	}
+
+	@Override
+	public long compressedSize() {
+		return codes.length+dictionary.length*8L;
+	}
+
+	@Override
+	public int length() {
+		return codes.length;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=codes.length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return dictionary[codes[i]&0xFF];
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return dictionary[codes[i]&0xFF];
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>codes.length)) throw new IndexOutOfBoundsException("Invalid range: offset="+offset+", length="+length);
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=dictionary[codes[offset+i]&0xFF];
+		}
+	}
+
+	@Override
+	public DictionaryVector exactClone() {
+		return new DictionaryVector(dictionary.clone(),codes.clone());
+	}
+
+	@Override
+	public void validate() {
+		if (dictionary.length>MAX_DICTIONARY_SIZE) throw new VectorzException("Dictionary too large");
+		for (int i=0; i<codes.length; i++) {
+			if ((codes[i]&0xFF)>=dictionary.length) throw new VectorzException("Invalid code at "+i);
+		}
+		super.validate();
+	}
+}
@@ -0,0 +1,179 @@
+package mikera.vectorz.impl;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Mutable vector for a single writer thread, which publishes consistent immutable snapshots
+ * to any number of reader threads.
+ *
+ * The writer mutates a back buffer held as blocks of PersistentVector.LEAF_SIZE elements.
+ * publish() makes the current contents visible as a PersistentVector that shares the blocks,
+ * after which the writer copies each block on its first modification. Only blocks changed
+ * since the last publish are ever copied, and published blocks are never written again.
+ *
+ * Readers call getSnapshot(), which is a single volatile read: it is lock-free and wait-free,
+ * and the returned vector never changes, so readers can never observe a torn update.
+ *
+ * All methods other than getSnapshot() must only be called from the writer thread.
+ *
+ * @author Mike
+ *
+ */
+public final class DoubleBufferedVector extends AVector {
+	private static final long serialVersionUID = -1937725862913420476L;
+
+	private static final int BLOCK_SIZE=PersistentVector.LEAF_SIZE;
+	private static final int BLOCK_SHIFT=Integer.numberOfTrailingZeros(BLOCK_SIZE);
+	private static final int BLOCK_MASK=BLOCK_SIZE-1;
+
+	private final int length;
+	private final double[][] blocks;
+	private final boolean[] shared;
+	private volatile PersistentVector snapshot;
+
+	private DoubleBufferedVector(int length) {
+		this.length=length;
+		int n=(length+BLOCK_MASK)>>>BLOCK_SHIFT;
+		blocks=new double[n][];
+		shared=new boolean[n];
+		for (int k=0; k<n; k++) {
+			blocks[k]=new double[Math.min(BLOCK_SIZE, length-(k<<BLOCK_SHIFT))];
+		}
+		snapshot=PersistentVector.wrapLeaves(length, blocks);
+		for (int k=0; k<n; k++) {
+			shared[k]=true;
+		}
+	}
+
+	/**
+	 * Creates a new zero-filled vector, with an initial zero snapshot published
+	 */
+	public static DoubleBufferedVector create(int length) {
+		if (length<0) throw new IllegalArgumentException(ErrorMessages.illegalSize(length));
+		return new DoubleBufferedVector(length);
+	}
+
+	/**
+	 * Creates a new vector containing a copy of the given vector, with an initial snapshot published
+	 */
+	public static DoubleBufferedVector create(AVector v) {
+		DoubleBufferedVector b=create(v.length());
+		b.set(v);
+		b.publish();
+		return b;
+	}
+
+	/**
+	 * Publishes the current contents of this vector as an immutable snapshot, returning the snapshot
+	 */
+	public PersistentVector publish() {
+		PersistentVector p=PersistentVector.wrapLeaves(length, blocks);
+		for (int k=0; k<shared.length; k++) {
+			shared[k]=true;
+		}
+		snapshot=p;
+		return p;
+	}
+
+	/**
+	 * Returns the most recently published snapshot. May be called safely from any thread.
+	 */
+	public PersistentVector getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Returns the number of blocks modified since the last publish
+	 */
+	public int dirtyBlockCount() {
+		int result=0;
+		for (int k=0; k<shared.length; k++) {
+			if (!shared[k]) result++;
+		}
+		return result;
+	}
+
+	private double[] writableBlock(int k) {
+		double[] b=blocks[k];
+		if (shared[k]) {
+			b=b.clone();
+			blocks[k]=b;
+			shared[k]=false;
+		}
+		return b;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return blocks[i>>>BLOCK_SHIFT][i&BLOCK_MASK];
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return blocks[i>>>BLOCK_SHIFT][i&BLOCK_MASK];
+	}
+
+	@Override
+	public void set(int i, double value) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		writableBlock(i>>>BLOCK_SHIFT)[i&BLOCK_MASK]=value;
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		writableBlock(i>>>BLOCK_SHIFT)[i&BLOCK_MASK]=value;
+	}
+
+	@Override
+	public void addAt(int i, double v) {
+		writableBlock(i>>>BLOCK_SHIFT)[i&BLOCK_MASK]+=v;
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidRange(this, offset, length));
+		// checked up front, as blocks are copied one at a time
+		if ((destOffset<0)||(destOffset+length>dest.length)) throw new IndexOutOfBoundsException("Invalid destination range: offset="+destOffset+", length="+length);
+		int i=offset;
+		int end=offset+length;
+		while (i<end) {
+			double[] b=blocks[i>>>BLOCK_SHIFT];
+			int bi=i&BLOCK_MASK;
+			int n=Math.min(b.length-bi, end-i);
+			System.arraycopy(b, bi, dest, destOffset+(i-offset), n);
+			i+=n;
+		}
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		copyTo(0,dest,offset,length);
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public DoubleBufferedVector exactClone() {
+		return create(this);
+	}
+}
@@ -0,0 +1,286 @@
+package mikera.vectorz.impl;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.Op;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.FloatArrays;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Vector stored as a range of a float[] array.
+ *
+ * Uses half the memory of a double vector, which roughly doubles throughput for
+ * bandwidth-bound operations. Values are rounded to float precision when stored;
+ * sums and dot products are accumulated in double precision.
+ *
+ * @author Mike
+ *
+ */
+public final class FloatVector extends AVector {
+	private static final long serialVersionUID = 6183052417705391526L;
+
+	private final float[] data;
+	private final int offset;
+	private final int length;
+
+	private FloatVector(float[] data, int offset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>data.length)) throw new IndexOutOfBoundsException("Vector range out of array bounds: offset="+offset+", length="+length);
+		this.data=data;
+		this.offset=offset;
+		this.length=length;
+	}
+
+	/**
+	 * Creates a new zero-filled FloatVector
+	 */
+	public static FloatVector create(int length) {
+		return new FloatVector(new float[length],0,length);
+	}
+
+	/**
+	 * Creates a new FloatVector containing a copy of the given vector, rounded to float precision
+	 */
+	public static FloatVector create(AVector v) {
+		FloatVector f=create(v.length());
+		f.set(v);
+		return f;
+	}
+
+	public static FloatVector of(float... values) {
+		return wrap(values.clone());
+	}
+
+	public static FloatVector wrap(float[] data) {
+		return new FloatVector(data,0,data.length);
+	}
+
+	public static FloatVector wrap(float[] data, int offset, int length) {
+		return new FloatVector(data,offset,length);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	public float[] getFloatArray() {
+		return data;
+	}
+
+	public int getFloatArrayOffset() {
+		return offset;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return data[offset+i];
+	}
+
+	@Override
+	public void set(int i, double value) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		data[offset+i]=(float)value;
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return data[offset+i];
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		data[offset+i]=(float)value;
+	}
+
+	@Override
+	public void addAt(int i, double value) {
+		int ix=offset+i;
+		data[ix]=(float)(data[ix]+value);
+	}
+
+	@Override
+	public boolean isView() {
+		return (offset!=0)||(length!=data.length);
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public AVector subVector(int start, int length) {
+		if ((start<0)||(length<0)||(start+length>this.length)) throw new IndexOutOfBoundsException("Invalid subvector: start="+start+", length="+length);
+		if (length==0) return Vector0.INSTANCE;
+		if ((start==0)&&(length==this.length)) return this;
+		return new FloatVector(data,offset+start,length);
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		FloatArrays.copy(data, this.offset+offset, dest, destOffset, length);
+	}
+
+	@Override
+	public void copyTo(double[] dest, int destOffset) {
+		FloatArrays.copy(data, offset, dest, destOffset, length);
+	}
+
+	@Override
+	public void setRange(int offset, double[] src, int srcOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException("Invalid range: offset="+offset+", length="+length);
+		FloatArrays.copy(src, srcOffset, data, this.offset+offset, length);
+	}
+
+	@Override
+	public void setElements(double[] values, int offset, int length) {
+		if (length!=this.length) throw new IllegalArgumentException("Incorrect length: "+length);
+		FloatArrays.copy(values, offset, data, this.offset, length);
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		copyTo(dest,offset);
+	}
+
+	@Override
+	public void set(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof FloatVector) {
+			FloatVector fv=(FloatVector)v;
+			System.arraycopy(fv.data, fv.offset, data, offset, length);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			FloatArrays.copy(av.getArray(), av.getArrayOffset(), data, offset, length);
+		} else {
+			super.set(v);
+		}
+	}
+
+	@Override
+	public double dotProduct(double[] data, int offset) {
+		return FloatArrays.dotProduct(this.data, this.offset, data, offset, length);
+	}
+
+	@Override
+	public double dotProduct(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof FloatVector) {
+			FloatVector fv=(FloatVector)v;
+			return FloatArrays.dotProduct(data, offset, fv.data, fv.offset, length);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			return FloatArrays.dotProduct(data, offset, av.getArray(), av.getArrayOffset(), length);
+		}
+		return super.dotProduct(v);
+	}
+
+	@Override
+	public void add(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof FloatVector) {
+			FloatVector fv=(FloatVector)v;
+			FloatArrays.add(fv.data, fv.offset, data, offset, length);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			FloatArrays.add(av.getArray(), av.getArrayOffset(), data, offset, length);
+		} else {
+			super.add(v);
+		}
+	}
+
+	@Override
+	public void addMultiple(AVector v, double factor) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof FloatVector) {
+			FloatVector fv=(FloatVector)v;
+			FloatArrays.addMultiple(data, offset, fv.data, fv.offset, length, factor);
+		} else if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			FloatArrays.addMultiple(data, offset, av.getArray(), av.getArrayOffset(), length, factor);
+		} else {
+			super.addMultiple(v,factor);
+		}
+	}
+
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		FloatArrays.add(data, this.offset+offset, array, arrayOffset, length);
+	}
+
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		FloatArrays.addMultiple(array, arrayOffset, data, this.offset+offset, length, factor);
+	}
+
+	@Override
+	public void add(double constant) {
+		FloatArrays.add(data, offset, length, constant);
+	}
+
+	@Override
+	public void multiply(double factor) {
+		FloatArrays.multiply(data, offset, length, factor);
+	}
+
+	@Override
+	public void fill(double value) {
+		Arrays.fill(data, offset, offset+length, (float)value);
+	}
+
+	@Override
+	public void applyOp(Op op) {
+		FloatArrays.applyOp(data, offset, length, op);
+	}
+
+	@Override
+	public double elementSum() {
+		return FloatArrays.elementSum(data, offset, length);
+	}
+
+	@Override
+	public double magnitudeSquared() {
+		return FloatArrays.elementSquaredSum(data, offset, length);
+	}
+
+	@Override
+	public long nonZeroCount() {
+		return FloatArrays.nonZeroCount(data, offset, length);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		FloatArrays.forEach(data, offset, length, action);
+	}
+
+	/**
+	 * Returns a copy of this vector's elements as a new float array
+	 */
+	public float[] toFloatArray() {
+		float[] result=new float[length];
+		System.arraycopy(data, offset, result, 0, length);
+		return result;
+	}
+
+	@Override
+	public FloatVector exactClone() {
+		return wrap(toFloatArray());
+	}
+
+	@Override
+	public void validate() {
+		if ((offset<0)||(offset+length>data.length)) throw new VectorzException("Range out of array bounds");
+		super.validate();
+	}
+}
@@ -3,6 +3,8 @@ package mikera.vectorz.impl;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.vectorz.AVector;
 import mikera.vectorz.Op;
@@ -159,11 +161,55 @@ public final class JoinedArrayVector extends AVector {
 	
 	@Override
 	public double dotProduct (AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
 		if (v instanceof AArrayVector) {
 			AArrayVector av=(AArrayVector)v;
 			return dotProduct(av);
 		}
-		return super.dotProduct(v);
+		if (v instanceof AStridedVector) {
+			return dotProduct((AStridedVector)v);
+		}
+		if (v instanceof JoinedArrayVector) {
+			return dotProduct((JoinedArrayVector)v);
+		}
+		double result=0.0;
+		for (int j=0; j<numArrays; j++) {
+			int sl=subLength(j);
+			if (sl==0) continue;
+			result+=v.subVector(pos[j], sl).dotProduct(data[j], offsets[j]);
+		}
+		return result;
+	}
+	
+	public double dotProduct (AStridedVector v) {
+		double result=0.0;
+		double[] arr=v.getArray();
+		int ao=v.getArrayOffset();
+		int stride=v.getStride();
+		for (int j=0; j<numArrays; j++) {
+			result+=DoubleArrays.dotProduct(data[j], offsets[j], 1, arr, ao+pos[j]*stride, stride, subLength(j));
+		}
+		return result;
+	}
+	
+	/**
+	 * Computes the dot product with another JoinedArrayVector, walking the segment 
+	 * boundaries of both vectors together
+	 */
+	public double dotProduct (JoinedArrayVector v) {
+		if (v.length!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		double result=0.0;
+		int i=0;
+		int j=0;
+		int p=0;
+		while (p<length) {
+			while (p>=pos[i+1]) i++;
+			while (p>=v.pos[j+1]) j++;
+			int end=Math.min(pos[i+1], v.pos[j+1]);
+			result+=DoubleArrays.dotProduct(data[i], offsets[i]+(p-pos[i]), v.data[j], v.offsets[j]+(p-v.pos[j]), end-p);
+			p=end;
+		}
+		return result;
 	}
 	
 	public double dotProduct (AArrayVector v) {
@@ -197,17 +243,25 @@ public final class JoinedArrayVector extends AVector {
 	
 	@Override
 	public void add(int offset, AVector a, int aOffset, int length) {
-		int alen=length;
-		for (int j=0; j<numArrays; j++) {
-			if (offset>=pos[j+1]) continue; // skip until adding at right place
-			int segmentOffset=Math.max(0,offset-pos[j]);
-			int len=Math.min(subLength(j)-segmentOffset, offset+alen-pos[j]);
+		if (length==0) return;
+		int end=offset+length;
+		for (int j=findArrayNum(offset); (j<numArrays)&&(pos[j]<end); j++) {
+			int start=Math.max(offset, pos[j]);
+			int len=Math.min(end, pos[j+1])-start;
 			if (len>0) {
-				a.addToArray(aOffset+pos[j]+segmentOffset-offset, data[j], offsets[j]+segmentOffset, len);
+				a.addToArray(aOffset+(start-offset), data[j], offsets[j]+(start-pos[j]), len);
 			}
 		}
 	}
 	
+	@Override
+	public void add(AVector src, int srcOffset) {
+		if ((srcOffset<0)||(srcOffset+length>src.length())) throw new IndexOutOfBoundsException();
+		for (int j=0; j<numArrays; j++) {
+			src.addToArray(srcOffset+pos[j], data[j], offsets[j], subLength(j));
+		}
+	}
+	
 	@Override
 	public void addProduct(AVector a, AVector b, double factor) {
 		addProduct(a,0,b,0,factor);
@@ -225,41 +279,38 @@ public final class JoinedArrayVector extends AVector {
 	
 	@Override
 	public void addMultiple(int offset, AVector a, int aOffset, int length, double factor) {
-		int alen=length;
-		for (int j=0; j<numArrays; j++) {
-			if (offset>=pos[j+1]) continue; // skip until adding at right place
-			int segmentOffset=Math.max(0,offset-pos[j]);
-			int len=Math.min(subLength(j)-segmentOffset, offset+alen-pos[j]);
+		if (length==0) return;
+		int end=offset+length;
+		for (int j=findArrayNum(offset); (j<numArrays)&&(pos[j]<end); j++) {
+			int start=Math.max(offset, pos[j]);
+			int len=Math.min(end, pos[j+1])-start;
 			if (len>0) {
-				a.addMultipleToArray(factor,aOffset+pos[j]+segmentOffset-offset, data[j], offsets[j]+segmentOffset, len);
+				a.addMultipleToArray(factor,aOffset+(start-offset), data[j], offsets[j]+(start-pos[j]), len);
 			}
 		}
 	}
 	
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		if (length==0) return;
+		int end=offset+length;
+		for (int j=findArrayNum(offset); (j<numArrays)&&(pos[j]<end); j++) {
+			int start=Math.max(offset, pos[j]);
+			int len=Math.min(end, pos[j+1])-start;
+			DoubleArrays.add(data[j], offsets[j]+(start-pos[j]), array, arrayOffset+(start-offset), len);
+		}
+	}
+	
 	@Override
 	public void addMultipleToArray(double factor,int offset, double[] array, int arrayOffset, int length) {
-		int startArray=findArrayNum(offset);
-		int endPos=offset+length; // end poition in this vector
-		for (int j=startArray, sp=pos[j]; sp<endPos; j++, sp=pos[j]) {
-			int ep=pos[j+1];
-			int clen=Math.min(ep-sp, endPos-sp);
-			double[] sa=data[j];
-			int soffset=offsets[j];
-			if (offset<=sp) {
-				// chunk start aligned with current array, so just use clen elements
-				for (int i=0; i<clen; i++) {
-					array[arrayOffset+i]+=factor*sa[soffset+i];
-				}
-			} else {
-				// first chunk not starting at sp, need to skip some elements
-				int skip=offset-sp;
-				assert(skip>0);
-				clen-=skip;
-				for (int i=0; i<clen; i++) {
-					array[arrayOffset+i]+=factor*sa[skip+soffset+i];
-				}
-			}
-			arrayOffset+=clen;
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		if (length==0) return;
+		int end=offset+length;
+		for (int j=findArrayNum(offset); (j<numArrays)&&(pos[j]<end); j++) {
+			int start=Math.max(offset, pos[j]);
+			int len=Math.min(end, pos[j+1])-start;
+			DoubleArrays.addMultiple(array, arrayOffset+(start-offset), data[j], offsets[j]+(start-pos[j]), len, factor);
 		}
 	}
 	
@@ -277,6 +328,75 @@ public final class JoinedArrayVector extends AVector {
 		}
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		for (int j=0; j<numArrays; j++) {
+			DoubleArrays.forEach(data[j], offsets[j], subLength(j), action);
+		}
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return new JoinedArraySpliterator(0,length);
+	}
+	
+	/**
+	 * Spliterator that traverses the joined arrays segment by segment
+	 */
+	private final class JoinedArraySpliterator implements Spliterator.OfDouble {
+		private final int end;
+		private int p;
+		private int j;
+		
+		private JoinedArraySpliterator(int start, int end) {
+			this.p=start;
+			this.end=end;
+			this.j=(start<length)?findArrayNum(start):numArrays;
+		}
+		
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			if (p>=end) return false;
+			while (p>=pos[j+1]) j++;
+			action.accept(data[j][offsets[j]+(p-pos[j])]);
+			p++;
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			while (p<end) {
+				int segEnd=Math.min(pos[j+1], end);
+				if (segEnd>p) {
+					DoubleArrays.forEach(data[j], offsets[j]+(p-pos[j]), segEnd-p, action);
+					p=segEnd;
+				}
+				j++;
+			}
+		}
+
+		@Override
+		public Spliterator.OfDouble trySplit() {
+			int n=end-p;
+			if (n<2) return null;
+			int mid=p+(n>>>1);
+			JoinedArraySpliterator prefix=new JoinedArraySpliterator(p,mid);
+			p=mid;
+			j=findArrayNum(mid);
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end-p;
+		}
+
+		@Override
+		public int characteristics() {
+			return VectorSpliterator.CHARACTERISTICS;
+		}
+	}
+	
 	@Override
 	public void copyTo(double[] destArray, int offset) {
 		for (int j=0; j<numArrays; j++) {
@@ -284,6 +404,42 @@ public final class JoinedArrayVector extends AVector {
 		}
 	}
 	
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		if (length==0) return;
+		int end=offset+length;
+		for (int j=findArrayNum(offset); (j<numArrays)&&(pos[j]<end); j++) {
+			int start=Math.max(offset, pos[j]);
+			int len=Math.min(end, pos[j+1])-start;
+			System.arraycopy(data[j], offsets[j]+(start-pos[j]), dest, destOffset+(start-offset), len);
+		}
+	}
+	
+	@Override
+	public void copyTo(int offset, AVector dest, int destOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		if (length==0) return;
+		int end=offset+length;
+		for (int j=findArrayNum(offset); (j<numArrays)&&(pos[j]<end); j++) {
+			int start=Math.max(offset, pos[j]);
+			int len=Math.min(end, pos[j+1])-start;
+			dest.setRange(destOffset+(start-offset), data[j], offsets[j]+(start-pos[j]), len);
+		}
+	}
+	
+	@Override
+	public void setRange(int offset, double[] src, int srcOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		if (length==0) return;
+		int end=offset+length;
+		for (int j=findArrayNum(offset); (j<numArrays)&&(pos[j]<end); j++) {
+			int start=Math.max(offset, pos[j]);
+			int len=Math.min(end, pos[j+1])-start;
+			System.arraycopy(src, srcOffset+(start-offset), data[j], offsets[j]+(start-pos[j]), len);
+		}
+	}
+	
 	@Override
 	public void multiplyTo(double[] target, int offset) {
 		for (int j=0; j<numArrays; j++) {
@@ -307,11 +463,39 @@ public final class JoinedArrayVector extends AVector {
 	
 	@Override 
 	public void set(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
 		for (int j=0; j<numArrays; j++) {
 			v.copyTo(pos[j],data[j], offsets[j],subLength(j));
 		}
 	}
 	
+	@Override 
+	public void set(AVector src, int srcOffset) {
+		if ((srcOffset<0)||(srcOffset+length>src.length())) throw new IndexOutOfBoundsException();
+		for (int j=0; j<numArrays; j++) {
+			src.copyTo(srcOffset+pos[j],data[j], offsets[j],subLength(j));
+		}
+	}
+	
+	@Override
+	public void multiply(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		for (int j=0; j<numArrays; j++) {
+			int sl=subLength(j);
+			if (sl==0) continue;
+			v.subVector(pos[j], sl).multiplyTo(data[j], offsets[j]);
+		}
+	}
+	
+	@Override
+	public double magnitudeSquared() {
+		double result=0.0;
+		for (int j=0; j<numArrays; j++) {
+			result+=DoubleArrays.elementSquaredSum(data[j], offsets[j], subLength(j));
+		}
+		return result;
+	}
+	
 	@Override
 	public void setElements(double[] values, int offset, int length) {
 		assert(length==this.length());
@@ -444,7 +628,7 @@ public final class JoinedArrayVector extends AVector {
 		int b=findArrayNum(start+length-1);
 		int n=b-a+1;
 		
-		if (n==1) return Vectorz.wrap(data[a], start-pos[a], length);
+		if (n==1) return Vectorz.wrap(data[a], offsets[a]+(start-pos[a]), length);
 		
 		double[][] newData=Arrays.copyOfRange(data, a, b+1);
 		int[] offs=new int[n];
@@ -467,21 +651,7 @@ public final class JoinedArrayVector extends AVector {
 	}
 	
 	public JoinedArrayVector join(AArrayVector v) {
-		int newLen=length+v.length();
-		
-		int[] newOffsets=new int[numArrays+1];
-		System.arraycopy(offsets, 0, newOffsets, 0, numArrays);
-		newOffsets[numArrays]=v.getArrayOffset();
-		
-		int[] newPos=new int[numArrays+2];
-		System.arraycopy(pos, 0, newPos, 0, numArrays+1);
-		newPos[numArrays+1]=newLen;
-
-		double[][] newData=new double[numArrays+1][];
-		System.arraycopy(data, 0, newData, 0, numArrays);
-		newData[numArrays]=v.getArray();
-		
-		return new JoinedArrayVector(newLen,newData,newOffsets,newPos);
+		return joinVectors(this,wrap(v));
 	}
 	
 	public JoinedArrayVector join(JoinedArrayVector v) {
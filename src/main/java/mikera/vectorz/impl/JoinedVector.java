@@ -1,9 +1,12 @@
 package mikera.vectorz.impl;
 
 import java.nio.DoubleBuffer;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.vectorz.AVector;
 import mikera.vectorz.Op;
+import mikera.vectorz.util.ErrorMessages;
 
 /**
  * A vector that represents the concatenation of two vectors.
@@ -34,6 +37,18 @@ public final class JoinedVector extends AVector {
 	 * @return
 	 */
 	public static AVector joinVectors(AVector left, AVector right) {
+		// flatten adjacent array-backed vectors into a single JoinedArrayVector
+		if (isArrayBacked(left)) {
+			if (isArrayBacked(right)) return left.join(right);
+			if ((right instanceof JoinedVector)&&isArrayBacked(((JoinedVector)right).left)) {
+				JoinedVector jr=(JoinedVector)right;
+				return joinVectors(left.join(jr.left),jr.right);
+			}
+		} else if (isArrayBacked(right)&&(left instanceof JoinedVector)&&isArrayBacked(((JoinedVector)left).right)) {
+			JoinedVector jl=(JoinedVector)left;
+			return joinVectors(jl.left,jl.right.join(right));
+		}
+		
 		// balancing in case of nested joined vectors
 		while ((left.length()>right.length()*2)&&(left instanceof JoinedVector)) {
 			JoinedVector bigLeft=((JoinedVector)left);
@@ -48,6 +63,10 @@ public final class JoinedVector extends AVector {
 		return new JoinedVector(left,right);
 	}
 	
+	private static boolean isArrayBacked(AVector v) {
+		return (v instanceof AArrayVector)||(v instanceof JoinedArrayVector);
+	}
+	
 	@Override
 	public int length() {
 		return length;
@@ -75,6 +94,68 @@ public final class JoinedVector extends AVector {
 		right.toDoubleBuffer(dest);
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		left.forEachElement(action);
+		right.forEachElement(action);
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return new JoinedSpliterator(left.elementSpliterator(),right.elementSpliterator());
+	}
+	
+	/**
+	 * Spliterator that splits on the join, delegating to the component spliterators
+	 */
+	private static final class JoinedSpliterator implements Spliterator.OfDouble {
+		private Spliterator.OfDouble first;
+		private final Spliterator.OfDouble second;
+		
+		private JoinedSpliterator(Spliterator.OfDouble first, Spliterator.OfDouble second) {
+			this.first=first;
+			this.second=second;
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			if ((first!=null)&&first.tryAdvance(action)) return true;
+			first=null;
+			return second.tryAdvance(action);
+		}
+		
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			if (first!=null) {
+				first.forEachRemaining(action);
+				first=null;
+			}
+			second.forEachRemaining(action);
+		}
+
+		@Override
+		public Spliterator.OfDouble trySplit() {
+			if (first!=null) {
+				Spliterator.OfDouble prefix=first;
+				first=null;
+				return prefix;
+			}
+			return second.trySplit();
+		}
+
+		@Override
+		public long estimateSize() {
+			long result=second.estimateSize();
+			if (first!=null) result+=first.estimateSize();
+			return result;
+		}
+
+		@Override
+		public int characteristics() {
+			return VectorSpliterator.CHARACTERISTICS;
+		}
+	}
+	
 	@Override
 	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
 		assert(arrayOffset+length<=array.length);
@@ -118,6 +199,18 @@ public final class JoinedVector extends AVector {
 		right.copyTo(data, offset+split);
 	}
 	
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if (offset>=split) {
+			right.copyTo(offset-split, dest, destOffset, length);
+		} else if ((offset+length)<=split) {
+			left.copyTo(offset, dest, destOffset, length);
+		} else {
+			left.copyTo(offset, dest, destOffset, (split-offset));
+			right.copyTo(0, dest, destOffset+(split-offset), length-(split-offset));		
+		}
+	}
+	
 	@Override
 	public void multiplyTo(double[] data, int offset) {
 		left.multiplyTo(data, offset);
@@ -194,11 +287,16 @@ public final class JoinedVector extends AVector {
 	
 	@Override
 	public double dotProduct (AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
 		if (v instanceof JoinedVector) {
 			JoinedVector jv=(JoinedVector)v;
 			return dotProduct(jv);
 		}
-		return super.dotProduct(v);
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			return dotProduct(av.getArray(),av.getArrayOffset());
+		}
+		return left.dotProduct(v.subVector(0, split))+right.dotProduct(v.subVector(split, length-split));
 	}
 	
 	@Override
@@ -211,7 +309,7 @@ public final class JoinedVector extends AVector {
 		if (jv.left.length()==left.length()) {
 			return left.dotProduct(jv.left)+right.dotProduct(jv.right);
 		}
-		return super.dotProduct(jv);
+		return left.dotProduct(jv.subVector(0, split))+right.dotProduct(jv.subVector(split, length-split));
 	}
 	
 	@Override
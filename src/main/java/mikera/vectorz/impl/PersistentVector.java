@@ -0,0 +1,331 @@
+package mikera.vectorz.impl;
+
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.DoubleArrays;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.Workspace;
+
+/**
+ * Persistent immutable vector with structural sharing.
+ *
+ * Elements are stored in double[] leaves of LEAF_SIZE elements, held in a radix trie with
+ * BRANCH_SIZE children per internal node. Updates such as withSet and withAdded return a new
+ * PersistentVector that copies only the leaves and nodes on the paths to the changed elements,
+ * sharing everything else with the original. Since no PersistentVector is ever modified, one can
+ * be published to any number of reader threads without copying and without torn reads.
+ *
+ * Bulk reads (copyTo, elementSum, dotProduct etc.) run the ordinary double[] kernels over each
+ * leaf in turn, so they run at close to dense array speed.
+ *
+ * @author Mike
+ *
+ */
+public final class PersistentVector extends ComputedVector {
+	private static final long serialVersionUID = 5120385736207749311L;
+
+	private static final int LEAF_BITS=9;
+	public static final int LEAF_SIZE=1<<LEAF_BITS;
+	private static final int LEAF_MASK=LEAF_SIZE-1;
+
+	private static final int BRANCH_BITS=5;
+	public static final int BRANCH_SIZE=1<<BRANCH_BITS;
+	private static final int BRANCH_MASK=BRANCH_SIZE-1;
+
+	private final int length;
+
+	/**
+	 * Shift for the child index at the root, less than LEAF_BITS if the root is a single leaf
+	 */
+	private final int shift;
+	private final Object root;
+
+	private PersistentVector(int length, int shift, Object root) {
+		this.length=length;
+		this.shift=shift;
+		this.root=root;
+	}
+
+	/**
+	 * Creates a PersistentVector containing a copy of the given vector
+	 */
+	public static PersistentVector create(AVector v) {
+		if (v instanceof PersistentVector) return (PersistentVector)v;
+		int len=v.length();
+		int leafCount=(len+LEAF_MASK)>>>LEAF_BITS;
+		if (leafCount<=1) {
+			return new PersistentVector(len,LEAF_BITS-BRANCH_BITS,v.toDoubleArray());
+		}
+
+		double[][] leaves=new double[leafCount][];
+		for (int k=0; k<leafCount; k++) {
+			int start=k<<LEAF_BITS;
+			double[] leaf=new double[Math.min(LEAF_SIZE, len-start)];
+			v.copyTo(start, leaf, 0, leaf.length);
+			leaves[k]=leaf;
+		}
+		return wrapLeaves(len,leaves);
+	}
+
+	/**
+	 * Creates a PersistentVector from an array of leaves. All leaves except the last must have
+	 * exactly LEAF_SIZE elements. The leaf arrays are shared and must never be modified afterwards,
+	 * but the array holding them is copied.
+	 */
+	static PersistentVector wrapLeaves(int length, double[][] leaves) {
+		if (leaves.length<=1) {
+			return new PersistentVector(length,LEAF_BITS-BRANCH_BITS,(leaves.length==0)?new double[0]:leaves[0]);
+		}
+		Object[] level=new Object[leaves.length];
+		System.arraycopy(leaves, 0, level, 0, leaves.length);
+		int shift=LEAF_BITS;
+		while (level.length>BRANCH_SIZE) {
+			int n=(level.length+BRANCH_MASK)>>>BRANCH_BITS;
+			Object[] parents=new Object[n];
+			for (int k=0; k<n; k++) {
+				int start=k<<BRANCH_BITS;
+				Object[] node=new Object[Math.min(BRANCH_SIZE, level.length-start)];
+				System.arraycopy(level, start, node, 0, node.length);
+				parents[k]=node;
+			}
+			level=parents;
+			shift+=BRANCH_BITS;
+		}
+		return new PersistentVector(length,shift,level);
+	}
+
+	/**
+	 * Creates a PersistentVector containing a copy of the given values
+	 */
+	public static PersistentVector create(double[] values) {
+		return create(Vector.wrap(values));
+	}
+
+	/**
+	 * Creates a zero-filled PersistentVector of the given length
+	 */
+	public static PersistentVector createZeros(int length) {
+		if (length<0) throw new IllegalArgumentException(ErrorMessages.illegalSize(length));
+		return create(ZeroVector.create(length));
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	private double[] leafFor(int i) {
+		Object node=root;
+		for (int s=shift; s>=LEAF_BITS; s-=BRANCH_BITS) {
+			node=((Object[])node)[(i>>>s)&BRANCH_MASK];
+		}
+		return (double[])node;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return leafFor(i)[i&LEAF_MASK];
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return leafFor(i)[i&LEAF_MASK];
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		throw new UnsupportedOperationException(ErrorMessages.immutable(this));
+	}
+
+	// ========================================================================
+	// Persistent updates
+
+	/**
+	 * Returns a new PersistentVector with the element at position i set to the given value.
+	 * Only the leaf containing i and its parent nodes are copied.
+	 */
+	public PersistentVector withSet(int i, double value) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return new PersistentVector(length,shift,setIn(root,shift,i,value));
+	}
+
+	private static Object setIn(Object node, int s, int i, double value) {
+		if (s<LEAF_BITS) {
+			double[] leaf=((double[])node).clone();
+			leaf[i&LEAF_MASK]=value;
+			return leaf;
+		}
+		Object[] n=((Object[])node).clone();
+		int ci=(i>>>s)&BRANCH_MASK;
+		n[ci]=setIn(n[ci],s-BRANCH_BITS,i,value);
+		return n;
+	}
+
+	/**
+	 * Returns a new PersistentVector with the vector v added to the range of elements starting at
+	 * the given offset. Only the leaves overlapping the range and their parent nodes are copied.
+	 */
+	public PersistentVector withAdded(int offset, AVector v) {
+		int n=v.length();
+		if ((offset<0)||(offset+n>length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidRange(this, offset, n));
+		if (n==0) return this;
+		return new PersistentVector(length,shift,addIn(root,shift,0,offset,offset+n,v));
+	}
+
+	/**
+	 * Returns a new PersistentVector equal to this vector plus v
+	 */
+	public PersistentVector withAdded(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		return withAdded(0,v);
+	}
+
+	/**
+	 * Adds v to the elements [start,end) that fall within the node covering elements from nodeStart
+	 */
+	private static Object addIn(Object node, int s, int nodeStart, int start, int end, AVector v) {
+		if (s<LEAF_BITS) {
+			double[] leaf=((double[])node).clone();
+			int from=Math.max(start, nodeStart);
+			int to=Math.min(end, nodeStart+leaf.length);
+			v.addToArray(from-start, leaf, from-nodeStart, to-from);
+			return leaf;
+		}
+		Object[] n=((Object[])node).clone();
+		int first=Math.max(0, (start-nodeStart)>>s);
+		int last=Math.min(n.length-1, (end-1-nodeStart)>>>s);
+		for (int ci=first; ci<=last; ci++) {
+			n[ci]=addIn(n[ci],s-BRANCH_BITS,nodeStart+(ci<<s),start,end,v);
+		}
+		return n;
+	}
+
+	/**
+	 * Returns true if this vector shares the leaf containing element i with another PersistentVector
+	 */
+	public boolean sharesLeaf(PersistentVector v, int i) {
+		if ((i<0)||(i>=length)||(i>=v.length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return leafFor(i)==v.leafFor(i);
+	}
+
+	// ========================================================================
+	// Bulk operations
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidRange(this, offset, length));
+		int i=offset;
+		int end=offset+length;
+		while (i<end) {
+			double[] leaf=leafFor(i);
+			int li=i&LEAF_MASK;
+			int n=Math.min(leaf.length-li, end-i);
+			System.arraycopy(leaf, li, dest, destOffset+(i-offset), n);
+			i+=n;
+		}
+	}
+
+	@Override
+	public void getElements(double[] dest, int offset) {
+		copyTo(0,dest,offset,length);
+	}
+
+	@Override
+	public double elementSum() {
+		double result=0.0;
+		for (int i=0; i<length; i+=LEAF_SIZE) {
+			double[] leaf=leafFor(i);
+			result+=DoubleArrays.elementSum(leaf, 0, leaf.length);
+		}
+		return result;
+	}
+
+	@Override
+	public double magnitudeSquared() {
+		double result=0.0;
+		for (int i=0; i<length; i+=LEAF_SIZE) {
+			double[] leaf=leafFor(i);
+			result+=DoubleArrays.elementSquaredSum(leaf, 0, leaf.length);
+		}
+		return result;
+	}
+
+	@Override
+	public long nonZeroCount() {
+		long result=0;
+		for (int i=0; i<length; i+=LEAF_SIZE) {
+			double[] leaf=leafFor(i);
+			result+=DoubleArrays.nonZeroCount(leaf, 0, leaf.length);
+		}
+		return result;
+	}
+
+	@Override
+	public double dotProduct(double[] data, int offset) {
+		double result=0.0;
+		for (int i=0; i<length; i+=LEAF_SIZE) {
+			double[] leaf=leafFor(i);
+			result+=DoubleArrays.dotProduct(leaf, 0, data, offset+i, leaf.length);
+		}
+		return result;
+	}
+
+	@Override
+	public double dotProduct(AVector v) {
+		if (v.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, v));
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			return dotProduct(av.getArray(),av.getArrayOffset());
+		}
+		Workspace ws=Workspace.acquire();
+		try {
+			double[] buf=ws.getArray(length);
+			v.copyTo(buf, 0);
+			return dotProduct(buf,0);
+		} finally {
+			ws.release();
+		}
+	}
+
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidRange(this, offset, length));
+		int i=offset;
+		int end=offset+length;
+		while (i<end) {
+			double[] leaf=leafFor(i);
+			int li=i&LEAF_MASK;
+			int n=Math.min(leaf.length-li, end-i);
+			DoubleArrays.addMultiple(array, arrayOffset+(i-offset), leaf, li, n, factor);
+			i+=n;
+		}
+	}
+
+	@Override
+	public void addToArray(int offset, double[] array, int arrayOffset, int length) {
+		addMultipleToArray(1.0,offset,array,arrayOffset,length);
+	}
+
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		for (int i=0; i<length; i+=LEAF_SIZE) {
+			double[] leaf=leafFor(i);
+			DoubleArrays.forEach(leaf, 0, leaf.length, action);
+		}
+	}
+
+	@Override
+	public Vector toVector() {
+		Vector v=Vector.createLength(length);
+		copyTo(0,v.getArray(),0,length);
+		return v;
+	}
+
+	@Override
+	public PersistentVector exactClone() {
+		return this;
+	}
+}
@@ -0,0 +1,182 @@
+package mikera.vectorz.impl;
+
+import java.util.Arrays;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.DoubleArrays;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Immutable vector stored as a sequence of runs of repeated values.
+ *
+ * Each run has a value and an exclusive end position, so element lookup is a binary search
+ * over the run ends. Scans work directly on whole runs: elementSum needs one multiply per run,
+ * and dotProduct sums each run's range of the other operand before scaling by the run value.
+ * Values are compared bitwise when encoding, so the vector reproduces its source exactly.
+ *
+ * @author Mike
+ *
+ */
+public final class RunLengthVector extends ACompressedVector {
+	private static final long serialVersionUID = 6084310581447356293L;
+
+	private final double[] values;
+	private final int[] ends;
+	private final int length;
+
+	private RunLengthVector(double[] values, int[] ends) {
+		this.values=values;
+		this.ends=ends;
+		this.length=(ends.length==0)?0:ends[ends.length-1];
+	}
+
+	/**
+	 * Creates a run-length encoded copy of the given vector
+	 */
+	public static RunLengthVector create(AVector v) {
+		return create(v.toDoubleArray());
+	}
+
+	/**
+	 * Creates a run-length encoded vector containing the given values
+	 */
+	public static RunLengthVector create(double[] data) {
+		int n=data.length;
+		int runs=0;
+		for (int i=0; i<n; i++) {
+			if ((i==0)||(Double.doubleToRawLongBits(data[i])!=Double.doubleToRawLongBits(data[i-1]))) runs++;
+		}
+		double[] values=new double[runs];
+		int[] ends=new int[runs];
+		int r=-1;
+		for (int i=0; i<n; i++) {
+			if ((i==0)||(Double.doubleToRawLongBits(data[i])!=Double.doubleToRawLongBits(data[i-1]))) {
+				values[++r]=data[i];
+			}
+			ends[r]=i+1;
+		}
+		return new RunLengthVector(values,ends);
+	}
+
+	/**
+	 * Returns the number of runs of repeated values
+	 */
+	public int runCount() {
+		return values.length;
+	}
+
+	@Override
+	public long compressedSize() {
+		return values.length*12L;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the index of the run containing element i
+	 */
+	private int run(int i) {
+		int r=Arrays.binarySearch(ends, i);
+		return (r>=0)?r+1:-r-1;
+	}
+
+	private int runStart(int r) {
+		return (r==0)?0:ends[r-1];
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return values[run(i)];
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return values[run(i)];
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException("Invalid range: offset="+offset+", length="+length);
+		if (length==0) return;
+		int end=offset+length;
+		int i=offset;
+		for (int r=run(offset); i<end; r++) {
+			int e=Math.min(ends[r], end);
+			Arrays.fill(dest, destOffset+(i-offset), destOffset+(e-offset), values[r]);
+			i=e;
+		}
+	}
+
+	@Override
+	public double elementSum() {
+		double result=0.0;
+		for (int r=0; r<values.length; r++) {
+			result+=values[r]*(ends[r]-runStart(r));
+		}
+		return result;
+	}
+
+	@Override
+	public double magnitudeSquared() {
+		double result=0.0;
+		for (int r=0; r<values.length; r++) {
+			double v=values[r];
+			result+=v*v*(ends[r]-runStart(r));
+		}
+		return result;
+	}
+
+	@Override
+	public long nonZeroCount() {
+		long result=0;
+		for (int r=0; r<values.length; r++) {
+			if (values[r]!=0.0) result+=ends[r]-runStart(r);
+		}
+		return result;
+	}
+
+	@Override
+	public double dotProduct(double[] data, int offset) {
+		double result=0.0;
+		for (int r=0; r<values.length; r++) {
+			double v=values[r];
+			// zero runs are not skipped, so NaN or infinite values in data give NaN as in the dense product
+			int start=runStart(r);
+			result+=v*DoubleArrays.elementSum(data, offset+start, ends[r]-start);
+		}
+		return result;
+	}
+
+	@Override
+	public void addMultipleToArray(double factor, int offset, double[] array, int arrayOffset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException();
+		if (length==0) return;
+		int end=offset+length;
+		int i=offset;
+		for (int r=run(offset); i<end; r++) {
+			int e=Math.min(ends[r], end);
+			double v=values[r]*factor;
+			if (v!=0.0) DoubleArrays.add(array, arrayOffset+(i-offset), e-i, v);
+			i=e;
+		}
+	}
+
+	@Override
+	public RunLengthVector exactClone() {
+		return new RunLengthVector(values.clone(),ends.clone());
+	}
+
+	@Override
+	public void validate() {
+		if (values.length!=ends.length) throw new VectorzException("Mismatched run arrays");
+		for (int r=0; r<ends.length; r++) {
+			if (ends[r]<=runStart(r)) throw new VectorzException("Empty or unordered run at "+r);
+		}
+		super.validate();
+	}
+}
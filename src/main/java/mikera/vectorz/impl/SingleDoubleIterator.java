@@ -1,9 +1,9 @@
 package mikera.vectorz.impl;
 
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
-public class SingleDoubleIterator implements Iterator<Double> {
+public class SingleDoubleIterator implements PrimitiveIterator.OfDouble {
 	boolean used=false;
 	final double value;
 	
@@ -17,11 +17,16 @@ public class SingleDoubleIterator implements Iterator<Double> {
 	}
 
 	@Override
-	public Double next() {
+	public double nextDouble() {
 		if (used) throw new NoSuchElementException("Iterator has already been traversed!");
 		used=true;
 		return value;
 	}
+	
+	@Override
+	public Double next() {
+		return nextDouble();
+	}
 
 	@Override
 	public void remove() {
@@ -1,6 +1,8 @@
 package mikera.vectorz.impl;
 
 import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.indexz.Index;
 import mikera.matrixx.AMatrix;
@@ -224,6 +226,86 @@ public class SparseIndexedVector extends ASparseVector {
 		return result;
 	}
 	
+	@Override
+	public void forEachElement(DoubleConsumer action) {
+		int[] ixs=index.data;
+		int p=0;
+		for (int j=0; j<data.length; j++) {
+			int ix=ixs[j];
+			for (; p<ix; p++) action.accept(0.0);
+			action.accept(data[j]);
+			p++;
+		}
+		for (; p<length; p++) action.accept(0.0);
+	}
+	
+	@Override
+	public Spliterator.OfDouble elementSpliterator() {
+		return new SparseSpliterator(0,length);
+	}
+	
+	/**
+	 * Spliterator that walks the sparse index in step with the element position, so
+	 * that no index lookups are needed per element
+	 */
+	private final class SparseSpliterator implements Spliterator.OfDouble {
+		private final int end;
+		private int p;
+		private int k; // position of next non-sparse element in index
+		
+		private SparseSpliterator(int start, int end) {
+			this.p=start;
+			this.end=end;
+			this.k=index.seekPosition(start);
+		}
+
+		@Override
+		public boolean tryAdvance(DoubleConsumer action) {
+			if (p>=end) return false;
+			if ((k<data.length)&&(index.data[k]==p)) {
+				action.accept(data[k++]);
+			} else {
+				action.accept(0.0);
+			}
+			p++;
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(DoubleConsumer action) {
+			int[] ixs=index.data;
+			int nnz=data.length;
+			for (; p<end; p++) {
+				if ((k<nnz)&&(ixs[k]==p)) {
+					action.accept(data[k++]);
+				} else {
+					action.accept(0.0);
+				}
+			}
+		}
+
+		@Override
+		public Spliterator.OfDouble trySplit() {
+			int n=end-p;
+			if (n<2) return null;
+			int mid=p+(n>>>1);
+			SparseSpliterator prefix=new SparseSpliterator(p,mid);
+			p=mid;
+			k=index.seekPosition(mid);
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return end-p;
+		}
+
+		@Override
+		public int characteristics() {
+			return VectorSpliterator.CHARACTERISTICS;
+		}
+	}
+	
 	@Override
 	public double dotProduct(AVector v) {
 		if (v instanceof AArrayVector) return dotProduct((AArrayVector)v);
@@ -0,0 +1,67 @@
+package mikera.vectorz.impl;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Spliterator over elements of a double[] array with a constant stride.
+ * 
+ * Accesses the array directly, avoiding virtual calls on the source vector.
+ * 
+ * @author Mike
+ */
+public final class StridedSpliterator implements Spliterator.OfDouble {
+	private final double[] data;
+	private final int offset;
+	private final int stride;
+	private final int end;
+	private int pos;
+	
+	public StridedSpliterator(double[] data, int offset, int length, int stride) {
+		this(data,offset,stride,0,length);
+	}
+	
+	private StridedSpliterator(double[] data, int offset, int stride, int start, int end) {
+		this.data=data;
+		this.offset=offset;
+		this.stride=stride;
+		this.pos=start;
+		this.end=end;
+	}
+
+	@Override
+	public boolean tryAdvance(DoubleConsumer action) {
+		if (pos>=end) return false;
+		action.accept(data[offset+(pos++)*stride]);
+		return true;
+	}
+	
+	@Override
+	public void forEachRemaining(DoubleConsumer action) {
+		int i=pos;
+		pos=end;
+		for (int di=offset+i*stride; i<end; i++, di+=stride) {
+			action.accept(data[di]);
+		}
+	}
+
+	@Override
+	public StridedSpliterator trySplit() {
+		int n=end-pos;
+		if (n<2) return null;
+		int mid=pos+(n>>>1);
+		StridedSpliterator prefix=new StridedSpliterator(data,offset,stride,pos,mid);
+		pos=mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end-pos;
+	}
+
+	@Override
+	public int characteristics() {
+		return VectorSpliterator.CHARACTERISTICS;
+	}
+}
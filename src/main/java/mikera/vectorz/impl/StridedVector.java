@@ -52,41 +52,6 @@ public final class StridedVector extends AStridedVector {
 		return true;
 	}
 	
-	@Override
-	public double dotProduct(AVector v) {
-		if(v.length()!=length) throw new IllegalArgumentException("Vector size mismatch");
-		if (v instanceof AArrayVector) {
-			AArrayVector av=(AArrayVector) v;
-			return dotProduct(av.getArray(),av.getArrayOffset());
-		}
-		double result=0.0;
-		for (int i=0; i<length; i++) {
-			result+=data[offset+i*stride]*v.unsafeGet(i);
-		}
-		return result;
-	}
-	
-	@Override
-	public void set(AVector v) {
-		if(v.length()!=length) throw new IllegalArgumentException("Vector size mismatch");
-		for (int i=0; i<length; i++) {
-			data[offset+i*stride]=v.unsafeGet(i);
-		}
-	}
-	
-	@Override
-	public void add(AVector v) {
-		if (v instanceof AStridedVector) {
-			add((AStridedVector)v);
-			return;
-		}
-		super.add(v);
-	}
-	
-	public void add(AStridedVector v) {
-		if (length!=v.length()) throw new IllegalArgumentException("Mismatched vector lengths");
-	}
-	
 	@Override
 	public int getStride() {
 		return stride;
@@ -142,13 +107,6 @@ public final class StridedVector extends AStridedVector {
 		data[offset+i*stride]+=value;
 	}
 	
-	@Override
-	public void copyTo(double[] dest, int destOffset) {
-		for (int i=0; i<length; i++) {
-			dest[destOffset+i]=data[offset+(i*stride)];
-		}
-	}
-	
 	@Override
 	public StridedVector exactClone() {
 		double[] data=this.data.clone();
@@ -0,0 +1,206 @@
+package mikera.vectorz.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.util.ErrorMessages;
+
+/**
+ * Vector for accumulating concurrent updates from many threads, e.g. gradient aggregation
+ * in Hogwild-style training.
+ *
+ * The vector is held as a number of stripes, each a full-length array of partial sums.
+ * Each thread adds into the stripe selected by a hash of its thread id, using a lock-free
+ * compare-and-swap, so threads rarely touch the same memory even when they all update the
+ * same hot elements. Reading an element sums it across all stripes, so reads are slower
+ * than writes: use snapshot() or elementSum() to merge the whole vector in one pass.
+ *
+ * addAt, and the add operations built on it, are safe to call concurrently. Setting elements
+ * (set, fill etc.) writes the value into the first stripe and clears the others, and is not
+ * atomic with respect to concurrent adds.
+ *
+ * @author Mike
+ *
+ */
+public final class StripedAccumulatorVector extends AVector {
+	private static final long serialVersionUID = -6271949391370318024L;
+
+	private final AtomicLongArray[] stripes;
+	private final int length;
+	private final int mask;
+
+	private StripedAccumulatorVector(int length, int stripeCount) {
+		this.length=length;
+		this.stripes=new AtomicLongArray[stripeCount];
+		for (int i=0; i<stripeCount; i++) {
+			stripes[i]=new AtomicLongArray(length);
+		}
+		this.mask=stripeCount-1;
+	}
+
+	/**
+	 * Creates a new zero-filled vector with one stripe per available processor, rounded up to
+	 * a power of two
+	 */
+	public static StripedAccumulatorVector create(int length) {
+		int n=Runtime.getRuntime().availableProcessors();
+		return create(length,Integer.highestOneBit(Math.max(1, n-1))<<1);
+	}
+
+	/**
+	 * Creates a new zero-filled vector with the given number of stripes, which must be a power of two
+	 */
+	public static StripedAccumulatorVector create(int length, int stripeCount) {
+		if (length<0) throw new IllegalArgumentException(ErrorMessages.illegalSize(length));
+		if ((stripeCount<=0)||(Integer.bitCount(stripeCount)!=1)) throw new IllegalArgumentException("Stripe count must be a positive power of two: "+stripeCount);
+		return new StripedAccumulatorVector(length,stripeCount);
+	}
+
+	public int stripeCount() {
+		return stripes.length;
+	}
+
+	private AtomicLongArray stripe() {
+		long id=Thread.currentThread().getId();
+		return stripes[((int)((id*0x9E3779B97F4A7C15L)>>>32))&mask];
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return unsafeGet(i);
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		double result=0.0;
+		for (AtomicLongArray s: stripes) {
+			result+=Double.longBitsToDouble(s.get(i));
+		}
+		return result;
+	}
+
+	@Override
+	public void set(int i, double value) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		unsafeSet(i,value);
+	}
+
+	@Override
+	public void unsafeSet(int i, double value) {
+		stripes[0].set(i, Double.doubleToRawLongBits(value));
+		for (int s=1; s<stripes.length; s++) {
+			stripes[s].set(i, 0L);
+		}
+	}
+
+	@Override
+	public void addAt(int i, double v) {
+		AtomicLongArray s=stripe();
+		while (true) {
+			long prev=s.get(i);
+			long next=Double.doubleToRawLongBits(Double.longBitsToDouble(prev)+v);
+			if (s.compareAndSet(i, prev, next)) return;
+		}
+	}
+
+	@Override
+	public void addMultiple(AVector src, double factor) {
+		if (src.length()!=length) throw new IllegalArgumentException(ErrorMessages.incompatibleShapes(this, src));
+		AtomicLongArray s=stripe();
+		for (int i=0; i<length; i++) {
+			double d=src.unsafeGet(i);
+			if (d==0.0) continue;
+			d*=factor;
+			while (true) {
+				long prev=s.get(i);
+				long next=Double.doubleToRawLongBits(Double.longBitsToDouble(prev)+d);
+				if (s.compareAndSet(i, prev, next)) break;
+			}
+		}
+	}
+
+	@Override
+	public void add(AVector src) {
+		addMultiple(src,1.0);
+	}
+
+	@Override
+	public boolean isView() {
+		return false;
+	}
+
+	@Override
+	public boolean isFullyMutable() {
+		return true;
+	}
+
+	@Override
+	public boolean isMutable() {
+		return true;
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=Double.longBitsToDouble(stripes[0].get(offset+i));
+		}
+		for (int s=1; s<stripes.length; s++) {
+			AtomicLongArray a=stripes[s];
+			for (int i=0; i<length; i++) {
+				dest[destOffset+i]+=Double.longBitsToDouble(a.get(offset+i));
+			}
+		}
+	}
+
+	@Override
+	public double elementSum() {
+		double result=0.0;
+		for (AtomicLongArray a: stripes) {
+			for (int i=0; i<length; i++) {
+				result+=Double.longBitsToDouble(a.get(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Merges all stripes into a new dense Vector
+	 */
+	public Vector snapshot() {
+		Vector v=Vector.createLength(length);
+		copyTo(0,v.getArray(),0,length);
+		return v;
+	}
+
+	/**
+	 * Merges all stripes into a new dense Vector and resets this vector to zero. Adds that
+	 * happen concurrently are either included in the result or retained in this vector, never lost.
+	 */
+	public Vector drain() {
+		double[] result=new double[length];
+		for (AtomicLongArray a: stripes) {
+			for (int i=0; i<length; i++) {
+				result[i]+=Double.longBitsToDouble(a.getAndSet(i, 0L));
+			}
+		}
+		return Vector.wrap(result);
+	}
+
+	@Override
+	public StripedAccumulatorVector exactClone() {
+		StripedAccumulatorVector v=new StripedAccumulatorVector(length,stripes.length);
+		for (int s=0; s<stripes.length; s++) {
+			for (int i=0; i<length; i++) {
+				v.stripes[s].set(i, stripes[s].get(i));
+			}
+		}
+		return v;
+	}
+}
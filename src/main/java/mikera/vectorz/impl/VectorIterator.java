@@ -1,16 +1,18 @@
 package mikera.vectorz.impl;
 
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 import mikera.vectorz.AVector;
 
 /**
  * General purpose iterator for arbitrary vectors.
  * 
+ * Iterates over primitive double values, so no boxing occurs if nextDouble() is used.
+ * 
  * @author Mike
  */
-public final class VectorIterator implements Iterator<Double> {
+public final class VectorIterator implements PrimitiveIterator.OfDouble {
 	private final AVector source;
 	private final int maxPos;
 	private int pos;
@@ -33,10 +35,15 @@ public final class VectorIterator implements Iterator<Double> {
 	}
 
 	@Override
-	public Double next() {
+	public double nextDouble() {
 		if(pos>=maxPos) throw new NoSuchElementException();
 		return source.unsafeGet(pos++);
 	}
+	
+	@Override
+	public Double next() {
+		return nextDouble();
+	}
 
 	@Override
 	public void remove() {
@@ -0,0 +1,68 @@
+package mikera.vectorz.impl;
+
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.AVector;
+
+/**
+ * General purpose spliterator for arbitrary vectors.
+ * 
+ * Splits by halving the remaining index range, so works well with parallel streams
+ * for any vector type that supports efficient unsafeGet(int).
+ * 
+ * @author Mike
+ */
+public final class VectorSpliterator implements Spliterator.OfDouble {
+	public static final int CHARACTERISTICS=Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+	
+	private final AVector source;
+	private final int end;
+	private int pos;
+	
+	public VectorSpliterator(AVector source) {
+		this(source,0,source.length());
+	}
+	
+	public VectorSpliterator(AVector source, int start, int length) {
+		this.source=source;
+		this.pos=start;
+		this.end=start+length;
+	}
+
+	@Override
+	public boolean tryAdvance(DoubleConsumer action) {
+		if (pos>=end) return false;
+		action.accept(source.unsafeGet(pos++));
+		return true;
+	}
+	
+	@Override
+	public void forEachRemaining(DoubleConsumer action) {
+		int i=pos;
+		pos=end;
+		for (; i<end; i++) {
+			action.accept(source.unsafeGet(i));
+		}
+	}
+
+	@Override
+	public VectorSpliterator trySplit() {
+		int n=end-pos;
+		if (n<2) return null;
+		int mid=pos+(n>>>1);
+		VectorSpliterator prefix=new VectorSpliterator(source,pos,mid-pos);
+		pos=mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end-pos;
+	}
+
+	@Override
+	public int characteristics() {
+		return CHARACTERISTICS;
+	}
+}
@@ -1,6 +1,6 @@
 package mikera.vectorz.impl;
 
-import java.util.Iterator;
+import java.util.PrimitiveIterator;
 
 import mikera.vectorz.AVector;
 
@@ -29,7 +29,7 @@ public final class WrappedSubVector extends AWrappedVector<AVector> {
 	}
 	
 	@Override 
-	public Iterator<Double> iterator() {
+	public PrimitiveIterator.OfDouble iterator() {
 		return new VectorIterator(wrapped,offset,length);
 	}
 	
@@ -0,0 +1,206 @@
+package mikera.vectorz.impl;
+
+import java.util.Arrays;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.util.ErrorMessages;
+import mikera.vectorz.util.VectorzException;
+
+/**
+ * Immutable vector stored as a bitstream of XOR differences between consecutive values,
+ * as used for time series compression in Gorilla-style encodings.
+ *
+ * Slowly varying sequences share most of their sign, exponent and high mantissa bits, so
+ * the XOR of neighbouring values is mostly zeros. Each value is written as:
+ * <ul>
+ * <li>'0' if it is identical to the previous value</li>
+ * <li>'10' followed by the meaningful bits, if they fit within the previous window of
+ * leading and trailing zeros</li>
+ * <li>'11' followed by 6 bits of leading zero count, 6 bits of length and the meaningful bits otherwise</li>
+ * </ul>
+ *
+ * The stream restarts with a raw 64-bit value every BLOCK_SIZE elements, and block start
+ * positions are recorded, so any element can be reached by decoding at most one block.
+ *
+ * @author Mike
+ *
+ */
+public final class XorCompressedVector extends ACompressedVector {
+	private static final long serialVersionUID = 2248913740151947215L;
+
+	private final long[] bits;
+	private final long[] blockOffsets;
+	private final int length;
+
+	private XorCompressedVector(long[] bits, long[] blockOffsets, int length) {
+		this.bits=bits;
+		this.blockOffsets=blockOffsets;
+		this.length=length;
+	}
+
+	/**
+	 * Creates an XOR encoded copy of the given vector
+	 */
+	public static XorCompressedVector create(AVector v) {
+		return create(v.toDoubleArray());
+	}
+
+	/**
+	 * Creates an XOR encoded vector containing the given values
+	 */
+	public static XorCompressedVector create(double[] data) {
+		int n=data.length;
+		int blocks=(n+BLOCK_SIZE-1)/BLOCK_SIZE;
+		long[] blockOffsets=new long[blocks];
+		long[] out=new long[Math.max(1, n)];
+		long pos=0;
+		for (int b=0; b<blocks; b++) {
+			blockOffsets[b]=pos;
+			int start=b*BLOCK_SIZE;
+			int end=Math.min(n, start+BLOCK_SIZE);
+			long prev=Double.doubleToRawLongBits(data[start]);
+			out=ensureCapacity(out,pos+64);
+			writeBits(out,pos,prev,64);
+			pos+=64;
+			int lead=-1;
+			int trail=0;
+			for (int i=start+1; i<end; i++) {
+				long cur=Double.doubleToRawLongBits(data[i]);
+				long xor=cur^prev;
+				prev=cur;
+				// worst case is 2+6+6+64 bits
+				out=ensureCapacity(out,pos+78);
+				if (xor==0) {
+					pos++;
+					continue;
+				}
+				int lz=Long.numberOfLeadingZeros(xor);
+				int tz=Long.numberOfTrailingZeros(xor);
+				if ((lead>=0)&&(lz>=lead)&&(tz>=trail)) {
+					writeBits(out,pos,2,2);
+					pos+=2;
+				} else {
+					lead=lz;
+					trail=tz;
+					writeBits(out,pos,(3L<<12)|(lz<<6)|(63-lz-tz),14);
+					pos+=14;
+				}
+				int len=64-lead-trail;
+				writeBits(out,pos,xor>>>trail,len);
+				pos+=len;
+			}
+		}
+		return new XorCompressedVector(Arrays.copyOf(out, (int)((pos+63)>>>6)),blockOffsets,n);
+	}
+
+	private static long[] ensureCapacity(long[] a, long bitLength) {
+		int words=(int)((bitLength+63)>>>6);
+		if (words<=a.length) return a;
+		return Arrays.copyOf(a, Math.max(words, a.length*2));
+	}
+
+	private static long mask(int n) {
+		return (n==64)?-1L:((1L<<n)-1);
+	}
+
+	/**
+	 * Writes the low n bits of value at the given bit position, most significant bit first.
+	 * Assumes the target bits are currently zero.
+	 */
+	private static void writeBits(long[] a, long pos, long value, int n) {
+		value&=mask(n);
+		int ix=(int)(pos>>>6);
+		int free=64-((int)pos&63);
+		if (n<=free) {
+			a[ix]|=value<<(free-n);
+		} else {
+			int lo=n-free;
+			a[ix]|=value>>>lo;
+			a[ix+1]|=value<<(64-lo);
+		}
+	}
+
+	private static long readBits(long[] a, long pos, int n) {
+		int ix=(int)(pos>>>6);
+		int avail=64-((int)pos&63);
+		if (n<=avail) {
+			return (a[ix]>>>(avail-n))&mask(n);
+		} else {
+			int lo=n-avail;
+			return ((a[ix]&mask(avail))<<lo)|(a[ix+1]>>>(64-lo));
+		}
+	}
+
+	/**
+	 * Decodes elements skip to skip+n-1 of a block into dest, or only walks the stream if
+	 * dest is null. Returns the last element decoded.
+	 */
+	private double decode(int block, int skip, int n, double[] dest, int destOffset) {
+		long pos=blockOffsets[block];
+		long value=readBits(bits,pos,64);
+		pos+=64;
+		int lead=0;
+		int trail=0;
+		int end=skip+n;
+		for (int k=0; ; k++) {
+			if ((dest!=null)&&(k>=skip)) dest[destOffset+k-skip]=Double.longBitsToDouble(value);
+			if (k+1>=end) break;
+			if (readBits(bits,pos++,1)==0) continue;
+			if (readBits(bits,pos++,1)!=0) {
+				long header=readBits(bits,pos,12);
+				pos+=12;
+				lead=(int)(header>>>6);
+				trail=64-lead-((int)(header&63)+1);
+			}
+			int len=64-lead-trail;
+			value^=readBits(bits,pos,len)<<trail;
+			pos+=len;
+		}
+		return Double.longBitsToDouble(value);
+	}
+
+	@Override
+	public long compressedSize() {
+		return bits.length*8L+blockOffsets.length*8L;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public double get(int i) {
+		if ((i<0)||(i>=length)) throw new IndexOutOfBoundsException(ErrorMessages.invalidIndex(this, i));
+		return unsafeGet(i);
+	}
+
+	@Override
+	public double unsafeGet(int i) {
+		return decode(i/BLOCK_SIZE,i%BLOCK_SIZE,1,null,0);
+	}
+
+	@Override
+	public void copyTo(int offset, double[] dest, int destOffset, int length) {
+		if ((offset<0)||(length<0)||(offset+length>this.length)) throw new IndexOutOfBoundsException("Invalid range: offset="+offset+", length="+length);
+		while (length>0) {
+			int skip=offset%BLOCK_SIZE;
+			int n=Math.min(BLOCK_SIZE-skip, length);
+			decode(offset/BLOCK_SIZE,skip,n,dest,destOffset);
+			offset+=n;
+			destOffset+=n;
+			length-=n;
+		}
+	}
+
+	@Override
+	public XorCompressedVector exactClone() {
+		return new XorCompressedVector(bits.clone(),blockOffsets.clone(),length);
+	}
+
+	@Override
+	public void validate() {
+		if (blockOffsets.length!=(length+BLOCK_SIZE-1)/BLOCK_SIZE) throw new VectorzException("Wrong number of blocks");
+		super.validate();
+	}
+}
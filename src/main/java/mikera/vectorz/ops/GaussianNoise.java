@@ -1,7 +1,7 @@
 package mikera.vectorz.ops;
 
-import mikera.util.Rand;
 import mikera.vectorz.Op;
+import mikera.vectorz.util.RandomStream;
 
 /**
  * Operator to add gaussian noise to a value
@@ -26,14 +26,12 @@ public class GaussianNoise extends Op {
 	
 	@Override
 	public double apply(double x) {
-		return x+Rand.nextGaussian()*std;
+		return x+RandomStream.current().nextGaussian()*std;
 	}
 	
 	@Override
 	public void applyTo(double[] data, int start,int length) {
-		for (int i=0; i<length; i++) {
-			data[i+start]+=Rand.nextGaussian()*std;
-		}	
+		RandomStream.current().addGaussian(data, start, length, std);
 	}
 	
 	@Override
@@ -1,6 +1,6 @@
 package mikera.vectorz.ops;
 
-import mikera.util.Rand;
+import mikera.vectorz.util.RandomStream;
 
 public class StochasticBinary extends ABoundedOp {
 
@@ -11,7 +11,12 @@ public class StochasticBinary extends ABoundedOp {
 	
 	@Override
 	public double apply(double x) {
-		return (Rand.nextDouble()<x)?1.0:0.0;
+		return (RandomStream.current().nextDouble()<x)?1.0:0.0;
+	}
+	
+	@Override
+	public void applyTo(double[] data, int start, int length) {
+		RandomStream.current().sampleBinary(data, start, length);
 	}
 	
 	@Override
@@ -0,0 +1,135 @@
+package mikera.vectorz.util;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.Vector0;
+
+/**
+ * Utility class for building large vectors by addition of doubles.
+ *
+ * Data is stored in a list of chunks that are never reallocated, so previously added
+ * data is never copied while building. Chunk sizes grow geometrically up to a fixed maximum.
+ *
+ * @author Mike
+ */
+public class ChunkedVectorBuilder {
+	private static final int INITIAL_CHUNK_SIZE=16;
+	private static final int MAX_CHUNK_SIZE=1<<16;
+
+	private final ArrayList<double[]> chunks=new ArrayList<double[]>();
+	private double[] current; // chunk currently being filled
+	private int currentLength=0; // number of values in the current chunk
+
+	private int length=0;
+
+	public ChunkedVectorBuilder() {
+		current=new double[INITIAL_CHUNK_SIZE];
+	}
+
+	private void nextChunk() {
+		chunks.add(current);
+		current=new double[Math.min(MAX_CHUNK_SIZE, current.length*2)];
+		currentLength=0;
+	}
+
+	public void add(double d) {
+		if (currentLength==current.length) nextChunk();
+		current[currentLength++]=d;
+		length++;
+	}
+
+	/**
+	 * Adds a range of values from a double array
+	 */
+	public void addAll(double[] values, int offset, int length) {
+		while (length>0) {
+			if (currentLength==current.length) nextChunk();
+			int n=Math.min(length, current.length-currentLength);
+			System.arraycopy(values, offset, current, currentLength, n);
+			currentLength+=n;
+			this.length+=n;
+			offset+=n;
+			length-=n;
+		}
+	}
+
+	public void addAll(double[] values) {
+		addAll(values,0,values.length);
+	}
+
+	/**
+	 * Adds all elements of a vector
+	 */
+	public void addAll(AVector v) {
+		int vl=v.length();
+		int pos=0;
+		while (pos<vl) {
+			if (currentLength==current.length) nextChunk();
+			int n=Math.min(vl-pos, current.length-currentLength);
+			v.copyTo(pos, current, currentLength, n);
+			currentLength+=n;
+			length+=n;
+			pos+=n;
+		}
+	}
+
+	/**
+	 * Adds all remaining elements of a DoubleBuffer. The buffer position is advanced to its limit.
+	 */
+	public void addAll(DoubleBuffer buf) {
+		while (buf.hasRemaining()) {
+			if (currentLength==current.length) nextChunk();
+			int n=Math.min(buf.remaining(), current.length-currentLength);
+			buf.get(current, currentLength, n);
+			currentLength+=n;
+			length+=n;
+		}
+	}
+
+	/**
+	 * Returns the number of doubles added so far
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Copies the built values into a double array at the specified offset
+	 */
+	public void copyTo(double[] dest, int offset) {
+		for (double[] chunk: chunks) {
+			System.arraycopy(chunk, 0, dest, offset, chunk.length);
+			offset+=chunk.length;
+		}
+		System.arraycopy(current, 0, dest, offset, currentLength);
+	}
+
+	/**
+	 * Builds a vector containing a copy of the data in this builder
+	 */
+	public Vector toVector() {
+		double[] result=new double[length];
+		copyTo(result,0);
+		return Vector.wrap(result);
+	}
+
+	/**
+	 * Creates a vector that wraps the internal chunks of this builder without copying.
+	 *
+	 * The returned vector views the values added so far. Values added later are not
+	 * included in the view.
+	 */
+	public AVector toWrappingVector() {
+		if (length==0) return Vector0.INSTANCE;
+		ArrayList<AVector> parts=new ArrayList<AVector>(chunks.size()+1);
+		for (double[] chunk: chunks) {
+			parts.add(Vectorz.wrap(chunk));
+		}
+		if (currentLength>0) parts.add(Vectorz.wrap(current,0,currentLength));
+		return Vectorz.join(parts);
+	}
+}
@@ -1,6 +1,9 @@
 package mikera.vectorz.util;
 
 import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleConsumer;
 
 import mikera.vectorz.Tools;
 import mikera.vectorz.ops.Logistic;
@@ -186,6 +189,48 @@ public final class DoubleArrays {
 		}
 	}
 	
+	/**
+	 * Strided version of add. Each operand is accessed at offset+i*stride
+	 */
+	public static void add(double[] src, int srcOffset, int srcStride, double[] dest, int destOffset, int destStride, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i*destStride]+=src[srcOffset+i*srcStride];
+		}
+	}
+	
+	/**
+	 * Strided version of addMultiple. Each operand is accessed at offset+i*stride
+	 */
+	public static void addMultiple(double[] dest, int offset, int stride, double[] src, int srcOffset, int srcStride, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			dest[offset+i*stride]+=factor*src[srcOffset+i*srcStride];
+		}
+	}
+	
+	/**
+	 * Strided version of dotProduct. Each operand is accessed at offset+i*stride
+	 */
+	public static double dotProduct(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			result+=a[aOffset+i*aStride]*b[bOffset+i*bStride];
+		}
+		return result;
+	}
+	
+	/**
+	 * Strided copy between double arrays. Each operand is accessed at offset+i*stride
+	 */
+	public static void copy(double[] src, int srcOffset, int srcStride, double[] dest, int destOffset, int destStride, int length) {
+		if ((srcStride==1)&&(destStride==1)) {
+			System.arraycopy(src, srcOffset, dest, destOffset, length);
+			return;
+		}
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i*destStride]=src[srcOffset+i*srcStride];
+		}
+	}
+	
 	public static void clamp(double[] data, double min,double max) {
 		for (int i=0; i<data.length; i++) {
 			double v=data[i];
@@ -331,6 +376,40 @@ public final class DoubleArrays {
 		return true;
 	}
 
+	public static void forEach(double[] data, int offset, int length, DoubleConsumer action) {
+		for (int i=0; i<length; i++) {
+			action.accept(data[offset+i]);
+		}
+	}
+	
+	/**
+	 * Creates a spliterator over a range of a double array. 
+	 * 
+	 * The spliterator is sized and splits by halving the range.
+	 * 
+	 * @param data
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public static Spliterator.OfDouble spliterator(double[] data, int offset, int length) {
+		return Spliterators.spliterator(data, offset, offset+length, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+
+	/**
+	 * Computes a new capacity for a growable buffer that must hold at least the required number
+	 * of elements. Capacity grows geometrically, so that repeated appends take amortised constant time.
+	 * 
+	 * @param capacity The current capacity
+	 * @param required The minimum capacity required
+	 * @return
+	 */
+	public static int growCapacity(int capacity, int required) {
+		if (required<0) throw new IllegalArgumentException("Capacity overflow: "+required);
+		long newCapacity=Math.min(((long)capacity)*2+4, Integer.MAX_VALUE-8L);
+		return (int)Math.max(newCapacity, required);
+	}
+	
 	/**
 	 * Fast double array copy operation. 
 	 * 
@@ -0,0 +1,163 @@
+package mikera.vectorz.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.Op;
+
+/**
+ * Static kernels for DoubleBuffer storage, equivalent to those in DoubleArrays.
+ *
+ * All functions use absolute indexing and never modify the position or limit of
+ * the buffers they are given.
+ *
+ * @author Mike
+ */
+public final class DoubleBuffers {
+
+	/**
+	 * Allocates a new direct DoubleBuffer in native byte order, suitable for sharing with native code
+	 */
+	public static DoubleBuffer allocateDirect(int length) {
+		if (length<0) throw new IllegalArgumentException(ErrorMessages.illegalSize(length));
+		if (length>(Integer.MAX_VALUE>>3)) throw new IllegalArgumentException("Direct buffer too large: "+length);
+		return ByteBuffer.allocateDirect(length*8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+	}
+
+	/**
+	 * Returns a view of a range of the buffer, with position zero and capacity equal to length
+	 */
+	public static DoubleBuffer slice(DoubleBuffer buf, int offset, int length) {
+		DoubleBuffer d=buf.duplicate();
+		d.limit(offset+length);
+		d.position(offset);
+		return d.slice();
+	}
+
+	public static void get(DoubleBuffer buf, int offset, double[] dest, int destOffset, int length) {
+		DoubleBuffer d=buf.duplicate();
+		d.position(offset);
+		d.get(dest, destOffset, length);
+	}
+
+	public static void put(DoubleBuffer buf, int offset, double[] src, int srcOffset, int length) {
+		DoubleBuffer d=buf.duplicate();
+		d.position(offset);
+		d.put(src, srcOffset, length);
+	}
+
+	public static void copy(DoubleBuffer src, int srcOffset, DoubleBuffer dest, int destOffset, int length) {
+		DoubleBuffer d=dest.duplicate();
+		d.position(destOffset);
+		d.put(slice(src,srcOffset,length));
+	}
+
+	public static double elementSum(DoubleBuffer buf, int offset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			result+=buf.get(offset+i);
+		}
+		return result;
+	}
+
+	public static double elementSquaredSum(DoubleBuffer buf, int offset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			double x=buf.get(offset+i);
+			result+=x*x;
+		}
+		return result;
+	}
+
+	public static long nonZeroCount(DoubleBuffer buf, int offset, int length) {
+		long result=0;
+		for (int i=0; i<length; i++) {
+			if (buf.get(offset+i)!=0.0) result++;
+		}
+		return result;
+	}
+
+	public static double dotProduct(DoubleBuffer buf, int offset, double[] data, int dataOffset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			result+=buf.get(offset+i)*data[dataOffset+i];
+		}
+		return result;
+	}
+
+	public static double dotProduct(DoubleBuffer a, int aOffset, DoubleBuffer b, int bOffset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			result+=a.get(aOffset+i)*b.get(bOffset+i);
+		}
+		return result;
+	}
+
+	public static void fill(DoubleBuffer buf, int offset, int length, double value) {
+		for (int i=0; i<length; i++) {
+			buf.put(offset+i, value);
+		}
+	}
+
+	public static void add(DoubleBuffer buf, int offset, int length, double value) {
+		for (int i=0; i<length; i++) {
+			buf.put(offset+i, buf.get(offset+i)+value);
+		}
+	}
+
+	public static void multiply(DoubleBuffer buf, int offset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			buf.put(offset+i, buf.get(offset+i)*factor);
+		}
+	}
+
+	public static void add(double[] src, int srcOffset, DoubleBuffer dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest.put(destOffset+i, dest.get(destOffset+i)+src[srcOffset+i]);
+		}
+	}
+
+	public static void add(DoubleBuffer src, int srcOffset, double[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]+=src.get(srcOffset+i);
+		}
+	}
+
+	public static void add(DoubleBuffer src, int srcOffset, DoubleBuffer dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest.put(destOffset+i, dest.get(destOffset+i)+src.get(srcOffset+i));
+		}
+	}
+
+	public static void addMultiple(DoubleBuffer dest, int offset, double[] src, int srcOffset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			dest.put(offset+i, dest.get(offset+i)+factor*src[srcOffset+i]);
+		}
+	}
+
+	public static void addMultiple(double[] dest, int offset, DoubleBuffer src, int srcOffset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			dest[offset+i]+=factor*src.get(srcOffset+i);
+		}
+	}
+
+	public static void addMultiple(DoubleBuffer dest, int offset, DoubleBuffer src, int srcOffset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			dest.put(offset+i, dest.get(offset+i)+factor*src.get(srcOffset+i));
+		}
+	}
+
+	public static void applyOp(DoubleBuffer buf, int offset, int length, Op op) {
+		for (int i=0; i<length; i++) {
+			buf.put(offset+i, op.apply(buf.get(offset+i)));
+		}
+	}
+
+	public static void forEach(DoubleBuffer buf, int offset, int length, DoubleConsumer action) {
+		for (int i=0; i<length; i++) {
+			action.accept(buf.get(offset+i));
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package mikera.vectorz.util;
+
+import java.math.BigInteger;
+
+/**
+ * Fast conversion of doubles to their shortest round-trip decimal representation.
+ *
+ * Uses the Schubfach algorithm (R. Giulietti, "The Schubfach way to render doubles"): the
+ * result has the fewest significant digits that parse back to exactly the same double, and
+ * among those the one closest to the exact value. Output follows the layout of
+ * Double.toString, e.g. "1.0", "0.001", "1.25E-7", "NaN", "-Infinity".
+ *
+ * The digits can differ from Double.toString on JDKs before 19, which does not always choose
+ * the shortest form: 1.0E23 is printed as "1.0E23" here but as "9.999999999999999E22" by JDK 8.
+ *
+ * Characters are written directly into a char array, so no objects are allocated per value.
+ *
+ * @author Mike
+ *
+ */
+public final class DoubleFormat {
+	/**
+	 * Maximum number of characters produced for a single double, e.g. "-2.2250738585072014E-308"
+	 */
+	public static final int MAX_CHARS=24;
+
+	private static final int Q_MIN=-1074;
+	private static final long C_MIN=1L<<52;
+	private static final int P=53;
+	private static final long C_TINY=3;
+	private static final long MASK_63=0x7fffffffffffffffL;
+
+	private static final int K_MIN=-292;
+	private static final int K_MAX=324;
+
+	// 126-bit approximations of powers of ten, split into high and low 63 bits
+	private static final long[] G=new long[2*(K_MAX-K_MIN+1)];
+	static {
+		BigInteger mask=BigInteger.valueOf(MASK_63);
+		for (int k=K_MIN; k<=K_MAX; k++) {
+			int r=125-flog2pow10(k);
+			BigInteger g;
+			if (k>=0) {
+				BigInteger p=BigInteger.TEN.pow(k);
+				g=(r>=0)?p.shiftLeft(r):p.shiftRight(-r);
+			} else {
+				g=BigInteger.ONE.shiftLeft(r).divide(BigInteger.TEN.pow(-k));
+			}
+			g=g.add(BigInteger.ONE);
+			int i=2*(k-K_MIN);
+			G[i]=g.shiftRight(63).longValue();
+			G[i+1]=g.and(mask).longValue();
+		}
+	}
+
+	private DoubleFormat() {
+	}
+
+	/**
+	 * Returns the shortest round-trip representation of a double
+	 */
+	public static String toString(double v) {
+		char[] buf=new char[MAX_CHARS];
+		int n=format(v,buf,0);
+		return new String(buf,0,n);
+	}
+
+	/**
+	 * Appends the shortest round-trip representation of a double to a StringBuilder
+	 */
+	public static void append(StringBuilder sb, double v) {
+		char[] buf=new char[MAX_CHARS];
+		int n=format(v,buf,0);
+		sb.append(buf,0,n);
+	}
+
+	/**
+	 * Writes a double into a char array, which must have at least MAX_CHARS characters available
+	 * from pos. Returns the position after the last character written.
+	 */
+	public static int format(double v, char[] buf, int pos) {
+		long bits=Double.doubleToRawLongBits(v);
+		long t=bits&(C_MIN-1);
+		int bq=(int)(bits>>>(P-1))&0x7ff;
+		if (bq==0x7ff) {
+			if (t!=0) return putString("NaN",buf,pos);
+			if (bits<0) buf[pos++]='-';
+			return putString("Infinity",buf,pos);
+		}
+		if (bits<0) buf[pos++]='-';
+		if (bq!=0) {
+			int mq=-Q_MIN+1-bq;
+			long c=C_MIN|t;
+			if ((0<mq)&&(mq<P)) {
+				long f=c>>mq;
+				if ((f<<mq)==c) {
+					// exact integer below 2^53
+					return putDecimal(f,0,buf,pos);
+				}
+			}
+			return toDecimal(-mq,c,0,buf,pos);
+		}
+		if (t!=0) {
+			// subnormal
+			return (t<C_TINY)?toDecimal(Q_MIN,10*t,-1,buf,pos):toDecimal(Q_MIN,t,0,buf,pos);
+		}
+		return putString("0.0",buf,pos);
+	}
+
+	private static int toDecimal(int q, long c, int dk, char[] buf, int pos) {
+		int out=(int)c&1;
+		long cb=c<<2;
+		long cbr=cb+2;
+		long cbl;
+		int k;
+		if ((c!=C_MIN)|(q==Q_MIN)) {
+			cbl=cb-2;
+			k=flog10pow2(q);
+		} else {
+			// lower boundary is closer at powers of two
+			cbl=cb-1;
+			k=flog10threeQuartersPow2(q);
+		}
+		int h=q+flog2pow10(-k)+2;
+		int gi=2*(-k-K_MIN);
+		long g1=G[gi];
+		long g0=G[gi+1];
+
+		long vb=rop(g1,g0,cb<<h);
+		long vbl=rop(g1,g0,cbl<<h);
+		long vbr=rop(g1,g0,cbr<<h);
+
+		long s=vb>>2;
+		if (s>=100) {
+			// try one digit less: s'=floor(s/10)
+			long sp10=10*multiplyHigh(s,115292150460684698L<<4);
+			long tp10=sp10+10;
+			boolean upin=vbl+out<=(sp10<<2);
+			boolean wpin=(tp10<<2)+out<=vbr;
+			if (upin!=wpin) {
+				return putDecimal(upin?sp10:tp10,k,buf,pos);
+			}
+		}
+		long u=s+1;
+		boolean uin=vbl+out<=(s<<2);
+		boolean win=(u<<2)+out<=vbr;
+		if (uin!=win) {
+			return putDecimal(uin?s:u,k+dk,buf,pos);
+		}
+		// both candidates in range, pick the closest (even on ties)
+		long cmp=vb-((s+u)<<1);
+		return putDecimal(((cmp<0)||((cmp==0)&&((s&1)==0)))?s:u,k+dk,buf,pos);
+	}
+
+	/**
+	 * Writes the value f*10^e, where f is positive
+	 */
+	private static int putDecimal(long f, int e, char[] buf, int pos) {
+		while ((f%10)==0) {
+			f/=10;
+			e++;
+		}
+		int len=digitCount(f);
+		int exp=e+len-1; // exponent of the leading digit
+		if ((exp>=-3)&&(exp<7)) {
+			if (exp<0) {
+				buf[pos++]='0';
+				buf[pos++]='.';
+				for (int i=exp+1; i<0; i++) {
+					buf[pos++]='0';
+				}
+				return putDigits(f,len,buf,pos);
+			}
+			if (e>=0) {
+				pos=putDigits(f,len,buf,pos);
+				for (int i=0; i<e; i++) {
+					buf[pos++]='0';
+				}
+				buf[pos++]='.';
+				buf[pos++]='0';
+				return pos;
+			}
+			// decimal point within the digits
+			int intLen=exp+1;
+			putDigits(f,len,buf,pos+1);
+			for (int i=0; i<intLen; i++) {
+				buf[pos+i]=buf[pos+i+1];
+			}
+			buf[pos+intLen]='.';
+			return pos+len+1;
+		}
+		// scientific notation d.dddEn
+		putDigits(f,len,buf,pos+1);
+		buf[pos]=buf[pos+1];
+		buf[pos+1]='.';
+		if (len==1) {
+			buf[pos+2]='0';
+			pos+=3;
+		} else {
+			pos+=len+1;
+		}
+		buf[pos++]='E';
+		if (exp<0) {
+			buf[pos++]='-';
+			exp=-exp;
+		}
+		return putDigits(exp,digitCount(exp),buf,pos);
+	}
+
+	private static int putDigits(long f, int len, char[] buf, int pos) {
+		int end=pos+len;
+		for (int i=end-1; i>=pos; i--) {
+			buf[i]=(char)('0'+(int)(f%10));
+			f/=10;
+		}
+		return end;
+	}
+
+	private static int digitCount(long f) {
+		int n=1;
+		while (f>=10) {
+			f/=10;
+			n++;
+		}
+		return n;
+	}
+
+	private static int putString(String s, char[] buf, int pos) {
+		int n=s.length();
+		s.getChars(0, n, buf, pos);
+		return pos+n;
+	}
+
+	/**
+	 * Rounds the product of g and cp to odd, returning the high 64 bits
+	 */
+	private static long rop(long g1, long g0, long cp) {
+		long x1=multiplyHigh(g0,cp);
+		long y0=g1*cp;
+		long y1=multiplyHigh(g1,cp);
+		long z=(y0>>>1)+x1;
+		long vbp=y1+(z>>>63);
+		return vbp|(((z&MASK_63)+MASK_63)>>>63);
+	}
+
+	/**
+	 * High 64 bits of the signed 128-bit product of x and y
+	 */
+	private static long multiplyHigh(long x, long y) {
+		long x1=x>>32;
+		long x2=x&0xFFFFFFFFL;
+		long y1=y>>32;
+		long y2=y&0xFFFFFFFFL;
+		long z2=x2*y2;
+		long t=x1*y2+(z2>>>32);
+		long z1=t&0xFFFFFFFFL;
+		long z0=t>>32;
+		z1+=x2*y1;
+		return x1*y1+z0+(z1>>32);
+	}
+
+	// floor(log10(2^e))
+	private static int flog10pow2(int e) {
+		return (int)((e*661971961083L)>>41);
+	}
+
+	// floor(log10(3/4 * 2^e))
+	private static int flog10threeQuartersPow2(int e) {
+		return (int)((e*661971961083L-274743187321L)>>41);
+	}
+
+	// floor(log2(10^e))
+	private static int flog2pow10(int e) {
+		return (int)((e*913124641741L)>>38);
+	}
+}
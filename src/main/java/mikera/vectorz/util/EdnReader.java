@@ -0,0 +1,448 @@
+package mikera.vectorz.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import mikera.arrayz.Array;
+import mikera.arrayz.INDArray;
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Scalar;
+import mikera.vectorz.Vector;
+
+/**
+ * Streaming reader for numeric data in edn format.
+ *
+ * Numbers are parsed directly from characters into primitive double arrays, without creating
+ * intermediate objects. Nested edn vectors map to Vector, Matrix and Array values.
+ *
+ * Large inputs can be consumed incrementally, for example one row at a time:
+ * <pre>
+ *   reader.beginVector();
+ *   while (reader.hasNext()) {
+ *     AVector row=reader.readVector();
+ *     ...
+ *   }
+ *   reader.endVector();
+ * </pre>
+ *
+ * Commas and ';' line comments are treated as whitespace, as in edn.
+ *
+ * @author Mike
+ *
+ */
+public final class EdnReader {
+	private static final int BUFFER_SIZE=8192;
+
+	// exact powers of ten, for the fast path of number parsing
+	private static final double[] POWERS_OF_TEN=new double[23];
+	static {
+		double p=1.0;
+		for (int i=0; i<POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i]=p;
+			p*=10.0;
+		}
+	}
+
+	private final Reader reader;
+	private final CharSequence chars;
+	private final ByteBuffer bytes;
+
+	private final char[] buf;
+	private int pos=0;
+	private int limit=0;
+	private int sourcePos=0; // position in chars or bytes of buf[limit]
+	private int bufferStart=0; // position in bytes of buf[0]
+
+	private char[] token=new char[64];
+
+	// shape inference state for readArray
+	private int[] shape;
+	private int dims;
+
+	private double[] values=new double[16];
+	private int count;
+
+	public EdnReader(Reader reader) {
+		this.reader=reader;
+		this.chars=null;
+		this.bytes=null;
+		this.buf=new char[BUFFER_SIZE];
+	}
+
+	public EdnReader(CharSequence chars) {
+		this.reader=null;
+		this.chars=chars;
+		this.bytes=null;
+		this.buf=new char[Math.min(BUFFER_SIZE, Math.max(16, chars.length()))];
+	}
+
+	/**
+	 * Creates a reader over ASCII or UTF-8 encoded bytes, from the buffer's position to its limit.
+	 * The buffer's position is advanced past each value that is read.
+	 */
+	public EdnReader(ByteBuffer bytes) {
+		this.reader=null;
+		this.chars=null;
+		this.bytes=bytes;
+		this.sourcePos=bytes.position();
+		this.bufferStart=sourcePos;
+		this.buf=new char[BUFFER_SIZE];
+	}
+
+	// ========================================================================
+	// Public API
+
+	/**
+	 * Reads the next value, which may be a number or a regular nested vector of numbers.
+	 * Returns a Scalar, Vector, Matrix or Array according to the nesting depth.
+	 */
+	public INDArray readArray() {
+		shape=new int[4];
+		Arrays.fill(shape, -1);
+		dims=-1;
+		count=0;
+		readValue(0);
+		syncPosition();
+		double[] data=(count==values.length)?values:Arrays.copyOf(values, count);
+		values=new double[16];
+		switch (dims) {
+			case 0: return Scalar.create(data[0]);
+			case 1: return Vector.wrap(data);
+			case 2: return Matrix.wrap(shape[0], shape[1], data);
+			default: return Array.wrap(data, Arrays.copyOf(shape, dims));
+		}
+	}
+
+	/**
+	 * Reads the next value as a matrix. An empty vector is read as a 0x0 matrix.
+	 */
+	public AMatrix readMatrix() {
+		INDArray a=readArray();
+		if ((a.dimensionality()==1)&&(a.elementCount()==0)) return Matrix.create(0, 0);
+		if (a.dimensionality()!=2) throw new VectorzException("Expected a matrix but got an array with shape: "+Arrays.toString(a.getShape()));
+		return (AMatrix)a;
+	}
+
+	/**
+	 * Reads the next value, which must be a flat vector of numbers
+	 */
+	public AVector readVector() {
+		skipWhitespace();
+		expect('[');
+		count=0;
+		while (true) {
+			skipWhitespace();
+			int c=peek();
+			if (c==']') {
+				pos++;
+				break;
+			}
+			if (c=='[') throw new VectorzException("Expected a number but got a nested vector");
+			addValue(readNumber());
+		}
+		syncPosition();
+		double[] data=Arrays.copyOf(values, count);
+		return Vector.wrap(data);
+	}
+
+	/**
+	 * Reads the next value, which must be a single number
+	 */
+	public double readDouble() {
+		skipWhitespace();
+		double d=readNumber();
+		syncPosition();
+		return d;
+	}
+
+	/**
+	 * Consumes the opening bracket of a vector, so that its elements can be read individually
+	 */
+	public void beginVector() {
+		skipWhitespace();
+		expect('[');
+		syncPosition();
+	}
+
+	/**
+	 * Returns true if there are more elements before the closing bracket of the current vector
+	 */
+	public boolean hasNext() {
+		skipWhitespace();
+		int c=peek();
+		if (c<0) throw new VectorzException("Unexpected end of input");
+		return c!=']';
+	}
+
+	/**
+	 * Consumes the closing bracket of a vector started with beginVector()
+	 */
+	public void endVector() {
+		skipWhitespace();
+		expect(']');
+		syncPosition();
+	}
+
+	/**
+	 * Returns true if there is no more input apart from whitespace
+	 */
+	public boolean isAtEnd() {
+		skipWhitespace();
+		return peek()<0;
+	}
+
+	// ========================================================================
+	// Parsing
+
+	private void readValue(int depth) {
+		skipWhitespace();
+		int c=peek();
+		if (c=='[') {
+			pos++;
+			int n=0;
+			while (true) {
+				skipWhitespace();
+				if (peek()==']') {
+					pos++;
+					break;
+				}
+				readValue(depth+1);
+				n++;
+			}
+			if (n==0) setDims(depth+1);
+			if (depth>=shape.length) {
+				int oldLength=shape.length;
+				shape=Arrays.copyOf(shape, Math.max(depth+1, oldLength*2));
+				Arrays.fill(shape, oldLength, shape.length, -1);
+			}
+			if (shape[depth]<0) {
+				shape[depth]=n;
+			} else if (shape[depth]!=n) {
+				throw new VectorzException("Irregular array shape: expected "+shape[depth]+" elements but got "+n+" at depth "+depth);
+			}
+		} else {
+			setDims(depth);
+			addValue(readNumber());
+		}
+	}
+
+	private void setDims(int d) {
+		if (dims<0) {
+			dims=d;
+		} else if (dims!=d) {
+			throw new VectorzException("Irregular array shape: mixed nesting depths "+dims+" and "+d);
+		}
+	}
+
+	private void addValue(double d) {
+		if (count==values.length) {
+			values=Arrays.copyOf(values, DoubleArrays.growCapacity(values.length, count+1));
+		}
+		values[count++]=d;
+	}
+
+	private double readNumber() {
+		int n=readToken();
+		if (n==0) {
+			int c=peek();
+			if (c<0) throw new VectorzException("Unexpected end of input");
+			throw new VectorzException("Unexpected character: '"+(char)c+"'");
+		}
+		return parseNumber(token,n);
+	}
+
+	/**
+	 * Parses a numeric token held in the first n characters of a char array
+	 */
+	public static double parseNumber(char[] t, int n) {
+		double d=parseFast(t,n);
+		if (!Double.isNaN(d)) return d;
+		return parseSlow(t,n);
+	}
+
+	/**
+	 * Parses simple decimal numbers that can be converted exactly, returning NaN otherwise
+	 */
+	private static double parseFast(char[] t, int n) {
+		int i=0;
+		boolean negative=false;
+		char c=t[0];
+		if ((c=='-')||(c=='+')) {
+			negative=(c=='-');
+			i++;
+		}
+		long mantissa=0;
+		int digits=0;
+		int scale=0;
+		boolean any=false;
+		for (; i<n; i++) {
+			c=t[i];
+			if ((c<'0')||(c>'9')) break;
+			if (digits<18) {
+				mantissa=mantissa*10+(c-'0');
+				if (mantissa>0) digits++;
+			} else {
+				scale++;
+			}
+			any=true;
+		}
+		if ((i<n)&&(t[i]=='.')) {
+			for (i++; i<n; i++) {
+				c=t[i];
+				if ((c<'0')||(c>'9')) break;
+				if (digits<18) {
+					mantissa=mantissa*10+(c-'0');
+					if (mantissa>0) digits++;
+					scale--;
+				}
+				any=true;
+			}
+		}
+		if (!any) return Double.NaN;
+		if ((i<n)&&((t[i]=='e')||(t[i]=='E'))) {
+			i++;
+			boolean expNegative=false;
+			if ((i<n)&&((t[i]=='-')||(t[i]=='+'))) {
+				expNegative=(t[i]=='-');
+				i++;
+			}
+			int exp=0;
+			int expStart=i;
+			for (; (i<n)&&(exp<10000); i++) {
+				c=t[i];
+				if ((c<'0')||(c>'9')) break;
+				exp=exp*10+(c-'0');
+			}
+			if (i==expStart) return Double.NaN;
+			scale+=expNegative?-exp:exp;
+		}
+		if ((i<n)&&((t[i]=='N')||(t[i]=='M'))) i++;
+		if (i!=n) return Double.NaN;
+		if (mantissa>(1L<<53)) return Double.NaN;
+		double d=mantissa;
+		if (scale==0) {
+			// exact
+		} else if ((scale>0)&&(scale<POWERS_OF_TEN.length)) {
+			d*=POWERS_OF_TEN[scale];
+		} else if ((scale<0)&&(-scale<POWERS_OF_TEN.length)) {
+			d/=POWERS_OF_TEN[-scale];
+		} else {
+			return Double.NaN;
+		}
+		return negative?-d:d;
+	}
+
+	private static double parseSlow(char[] t, int n) {
+		String s=new String(t,0,n);
+		if (s.equals("NaN")||s.equals("##NaN")) return Double.NaN;
+		if (s.equals("Infinity")||s.equals("##Inf")) return Double.POSITIVE_INFINITY;
+		if (s.equals("-Infinity")||s.equals("##-Inf")) return Double.NEGATIVE_INFINITY;
+		char last=t[n-1];
+		if ((last=='N')||(last=='M')) s=s.substring(0, n-1);
+		try {
+			return Double.parseDouble(s);
+		} catch (NumberFormatException e) {
+			throw new VectorzException("Invalid number: "+new String(t,0,n));
+		}
+	}
+
+	/**
+	 * Reads characters up to the next delimiter into the token buffer, returning the token length
+	 */
+	private int readToken() {
+		int n=0;
+		while (true) {
+			if ((pos>=limit)&&!fill()) break;
+			char c=buf[pos];
+			if (isDelimiter(c)) break;
+			if (n==token.length) token=Arrays.copyOf(token, n*2);
+			token[n++]=c;
+			pos++;
+		}
+		return n;
+	}
+
+	private static boolean isDelimiter(char c) {
+		return (c<=' ')||(c==',')||(c=='[')||(c==']')||(c==';')||(c=='(')||(c==')')||(c=='{')||(c=='}');
+	}
+
+	private void skipWhitespace() {
+		while (true) {
+			if ((pos>=limit)&&!fill()) return;
+			char c=buf[pos];
+			if ((c<=' ')||(c==',')) {
+				pos++;
+			} else if (c==';') {
+				while (((pos<limit)||fill())&&(buf[pos]!='\n')) {
+					pos++;
+				}
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void expect(char expected) {
+		int c=peek();
+		if (c!=expected) {
+			if (c<0) throw new VectorzException("Unexpected end of input, expected '"+expected+"'");
+			throw new VectorzException("Expected '"+expected+"' but got '"+(char)c+"'");
+		}
+		pos++;
+	}
+
+	private int peek() {
+		if ((pos>=limit)&&!fill()) return -1;
+		return buf[pos];
+	}
+
+	// ========================================================================
+	// Input buffering
+
+	/**
+	 * Refills the character buffer from the source. Returns false at end of input.
+	 */
+	private boolean fill() {
+		bufferStart+=limit;
+		pos=0;
+		limit=0;
+		if (reader!=null) {
+			try {
+				int n=reader.read(buf, 0, buf.length);
+				if (n<=0) return false;
+				limit=n;
+			} catch (IOException e) {
+				throw new VectorzException("Error reading edn input",e);
+			}
+		} else if (chars!=null) {
+			int n=Math.min(buf.length, chars.length()-sourcePos);
+			if (n<=0) return false;
+			if (chars instanceof String) {
+				((String)chars).getChars(sourcePos, sourcePos+n, buf, 0);
+			} else {
+				for (int i=0; i<n; i++) {
+					buf[i]=chars.charAt(sourcePos+i);
+				}
+			}
+			sourcePos+=n;
+			limit=n;
+		} else {
+			int n=Math.min(buf.length, bytes.limit()-sourcePos);
+			if (n<=0) return false;
+			for (int i=0; i<n; i++) {
+				buf[i]=(char)(bytes.get(sourcePos+i)&0xFF);
+			}
+			sourcePos+=n;
+			limit=n;
+		}
+		return true;
+	}
+
+	private void syncPosition() {
+		if (bytes!=null) bytes.position(bufferStart+pos);
+	}
+}
@@ -44,6 +44,15 @@ public class ErrorMessages {
 		return "Incompatible shape: "+shape(m);
 	}
 
+	/**
+	 * Returns an error message indicating that a destination array is also one of the inputs
+	 * @param dest
+	 * @return
+	 */
+	public static String aliasedDestination(INDArray dest) {
+		return "Destination "+dest.getClass()+" with shape "+shape(dest)+" is also an input";
+	}
+
 	
 	/**
 	 * Returns an error message indicating that a broadcast is not possible
@@ -98,6 +107,10 @@ public class ErrorMessages {
 		}
 	}
 
+	public static String invalidRange(INDArray a, int offset, int length) {
+		return "Range with offset "+offset+" and length "+length+" not possible for "+a.getClass()+" with shape "+shape(a);
+	}
+
 	public static String invalidSlice(INDArray a, int slice) {
 		return ""+a.getClass()+" with shape "+shape(a)+" does not have slice: "+slice;
 	}
@@ -0,0 +1,164 @@
+package mikera.vectorz.util;
+
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+import mikera.vectorz.Op;
+
+/**
+ * Static kernels for float[] storage. Sums and dot products accumulate in double precision.
+ *
+ * @author Mike
+ *
+ */
+public final class FloatArrays {
+	public static double elementSum(float[] data, int offset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			result+=data[offset+i];
+		}
+		return result;
+	}
+
+	public static double elementSquaredSum(float[] data, int offset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			double x=data[offset+i];
+			result+=x*x;
+		}
+		return result;
+	}
+
+	public static int nonZeroCount(float[] data, int offset, int length) {
+		int result=0;
+		for (int i=0; i<length; i++) {
+			if (data[offset+i]!=0.0f) result++;
+		}
+		return result;
+	}
+
+	public static double dotProduct(float[] a, int aOffset, float[] b, int bOffset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			result+=((double)a[aOffset+i])*b[bOffset+i];
+		}
+		return result;
+	}
+
+	public static double dotProduct(float[] a, int aOffset, double[] b, int bOffset, int length) {
+		double result=0.0;
+		for (int i=0; i<length; i++) {
+			result+=a[aOffset+i]*b[bOffset+i];
+		}
+		return result;
+	}
+
+	/**
+	 * Computes dest += factor * src
+	 */
+	public static void addMultiple(float[] dest, int destOffset, float[] src, int srcOffset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=(float)(dest[destOffset+i]+factor*src[srcOffset+i]);
+		}
+	}
+
+	public static void addMultiple(float[] dest, int destOffset, double[] src, int srcOffset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=(float)(dest[destOffset+i]+factor*src[srcOffset+i]);
+		}
+	}
+
+	public static void addMultiple(double[] dest, int destOffset, float[] src, int srcOffset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]+=factor*src[srcOffset+i];
+		}
+	}
+
+	public static void add(float[] src, int srcOffset, float[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]+=src[srcOffset+i];
+		}
+	}
+
+	public static void add(double[] src, int srcOffset, float[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=(float)(dest[destOffset+i]+src[srcOffset+i]);
+		}
+	}
+
+	public static void add(float[] src, int srcOffset, double[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]+=src[srcOffset+i];
+		}
+	}
+
+	public static void add(float[] data, int offset, int length, double value) {
+		for (int i=0; i<length; i++) {
+			data[offset+i]=(float)(data[offset+i]+value);
+		}
+	}
+
+	public static void multiply(float[] data, int offset, int length, double factor) {
+		for (int i=0; i<length; i++) {
+			data[offset+i]=(float)(data[offset+i]*factor);
+		}
+	}
+
+	public static void applyOp(float[] data, int offset, int length, Op op) {
+		for (int i=0; i<length; i++) {
+			data[offset+i]=(float)op.apply(data[offset+i]);
+		}
+	}
+
+	public static void forEach(float[] data, int offset, int length, DoubleConsumer action) {
+		for (int i=0; i<length; i++) {
+			action.accept(data[offset+i]);
+		}
+	}
+
+	/**
+	 * Widens floats into a double array
+	 */
+	public static void copy(float[] src, int srcOffset, double[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=src[srcOffset+i];
+		}
+	}
+
+	/**
+	 * Narrows doubles into a float array, rounding to the nearest float
+	 */
+	public static void copy(double[] src, int srcOffset, float[] dest, int destOffset, int length) {
+		for (int i=0; i<length; i++) {
+			dest[destOffset+i]=(float)src[srcOffset+i];
+		}
+	}
+
+	public static float[] toFloatArray(double[] src) {
+		float[] result=new float[src.length];
+		copy(src,0,result,0,src.length);
+		return result;
+	}
+
+	/**
+	 * Matrix multiply of row-major arrays: c[rows x cols] = a[rows x n] * b[n x cols].
+	 *
+	 * Each row of c is accumulated in double precision before being rounded to float.
+	 */
+	public static void gemm(float[] a, int aOffset, float[] b, int bOffset, float[] c, int cOffset, int rows, int n, int cols) {
+		double[] acc=new double[cols];
+		for (int i=0; i<rows; i++) {
+			Arrays.fill(acc, 0.0);
+			int ai=aOffset+i*n;
+			for (int k=0; k<n; k++) {
+				double aik=a[ai+k];
+				if (aik==0.0) continue;
+				int bk=bOffset+k*cols;
+				for (int j=0; j<cols; j++) {
+					acc[j]+=aik*b[bk+j];
+				}
+			}
+			copy(acc,0,c,cOffset+i*cols,cols);
+		}
+	}
+}
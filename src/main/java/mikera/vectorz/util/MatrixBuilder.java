@@ -16,7 +16,7 @@ public class MatrixBuilder {
 	
 	private void ensureSize(int newSize) {
 		if (newSize>data.length) {
-			AVector[] nd=new AVector[Math.min(newSize, data.length*2)];
+			AVector[] nd=new AVector[DoubleArrays.growCapacity(data.length, newSize)];
 			System.arraycopy(data, 0, nd, 0, length);
 			data=nd;
 		}
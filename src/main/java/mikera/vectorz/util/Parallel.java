@@ -0,0 +1,389 @@
+package mikera.vectorz.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import mikera.arrayz.Reduction;
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Op;
+import mikera.vectorz.impl.AArrayVector;
+
+/**
+ * Parallel execution of element-wise operations on large packed double[] ranges.
+ *
+ * Ranges of at least getThreshold() elements are split recursively into contiguous chunks
+ * and processed on a ForkJoinPool (the common pool unless set with setPool). Each chunk runs
+ * the ordinary sequential DoubleArrays kernel, and chunks write disjoint ranges, so results
+ * are identical to the sequential versions.
+ *
+ * Matrix-vector transforms and axis reductions are partitioned over disjoint ranges of their
+ * results in the same way, see transform(AMatrix, AVector, AVector) and Reduction. Seeded random
+ * fills are partitioned by RandomStream blocks, so they are deterministic for a given seed.
+ *
+ * The static kernels in this class can be called directly as per-call parallel variants. In
+ * addition, a global policy can be switched on with setEnabled(true), after which dense Vector,
+ * Matrix and Array element-wise operations (add, multiply, fill, applyOp etc.) run in parallel
+ * automatically for arrays above the threshold. Ops applied in parallel must be safe to call
+ * from multiple threads, which is true of all stateless ops.
+ *
+ * @author Mike
+ *
+ */
+public final class Parallel {
+	/**
+	 * Default minimum number of elements for parallel execution
+	 */
+	public static final int DEFAULT_THRESHOLD=1<<18;
+
+	/**
+	 * Minimum number of elements processed by a single task
+	 */
+	private static final int MIN_CHUNK=1<<13;
+
+	private static volatile ForkJoinPool pool=null;
+	private static volatile int threshold=DEFAULT_THRESHOLD;
+	private static volatile boolean enabled=false;
+
+	private Parallel() {
+	}
+
+	/**
+	 * Returns the pool used for parallel execution
+	 */
+	public static ForkJoinPool getPool() {
+		ForkJoinPool p=pool;
+		return (p==null)?ForkJoinPool.commonPool():p;
+	}
+
+	/**
+	 * Sets the pool used for parallel execution, or null to use the common pool
+	 */
+	public static void setPool(ForkJoinPool p) {
+		pool=p;
+	}
+
+	public static int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the minimum number of elements for an operation to run in parallel
+	 */
+	public static void setThreshold(int n) {
+		if (n<1) throw new IllegalArgumentException("Threshold must be positive: "+n);
+		threshold=n;
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables automatic parallel execution of dense element-wise operations
+	 */
+	public static void setEnabled(boolean value) {
+		enabled=value;
+	}
+
+	/**
+	 * Returns true if the global policy is to run an operation over the given number of
+	 * elements in parallel
+	 */
+	public static boolean shouldParallelize(int length) {
+		return enabled&&(length>=threshold);
+	}
+
+	/**
+	 * Returns true if the global policy is to run an operation with the given amount of work
+	 * (e.g. the element count of a large matrix) in parallel
+	 */
+	public static boolean shouldParallelize(long work) {
+		return enabled&&(work>=threshold);
+	}
+
+	// ========================================================================
+	// Kernels
+
+	public static void applyOp(final Op op, final double[] data, final int offset, int length) {
+		if (length<threshold) {
+			op.applyTo(data, offset, length);
+			return;
+		}
+		run(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				op.applyTo(data, offset+start, end-start);
+			}
+		});
+	}
+
+	public static void fill(final double[] data, final int offset, int length, final double value) {
+		if (length<threshold) {
+			Arrays.fill(data, offset, offset+length, value);
+			return;
+		}
+		run(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				Arrays.fill(data, offset+start, offset+end, value);
+			}
+		});
+	}
+
+	public static void add(final double[] data, final int offset, int length, final double value) {
+		if (length<threshold) {
+			DoubleArrays.add(data, offset, length, value);
+			return;
+		}
+		run(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				DoubleArrays.add(data, offset+start, end-start, value);
+			}
+		});
+	}
+
+	public static void multiply(final double[] data, final int offset, int length, final double factor) {
+		if (length<threshold) {
+			DoubleArrays.multiply(data, offset, length, factor);
+			return;
+		}
+		run(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				DoubleArrays.multiply(data, offset+start, end-start, factor);
+			}
+		});
+	}
+
+	/**
+	 * Computes dest[destOffset..] += src[srcOffset..]
+	 */
+	public static void add(final double[] src, final int srcOffset, final double[] dest, final int destOffset, int length) {
+		if (length<threshold) {
+			DoubleArrays.add(src, srcOffset, dest, destOffset, length);
+			return;
+		}
+		run(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				DoubleArrays.add(src, srcOffset+start, dest, destOffset+start, end-start);
+			}
+		});
+	}
+
+	/**
+	 * Computes dest[destOffset..] += factor * src[srcOffset..]
+	 */
+	public static void addMultiple(final double[] dest, final int destOffset, final double[] src, final int srcOffset, int length, final double factor) {
+		if (length<threshold) {
+			DoubleArrays.addMultiple(dest, destOffset, src, srcOffset, length, factor);
+			return;
+		}
+		run(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				DoubleArrays.addMultiple(dest, destOffset+start, src, srcOffset+start, end-start, factor);
+			}
+		});
+	}
+
+	/**
+	 * Computes dest = m * source, partitioning the rows of m into contiguous ranges that are
+	 * processed in parallel. Works for any matrix: dense Matrix rows are read directly from the
+	 * backing array, other matrices (e.g. VectorMatrixMN with sparse rows) use the dot product
+	 * of each row against a dense copy of the source.
+	 *
+	 * Each task accumulates its results in a private buffer and writes them to dest with a single
+	 * copy, so workers write disjoint output ranges and never contend for the same cache lines
+	 * while computing.
+	 */
+	public static void transform(AMatrix m, AVector source, AVector dest) {
+		final int rc=m.rowCount();
+		final int cc=m.columnCount();
+		if (source.length()!=cc) throw new IllegalArgumentException(ErrorMessages.wrongSourceLength(source));
+		if (dest.length()!=rc) throw new IllegalArgumentException(ErrorMessages.wrongDestLength(dest));
+
+		final double[] src;
+		final int srcOffset;
+		if ((source instanceof AArrayVector)&&(source!=dest)) {
+			AArrayVector av=(AArrayVector)source;
+			src=av.getArray();
+			srcOffset=av.getArrayOffset();
+		} else {
+			src=source.toDoubleArray();
+			srcOffset=0;
+		}
+
+		final double[] target;
+		final int targetOffset;
+		boolean direct=(dest instanceof AArrayVector);
+		if (direct) {
+			AArrayVector av=(AArrayVector)dest;
+			target=av.getArray();
+			targetOffset=av.getArrayOffset();
+		} else {
+			target=new double[rc];
+			targetOffset=0;
+		}
+
+		Kernel kernel;
+		if (m instanceof Matrix) {
+			final double[] data=((Matrix)m).getArray();
+			kernel=new Kernel() {
+				@Override
+				public void apply(int start, int end) {
+					double[] out=new double[end-start];
+					for (int i=start; i<end; i++) {
+						out[i-start]=DoubleArrays.dotProduct(data, i*cc, src, srcOffset, cc);
+					}
+					System.arraycopy(out, 0, target, targetOffset+start, end-start);
+				}
+			};
+		} else {
+			final AMatrix matrix=m;
+			kernel=new Kernel() {
+				@Override
+				public void apply(int start, int end) {
+					double[] out=new double[end-start];
+					for (int i=start; i<end; i++) {
+						out[i-start]=matrix.getRow(i).dotProduct(src, srcOffset);
+					}
+					System.arraycopy(out, 0, target, targetOffset+start, end-start);
+				}
+			};
+		}
+
+		if (((long)rc*cc)<threshold) {
+			kernel.apply(0, rc);
+		} else {
+			run(rc,Math.max(1, MIN_CHUNK/Math.max(1, cc)),kernel);
+		}
+		if (!direct) dest.setElements(target);
+	}
+
+	/**
+	 * Reduces a strided array along a dimension, partitioning the result into contiguous ranges
+	 * that are computed in parallel. dest receives the packed result.
+	 */
+	public static void reduce(final Reduction r, final double[] data, final int offset, final int[] shape, final int[] strides, final int dimension, final double[] dest) {
+		int n=dest.length;
+		int work=Math.max(1, shape[dimension]);
+		run(n,Math.max(1, MIN_CHUNK/work),new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				r.reduceRange(data, offset, shape, strides, dimension, dest, start, end);
+			}
+		});
+	}
+
+	/**
+	 * Fills a range of an array with uniformly distributed values in [0,1). The result depends
+	 * only on the seed, not on the pool or threshold.
+	 */
+	public static void fillUniform(final long seed, final double[] data, final int offset, final int length) {
+		runBlocks(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				for (int b=start; b<end; b++) {
+					int bs=b*RandomStream.BLOCK_SIZE;
+					RandomStream.forBlock(seed, b).fillUniform(data, offset+bs, Math.min(RandomStream.BLOCK_SIZE, length-bs));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Fills a range of an array with normally distributed values. The result depends only on
+	 * the seed, not on the pool or threshold.
+	 */
+	public static void fillGaussian(final long seed, final double[] data, final int offset, final int length, final double mean, final double sd) {
+		runBlocks(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				for (int b=start; b<end; b++) {
+					int bs=b*RandomStream.BLOCK_SIZE;
+					RandomStream.forBlock(seed, b).fillGaussian(data, offset+bs, Math.min(RandomStream.BLOCK_SIZE, length-bs), mean, sd);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Fills a range of an array with 1.0 with the given probability, 0.0 otherwise. The result
+	 * depends only on the seed, not on the pool or threshold.
+	 */
+	public static void fillBinary(final long seed, final double[] data, final int offset, final int length, final double prob) {
+		runBlocks(length,new Kernel() {
+			@Override
+			public void apply(int start, int end) {
+				for (int b=start; b<end; b++) {
+					int bs=b*RandomStream.BLOCK_SIZE;
+					RandomStream.forBlock(seed, b).fillBinary(data, offset+bs, Math.min(RandomStream.BLOCK_SIZE, length-bs), prob);
+				}
+			}
+		});
+	}
+
+	// ========================================================================
+	// Execution
+
+	/**
+	 * Sequential kernel applied to the sub-range [start,end) of a larger range
+	 */
+	private interface Kernel {
+		void apply(int start, int end);
+	}
+
+	private static void run(int length, Kernel kernel) {
+		run(length,MIN_CHUNK,kernel);
+	}
+
+	private static void run(int length, int minGrain, Kernel kernel) {
+		ForkJoinPool p=getPool();
+		int grain=Math.max(minGrain, length/(p.getParallelism()*4));
+		p.invoke(new RangeTask(kernel,0,length,grain));
+	}
+
+	/**
+	 * Runs a kernel over the RandomStream blocks covering the given number of elements. Kernels
+	 * are always applied to whole blocks, so each block is generated from its own stream.
+	 */
+	private static void runBlocks(int length, Kernel kernel) {
+		int blocks=(length+RandomStream.BLOCK_SIZE-1)/RandomStream.BLOCK_SIZE;
+		if (length<threshold) {
+			kernel.apply(0, blocks);
+		} else {
+			run(blocks,1,kernel);
+		}
+	}
+
+	private static final class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 4319557233512440129L;
+
+		private final Kernel kernel;
+		private final int start;
+		private final int end;
+		private final int grain;
+
+		private RangeTask(Kernel kernel, int start, int end, int grain) {
+			this.kernel=kernel;
+			this.start=start;
+			this.end=end;
+			this.grain=grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end-start<=grain) {
+				kernel.apply(start,end);
+				return;
+			}
+			int mid=(start+end)>>>1;
+			invokeAll(new RangeTask(kernel,start,mid,grain),new RangeTask(kernel,mid,end,grain));
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package mikera.vectorz.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+import mikera.arrayz.INDArray;
+import mikera.matrixx.AMatrix;
+import mikera.vectorz.AVector;
+import mikera.vectorz.impl.AArrayVector;
+
+/**
+ * Streaming writer for numeric arrays in edn or CSV format.
+ *
+ * Doubles are formatted with DoubleFormat into a fixed size character buffer, which is passed
+ * on to the target whenever it fills up. Memory use is therefore constant regardless of the
+ * size of the array, so very large arrays can be written directly to a file or socket.
+ *
+ * Edn output uses the same layout as toString(), e.g. "[[1.0,2.0],[3.0,4.0]]", but always
+ * writes elements as numbers: slices are not asked to format themselves, so e.g. BitVector rows
+ * are written as 0.0 and 1.0. CSV output writes one line per matrix row.
+ *
+ * @author Mike
+ *
+ */
+public final class TextWriter implements Flushable, Closeable {
+	public static final int DEFAULT_BUFFER_SIZE=8192;
+
+	private final Appendable appendable;
+	private final Writer writer;
+	private final OutputStream stream;
+
+	private final char[] buf;
+	private final byte[] bytes;
+	private int pos=0;
+
+	public TextWriter(Appendable appendable) {
+		this(appendable,DEFAULT_BUFFER_SIZE);
+	}
+
+	public TextWriter(Appendable appendable, int bufferSize) {
+		this.appendable=appendable;
+		this.writer=null;
+		this.stream=null;
+		this.buf=createBuffer(bufferSize);
+		this.bytes=null;
+	}
+
+	public TextWriter(Writer writer) {
+		this(writer,DEFAULT_BUFFER_SIZE);
+	}
+
+	public TextWriter(Writer writer, int bufferSize) {
+		this.appendable=null;
+		this.writer=writer;
+		this.stream=null;
+		this.buf=createBuffer(bufferSize);
+		this.bytes=null;
+	}
+
+	/**
+	 * Creates a writer producing ASCII bytes on an OutputStream
+	 */
+	public TextWriter(OutputStream stream) {
+		this(stream,DEFAULT_BUFFER_SIZE);
+	}
+
+	public TextWriter(OutputStream stream, int bufferSize) {
+		this.appendable=null;
+		this.writer=null;
+		this.stream=stream;
+		this.buf=createBuffer(bufferSize);
+		this.bytes=new byte[buf.length];
+	}
+
+	private static char[] createBuffer(int bufferSize) {
+		if (bufferSize<DoubleFormat.MAX_CHARS+2) throw new IllegalArgumentException("Buffer too small: "+bufferSize);
+		return new char[bufferSize];
+	}
+
+	/**
+	 * Returns the edn representation of an array as a String
+	 */
+	public static String toEdnString(INDArray a) {
+		StringBuilder sb=new StringBuilder();
+		TextWriter w=new TextWriter(sb,(int)Math.min(DEFAULT_BUFFER_SIZE, DoubleFormat.MAX_CHARS+2+a.elementCount()*(DoubleFormat.MAX_CHARS+1)));
+		w.writeEdn(a);
+		w.flush();
+		return sb.toString();
+	}
+
+	/**
+	 * Writes an array in edn format. Zero-dimensional arrays are written as a single number.
+	 */
+	public TextWriter writeEdn(INDArray a) {
+		if (a instanceof AVector) {
+			writeElements((AVector)a);
+		} else if (a instanceof AMatrix) {
+			AMatrix m=(AMatrix)a;
+			int rc=m.rowCount();
+			write('[');
+			for (int i=0; i<rc; i++) {
+				if (i>0) write(',');
+				writeElements(m.getRow(i));
+			}
+			write(']');
+		} else {
+			int dims=a.dimensionality();
+			if (dims==0) {
+				writeDouble(a.get());
+			} else if (dims==1) {
+				int n=a.sliceCount();
+				write('[');
+				for (int i=0; i<n; i++) {
+					if (i>0) write(',');
+					writeDouble(a.get(i));
+				}
+				write(']');
+			} else {
+				int n=a.sliceCount();
+				write('[');
+				for (int i=0; i<n; i++) {
+					if (i>0) write(',');
+					writeEdn(a.slice(i));
+				}
+				write(']');
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Writes an array in CSV format, one line per row. Vectors are written as a single row.
+	 */
+	public TextWriter writeCsv(INDArray a) {
+		int dims=a.dimensionality();
+		if (dims==0) {
+			writeDouble(a.get());
+			write('\n');
+		} else if (dims==1) {
+			writeRow((a instanceof AVector)?(AVector)a:a.asVector());
+		} else if (dims==2) {
+			int rc=a.sliceCount();
+			if (a instanceof AMatrix) {
+				AMatrix m=(AMatrix)a;
+				for (int i=0; i<rc; i++) {
+					writeRow(m.getRow(i));
+				}
+			} else {
+				for (int i=0; i<rc; i++) {
+					writeRow(a.slice(i).asVector());
+				}
+			}
+		} else {
+			throw new IllegalArgumentException("CSV output requires at most 2 dimensions, got: "+dims);
+		}
+		return this;
+	}
+
+	private void writeRow(AVector v) {
+		writeValues(v);
+		write('\n');
+	}
+
+	private void writeElements(AVector v) {
+		write('[');
+		writeValues(v);
+		write(']');
+	}
+
+	private void writeValues(AVector v) {
+		int n=v.length();
+		if (v instanceof AArrayVector) {
+			AArrayVector av=(AArrayVector)v;
+			double[] data=av.getArray();
+			int offset=av.getArrayOffset();
+			for (int i=0; i<n; i++) {
+				if (i>0) write(',');
+				writeDouble(data[offset+i]);
+			}
+		} else {
+			for (int i=0; i<n; i++) {
+				if (i>0) write(',');
+				writeDouble(v.unsafeGet(i));
+			}
+		}
+	}
+
+	/**
+	 * Writes a single double in shortest round-trip form
+	 */
+	public TextWriter writeDouble(double d) {
+		if (pos+DoubleFormat.MAX_CHARS>buf.length) flushBuffer();
+		pos=DoubleFormat.format(d, buf, pos);
+		return this;
+	}
+
+	public TextWriter write(char c) {
+		if (pos>=buf.length) flushBuffer();
+		buf[pos++]=c;
+		return this;
+	}
+
+	public TextWriter write(String s) {
+		int n=s.length();
+		int i=0;
+		while (i<n) {
+			if (pos>=buf.length) flushBuffer();
+			int k=Math.min(n-i, buf.length-pos);
+			s.getChars(i, i+k, buf, pos);
+			pos+=k;
+			i+=k;
+		}
+		return this;
+	}
+
+	/**
+	 * Passes buffered characters on to the target, without flushing the target itself
+	 */
+	private void flushBuffer() {
+		if (pos==0) return;
+		try {
+			if (writer!=null) {
+				writer.write(buf, 0, pos);
+			} else if (stream!=null) {
+				for (int i=0; i<pos; i++) {
+					bytes[i]=(byte)buf[i];
+				}
+				stream.write(bytes, 0, pos);
+			} else if (appendable instanceof StringBuilder) {
+				((StringBuilder)appendable).append(buf, 0, pos);
+			} else {
+				appendable.append(CharBuffer.wrap(buf, 0, pos));
+			}
+		} catch (IOException e) {
+			throw new VectorzException("Error writing text output",e);
+		}
+		pos=0;
+	}
+
+	@Override
+	public void flush() {
+		flushBuffer();
+		try {
+			if (writer!=null) {
+				writer.flush();
+			} else if (stream!=null) {
+				stream.flush();
+			} else if (appendable instanceof Flushable) {
+				((Flushable)appendable).flush();
+			}
+		} catch (IOException e) {
+			throw new VectorzException("Error writing text output",e);
+		}
+	}
+
+	/**
+	 * Flushes any buffered output and closes the target, if it is Closeable
+	 */
+	@Override
+	public void close() {
+		flush();
+		try {
+			if (writer!=null) {
+				writer.close();
+			} else if (stream!=null) {
+				stream.close();
+			} else if (appendable instanceof Closeable) {
+				((Closeable)appendable).close();
+			}
+		} catch (IOException e) {
+			throw new VectorzException("Error closing text output",e);
+		}
+	}
+}
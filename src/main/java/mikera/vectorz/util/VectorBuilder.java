@@ -1,11 +1,16 @@
 package mikera.vectorz.util;
 
+import java.nio.DoubleBuffer;
+
 import mikera.vectorz.AVector;
 import mikera.vectorz.Vectorz;
 import mikera.vectorz.impl.ArraySubVector;
 
 /**
  * Utility class for efficiently building vectors by addition of doubles
+ * 
+ * The internal buffer grows geometrically, so appending n doubles takes O(n) time.
+ * 
  * @author Mike
  */
 public class VectorBuilder {
@@ -23,7 +28,7 @@ public class VectorBuilder {
 	
 	private void ensureSize(int newSize) {
 		if (newSize>data.length) {
-			double[] nd=new double[Math.min(newSize, data.length*2)];
+			double[] nd=new double[DoubleArrays.growCapacity(data.length, newSize)];
 			System.arraycopy(data, 0, nd, 0, length);
 			data=nd;
 		}
@@ -33,7 +38,53 @@ public class VectorBuilder {
 		ensureSize(length+1);
 		data[length++]=d;
 	}
-
+	
+	/**
+	 * Adds a range of values from a double array
+	 */
+	public void addAll(double[] values, int offset, int length) {
+		ensureSize(this.length+length);
+		System.arraycopy(values, offset, data, this.length, length);
+		this.length+=length;
+	}
+	
+	public void addAll(double[] values) {
+		addAll(values,0,values.length);
+	}
+	
+	/**
+	 * Adds all elements of a vector
+	 */
+	public void addAll(AVector v) {
+		int vl=v.length();
+		ensureSize(length+vl);
+		v.copyTo(data, length);
+		length+=vl;
+	}
+	
+	/**
+	 * Adds all remaining elements of a DoubleBuffer. The buffer position is advanced to its limit.
+	 */
+	public void addAll(DoubleBuffer buf) {
+		int n=buf.remaining();
+		ensureSize(length+n);
+		buf.get(data, length, n);
+		length+=n;
+	}
+	
+	/**
+	 * Returns the number of doubles added so far
+	 */
+	public int length() {
+		return length;
+	}
+	
+	/**
+	 * Clears the builder, retaining the current capacity
+	 */
+	public void clear() {
+		length=0;
+	}
 
 	/**
 	 * Creates a vector that wraps the internal data of this VectorBuilder.
@@ -0,0 +1,101 @@
+package mikera.vectorz.util;
+
+import java.util.Arrays;
+
+/**
+ * Thread-local arena of scratch double[] arrays for use inside algorithms.
+ *
+ * Arrays are handed out in stack order within an acquire/release scope, and are reused by
+ * later scopes on the same thread, so steady-state hot loops allocate nothing:
+ * <pre>
+ *   Workspace ws=Workspace.acquire();
+ *   try {
+ *     double[] tmp=ws.getArray(n);
+ *     ...
+ *   } finally {
+ *     ws.release();
+ *   }
+ * </pre>
+ *
+ * Scopes may be nested. Arrays returned by getArray may be longer than requested and contain
+ * arbitrary values, and must not be used after the enclosing scope is released. A Workspace
+ * must only be used by the thread that acquired it.
+ *
+ * @author Mike
+ *
+ */
+public final class Workspace implements AutoCloseable {
+	/**
+	 * Arrays longer than this are allocated on demand and not retained between scopes
+	 */
+	public static final int MAX_RETAINED_LENGTH=1<<20;
+
+	private static final ThreadLocal<Workspace> CURRENT=new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	private double[][] arrays=new double[8][];
+	private int top=0;
+	private int[] marks=new int[8];
+	private int depth=0;
+
+	private Workspace() {
+	}
+
+	/**
+	 * Opens a new scope on the current thread's workspace
+	 */
+	public static Workspace acquire() {
+		Workspace ws=CURRENT.get();
+		if (ws.depth==ws.marks.length) ws.marks=Arrays.copyOf(ws.marks, ws.depth*2);
+		ws.marks[ws.depth++]=ws.top;
+		return ws;
+	}
+
+	/**
+	 * Closes the innermost scope, making its arrays available for reuse
+	 */
+	public void release() {
+		if (depth==0) throw new VectorzException("Workspace released without a matching acquire");
+		top=marks[--depth];
+	}
+
+	@Override
+	public void close() {
+		release();
+	}
+
+	/**
+	 * Returns a scratch array with at least the given length and arbitrary contents
+	 */
+	public double[] getArray(int length) {
+		if (depth==0) throw new VectorzException("Workspace used outside an acquire/release scope");
+		if (top==arrays.length) arrays=Arrays.copyOf(arrays, top*2);
+		double[] a=arrays[top];
+		if ((a==null)||(a.length<length)) {
+			a=new double[length];
+			if (length<=MAX_RETAINED_LENGTH) arrays[top]=a;
+		}
+		top++;
+		return a;
+	}
+
+	/**
+	 * Returns a scratch array with at least the given length, with the first length elements set to zero
+	 */
+	public double[] getZeroArray(int length) {
+		double[] a=getArray(length);
+		Arrays.fill(a, 0, length, 0.0);
+		return a;
+	}
+
+	/**
+	 * Returns the number of currently open scopes
+	 */
+	public int depth() {
+		return depth;
+	}
+}
@@ -1,12 +1,29 @@
 package mikera.arrayz;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
 
 import mikera.arrayz.impl.IStridedArray;
+import mikera.indexz.Index;
+import mikera.arrayz.impl.MappedStorage;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.Matrixx;
+import mikera.matrixx.impl.BandedMatrix;
+import mikera.matrixx.impl.DiagonalMatrix;
+import mikera.matrixx.impl.PermutationMatrix;
 import mikera.matrixx.impl.VectorMatrixM3;
 import mikera.vectorz.AVector;
 import mikera.vectorz.Op;
@@ -15,9 +32,13 @@ import mikera.vectorz.TestOps;
 import mikera.vectorz.Tools;
 import mikera.vectorz.Vector;
 import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.BufferVector;
+import mikera.vectorz.impl.SparseIndexedVector;
 import mikera.vectorz.ops.Constant;
 import mikera.vectorz.util.DoubleArrays;
 import mikera.vectorz.util.IntArrays;
+import mikera.vectorz.util.Parallel;
+import mikera.vectorz.util.VectorzException;
 import static org.junit.Assert.*;
 
 import org.junit.Test;
@@ -263,6 +284,23 @@ public class TestArrays {
 		assertEquals(a, vv.reshape(a.getShape()));
 	}
 
+	private void testBinaryRoundTrip(INDArray a) {
+		ByteBuffer buf = BinaryFormat.toByteBuffer(a);
+		assertEquals(BinaryFormat.byteSize(a), buf.remaining());
+		INDArray b = BinaryFormat.read(buf);
+		assertEquals(0, buf.remaining());
+		assertEquals(a, b);
+		
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			BinaryFormat.write(a, bos);
+			assertEquals(BinaryFormat.byteSize(a), bos.size());
+			assertEquals(a, BinaryFormat.read(new ByteArrayInputStream(bos.toByteArray())));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	private void testMultiply(INDArray a) {
 		if (!a.isFullyMutable()) return;
 		INDArray m = a.exactClone();
@@ -387,6 +425,55 @@ public class TestArrays {
 		assertEquals(m.elementCount(),i);
 	}
 	
+	private void testElementStream(INDArray a) {
+		final double[] expected=a.toDoubleArray();
+		int n=expected.length;
+		assertTrue(Arrays.equals(expected, a.elementStream().toArray()));
+		assertEquals(n,a.elementStream().parallel().count());
+		assertEquals(a.elementSum(),a.elementStream().parallel().sum(),0.0001);
+		assertEquals(n,a.elementSpliterator().estimateSize());
+		
+		final double[] visited=new double[n];
+		a.visitElements(new IElementVisitor() {
+			@Override
+			public void visit(long index, double value) {
+				visited[(int)index]=value;
+			}
+		});
+		assertTrue(Arrays.equals(expected, visited));
+		
+		final double[] consumed=new double[n];
+		final int[] count=new int[1];
+		DoubleConsumer collector=new DoubleConsumer() {
+			@Override
+			public void accept(double value) {
+				consumed[count[0]++]=value;
+			}
+		};
+		a.forEachElement(collector);
+		assertTrue(Arrays.equals(expected, consumed));
+		
+		count[0]=0;
+		Arrays.fill(consumed, Double.NaN);
+		traverseSplits(a.elementSpliterator(),collector);
+		assertEquals(n,count[0]);
+		assertTrue(Arrays.equals(expected, consumed));
+	}
+	
+	private void traverseSplits(Spliterator.OfDouble s, DoubleConsumer action) {
+		long size=s.estimateSize();
+		Spliterator.OfDouble prefix=s.trySplit();
+		if (prefix==null) {
+			s.forEachRemaining(action);
+			return;
+		}
+		assertEquals(size,prefix.estimateSize()+s.estimateSize());
+		traverseSplits(prefix,action);
+		if (s.tryAdvance(action)) {
+			traverseSplits(s,action);
+		}
+	}
+	
 	private void testStridedArray(INDArray mm) {
 		if (!(mm instanceof IStridedArray)) {
 			assertNull(mm.asDoubleArray());
@@ -478,6 +565,65 @@ public class TestArrays {
 		}
 	}
 
+	private void testReduce(INDArray a) {
+		int dims=a.dimensionality();
+		for (int d=0; d<dims; d++) {
+			int n=a.getShape(d);
+			INDArray sum=a.reduce(d, Reduction.SUM);
+			assertEquals(dims-1,sum.dimensionality());
+			if (n==0) continue;
+			INDArray expected=a.slice(d, 0).clone();
+			for (int i=1; i<n; i++) {
+				expected.add(a.slice(d, i));
+			}
+			assertTrue(expected.epsilonEquals(sum));
+			expected.divide(n);
+			assertTrue(expected.epsilonEquals(a.reduce(d, Reduction.MEAN)));
+		}
+	}
+
+	@Test
+	public void testReductions() {
+		NDArray nd=NDArray.newArray(3, 4, 5);
+		Vectorz.fillIndexes(nd.asVector());
+		nd.set(new int[] {1, 2, 3}, -100.0);
+		INDArray max=nd.reduce(1, Reduction.MAX);
+		assertTrue(Arrays.equals(new int[] {3, 5}, max.getShape()));
+		assertEquals(Math.max(Math.max(nd.get(0, 0, 2), nd.get(0, 1, 2)), Math.max(nd.get(0, 2, 2), nd.get(0, 3, 2))), max.get(0, 2), 0.0);
+		assertEquals(-100.0, nd.reduce(2, Reduction.MIN).get(1, 2), 0.0);
+		assertEquals(nd.slice(0, 2).reduce(0, Reduction.SUM), nd.reduce(1, Reduction.SUM).slice(0, 2));
+
+		Matrix m=Matrix.create(Matrixx.createRandomMatrix(3, 4));
+		AVector norms=(AVector)m.reduce(1, Reduction.NORM);
+		assertEquals(m.getRow(1).magnitude(), norms.get(1), 0.000001);
+		assertTrue(m.getTranspose().reduce(1, Reduction.SUM).epsilonEquals(m.reduce(0, Reduction.SUM)));
+		assertEquals(m.elementSum(), m.reduce(0, Reduction.SUM).reduce(0, Reduction.SUM).get(), 0.000001);
+		assertEquals(6.0, Vector.of(1, 2, 3).reduce(0, Reduction.SUM).get(), 0.0);
+
+		int oldThreshold=Parallel.getThreshold();
+		try {
+			Parallel.setThreshold(1000);
+			Array big=Array.newArray(30, 50, 40);
+			big.asVector().set(Vectorz.createUniformRandomVector(60000));
+			for (int d=0; d<3; d++) {
+				for (Reduction r : Reduction.values()) {
+					assertTrue(r.reduce(big, d).epsilonEquals(r.reduceParallel(big, d)));
+				}
+			}
+			Matrix bm=Matrix.create(Matrixx.createRandomMatrix(50, 2000));
+			assertTrue(bm.reduce(0, Reduction.SUM).epsilonEquals(Reduction.SUM.reduceParallel(bm, 0)));
+		} finally {
+			Parallel.setThreshold(oldThreshold);
+		}
+
+		try {
+			m.reduce(2, Reduction.SUM);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+
 	public void testArray(INDArray a) {
 		a.validate();
 		testAsVector(a);
@@ -486,6 +632,7 @@ public class TestArrays {
 		testApplyOp(a);
 		testApplyAllOps(a);
 		testElementIterator(a);
+		testElementStream(a);
 		testStridedArray(a);
 		testBoolean(a);
 		testSums(a);
@@ -504,8 +651,140 @@ public class TestArrays {
 		testClone(a);
 		testMutability(a);
 		testSlices(a);
+		testReduce(a);
 		testParserRoundTrip(a);
 		testBufferRoundTrip(a);
+		testBinaryRoundTrip(a);
+	}
+
+	@Test
+	public void testBinaryFormat() throws IOException {
+		SparseIndexedVector sv = SparseIndexedVector.create(1000000, Index.of(3, 70, 99999), new double[] {1, 2, 3});
+		ByteBuffer b = BinaryFormat.toByteBuffer(sv);
+		assertTrue(b.remaining() < 100);
+		INDArray r = BinaryFormat.read(b);
+		assertEquals(SparseIndexedVector.class, r.getClass());
+		assertEquals(sv, r);
+		
+		INDArray[] compact = {DiagonalMatrix.create(1, 2, 3), 
+				BandedMatrix.wrap(3, 4, -1, 1, Vector.of(1, 2), Vector.of(3, 4, 5), Vector.of(6, 7, 8)),
+				PermutationMatrix.create(2, 0, 1)};
+		for (INDArray a : compact) {
+			INDArray c = BinaryFormat.read(BinaryFormat.toByteBuffer(a));
+			assertEquals(a.getClass(), c.getClass());
+			assertEquals(a, c);
+		}
+		
+		Index ix = Index.of(5, 1, 4);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		BinaryFormat.write(ix, bos);
+		assertEquals(BinaryFormat.byteSize(ix), bos.size());
+		assertEquals(ix, BinaryFormat.readIndex(new ByteArrayInputStream(bos.toByteArray())));
+		
+		// consecutive records on one stream are read back one at a time
+		AVector big = Vectorz.createUniformRandomVector(20000);
+		bos = new ByteArrayOutputStream();
+		BinaryFormat.write(big, bos);
+		BinaryFormat.write(sv, bos);
+		BinaryFormat.write(Matrix.create(DiagonalMatrix.create(1, 2, 3)), bos);
+		ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
+		assertEquals(big, BinaryFormat.read(bis));
+		assertEquals(sv, BinaryFormat.read(bis));
+		assertEquals(DiagonalMatrix.create(1, 2, 3), BinaryFormat.read(bis));
+		assertEquals(0, bis.available());
+		
+		// header is little-endian regardless of the buffer's byte order
+		ByteBuffer be = ByteBuffer.allocate(100);
+		BinaryFormat.write(Vector.of(1, 2), be);
+		assertEquals(ByteOrder.BIG_ENDIAN, be.order());
+		assertEquals(2, be.order(ByteOrder.LITTLE_ENDIAN).getInt(12));
+	}
+
+	@Test
+	public void testNpyFormat() throws IOException {
+		INDArray[] arrays = {Scalar.create(2.5), Vector.of(1, 2, 3), Matrixx.createRandomMatrix(3, 4), Array.wrap(Vector.of(1, 2, 3, 4, 5, 6, 7, 8).getArray(), new int[] {2, 2, 2})};
+		for (INDArray a : arrays) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			NpyFormat.write(a, bos);
+			byte[] bytes = bos.toByteArray();
+			// data is aligned after the header
+			assertEquals(0, (bytes.length - 8 * a.elementCount()) % 64);
+			INDArray r = NpyFormat.read(new ByteArrayInputStream(bytes));
+			assertEquals(a, r);
+			assertEquals(a, NpyFormat.read(ByteBuffer.wrap(bytes)));
+		}
+
+		// header as written by numpy for np.array([[1,2,3],[4,5,6]], dtype='>i4', order='F')
+		String header = "{'descr': '>i4', 'fortran_order': True, 'shape': (2, 3), }";
+		ByteBuffer b = ByteBuffer.allocate(10 + header.length() + 1 + 24);
+		b.put(new byte[] {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0});
+		b.order(ByteOrder.LITTLE_ENDIAN).putShort((short) (header.length() + 1));
+		b.put(header.getBytes("ISO-8859-1")).put((byte) '\n');
+		b.order(ByteOrder.BIG_ENDIAN);
+		for (int v : new int[] {1, 4, 2, 5, 3, 6}) {
+			b.putInt(v);
+		}
+		b.flip();
+		assertEquals(Matrixx.create(Vector.of(1, 2, 3), Vector.of(4, 5, 6)), NpyFormat.read(b));
+
+		File f = File.createTempFile("vectorz-npy", ".npy");
+		f.deleteOnExit();
+		NDArray nd = NDArray.newArray(4, 3, 2);
+		Vectorz.fillIndexes(nd.asVector());
+		NpyFormat.write(nd, f);
+		assertEquals(nd, NpyFormat.read(f));
+		INDArray mapped = NpyFormat.map(f, true);
+		assertEquals(MappedArray.class, mapped.getClass());
+		assertEquals(nd, mapped);
+		((MappedArray) mapped).close();
+
+		Map<String, INDArray> npz = new LinkedHashMap<String, INDArray>();
+		npz.put("x", Vector.of(1, 2));
+		npz.put("y", Matrixx.createRandomMatrix(2, 5));
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		NpyFormat.writeNpz(npz, bos);
+		assertEquals(npz, NpyFormat.readNpz(new ByteArrayInputStream(bos.toByteArray())));
+	}
+
+	@Test
+	public void testMappedArray() throws IOException {
+		File f=File.createTempFile("vectorz-mapped", ".dat");
+		f.deleteOnExit();
+		NDArray nd=NDArray.newArray(4, 3, 2);
+		Vectorz.fillIndexes(nd.asVector());
+		
+		MappedArray m=MappedArray.create(f, 4, 3, 2);
+		m.set(nd);
+		assertEquals(nd,m);
+		m.force();
+		m.close();
+		
+		// small chunks, to check slices are mapped across chunk boundaries
+		MappedStorage s=MappedStorage.map(f, 0, 6, 4, true, 100);
+		assertEquals(2,s.chunkCount());
+		assertEquals(21.0,s.get(3, 3),0.0);
+		assertEquals(nd.slice(3).asVector(),BufferVector.wrap(s.sliceBuffer(3), s.sliceOffset(3), 6));
+		s.close();
+		
+		MappedArray r=MappedArray.map(f, 0, true, 4, 3, 2);
+		assertEquals(nd,r);
+		assertFalse(r.isMutable());
+		testArray(r);
+		testArray(MappedArray.map(f, 0, false, 4, 3, 2));
+		
+		r.close();
+		try {
+			r.slice(0);
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			r.elementSum();
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
 	}
 
 	@Test
@@ -531,6 +810,8 @@ public class TestArrays {
 		Vectorz.fillIndexes(nd3.asVector());
 		testArray(nd3);
 		testArray(Array.create(nd3));
+		testArray(BufferArray.create(nd3));
+		testArray(Arrayz.createDirect(2, 2, 3, 2));
 
 		NDArray ndscalar = NDArray.newArray();
 		ndscalar.set(1.0);
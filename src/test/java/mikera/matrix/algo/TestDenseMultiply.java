@@ -18,6 +18,51 @@ public class TestDenseMultiply {
 		assertEquals(ip,Multiplications.naiveMultiply(m, m));
 	}
 	
+	@Test public void testMulToDest() {
+		Matrix a=(Matrix)Matrixx.createRandomMatrix(40, 30);
+		Matrix b=(Matrix)Matrixx.createRandomMatrix(30, 50);
+		Matrix ip=Multiplications.naiveMultiply(a, b).toMatrix();
+		
+		Matrix dest=Matrix.create(40, 50);
+		Multiplications.multiply(a, b, dest);
+		assertEquals(ip,dest);
+		
+		dest.fill(Double.NaN);
+		Multiplications.doubleBlockedMultiply(a, b, dest);
+		assertEquals(ip,dest);
+		assertEquals(ip,Multiplications.doubleBlockedMultiply(a, b));
+		
+		dest.fill(Double.NaN);
+		a.innerProduct(b, dest);
+		assertEquals(ip,dest);
+		
+		Matrix sq=(Matrix)Matrixx.createRandomMatrix(30, 30);
+		try {
+			sq.innerProduct(sq, sq);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		try {
+			a.innerProduct(sq, a);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		try {
+			Multiplications.multiply(a, sq, a);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+		try {
+			Multiplications.doubleBlockedMultiply(sq, sq, sq);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
+	
 	@Test public void testSmallMul() {
 		Matrix m=(Matrix)Matrixx.createRandomMatrix(5, 5);
 		Matrix ip=m.innerProduct(m);
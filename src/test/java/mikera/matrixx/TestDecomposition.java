@@ -2,15 +2,25 @@ package mikera.matrixx;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 
+import mikera.matrixx.algo.Batch;
 import mikera.matrixx.algo.Cholesky;
 import mikera.matrixx.algo.LU;
 import mikera.matrixx.algo.QR;
 import mikera.matrixx.algo.ThinSVD;
 import mikera.matrixx.impl.IdentityMatrix;
 import mikera.matrixx.impl.PermutationMatrix;
+import mikera.vectorz.AVector;
 import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+import mikera.vectorz.util.Parallel;
+import mikera.vectorz.util.VectorzException;
 
 public class TestDecomposition {
 
@@ -50,6 +60,39 @@ public class TestDecomposition {
 		assertEquals(a,ms[2].inverse());
 	}
 	
+	@Test public void testBlockedLU() {
+		AMatrix a=Matrixx.createRandomSquareMatrix(103);
+		AMatrix[] expected=LU.decomposeLUP(a);
+
+		ForkJoinPool pool=new ForkJoinPool(3);
+		int oldThreshold=Parallel.getThreshold();
+		try {
+			Parallel.setPool(pool);
+			Parallel.setThreshold(1000);
+			for (int nb : new int[] {1, 8, 17, 200}) {
+				for (boolean lookahead : new boolean[] {false, true}) {
+					AMatrix[] ms=LU.decomposeLUPParallel(a, nb, lookahead);
+					assertTrue(ms[0].isLowerTriangular());
+					assertTrue(ms[1].isUpperTriangular());
+					assertEquals(expected[2], ms[2]);
+					assertTrue(expected[0].epsilonEquals(ms[0]));
+					assertTrue(expected[1].epsilonEquals(ms[1]));
+					assertTrue(ms[2].innerProduct(a).epsilonEquals(ms[0].innerProduct(ms[1])));
+				}
+			}
+		} finally {
+			Parallel.setPool(null);
+			Parallel.setThreshold(oldThreshold);
+			pool.shutdown();
+		}
+
+		a=PermutationMatrix.create(0, 2,1,3);
+		AMatrix[] ms=LU.decomposeLUPParallel(a);
+		assertEquals(IdentityMatrix.create(4),ms[0]);
+		assertEquals(IdentityMatrix.create(4),ms[1]);
+		assertEquals(a,ms[2].inverse());
+	}
+	
 	@Test public void testQR() {
 		
 		AMatrix a=Matrixx.createRandomMatrix(5, 4);
@@ -87,4 +130,66 @@ public class TestDecomposition {
 		assertTrue(s.isRectangularDiagonal()); 
 		assertTrue(u.hasOrthonormalColumns()); 
 	}
+
+	@Test public void testBatch() {
+		int count=300;
+		ArrayList<Batch.Job<?>> jobs=new ArrayList<Batch.Job<?>>();
+		AMatrix[] as=new AMatrix[count];
+		AMatrix[] bs=new AMatrix[count];
+		AVector[] vs=new AVector[count];
+		for (int i=0; i<count; i++) {
+			int n=(i%50==0)?60:(2+i%7);
+			as[i]=Matrixx.createRandomSquareMatrix(n);
+			as[i].add(Matrixx.createScaleMatrix(n, n));
+			bs[i]=Matrixx.createRandomMatrix(n, 3);
+			vs[i]=Vectorz.createUniformRandomVector(n);
+			switch (i%3) {
+				case 0: jobs.add(Batch.multiply(as[i], bs[i])); break;
+				case 1: jobs.add(Batch.solve(as[i], vs[i])); break;
+				default: jobs.add(Batch.decomposeLUP(as[i])); break;
+			}
+		}
+
+		ForkJoinPool pool=new ForkJoinPool(3);
+		try {
+			List<Object> results=Batch.execute(jobs, pool);
+			assertEquals(count, results.size());
+			for (int i=0; i<count; i++) {
+				Object r=results.get(i);
+				switch (i%3) {
+					case 0:
+						assertTrue(as[i].innerProduct(bs[i]).epsilonEquals((AMatrix)r));
+						break;
+					case 1:
+						assertTrue(vs[i].epsilonEquals(as[i].transform((AVector)r)));
+						break;
+					default:
+						AMatrix[] lup=(AMatrix[])r;
+						assertTrue(lup[2].innerProduct(as[i]).epsilonEquals(lup[0].innerProduct(lup[1])));
+						break;
+				}
+			}
+
+			// a failing job is rethrown from execute
+			jobs.add(Batch.solve(Matrix.create(4, 4), Vector.of(1, 2, 3, 4)));
+			try {
+				Batch.execute(jobs, pool);
+				fail();
+			} catch (VectorzException e) {
+				// OK
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		try {
+			Batch.execute(Collections.singletonList(Batch.solve(Matrix.create(2, 2), Vector.of(1, 2))));
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+
+		List<Vector> xs=Batch.execute(Collections.singletonList(Batch.solve(as[1], vs[1])));
+		assertTrue(vs[1].epsilonEquals(as[1].transform(xs.get(0))));
+	}
 }
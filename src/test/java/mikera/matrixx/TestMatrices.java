@@ -11,8 +11,10 @@ import mikera.matrixx.impl.PermutationMatrix;
 import mikera.matrixx.impl.StridedMatrix;
 import mikera.matrixx.impl.SubsetMatrix;
 import mikera.matrixx.impl.ZeroMatrix;
+import mikera.vectorz.AVector;
 import mikera.vectorz.Vector;
 import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.AStridedVector;
 import mikera.vectorz.impl.SparseIndexedVector;
 
 public class TestMatrices {
@@ -98,6 +100,39 @@ public class TestMatrices {
 		assertTrue(m.getTranspose() instanceof Matrix);
 	}
 	
+	@Test public void testStridedColumnOps() {
+		Matrix m=Matrixx.createRandomMatrix(4, 3).toMatrix();
+		AStridedVector c0=m.getColumn(0);
+		AStridedVector c2=m.getColumn(2);
+		Vector v0=c0.toVector();
+		Vector v2=c2.toVector();
+		
+		assertEquals(v0.dotProduct(v2),c0.dotProduct(c2),0.000001);
+		
+		c0.addMultiple(c2,2.0);
+		v0.addMultiple(v2,2.0);
+		assertEquals(v0,c0);
+		
+		c0.add(c2);
+		v0.add(v2);
+		assertEquals(v0,c0);
+		
+		AVector dest=Vector.createLength(4);
+		c2.copyTo(dest, 0);
+		assertEquals(v2,dest);
+		
+		c0.set(c2);
+		assertEquals(v2,m.getColumn(0));
+		
+		StridedMatrix sm=StridedMatrix.wrap(m.getArray(), 3, 4, 0, 1, 3);
+		Matrix t=m.getTranspose().toMatrix();
+		assertEquals(t,sm);
+		t.add(sm);
+		sm.add(sm.clone());
+		assertEquals(t,sm);
+		assertEquals(sm.transform(v2),t.transform(v2));
+	}
+	
 	@Test public void testPermutationMatrix() {
 		PermutationMatrix p=PermutationMatrix.createRandomPermutation(10);
 		
@@ -1,6 +1,12 @@
 package mikera.matrixx;
 
 import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
 import mikera.arrayz.NDArray;
 import mikera.arrayz.TestArrays;
 import mikera.indexz.Index;
@@ -8,11 +14,18 @@ import mikera.indexz.Indexz;
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrixx;
 import mikera.matrixx.impl.BandedMatrix;
+import mikera.matrixx.impl.BufferMatrix;
+import mikera.matrixx.impl.ChunkedMatrix;
 import mikera.matrixx.impl.ColumnMatrix;
+import mikera.matrixx.impl.CompressedMatrix;
+import mikera.matrixx.impl.DoubleBufferedMatrix;
+import mikera.matrixx.impl.FloatMatrix;
+import mikera.matrixx.impl.MappedMatrix;
 import mikera.matrixx.impl.PermutationMatrix;
 import mikera.matrixx.impl.PermutedMatrix;
 import mikera.matrixx.impl.RowMatrix;
 import mikera.matrixx.impl.ScalarMatrix;
+import mikera.matrixx.impl.SnapshotMatrix;
 import mikera.matrixx.impl.StridedMatrix;
 import mikera.matrixx.impl.SubsetMatrix;
 import mikera.matrixx.impl.VectorMatrixM3;
@@ -23,7 +36,14 @@ import mikera.vectorz.AVector;
 import mikera.vectorz.Vector;
 import mikera.vectorz.Vector3;
 import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.ChunkedVector;
+import mikera.vectorz.impl.DictionaryVector;
+import mikera.vectorz.impl.FloatVector;
+import mikera.vectorz.impl.RunLengthVector;
+import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.impl.XorCompressedVector;
 import mikera.vectorz.ops.Constant;
+import mikera.vectorz.util.VectorzException;
 
 import org.junit.Test;
 
@@ -623,6 +643,202 @@ public class TestMatrixx {
 		new TestArrays().testArray(m);
 	}
 
+	@Test public void testFloatMatrix() {
+		Matrix m=Matrixx.create(new double[][] {{1,2,3},{4,5,6}});
+		FloatMatrix fm=FloatMatrix.create(m);
+		assertEquals(m,fm);
+		assertEquals(m,fm.toMatrix());
+
+		AVector v=Vector.of(1,-1,2);
+		assertEquals(m.transform(v),fm.transform(v));
+		assertEquals(m.transform(v),fm.transform(FloatVector.create(v)));
+
+		FloatMatrix t=FloatMatrix.create(m.getTranspose());
+		AMatrix p=fm.innerProduct((AMatrix)t);
+		assertTrue(p instanceof FloatMatrix);
+		assertEquals(m.innerProduct(m.getTranspose()),p);
+
+		FloatMatrix r=Matrixx.createFloat(20, 30);
+		AMatrix d=Matrixx.createRandomMatrix(20, 30);
+		r.set(d);
+		assertTrue(d.epsilonEquals(r, 1e-6));
+
+		AVector row=fm.getRow(1);
+		assertEquals(FloatVector.class,row.getClass());
+		row.multiply(2.0);
+		assertEquals(Vector.of(8,10,12),fm.getRow(1));
+		assertEquals(FloatMatrix.class,fm.exactClone().getClass());
+		fm.validate();
+	}
+
+	@Test public void testChunkedMatrix() {
+		AMatrix m=Matrixx.createRandomMatrix(7, 9);
+		ChunkedMatrix cm=ChunkedMatrix.create(7, 9, 3);
+		cm.set(m);
+		assertEquals(m,cm);
+		assertEquals(8,cm.getStorage().pageCount());
+		assertEquals(m.elementSum(),cm.elementSum(),0.000001);
+		assertEquals(m.elementSum(),cm.elementStream().parallel().sum(),0.000001);
+
+		AVector v=Vectorz.createUniformRandomVector(9);
+		assertTrue(m.transform(v).epsilonEquals(cm.transform(v)));
+
+		// rows cross page boundaries
+		AVector row=cm.getRow(1);
+		row.fill(2.0);
+		assertEquals(18.0,cm.getRow(1).elementSum(),0.0);
+		assertEquals(m.getRow(2),cm.getRow(2));
+	}
+
+	@Test public void testCompressedMatrix() {
+		Matrix m=Matrix.create(4, 300);
+		m.getRow(0).fill(2.0);
+		for (int j=0; j<300; j++) {
+			m.set(1, j, j%3);
+			m.set(2, j, 10.0+j*0.125);
+			m.set(3, j, (j<100)?0.0:1.0);
+		}
+		CompressedMatrix cm=Matrixx.createCompressed(m);
+		assertEquals(m,cm);
+		assertEquals(RunLengthVector.class,cm.getRow(0).getClass());
+		assertEquals(DictionaryVector.class,cm.getRow(1).getClass());
+		assertEquals(XorCompressedVector.class,cm.getRow(2).getClass());
+		assertTrue(cm.compressedSize()<m.elementCount()*8/4);
+		assertEquals(m.elementSum(),cm.elementSum(),0.000001);
+
+		AVector v=Vectorz.createUniformRandomVector(300);
+		assertTrue(m.transform(v).epsilonEquals(cm.transform(v)));
+		assertTrue(m.transform(v).epsilonEquals(cm.transform(ChunkedVector.create(v))));
+		assertEquals(m,cm.toMatrix());
+		assertFalse(cm.isMutable());
+	}
+
+	@Test public void testDoubleBufferedMatrix() throws InterruptedException {
+		AMatrix m=Matrixx.createRandomMatrix(5, 4);
+		DoubleBufferedMatrix b=DoubleBufferedMatrix.create(m);
+		SnapshotMatrix s1=b.getSnapshot();
+		assertEquals(m,s1);
+		assertEquals(0,b.dirtyRowCount());
+
+		b.set(2, 1, 10.0);
+		b.addAt(2, 3, 1.0);
+		assertEquals(1,b.dirtyRowCount());
+		assertEquals(m,b.getSnapshot());
+		SnapshotMatrix s2=b.publish();
+		assertEquals(10.0,s2.get(2, 1),0.0);
+		assertEquals(m.get(2, 1),s1.get(2, 1),0.0);
+		assertTrue(s1.sharesRow(s2, 0));
+		assertFalse(s1.sharesRow(s2, 2));
+		assertEquals(b,s2);
+		assertFalse(s2.isMutable());
+
+		// readers must always see every row from the same tick
+		final DoubleBufferedMatrix state=DoubleBufferedMatrix.create(20, 50);
+		final int ticks=2000;
+		final boolean[] consistent={true};
+		Thread reader=new Thread() {
+			@Override
+			public void run() {
+				double last=0.0;
+				while (last<ticks) {
+					SnapshotMatrix s=state.getSnapshot();
+					double tick=s.get(0, 0);
+					if ((tick<last)||(s.elementSum()!=tick*1000)) consistent[0]=false;
+					last=tick;
+				}
+			}
+		};
+		reader.start();
+		for (int t=1; t<=ticks; t++) {
+			state.fill(t);
+			state.publish();
+		}
+		reader.join();
+		assertTrue(consistent[0]);
+	}
+
+	@Test public void testMatrixMarket() {
+		String coordinate="%%MatrixMarket matrix coordinate real symmetric\n"
+				+"% lower triangle of a 3x3 matrix\n"
+				+"3 3 4\n"
+				+"1 1 2.0\n"
+				+"3 1 -1.5\n"
+				+"2 2 4\n"
+				+"3 1 0.5\n";
+		AMatrix m=MatrixMarket.read(new StringReader(coordinate));
+		assertEquals(Matrixx.create(Vector.of(2,0,-1),Vector.of(0,4,0),Vector.of(-1,0,0)),m);
+		assertEquals(SparseIndexedVector.class,m.getRow(2).getClass());
+		assertEquals(1,((SparseIndexedVector)m.getRow(2)).nonSparseElementCount());
+
+		String array="%%MatrixMarket matrix array real general\n"
+				+"2 3\n"
+				+"1\n4\n2\n5\n3\n6\n";
+		assertEquals(Matrixx.create(Vector.of(1,2,3),Vector.of(4,5,6)),MatrixMarket.read(new StringReader(array)));
+
+		AMatrix pattern=MatrixMarket.read(new StringReader("%%MatrixMarket matrix coordinate pattern general\n2 2 1\n2 1\n"));
+		assertEquals(Matrixx.create(Vector.of(0,0),Vector.of(1,0)),pattern);
+
+		AMatrix r=Matrixx.createRandomMatrix(4, 3);
+		StringWriter sw=new StringWriter();
+		MatrixMarket.writeArray(r, sw);
+		assertEquals(r,MatrixMarket.read(new StringReader(sw.toString())));
+		sw=new StringWriter();
+		MatrixMarket.write(m, sw);
+		assertTrue(sw.toString().startsWith("%%MatrixMarket matrix coordinate"));
+		assertEquals(m,MatrixMarket.read(new StringReader(sw.toString())));
+	}
+
+	@Test public void testMappedMatrix() throws IOException {
+		File f=File.createTempFile("vectorz-mapped", ".dat");
+		f.deleteOnExit();
+		AMatrix src=Matrixx.createRandomMatrix(5, 4);
+		
+		MappedMatrix m=MappedMatrix.create(f, 5, 4);
+		m.set(src);
+		m.force();
+		m.close();
+		assertTrue(m.isClosed());
+		
+		MappedMatrix r=MappedMatrix.map(f, 5, 4, true);
+		assertEquals(src,r);
+		assertEquals(src.getRow(3),r.getRow(3));
+		assertFalse(r.isFullyMutable());
+		try {
+			r.set(0,0,1.0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// OK
+		}
+		doGenericTests(r);
+		doGenericTests(MappedMatrix.map(f, 5, 4, false));
+		
+		r.close();
+		try {
+			r.getRow(0);
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			r.unsafeGet(0,0);
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			r.elementSquaredSum();
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			r.toMatrix();
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+	}
+	
 	@Test public void genericTests() {
 		// zero matrices
 		doGenericTests(Matrixx.createImmutableZeroMatrix(3, 2));
@@ -701,6 +917,16 @@ public class TestMatrixx {
 		
 		doGenericTests(BandedMatrix.create(3, 3, -2, 2));
 		doGenericTests(BandedMatrix.wrap(3, 4, 0, 0,Vector.of(1,2,3)));
+		
+		doGenericTests(BufferMatrix.create(Matrixx.createRandomMatrix(3, 4)));
+		doGenericTests(Matrixx.createDirect(1, 1));
+		doGenericTests(ChunkedMatrix.create(Matrixx.createRandomMatrix(3, 4)));
+		doGenericTests(ChunkedMatrix.create(5, 3, 2));
+		doGenericTests(CompressedMatrix.create(Matrixx.createRandomMatrix(3, 4)));
+		doGenericTests(CompressedMatrix.create(Matrix.create(2, 5)));
+		doGenericTests(DoubleBufferedMatrix.create(Matrixx.createRandomMatrix(3, 4)));
+		doGenericTests(DoubleBufferedMatrix.create(Matrixx.createRandomMatrix(3, 4)).getSnapshot());
+		doGenericTests(DoubleBufferedMatrix.create(1, 2));
 
 	}
 }
@@ -2,6 +2,9 @@ package mikera.vectorz;
 
 import static org.junit.Assert.*;
 
+import mikera.matrixx.Matrix33;
+import mikera.matrixx.Matrixx;
+import mikera.transformz.Affine34;
 import mikera.vectorz.impl.ComputedVector;
 import org.junit.Test;
 
@@ -74,4 +77,65 @@ public class Test3DVectors {
 			testVector(a.subVector(0, 2).join(a.subVector(2, 1)));
 		}
 	}
+
+	@Test public void testVector3Buffer() {
+		int n=100;
+		Vector3[] points=new Vector3[n];
+		for (int i=0; i<n; i++) {
+			points[i]=Vector3.of(i,Math.sin(i),-0.5*i);
+		}
+		points[7]=Vector3.of(0,0,0);
+		Vector3Buffer b=Vector3Buffer.create(points);
+		assertEquals(n,b.count());
+		assertEquals(points[5],b.get(5));
+
+		Affine34 t=new Affine34(Matrixx.createRotationMatrix(Vector3.of(1,2,3), 0.7),Vector3.of(1,-2,3));
+		Vector3Buffer tb=Vector3Buffer.create(n);
+		b.transform(t,tb);
+		Matrix33 m=Matrixx.createYAxisRotationMatrix(1.3);
+		Vector3Buffer mb=b.copy();
+		mb.transform(m);
+		Vector3 v=new Vector3();
+		for (int i=0; i<n; i++) {
+			t.transform(points[i],v);
+			assertTrue(v.epsilonEquals(tb.get(i)));
+			assertTrue(m.transform(points[i]).epsilonEquals(mb.get(i)));
+		}
+
+		Vector3 p=Vector3.of(1,2,3);
+		double[] d=new double[n];
+		double[] dot=new double[n];
+		b.distance(p,d);
+		b.dotProduct(tb,dot);
+		for (int i=0; i<n; i++) {
+			assertEquals(points[i].distance(p),d[i],0.000001);
+			assertEquals(points[i].dotProduct(tb.get(i)),dot[i],0.000001);
+		}
+
+		Vector3Buffer cb=b.copy();
+		cb.crossProduct(p);
+		Vector3 c=points[42].clone();
+		c.crossProduct(p);
+		assertTrue(c.epsilonEquals(cb.get(42)));
+
+		cb.set(b);
+		cb.normalise();
+		cb.magnitudes(d);
+		assertEquals(1.0,d[42],0.000001);
+		assertEquals(0.0,d[7],0.0);
+		assertEquals(b,b.copy());
+		assertNotEquals(b,cb);
+
+		Vector3Buffer nan=Vector3Buffer.create(Vector3.of(Double.NaN,0.0,1));
+		assertEquals(nan,nan.copy());
+		assertEquals(nan.hashCode(),nan.copy().hashCode());
+		assertNotEquals(nan,Vector3Buffer.create(Vector3.of(Double.NaN,-0.0,1)));
+
+		try {
+			b.transform(t,Vector3Buffer.create(n-1));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// OK
+		}
+	}
 }
@@ -39,5 +39,10 @@ public class TestGrowableVector {
 		for (int i=0; i<1000; i++) {
 			assertEquals(i,g.get(i),0.0);
 		}
+		assertTrue(g.currentCapacity()<4000);
+		
+		g.append(new double[] {1,2,3},1,2);
+		assertEquals(1002,g.length());
+		assertEquals(3.0,g.get(1001),0.0);
 	}
 }
@@ -0,0 +1,92 @@
+package mikera.vectorz;
+
+import static org.junit.Assert.*;
+
+import mikera.matrixx.Matrix;
+import mikera.matrixx.Matrixx;
+
+import org.junit.Test;
+
+public class TestRingBufferVector {
+
+	@Test public void testAppendDrop() {
+		RingBufferVector r=RingBufferVector.create(4);
+		assertEquals(0,r.length());
+		
+		for (int i=1; i<=6; i++) {
+			r.append(i);
+		}
+		assertTrue(r.isFull());
+		assertEquals(Vector.of(3,4,5,6),r);
+		
+		assertEquals(3.0,r.dropFirst(),0.0);
+		assertEquals(Vector.of(4,5,6),r);
+		r.append(7);
+		r.append(8);
+		assertEquals(Vector.of(5,6,7,8),r);
+		r.validate();
+	}
+	
+	@Test public void testWindowStatistics() {
+		RingBufferVector r=RingBufferVector.create(10);
+		for (int i=0; i<25; i++) {
+			r.append(i*0.5);
+			Vector v=r.toVector();
+			double mean=v.elementSum()/v.length();
+			double var=v.magnitudeSquared()/v.length()-mean*mean;
+			assertEquals(v.elementSum(),r.windowSum(),0.000001);
+			assertEquals(mean,r.windowMean(),0.000001);
+			assertEquals(var,r.windowVariance(),0.000001);
+		}
+		
+		r.set(2,100.0);
+		r.multiply(2.0);
+		r.add(Vectorz.createUniformRandomVector(10));
+		Vector v=r.toVector();
+		double mean=v.elementSum()/v.length();
+		assertEquals(v.elementSum(),r.windowSum(),0.000001);
+		assertEquals(v.magnitudeSquared()/v.length()-mean*mean,r.windowVariance(),0.000001);
+	}
+	
+	@Test public void testStatisticsDrift() {
+		RingBufferVector r=RingBufferVector.create(8);
+		r.append(1e16);
+		for (int i=0; i<30; i++) {
+			r.append(1.0);
+			assertTrue(r.windowVariance()>=0.0);
+		}
+		assertEquals(8.0,r.windowSum(),0.0);
+		assertEquals(1.0,r.windowMean(),0.0);
+		assertEquals(0.0,r.windowVariance(),0.0);
+		
+		for (int i=0; i<1000; i++) {
+			r.append(((i%3)==0)?1e8:-1e-8*i);
+			assertTrue(r.windowVariance()>=0.0);
+		}
+		Vector v=r.toVector();
+		double mean=v.elementSum()/v.length();
+		assertEquals(v.elementSum(),r.windowSum(),1e-6);
+		assertEquals(v.magnitudeSquared()/v.length()-mean*mean,r.windowVariance(),1e2);
+	}
+	
+	@Test public void testWrappedBulkOps() {
+		RingBufferVector r=RingBufferVector.create(5);
+		for (int i=0; i<8; i++) {
+			r.append(i);
+		}
+		Vector v=r.toVector();
+		assertEquals(Vector.of(3,4,5,6,7),v);
+		
+		Matrix m=Matrixx.createRandomMatrix(3, 5).toMatrix();
+		assertTrue(m.transform(v).epsilonEquals(m.transform(r)));
+		
+		Ops.SQUARE.applyTo(r);
+		v.square();
+		assertEquals(v,r);
+		assertEquals(v.elementSum(),r.windowSum(),0.000001);
+		
+		double[] dest=new double[3];
+		r.copyTo(1, dest, 0, 3);
+		assertEquals(v.subVector(1, 3),Vector.wrap(dest));
+	}
+}
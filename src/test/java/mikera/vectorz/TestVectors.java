@@ -2,30 +2,48 @@ package mikera.vectorz;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.PrimitiveIterator;
 
 import mikera.arrayz.INDArray;
 import mikera.arrayz.TestArrays;
+import mikera.arrayz.impl.PagedStorage;
 import mikera.indexz.Index;
 import mikera.indexz.Indexz;
 import mikera.matrixx.AMatrix;
 import mikera.matrixx.Matrixx;
 import mikera.util.Rand;
+import mikera.vectorz.impl.ACompressedVector;
 import mikera.vectorz.impl.ArraySubVector;
+import mikera.vectorz.impl.AtomicVector;
 import mikera.vectorz.impl.AxisVector;
+import mikera.vectorz.impl.BufferVector;
+import mikera.vectorz.impl.ChunkedVector;
+import mikera.vectorz.impl.DictionaryVector;
+import mikera.vectorz.impl.DoubleBufferedVector;
+import mikera.vectorz.impl.FloatVector;
 import mikera.vectorz.impl.IndexVector;
+import mikera.vectorz.impl.PersistentVector;
 import mikera.vectorz.impl.RepeatedElementVector;
+import mikera.vectorz.impl.RunLengthVector;
 import mikera.vectorz.impl.IndexedArrayVector;
 import mikera.vectorz.impl.IndexedSubVector;
 import mikera.vectorz.impl.JoinedArrayVector;
 import mikera.vectorz.impl.SingleElementVector;
 import mikera.vectorz.impl.SparseIndexedVector;
+import mikera.vectorz.impl.StripedAccumulatorVector;
 import mikera.vectorz.impl.StridedVector;
 import mikera.vectorz.impl.Vector0;
 import mikera.vectorz.impl.WrappedSubVector;
+import mikera.vectorz.impl.XorCompressedVector;
 import mikera.vectorz.ops.Constant;
+import mikera.vectorz.util.VectorzException;
 
 import org.junit.Test;
 
@@ -675,6 +693,13 @@ public class TestVectors {
 		
 		assertEquals(v.length(),count);
 		assertEquals(Vectorz.totalValue(v),total,0.00000001);
+		
+		PrimitiveIterator.OfDouble it=v.iterator();
+		for (int i=0; i<count; i++) {
+			assertTrue(it.hasNext());
+			assertEquals(v.unsafeGet(i),it.nextDouble(),0.0);
+		}
+		assertFalse(it.hasNext());
 	}
 	
 	private void testApplyOp(AVector v) {
@@ -749,6 +774,291 @@ public class TestVectors {
 		new TestArrays().testArray(v);
 	}
 
+	@Test public void testBufferVector() {
+		BufferVector bv=Vectorz.createDirect(4);
+		assertTrue(bv.asDoubleBuffer().isDirect());
+		bv.set(Vector.of(1,2,3,4));
+		assertEquals(30.0,bv.dotProduct(Vector.of(1,2,3,4)),0.0);
+		assertEquals(30.0,bv.dotProduct(bv.exactClone()),0.0);
+		
+		AVector sub=bv.subVector(1, 2);
+		sub.add(Vector.of(10,10));
+		assertEquals(Vector.of(1,12,13,4),bv.toVector());
+		
+		AVector copy=(AVector)serialRoundTrip(bv);
+		assertEquals(Vector.of(1,12,13,4),copy);
+		assertEquals(Vector.class,copy.getClass());
+		
+		bv.close();
+		assertTrue(bv.isClosed());
+		try {
+			bv.get(0);
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			bv.unsafeGet(0);
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			bv.elementSum();
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+	}
+	
+	static Object serialRoundTrip(Object o) {
+		try {
+			ByteArrayOutputStream bos=new ByteArrayOutputStream();
+			ObjectOutputStream oos=new ObjectOutputStream(bos);
+			oos.writeObject(o);
+			oos.close();
+			return new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray())).readObject();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	@Test public void testFloatVector() {
+		FloatVector fv=FloatVector.create(Vector.of(1,2,3,4));
+		assertEquals(Vector.of(1,2,3,4),fv);
+		assertEquals(30.0,fv.dotProduct(Vector.of(1,2,3,4)),0.0);
+		assertEquals(30.0,fv.dotProduct(fv.exactClone()),0.0);
+
+		fv.addMultiple(Vector.of(1,1,1,1), 0.5);
+		assertEquals(Vector.of(1.5,2.5,3.5,4.5),fv.toVector());
+
+		// values are rounded to float precision on storage
+		fv.set(0, 0.1);
+		assertEquals((float)0.1,fv.get(0),0.0);
+		assertNotEquals(0.1,fv.get(0),0.0);
+
+		// accumulation is in double precision
+		FloatVector big=Vectorz.createFloat(1000000);
+		big.fill(0.1);
+		assertEquals(1000000*(double)(float)0.1,big.elementSum(),1e-6);
+
+		AVector sub=FloatVector.of(1,2,3,4,5).subVector(1, 3);
+		assertEquals(FloatVector.class,sub.getClass());
+		sub.add(Vector.of(10,10,10));
+		assertEquals(Vector.of(12,13,14),sub);
+		assertEquals(FloatVector.class,sub.exactClone().getClass());
+		sub.validate();
+	}
+
+	@Test public void testChunkedVector() {
+		PagedStorage ps=PagedStorage.create(100, 4);
+		assertEquals(7,ps.pageCount());
+		ChunkedVector cv=ChunkedVector.wrap(ps, 10, 50);
+		cv.set(Vectorz.createRange(50));
+		assertEquals(Vectorz.createRange(50),cv);
+		assertEquals(1225.0,cv.elementSum(),0.0);
+		assertEquals(1225.0,cv.elementStream().parallel().sum(),0.0);
+		assertEquals(10.0,ps.get(20),0.0);
+
+		// views cross page boundaries
+		AVector sub=cv.subVector(5, 20);
+		sub.multiply(2.0);
+		assertEquals(12.0,cv.get(6),0.0);
+		assertEquals(6840.0,sub.dotProduct(Vectorz.createRange(20)),0.0);
+		
+		AVector copy=(AVector)serialRoundTrip(cv);
+		assertEquals(cv,copy);
+		
+		// overlapping copies within one storage behave like System.arraycopy
+		for (int shift : new int[] {-13, -1, 1, 5, 13}) {
+			PagedStorage s=PagedStorage.create(80, 3);
+			double[] expected=new double[80];
+			for (int i=0; i<80; i++) {
+				s.set(i, i);
+				expected[i]=i;
+			}
+			ChunkedVector.wrap(s, 20+shift, 30).set(ChunkedVector.wrap(s, 20, 30));
+			System.arraycopy(expected, 20, expected, 20+shift, 30);
+			for (int i=0; i<80; i++) {
+				assertEquals(expected[i],s.get(i),0.0);
+			}
+		}
+	}
+
+	@Test public void testConcurrentAccumulation() throws InterruptedException {
+		final AtomicVector av=AtomicVector.create(10);
+		final StripedAccumulatorVector sv=StripedAccumulatorVector.create(10, 4);
+		final AVector grad=Vectorz.createRange(10);
+		Thread[] threads=new Thread[4];
+		for (int t=0; t<threads.length; t++) {
+			threads[t]=new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int k=0; k<1000; k++) {
+						av.addAt(3, 1.0);
+						sv.addAt(3, 1.0);
+						av.addMultiple(grad, 0.5);
+						sv.addMultiple(grad, 0.5);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread t: threads) {
+			t.join();
+		}
+		AVector expected=grad.clone();
+		expected.multiply(2000.0);
+		expected.addAt(3, 4000.0);
+		assertEquals(expected,av.snapshot());
+		assertEquals(expected,sv.snapshot());
+		assertEquals(expected.elementSum(),sv.elementSum(),0.0);
+		assertEquals(10000.0,av.getAndAdd(3, 1.0),0.0);
+		assertTrue(av.compareAndSet(3, 10001.0, 2.0));
+		assertEquals(2.0,av.get(3),0.0);
+
+		assertEquals(expected,sv.drain());
+		assertTrue(sv.isZero());
+	}
+
+	@Test public void testCompressedVectors() {
+		double[] data=new double[1000];
+		for (int i=0; i<data.length; i++) {
+			data[i]=(i<300)?1.5:((i<700)?0.0:-2.0);
+		}
+		AVector v=Vector.wrap(data);
+		ACompressedVector rle=Vectorz.createCompressed(v);
+		assertEquals(RunLengthVector.class,rle.getClass());
+		assertEquals(3,((RunLengthVector)rle).runCount());
+		assertEquals(v,rle);
+		assertEquals(v.elementSum(),rle.elementSum(),0.0);
+		assertEquals(600,rle.nonZeroCount());
+		AVector r=Vectorz.createUniformRandomVector(1000);
+		assertEquals(v.dotProduct(r),rle.dotProduct(r),0.000001);
+		// non-finite values within a zero run give NaN, as in the dense dot product
+		r.set(500,Double.POSITIVE_INFINITY);
+		assertTrue(Double.isNaN(v.dotProduct(r)));
+		assertTrue(Double.isNaN(rle.dotProduct(r)));
+		r.set(500,Double.NaN);
+		assertTrue(Double.isNaN(rle.dotProduct(r)));
+		r.set(500,0.5);
+
+		// few distinct levels changing too often for run-length encoding
+		for (int i=0; i<data.length; i++) {
+			data[i]=(i*7)%5;
+		}
+		ACompressedVector dict=Vectorz.createCompressed(v);
+		assertEquals(DictionaryVector.class,dict.getClass());
+		assertEquals(v,dict);
+		assertTrue(dict.compressedSize()<data.length*8);
+
+		// slowly varying series
+		for (int i=0; i<data.length; i++) {
+			data[i]=100.0+i*0.25;
+		}
+		ACompressedVector xor=Vectorz.createCompressed(v);
+		assertEquals(XorCompressedVector.class,xor.getClass());
+		assertEquals(v,xor);
+		assertTrue(xor.compressedSize()<data.length*4);
+		assertEquals(v.magnitudeSquared(),xor.magnitudeSquared(),0.0);
+		assertEquals(v.dotProduct(r),xor.dotProduct(r),0.000001);
+		assertEquals(v.subVector(250, 300),xor.subVector(250, 300));
+
+		// arbitrary values round-trip exactly
+		AVector w=Vectorz.createUniformRandomVector(600);
+		w.set(3,-0.0);
+		w.set(4,Double.NaN);
+		XorCompressedVector xw=XorCompressedVector.create(w);
+		assertEquals(Double.doubleToRawLongBits(-0.0),Double.doubleToRawLongBits(xw.get(3)));
+		assertTrue(Double.isNaN(xw.get(4)));
+		w.set(4,1.0);
+		assertEquals(w,XorCompressedVector.create(w));
+
+		try {
+			xor.set(0,1.0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// OK
+		}
+	}
+
+	@Test public void testPersistentVector() {
+		AVector v=Vectorz.createUniformRandomVector(40000);
+		PersistentVector p=Vectorz.createPersistent(v);
+		assertEquals(v,p);
+		assertEquals(v.elementSum(),p.elementSum(),0.000001);
+		AVector r=Vectorz.createUniformRandomVector(40000);
+		assertEquals(v.dotProduct(r),p.dotProduct(r),0.000001);
+
+		PersistentVector p2=p.withSet(20000, 7.0);
+		assertEquals(7.0,p2.get(20000),0.0);
+		assertEquals(v.get(20000),p.get(20000),0.0);
+		assertFalse(p.sharesLeaf(p2, 20000));
+		assertTrue(p.sharesLeaf(p2, 0));
+		assertTrue(p.sharesLeaf(p2, 39999));
+
+		AVector d=Vectorz.createUniformRandomVector(1000);
+		PersistentVector p3=p2.withAdded(1000, d);
+		AVector expected=v.clone();
+		expected.set(20000,7.0);
+		expected.subVector(1000, 1000).add(d);
+		assertEquals(expected,p3);
+		assertEquals(p,v);
+		assertTrue(p3.sharesLeaf(p2, 20000));
+		assertTrue(p3.sharesLeaf(p2, 0));
+		assertFalse(p3.sharesLeaf(p2, 1999));
+
+		assertEquals(expected.subVector(300, 5000),p3.subVector(300, 5000));
+		AVector vv=v.clone();
+		vv.add(v);
+		assertEquals(vv,p.withAdded(v).toVector());
+
+		try {
+			p.set(0,1.0);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// OK
+		}
+	}
+
+	@Test public void testDoubleBufferedVector() {
+		AVector v=Vectorz.createUniformRandomVector(3000);
+		DoubleBufferedVector b=DoubleBufferedVector.create(v);
+		PersistentVector s1=b.getSnapshot();
+		assertEquals(v,s1);
+
+		b.set(1000, 5.0);
+		b.addAt(1001, 1.0);
+		assertEquals(1,b.dirtyBlockCount());
+		assertEquals(v,b.getSnapshot());
+		PersistentVector s2=b.publish();
+		assertEquals(0,b.dirtyBlockCount());
+		assertEquals(5.0,s2.get(1000),0.0);
+		assertEquals(v.get(1001)+1.0,s2.get(1001),0.0);
+		assertTrue(s1.sharesLeaf(s2, 0));
+		assertFalse(s1.sharesLeaf(s2, 1000));
+		assertEquals(b,s2);
+
+		b.set(1000, 6.0);
+		assertEquals(5.0,s2.get(1000),0.0);
+
+		double[] dest=new double[100];
+		try {
+			b.copyTo(2990, dest, 0, 20);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// OK
+		}
+		try {
+			b.copyTo(0, dest, 90, 20);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// OK
+		}
+		// nothing is copied from a rejected range
+		assertTrue(Vector.wrap(dest).isZero());
+	}
+
 	@Test public void genericTests() {
 		doGenericTests(Vector0.of());
 		
@@ -767,9 +1077,32 @@ public class TestVectors {
 		// zero-length Vectors
 		doGenericTests(Vector.of());
 		doGenericTests(new GrowableVector(Vector.of()));
+		doGenericTests(RingBufferVector.create(3));
+		doGenericTests(ChunkedVector.wrap(PagedStorage.create(20, 2), 3, 9));
+		doGenericTests(ChunkedVector.create(Vector.of(1,2,3)));
+		doGenericTests(RunLengthVector.create(Vector.of(1,1,2,2,2,3)));
+		doGenericTests(DictionaryVector.create(Vector.of(1,2,1,3,2)));
+		doGenericTests(XorCompressedVector.create(Vector.of(1.5,1.5,1.75,2,-3)));
+		doGenericTests(RunLengthVector.create(Vector.of()));
+		doGenericTests(AtomicVector.create(Vector.of(1,2,3)));
+		doGenericTests(StripedAccumulatorVector.create(3));
+		doGenericTests(PersistentVector.create(Vector.of(1,2,3)));
+		doGenericTests(PersistentVector.createZeros(0));
+		doGenericTests(DoubleBufferedVector.create(Vector.of(1,2,3)));
+		doGenericTests(DoubleBufferedVector.create(Vectorz.createUniformRandomVector(2000)));
+		doGenericTests(DoubleBufferedVector.create(0));
+		doGenericTests(PersistentVector.create(Vectorz.createUniformRandomVector(20000)));
 		doGenericTests(Vector.wrap(new double[0]));
 		doGenericTests(new Vector3(1.0,2.0,3.0).subVector(2, 0));
 		
+		RingBufferVector rbv=RingBufferVector.create(5);
+		for (int i=0; i<8; i++) rbv.append(i);
+		doGenericTests(rbv);
+		
+		BufferVector bv=BufferVector.create(Vector.of(1,2,3,4,5));
+		doGenericTests(bv);
+		doGenericTests(bv.subVector(1, 3));
+		
 		for (int j=0; j<10; j++) {
 			double[] data=new double[j];
 			for (int i=0; i<j; i++) data[i]=i;
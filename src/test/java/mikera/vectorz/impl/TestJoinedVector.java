@@ -175,6 +175,50 @@ public class TestJoinedVector {
 		assertEquals(3,jabc.numArrays());
 	}
 	
+	@Test public void testJoinedArraySegmentOps() {
+		Vector v=Vector.of(0,1,2,3,4,5,6,7,8,9);
+		AVector a=v.subVector(0, 3).join(v.subVector(4, 2)).join(Vector.of(10,11,12,13,14));
+		AVector b=Vector.of(1,2).join(Vector.of(3,4,5,6,7,8)).join(Vector.of(9,10));
+		assertEquals(JoinedArrayVector.class,a.getClass());
+		assertEquals(JoinedArrayVector.class,b.getClass());
+		Vector ra=a.toVector();
+		Vector rb=b.toVector();
+		
+		assertEquals(ra.dotProduct(rb),a.dotProduct(b),0.0);
+		assertEquals(ra.dotProduct(rb),a.dotProduct(rb),0.0);
+		assertEquals(ra.dotProduct(rb),a.dotProduct(Vectorz.wrapStrided(rb.getArray(), 0, 10, 1)),0.0);
+		assertEquals(ra.magnitudeSquared(),a.magnitudeSquared(),0.0);
+		
+		double[] dest=new double[4];
+		a.copyTo(2, dest, 0, 4);
+		assertEquals(ra.subVector(2, 4),Vector.wrap(dest));
+		assertEquals(ra.subVector(3, 2),a.subVector(3, 2));
+		
+		a.add(1,Vector.of(100));
+		ra.add(1,Vector.of(100));
+		assertEquals(ra,a);
+		
+		a.addMultiple(b,2.0);
+		ra.addMultiple(rb,2.0);
+		assertEquals(ra,a);
+		
+		b.set(a);
+		assertEquals(ra,b);
+	}
+	
+	@Test public void testJoinedFlatten() {
+		AVector a=Vector1.of(0).join(Vector.of(1,2));
+		assertEquals(JoinedVector.class,a.getClass());
+		
+		AVector j=a.join(Vector.of(3));
+		assertEquals(Vector.of(0,1,2,3),j);
+		assertEquals(2,((JoinedVector)j).depth());
+		
+		AVector k=Vector.of(-1).join(Vector.of(0,1).join(Vector1.of(2)));
+		assertEquals(Vector.of(-1,0,1,2),k);
+		assertEquals(2,((JoinedVector)k).depth());
+	}
+	
 	@Test public void testJoinedVector3Add() {
 		Vector v=Vector.of(0,1,2,3,4);
 		AVector j=v.clone().join(v.exactClone());
@@ -0,0 +1,91 @@
+package mikera.vectorz.util;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import mikera.arrayz.Array;
+import mikera.arrayz.INDArray;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.Matrixx;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Scalar;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vector3;
+import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.Vector0;
+
+public class TestEdnReader {
+	@Test public void testNumbers() {
+		assertEquals(Vector.of(1, -2, 0.5, 1e10, -3.25e-3, 7, 8, 0.1),
+				new EdnReader("[1 -2 0.5 1e10 -3.25E-3 7N 8M 0.1]").readVector());
+		assertEquals(Math.PI, new EdnReader(Double.toString(Math.PI)).readDouble(), 0.0);
+		assertEquals(Double.MIN_VALUE, new EdnReader(Double.toString(Double.MIN_VALUE)).readDouble(), 0.0);
+		assertEquals(0.1234567890123456789, new EdnReader("0.1234567890123456789").readDouble(), 0.0);
+		assertTrue(Double.isNaN(new EdnReader("NaN").readDouble()));
+		assertEquals(Double.NEGATIVE_INFINITY, new EdnReader("##-Inf").readDouble(), 0.0);
+	}
+
+	@Test public void testShapes() {
+		assertEquals(Scalar.create(2.0), new EdnReader("2.0").readArray());
+		assertEquals(Matrix.class, new EdnReader("[[1 2] [3 4] [5 6]]").readArray().getClass());
+
+		INDArray a = new EdnReader("[[[1 2] [3 4]] [[5 6] [7 8]]]").readArray();
+		assertEquals(Array.class, a.getClass());
+		assertEquals(36.0, a.elementSum(), 0.0);
+
+		assertEquals(0, new EdnReader("[]").readMatrix().rowCount());
+		assertEquals(Vector.of(1, 2), new EdnReader("  [1,2] ; comment\n").readVector());
+
+		// parse keeps the specialised small vector types
+		assertEquals(Vector3.class, Vectorz.parse("[1 2 3]").getClass());
+		assertEquals(Vector0.class, Vectorz.parse("[]").getClass());
+		assertEquals(Vector.class, Vectorz.parse("[1 2 3 4 5]").getClass());
+
+		try {
+			new EdnReader("[[1 2] [3]]").readArray();
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			new EdnReader("[1 foo]").readVector();
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+	}
+
+	@Test public void testStreamingRows() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < 1000; i++) {
+			sb.append("[" + i + " " + (i * 2) + " " + (i * 3) + "]\n");
+		}
+		sb.append("]");
+
+		EdnReader r = new EdnReader(new StringReader(sb.toString()));
+		r.beginVector();
+		int n = 0;
+		while (r.hasNext()) {
+			AVector row = r.readVector();
+			assertEquals(Vector.of(n, n * 2, n * 3), row);
+			n++;
+		}
+		r.endVector();
+		assertTrue(r.isAtEnd());
+		assertEquals(1000, n);
+	}
+
+	@Test public void testByteBuffer() {
+		ByteBuffer b = ByteBuffer.wrap("[1 2] [[3]]".getBytes(StandardCharsets.US_ASCII));
+		EdnReader r = new EdnReader(b);
+		assertEquals(Vector.of(1, 2), r.readVector());
+		assertEquals(5, b.position());
+		assertEquals(Matrixx.create(new double[][] {{3}}), r.readMatrix());
+		assertEquals(0, b.remaining());
+	}
+}
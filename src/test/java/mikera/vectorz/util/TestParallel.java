@@ -0,0 +1,134 @@
+package mikera.vectorz.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import mikera.arrayz.Array;
+import mikera.matrixx.Matrix;
+import mikera.matrixx.Matrixx;
+import mikera.matrixx.impl.VectorMatrixMN;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Ops;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.SparseIndexedVector;
+
+import org.junit.Test;
+
+public class TestParallel {
+	@Test public void testKernels() {
+		ForkJoinPool pool=new ForkJoinPool(3);
+		int oldThreshold=Parallel.getThreshold();
+		try {
+			Parallel.setPool(pool);
+			Parallel.setThreshold(1000);
+			int n=100003;
+			double[] a=Vectorz.createUniformRandomVector(n).toDoubleArray();
+			double[] b=a.clone();
+			double[] src=Vectorz.createUniformRandomVector(n).toDoubleArray();
+
+			Parallel.addMultiple(a, 0, src, 0, n, 2.0);
+			DoubleArrays.addMultiple(b, 0, src, 0, n, 2.0);
+			assertArrayEquals(b, a, 0.0);
+
+			Parallel.applyOp(Ops.SQUARE, a, 1, n-1);
+			Ops.SQUARE.applyTo(b, 1, n-1);
+			assertArrayEquals(b, a, 0.0);
+
+			Parallel.fill(a, 5, 50000, 3.0);
+			assertEquals(3.0, a[50004], 0.0);
+			assertEquals(b[50005], a[50005], 0.0);
+			assertEquals(b[4], a[4], 0.0);
+		} finally {
+			Parallel.setPool(null);
+			Parallel.setThreshold(oldThreshold);
+			pool.shutdown();
+		}
+	}
+
+	@Test public void testGlobalPolicy() {
+		int oldThreshold=Parallel.getThreshold();
+		try {
+			Parallel.setThreshold(1000);
+			AVector v=Vectorz.createUniformRandomVector(20000);
+			Matrix m=Matrix.create(Matrixx.createRandomMatrix(100, 200));
+			Array arr=Array.newArray(20, 30, 40);
+			arr.asVector().set(Vectorz.createUniformRandomVector(24000));
+
+			AVector v2=v.clone();
+			Matrix m2=m.clone();
+			Array arr2=arr.exactClone();
+			v2.multiply(2.0);
+			v2.add(v);
+			v2.applyOp(Ops.EXP);
+			m2.add(m);
+			m2.addMultiple(m, 0.5);
+			m2.applyOp(Ops.SQUARE);
+			arr2.multiply(3.0);
+			arr2.applyOp(Ops.NEGATE);
+
+			Parallel.setEnabled(true);
+			assertTrue(Parallel.shouldParallelize(20000));
+			AVector v3=Vector.create(v);
+			Matrix m3=m.clone();
+			Array arr3=arr.exactClone();
+			v3.multiply(2.0);
+			v3.add(v);
+			v3.applyOp(Ops.EXP);
+			m3.add(m);
+			m3.addMultiple(m, 0.5);
+			m3.applyOp(Ops.SQUARE);
+			arr3.multiply(3.0);
+			arr3.applyOp(Ops.NEGATE);
+
+			assertEquals(v2, v3);
+			assertEquals(m2, m3);
+			assertEquals(arr2, arr3);
+		} finally {
+			Parallel.setEnabled(false);
+			Parallel.setThreshold(oldThreshold);
+		}
+		assertFalse(Parallel.shouldParallelize(Integer.MAX_VALUE));
+	}
+
+	@Test public void testTransform() {
+		ForkJoinPool pool=new ForkJoinPool(4);
+		int oldThreshold=Parallel.getThreshold();
+		try {
+			Parallel.setPool(pool);
+			Parallel.setThreshold(1000);
+			Matrix m=Matrix.create(Matrixx.createRandomMatrix(301, 97));
+			AVector src=Vectorz.createUniformRandomVector(97);
+			Vector expected=Vector.createLength(301);
+			for (int i=0; i<301; i++) {
+				expected.set(i, m.getRow(i).dotProduct(src));
+			}
+
+			Vector dest=Vector.createLength(301);
+			Parallel.transform(m, src, dest);
+			assertTrue(expected.epsilonEquals(dest));
+
+			AVector[] rows=new AVector[301];
+			for (int i=0; i<301; i++) {
+				AVector row=m.getRow(i).clone();
+				for (int j=i%3; j<97; j+=3) row.set(j,0.0);
+				rows[i]=SparseIndexedVector.create(row);
+			}
+			VectorMatrixMN sm=VectorMatrixMN.wrap(rows);
+			AVector sdest=Vectorz.newVector(301).subVector(0, 301);
+			Parallel.transform(sm, src, sdest);
+			assertTrue(sm.toMatrix().transform(src).epsilonEquals(sdest));
+
+			Parallel.setEnabled(true);
+			assertTrue(expected.epsilonEquals(m.transform(src)));
+			assertTrue(expected.epsilonEquals(m.transform(Vector.create(src))));
+			assertTrue(expected.epsilonEquals(new VectorMatrixMN(m).transform(src)));
+		} finally {
+			Parallel.setEnabled(false);
+			Parallel.setPool(null);
+			Parallel.setThreshold(oldThreshold);
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package mikera.vectorz.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import mikera.matrixx.Matrixx;
+import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+import mikera.vectorz.impl.DoubleBufferedVector;
+
+import org.junit.Test;
+
+public class TestRandomStream {
+	@Test public void testSeededFills() {
+		int n=3*RandomStream.BLOCK_SIZE+17;
+		double[] a=new double[n];
+		double[] g=new double[n];
+		double[] b=new double[n];
+		Parallel.fillUniform(42L, a, 0, n);
+		Parallel.fillGaussian(42L, g, 0, n, 1.0, 2.0);
+		Parallel.fillBinary(42L, b, 0, n, 0.25);
+
+		ForkJoinPool pool=new ForkJoinPool(3);
+		int oldThreshold=Parallel.getThreshold();
+		try {
+			Parallel.setPool(pool);
+			Parallel.setThreshold(1000);
+			Vector g2=Vector.createLength(n);
+			Vectorz.fillGaussian(g2, 1.0, 2.0, 42L);
+			assertArrayEquals(g, g2.toDoubleArray(), 0.0);
+
+			AVector b2=DoubleBufferedVector.create(n);
+			Vectorz.fillBinaryRandom(b2, 0.25, 42L);
+			assertArrayEquals(b, b2.toDoubleArray(), 0.0);
+
+			// seeded fills only use the pool once parallel execution is enabled
+			assertEquals(0, pool.getPoolSize());
+			Parallel.setEnabled(true);
+			Vector g3=Vector.createLength(n);
+			Vectorz.fillGaussian(g3, 1.0, 2.0, 42L);
+			assertTrue(pool.getPoolSize()>0);
+			assertEquals(g2, g3);
+
+			double[] a2=new double[n+1];
+			Parallel.fillUniform(42L, a2, 1, n);
+			assertEquals(0.0, a2[0], 0.0);
+			for (int i=0; i<n; i++) assertEquals(a[i], a2[i+1], 0.0);
+			RandomStream.fillUniform(42L, a2, 1, n);
+			for (int i=0; i<n; i++) assertEquals(a[i], a2[i+1], 0.0);
+		} finally {
+			Parallel.setEnabled(false);
+			Parallel.setPool(null);
+			Parallel.setThreshold(oldThreshold);
+			pool.shutdown();
+		}
+
+		assertEquals(Vectorz.createUniformRandomVector(n, 42L), Vector.wrap(a));
+		assertEquals(Matrixx.createRandomMatrix(7, 11, 5L), Matrixx.createRandomMatrix(7, 11, 5L));
+		assertFalse(Vectorz.createUniformRandomVector(n, 43L).equals(Vector.wrap(a)));
+	}
+
+	@Test public void testRandomStream() {
+		RandomStream r=RandomStream.create(1234L);
+		RandomStream s=r.split();
+		assertFalse(r.nextLong()==s.nextLong());
+		assertEquals(RandomStream.create(7L).nextLong(), RandomStream.create(7L).nextLong());
+
+		int n=200000;
+		double[] d=new double[n];
+		r.fillGaussian(d, 0, n, 0.0, 1.0);
+		AVector v=Vector.wrap(d);
+		double mean=v.elementSum()/n;
+		double var=v.elementSquaredSum()/n-mean*mean;
+		assertEquals(0.0, mean, 0.01);
+		assertEquals(1.0, var, 0.02);
+		int tail=0;
+		for (int i=0; i<n; i++) {
+			if (Math.abs(d[i])>3.0) tail++;
+		}
+		// expected fraction beyond 3 standard deviations is about 0.0027
+		assertTrue((tail>n*0.002)&&(tail<n*0.0035));
+
+		r.fillUniform(d, 0, n);
+		for (int i=0; i<n; i++) {
+			assertTrue((d[i]>=0.0)&&(d[i]<1.0));
+		}
+		assertEquals(0.5, v.elementSum()/n, 0.01);
+
+		RandomStream.current().sampleBinary(d, 0, n);
+		assertEquals(0.5, v.elementSum()/n, 0.01);
+		assertEquals(v.elementSum(), v.elementSquaredSum(), 0.0);
+	}
+}
@@ -0,0 +1,82 @@
+package mikera.vectorz.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+import mikera.arrayz.Array;
+import mikera.arrayz.Arrayz;
+import mikera.arrayz.INDArray;
+import mikera.matrixx.AMatrix;
+import mikera.matrixx.Matrixx;
+import mikera.matrixx.impl.VectorMatrixMN;
+import mikera.vectorz.AVector;
+import mikera.vectorz.BitVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
+
+public class TestTextWriter {
+	@Test public void testSliceToString() {
+		AMatrix m=VectorMatrixMN.wrap(new AVector[] {BitVector.of(1,0), BitVector.of(0,1)});
+		assertEquals("[[1,0],[0,1]]", m.toString());
+		assertEquals("[[1.0,0.0],[0.0,1.0]]", TextWriter.toEdnString(m));
+		assertEquals("[[1.0,2.0],[3.0,4.0]]", Matrixx.create(new double[][] {{1,2},{3,4}}).toString());
+	}
+
+	@Test public void testDoubleFormat() {
+		assertEquals("1.0", DoubleFormat.toString(1.0));
+		assertEquals("-0.0", DoubleFormat.toString(-0.0));
+		assertEquals("0.001", DoubleFormat.toString(0.001));
+		assertEquals("1.0E-4", DoubleFormat.toString(0.0001));
+		assertEquals("1234567.0", DoubleFormat.toString(1234567.0));
+		assertEquals("1.2345678E7", DoubleFormat.toString(12345678.0));
+		assertEquals("1.0E23", DoubleFormat.toString(1e23));
+		assertEquals("4.9E-324", DoubleFormat.toString(Double.MIN_VALUE));
+		assertEquals("1.7976931348623157E308", DoubleFormat.toString(Double.MAX_VALUE));
+		assertEquals("NaN", DoubleFormat.toString(Double.NaN));
+		assertEquals("-Infinity", DoubleFormat.toString(Double.NEGATIVE_INFINITY));
+
+		Random r=new Random(1234);
+		for (int i=0; i<10000; i++) {
+			double d=Double.longBitsToDouble(r.nextLong());
+			if (Double.isNaN(d)) continue;
+			String s=DoubleFormat.toString(d);
+			assertEquals(d, Double.parseDouble(s), 0.0);
+			assertTrue(s.length()<=Double.toString(d).length());
+		}
+	}
+
+	@Test public void testEdn() {
+		assertEquals("[1.0,2.5,-3.0]", Vector.of(1,2.5,-3).toString());
+		assertEquals("[]", Vector.of().toString());
+		assertEquals("[[1.0,2.0],[3.0,4.0]]", Matrixx.create(new double[][] {{1,2},{3,4}}).toString());
+		INDArray a=Array.createFromVector(Vectorz.createRange(8), new int[] {2,2,2});
+		assertEquals("[[[0.0,1.0],[2.0,3.0]],[[4.0,5.0],[6.0,7.0]]]", a.toString());
+		assertEquals(a, Arrayz.parse(a.toString()));
+	}
+
+	@Test public void testCsv() {
+		StringWriter sw=new StringWriter();
+		TextWriter w=new TextWriter(sw);
+		w.writeCsv(Matrixx.create(new double[][] {{1,2},{3,0.5}}));
+		w.writeCsv(Vector.of(7,8));
+		w.flush();
+		assertEquals("1.0,2.0\n3.0,0.5\n7.0,8.0\n", sw.toString());
+	}
+
+	@Test public void testChunkedOutput() {
+		AVector v=Vectorz.createRange(10000);
+		ByteArrayOutputStream bs=new ByteArrayOutputStream();
+		TextWriter w=new TextWriter(bs, 64);
+		w.writeEdn(v);
+		w.close();
+		String s=new String(bs.toByteArray(), StandardCharsets.US_ASCII);
+		assertEquals(v.toString(), s);
+		assertEquals(v, Vectorz.parse(s));
+	}
+}
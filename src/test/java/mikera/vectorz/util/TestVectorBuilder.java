@@ -2,7 +2,11 @@ package mikera.vectorz.util;
 
 import static org.junit.Assert.*;
 
+import java.nio.DoubleBuffer;
+
 import mikera.vectorz.AVector;
+import mikera.vectorz.Vector;
+import mikera.vectorz.Vectorz;
 
 import org.junit.Test;
 
@@ -27,4 +31,38 @@ public class TestVectorBuilder {
 		v=vb.toVector();
 		assertEquals(v,wv);	
 	}
+	
+	@Test public void testBulkAdd() {
+		VectorBuilder vb=new VectorBuilder(0);
+		vb.add(1);
+		vb.addAll(new double[] {0,2,3,0},1,2);
+		vb.addAll(Vector.of(4,5));
+		vb.addAll(DoubleBuffer.wrap(new double[] {6,7}));
+		assertEquals(7,vb.length());
+		assertEquals(Vector.of(1,2,3,4,5,6,7),vb.toVector());
+		
+		for (int i=0; i<10000; i++) {
+			vb.add(i);
+		}
+		assertEquals(10007,vb.length());
+		assertEquals(9999.0,vb.toVector().get(10006),0.0);
+	}
+	
+	@Test public void testChunkedBuild() {
+		ChunkedVectorBuilder cb=new ChunkedVectorBuilder();
+		assertEquals(0,cb.toVector().length());
+		assertEquals(0,cb.toWrappingVector().length());
+		
+		AVector v=Vectorz.createUniformRandomVector(1000);
+		for (int i=0; i<100; i++) {
+			cb.add(v.get(i));
+		}
+		cb.addAll(v.toDoubleArray(),100,200);
+		cb.addAll(v.subVector(300, 300));
+		cb.addAll(DoubleBuffer.wrap(v.toDoubleArray(),600,400));
+		
+		assertEquals(1000,cb.length());
+		assertEquals(v,cb.toVector());
+		assertEquals(v,cb.toWrappingVector());
+	}
 }
@@ -0,0 +1,57 @@
+package mikera.vectorz.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TestWorkspace {
+	@Test public void testScopes() {
+		Workspace ws=Workspace.acquire();
+		double[] a;
+		double[] b;
+		try {
+			a=ws.getArray(10);
+			assertTrue(a.length>=10);
+			
+			Workspace inner=Workspace.acquire();
+			try {
+				b=inner.getZeroArray(5);
+				assertNotSame(a,b);
+				assertEquals(0.0,DoubleArrays.elementSum(b,0,5),0.0);
+				assertEquals(2,inner.depth());
+			} finally {
+				inner.release();
+			}
+			
+			// arrays from a released scope are reused
+			assertSame(b,ws.getArray(5));
+		} finally {
+			ws.release();
+		}
+		assertEquals(0,ws.depth());
+		
+		ws=Workspace.acquire();
+		try {
+			assertSame(a,ws.getArray(8));
+		} finally {
+			ws.release();
+		}
+	}
+	
+	@Test public void testUnbalancedRelease() {
+		Workspace ws=Workspace.acquire();
+		ws.release();
+		try {
+			ws.release();
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+		try {
+			ws.getArray(1);
+			fail();
+		} catch (VectorzException e) {
+			// OK
+		}
+	}
+}